@@ -3,6 +3,7 @@ import datetime as dt
 import json
 import random
 import types
+import urlparse
 
 
 clientUrl = 'http://localhost:8080/api'
@@ -92,15 +93,17 @@ def initialize_user_authentication(user):
 
 
 def get_user_events(authentication_headers):
-    event_list_response = requests.get(eventsPath, headers=authentication_headers)
-    verify_response_or_exit(event_list_response)
-    event_list_content = event_list_response.content
-    isu = isinstance(event_list_content, types.UnicodeType)
-    loaded = json.loads(event_list_content)
-    event_list = event_list_response.json()
+    # Events are paged by cursor: follow the Link header's 'next' URL until the last page
+    event_list = []
+    url = eventsPath
+    while url is not None:
+        event_list_response = requests.get(url, headers=authentication_headers)
+        verify_response_or_exit(event_list_response)
+        event_list.extend(event_list_response.json())
+        next_link = event_list_response.links.get('next')
+        url = urlparse.urljoin(eventsPath, next_link['url']) if next_link else None
     return event_list
 
-
 currentUser = adminUser
 print 'Authenticating User: '
 print(currentUser)
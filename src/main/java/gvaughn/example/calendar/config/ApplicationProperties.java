@@ -12,4 +12,329 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
 
+    private final Reminder reminder = new Reminder();
+
+    private final Calendar calendar = new Calendar();
+
+    public Reminder getReminder() {
+        return reminder;
+    }
+
+    public Calendar getCalendar() {
+        return calendar;
+    }
+
+    public static class Calendar {
+
+        private int cacheSize = 10000;
+
+        private final Index index = new Index();
+
+        private final Recurrence recurrence = new Recurrence();
+
+        private final Version version = new Version();
+
+        private final Sync sync = new Sync();
+
+        public int getCacheSize() {
+            return cacheSize;
+        }
+
+        public void setCacheSize(int cacheSize) {
+            this.cacheSize = cacheSize;
+        }
+
+        public Index getIndex() {
+            return index;
+        }
+
+        public static class Index {
+
+            private boolean enabled = false;
+
+            private int maxCalendars = 1000;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getMaxCalendars() {
+                return maxCalendars;
+            }
+
+            public void setMaxCalendars(int maxCalendars) {
+                this.maxCalendars = maxCalendars;
+            }
+        }
+
+        public Recurrence getRecurrence() {
+            return recurrence;
+        }
+
+        public static class Recurrence {
+
+            private int cacheSize = 10000;
+
+            public int getCacheSize() {
+                return cacheSize;
+            }
+
+            public void setCacheSize(int cacheSize) {
+                this.cacheSize = cacheSize;
+            }
+        }
+
+        public Version getVersion() {
+            return version;
+        }
+
+        public static class Version {
+
+            private int cacheSize = 10000;
+
+            private long maxStalenessMillis = 1000;
+
+            public int getCacheSize() {
+                return cacheSize;
+            }
+
+            public void setCacheSize(int cacheSize) {
+                this.cacheSize = cacheSize;
+            }
+
+            public long getMaxStalenessMillis() {
+                return maxStalenessMillis;
+            }
+
+            public void setMaxStalenessMillis(long maxStalenessMillis) {
+                this.maxStalenessMillis = maxStalenessMillis;
+            }
+        }
+
+        public Sync getSync() {
+            return sync;
+        }
+
+        public static class Sync {
+
+            private int tokenValidityDays = 30;
+
+            public int getTokenValidityDays() {
+                return tokenValidityDays;
+            }
+
+            public void setTokenValidityDays(int tokenValidityDays) {
+                this.tokenValidityDays = tokenValidityDays;
+            }
+        }
+    }
+
+    public static class Reminder {
+
+        private Mode mode = Mode.LOCAL;
+
+        private Engine engine = Engine.WHEEL;
+
+        private long tickMillis = 100;
+
+        private int wheelSize = 512;
+
+        private long horizonMinutes = 120;
+
+        private long sweepIntervalMillis = 60000;
+
+        private long flushIntervalMillis = 1000;
+
+        private int flushQueueCapacity = 10000;
+
+        private long lagSloMillis = 5000;
+
+        private final Cluster cluster = new Cluster();
+
+        private final CatchUp catchUp = new CatchUp();
+
+        public Mode getMode() {
+            return mode;
+        }
+
+        public void setMode(Mode mode) {
+            this.mode = mode;
+        }
+
+        public Engine getEngine() {
+            return engine;
+        }
+
+        public void setEngine(Engine engine) {
+            this.engine = engine;
+        }
+
+        public long getTickMillis() {
+            return tickMillis;
+        }
+
+        public void setTickMillis(long tickMillis) {
+            this.tickMillis = tickMillis;
+        }
+
+        public int getWheelSize() {
+            return wheelSize;
+        }
+
+        public void setWheelSize(int wheelSize) {
+            this.wheelSize = wheelSize;
+        }
+
+        public long getHorizonMinutes() {
+            return horizonMinutes;
+        }
+
+        public void setHorizonMinutes(long horizonMinutes) {
+            this.horizonMinutes = horizonMinutes;
+        }
+
+        public long getSweepIntervalMillis() {
+            return sweepIntervalMillis;
+        }
+
+        public void setSweepIntervalMillis(long sweepIntervalMillis) {
+            this.sweepIntervalMillis = sweepIntervalMillis;
+        }
+
+        public long getFlushIntervalMillis() {
+            return flushIntervalMillis;
+        }
+
+        public void setFlushIntervalMillis(long flushIntervalMillis) {
+            this.flushIntervalMillis = flushIntervalMillis;
+        }
+
+        public int getFlushQueueCapacity() {
+            return flushQueueCapacity;
+        }
+
+        public void setFlushQueueCapacity(int flushQueueCapacity) {
+            this.flushQueueCapacity = flushQueueCapacity;
+        }
+
+        public long getLagSloMillis() {
+            return lagSloMillis;
+        }
+
+        public void setLagSloMillis(long lagSloMillis) {
+            this.lagSloMillis = lagSloMillis;
+        }
+
+        public Cluster getCluster() {
+            return cluster;
+        }
+
+        public CatchUp getCatchUp() {
+            return catchUp;
+        }
+
+        public enum Mode {
+            /** Reminders are fired from this node's in-memory scheduler. */
+            LOCAL,
+            /** Nodes claim due reminders from the shared queue under a lease. */
+            CLUSTER
+        }
+
+        public enum Engine {
+            /** Hashed hierarchical timing wheel. */
+            WHEEL,
+            /** Single-threaded ScheduledExecutorService. */
+            EXECUTOR
+        }
+
+        public static class Cluster {
+
+            private String nodeId;
+
+            private int batchSize = 100;
+
+            private long pollIntervalMillis = 1000;
+
+            private long leaseSeconds = 60;
+
+            public String getNodeId() {
+                return nodeId;
+            }
+
+            public void setNodeId(String nodeId) {
+                this.nodeId = nodeId;
+            }
+
+            public int getBatchSize() {
+                return batchSize;
+            }
+
+            public void setBatchSize(int batchSize) {
+                this.batchSize = batchSize;
+            }
+
+            public long getPollIntervalMillis() {
+                return pollIntervalMillis;
+            }
+
+            public void setPollIntervalMillis(long pollIntervalMillis) {
+                this.pollIntervalMillis = pollIntervalMillis;
+            }
+
+            public long getLeaseSeconds() {
+                return leaseSeconds;
+            }
+
+            public void setLeaseSeconds(long leaseSeconds) {
+                this.leaseSeconds = leaseSeconds;
+            }
+        }
+
+        public static class CatchUp {
+
+            private long maxStalenessMinutes = 60;
+
+            private int ratePerSecond = 200;
+
+            private int parallelism = 4;
+
+            private int chunkSize = 500;
+
+            public long getMaxStalenessMinutes() {
+                return maxStalenessMinutes;
+            }
+
+            public void setMaxStalenessMinutes(long maxStalenessMinutes) {
+                this.maxStalenessMinutes = maxStalenessMinutes;
+            }
+
+            public int getRatePerSecond() {
+                return ratePerSecond;
+            }
+
+            public void setRatePerSecond(int ratePerSecond) {
+                this.ratePerSecond = ratePerSecond;
+            }
+
+            public int getParallelism() {
+                return parallelism;
+            }
+
+            public void setParallelism(int parallelism) {
+                this.parallelism = parallelism;
+            }
+
+            public int getChunkSize() {
+                return chunkSize;
+            }
+
+            public void setChunkSize(int chunkSize) {
+                this.chunkSize = chunkSize;
+            }
+        }
+    }
 }
@@ -0,0 +1,47 @@
+package gvaughn.example.calendar.config;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import gvaughn.example.calendar.service.ReminderMetrics;
+import gvaughn.example.calendar.service.reminder.ExecutorReminderScheduler;
+import gvaughn.example.calendar.service.reminder.ReminderHandler;
+import gvaughn.example.calendar.service.reminder.ReminderScheduler;
+import gvaughn.example.calendar.service.reminder.TimingWheelReminderScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ReminderConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(ReminderConfiguration.class);
+
+    private final ApplicationProperties applicationProperties;
+
+    private final MetricRegistry metricRegistry;
+
+    public ReminderConfiguration(ApplicationProperties applicationProperties, MetricRegistry metricRegistry) {
+        this.applicationProperties = applicationProperties;
+        this.metricRegistry = metricRegistry;
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ReminderScheduler reminderScheduler(ReminderHandler reminderHandler) {
+        ReminderScheduler scheduler = createReminderScheduler(reminderHandler);
+        metricRegistry.register(ReminderMetrics.PENDING, (Gauge<Integer>) scheduler::size);
+        metricRegistry.register(ReminderMetrics.OVERDUE, (Gauge<Integer>) scheduler::overdueCount);
+        return scheduler;
+    }
+
+    private ReminderScheduler createReminderScheduler(ReminderHandler reminderHandler) {
+        ApplicationProperties.Reminder reminder = applicationProperties.getReminder();
+        if (reminder.getEngine() == ApplicationProperties.Reminder.Engine.EXECUTOR) {
+            log.debug("Creating executor reminder scheduler");
+            return new ExecutorReminderScheduler(reminderHandler);
+        }
+        log.debug("Creating timing wheel reminder scheduler, tick {} ms, {} buckets per level",
+            reminder.getTickMillis(), reminder.getWheelSize());
+        return new TimingWheelReminderScheduler(reminder.getTickMillis(), reminder.getWheelSize(), reminderHandler);
+    }
+}
@@ -2,6 +2,9 @@ package gvaughn.example.calendar.domain;
 
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
@@ -21,9 +24,14 @@ public class CalendarEvent implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Longest duration of an event, which bounds how far before a time range an event overlapping it can start.
+     */
+    public static final int MAX_DURATION_MINUTES = 24 * 60;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator")
+    @GeneratedValue(generator = "sequenceGenerator")
+    @GenericGenerator(name = "sequenceGenerator", strategy = "gvaughn.example.calendar.domain.util.PooledLoSequenceGenerator")
     private Long id;
 
     @NotNull
@@ -35,6 +43,28 @@ public class CalendarEvent implements Serializable {
     @Column(name = "jhi_time", nullable = false)
     private ZonedDateTime time;
 
+    /**
+     * Minutes the event lasts; an event without a duration occupies only the quarter hour it starts in.
+     */
+    @Min(1)
+    @Max(MAX_DURATION_MINUTES)
+    @Column(name = "duration_minutes")
+    private Integer duration;
+
+    /**
+     * Recurrence rule, in the RRULE subset of {@link gvaughn.example.calendar.service.recurrence.RecurrenceRule},
+     * or null for an event that does not recur. The event's time is the series' first occurrence.
+     */
+    @Size(max = 255)
+    @Column(name = "recurrence_rule", length = 255)
+    private String recurrenceRule;
+
+    /**
+     * Time of the series' last occurrence, or null if it does not recur or does not end; derived from the rule.
+     */
+    @Column(name = "recurrence_end")
+    private ZonedDateTime recurrenceEnd;
+
     @Size(max = 255)
     @Column(name = "location", length = 255)
     private String location;
@@ -47,11 +77,22 @@ public class CalendarEvent implements Serializable {
     @Column(name = "reminder_sent", nullable = false)
     private Boolean reminderSent = Boolean.FALSE;
 
+    /**
+     * Loaded, like the reminder offsets, for all the events of a query result at once, with one subselect
+     * per collection rather than one select per event.
+     */
     @ElementCollection(fetch = FetchType.EAGER)
+    @Fetch(FetchMode.SUBSELECT)
     @CollectionTable(name = "calendar_event_attendees", joinColumns = @JoinColumn(name = "calendar_event_id"))
     @Column(name = "attendee_email")
     private Set<String> attendees = new HashSet<>();
 
+    @ElementCollection(fetch = FetchType.EAGER)
+    @Fetch(FetchMode.SUBSELECT)
+    @CollectionTable(name = "calendar_event_reminder_offsets", joinColumns = @JoinColumn(name = "calendar_event_id"))
+    @Column(name = "offset_minutes")
+    private Set<Integer> reminderOffsets = new HashSet<>();
+
     @ManyToOne(optional = false)
     @NotNull
     private Calendar calendar;
@@ -90,6 +131,40 @@ public class CalendarEvent implements Serializable {
         this.time = time;
     }
 
+    public Integer getDuration() {
+        return duration;
+    }
+
+    public CalendarEvent duration(Integer duration) {
+        this.duration = duration;
+        return this;
+    }
+
+    public void setDuration(Integer duration) {
+        this.duration = duration;
+    }
+
+    public String getRecurrenceRule() {
+        return recurrenceRule;
+    }
+
+    public CalendarEvent recurrenceRule(String recurrenceRule) {
+        this.recurrenceRule = recurrenceRule;
+        return this;
+    }
+
+    public void setRecurrenceRule(String recurrenceRule) {
+        this.recurrenceRule = recurrenceRule;
+    }
+
+    public ZonedDateTime getRecurrenceEnd() {
+        return recurrenceEnd;
+    }
+
+    public void setRecurrenceEnd(ZonedDateTime recurrenceEnd) {
+        this.recurrenceEnd = recurrenceEnd;
+    }
+
     public String getLocation() {
         return location;
     }
@@ -137,6 +212,19 @@ public class CalendarEvent implements Serializable {
         this.attendees = attendees;
     }
 
+    public Set<Integer> getReminderOffsets() {
+        return reminderOffsets;
+    }
+
+    public CalendarEvent reminderOffsets(Set<Integer> reminderOffsets) {
+        this.reminderOffsets = reminderOffsets;
+        return this;
+    }
+
+    public void setReminderOffsets(Set<Integer> reminderOffsets) {
+        this.reminderOffsets = reminderOffsets;
+    }
+
     public Calendar getCalendar() {
         return calendar;
     }
@@ -176,6 +264,8 @@ public class CalendarEvent implements Serializable {
             "id=" + id +
             ", title='" + title + "'" +
             ", time='" + time + "'" +
+            ", duration='" + duration + "'" +
+            ", recurrenceRule='" + recurrenceRule + "'" +
             ", location='" + location + "'" +
             ", reminderTime='" + reminderTime + "'" +
             ", reminderSent='" + reminderSent + "'" +
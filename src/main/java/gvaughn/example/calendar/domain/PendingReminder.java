@@ -0,0 +1,140 @@
+package gvaughn.example.calendar.domain;
+
+import javax.persistence.*;
+import javax.validation.constraints.*;
+import java.io.Serializable;
+import java.time.ZonedDateTime;
+import java.util.Objects;
+
+/**
+ * A reminder waiting to be sent for a calendar event. Rows are written in the same transaction
+ * as the event and removed once the reminder fires, so the table survives restarts. In cluster
+ * mode a node leases the row while it sends the reminder.
+ */
+@Entity
+@Table(name = "pending_reminder")
+public class PendingReminder implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "calendar_event_id")
+    private Long eventId;
+
+    @NotNull
+    @Column(name = "due_time", nullable = false)
+    private ZonedDateTime dueTime;
+
+    @Column(name = "reminder_offsets")
+    private String reminderOffsets;
+
+    /**
+     * Occurrence of a recurring event the reminder is for; null for events that do not recur.
+     */
+    @Column(name = "occurrence_time")
+    private ZonedDateTime occurrenceTime;
+
+    @Column(name = "lease_owner", length = 64)
+    private String leaseOwner;
+
+    @Column(name = "lease_until")
+    private ZonedDateTime leaseUntil;
+
+    public PendingReminder() {
+    }
+
+    public PendingReminder(Long eventId, ZonedDateTime dueTime) {
+        this(eventId, dueTime, null);
+    }
+
+    public PendingReminder(Long eventId, ZonedDateTime dueTime, String reminderOffsets) {
+        this(eventId, dueTime, reminderOffsets, null);
+    }
+
+    public PendingReminder(Long eventId, ZonedDateTime dueTime, String reminderOffsets, ZonedDateTime occurrenceTime) {
+        this.eventId = eventId;
+        this.dueTime = dueTime;
+        this.reminderOffsets = reminderOffsets;
+        this.occurrenceTime = occurrenceTime;
+    }
+
+    public Long getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(Long eventId) {
+        this.eventId = eventId;
+    }
+
+    public ZonedDateTime getDueTime() {
+        return dueTime;
+    }
+
+    public void setDueTime(ZonedDateTime dueTime) {
+        this.dueTime = dueTime;
+    }
+
+    public String getReminderOffsets() {
+        return reminderOffsets;
+    }
+
+    public void setReminderOffsets(String reminderOffsets) {
+        this.reminderOffsets = reminderOffsets;
+    }
+
+    public ZonedDateTime getOccurrenceTime() {
+        return occurrenceTime;
+    }
+
+    public void setOccurrenceTime(ZonedDateTime occurrenceTime) {
+        this.occurrenceTime = occurrenceTime;
+    }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public void setLeaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+
+    public ZonedDateTime getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public void setLeaseUntil(ZonedDateTime leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PendingReminder pendingReminder = (PendingReminder) o;
+        if (pendingReminder.eventId == null || eventId == null) {
+            return false;
+        }
+        return Objects.equals(eventId, pendingReminder.eventId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(eventId);
+    }
+
+    @Override
+    public String toString() {
+        return "PendingReminder{" +
+            "eventId=" + eventId +
+            ", dueTime='" + dueTime + "'" +
+            ", reminderOffsets='" + reminderOffsets + "'" +
+            ", occurrenceTime='" + occurrenceTime + "'" +
+            ", leaseOwner='" + leaseOwner + "'" +
+            ", leaseUntil='" + leaseUntil + "'" +
+            '}';
+    }
+}
@@ -1,6 +1,8 @@
 package gvaughn.example.calendar.domain;
 
 
+import org.hibernate.annotations.GenericGenerator;
+
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import javax.persistence.*;
@@ -17,8 +19,8 @@ import java.util.Map;
 public class PersistentAuditEvent implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator")
+    @GeneratedValue(generator = "sequenceGenerator")
+    @GenericGenerator(name = "sequenceGenerator", strategy = "gvaughn.example.calendar.domain.util.PooledLoSequenceGenerator")
     @Column(name = "event_id")
     private Long id;
 
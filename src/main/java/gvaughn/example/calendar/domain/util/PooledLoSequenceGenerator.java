@@ -0,0 +1,111 @@
+package gvaughn.example.calendar.domain.util;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.jdbc.spi.JdbcCoordinator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * Hands out entity ids from hibernate_sequence a block at a time, with the pooled-lo optimizer: each sequence
+ * call reserves the block starting at the value it returns, so inserting a block's worth of entities costs one
+ * database round trip.
+ * <p>
+ * The block size is the {@value #BLOCK_SIZE_SETTING} Hibernate setting. Blocks reserved by different nodes,
+ * or by different entities, never overlap as long as none is larger than the sequence increment, which is
+ * checked against the database before the first id is handed out. A larger increment is safe, only wasting
+ * ids; a smaller one fails id generation rather than hand out ids another node may use.
+ */
+public class PooledLoSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String BLOCK_SIZE_SETTING = "calendar.id.block_size";
+
+    public static final int DEFAULT_BLOCK_SIZE = 100;
+
+    static final String SEQUENCE_NAME = "hibernate_sequence";
+
+    private static final String SEQUENCE_INCREMENT =
+        "select increment from information_schema.sequences where lower(sequence_name) = ?";
+
+    private static final Logger log = LoggerFactory.getLogger(PooledLoSequenceGenerator.class);
+
+    private int blockSize;
+
+    private volatile boolean incrementChecked;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        blockSize = ConfigurationHelper.getInt(BLOCK_SIZE_SETTING,
+            serviceRegistry.getService(ConfigurationService.class).getSettings(), DEFAULT_BLOCK_SIZE);
+        if (blockSize < 1) {
+            throw new MappingException(BLOCK_SIZE_SETTING + " must be positive, was " + blockSize);
+        }
+        params.setProperty(SEQUENCE_PARAM, SEQUENCE_NAME);
+        params.setProperty(INCREMENT_PARAM, String.valueOf(blockSize));
+        params.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, params, serviceRegistry);
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        if (!incrementChecked) {
+            checkIncrement(session);
+        }
+        return super.generate(session, object);
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Reads the sequence increment from the information schema, which PostgreSQL and H2 both have. A database
+     * without it, or without the sequence there, is not checked.
+     */
+    private synchronized void checkIncrement(SharedSessionContractImplementor session) {
+        if (incrementChecked) {
+            return;
+        }
+        Long increment = null;
+        JdbcCoordinator jdbcCoordinator = session.getJdbcCoordinator();
+        try {
+            PreparedStatement statement = jdbcCoordinator.getStatementPreparer().prepareStatement(SEQUENCE_INCREMENT);
+            try {
+                statement.setString(1, SEQUENCE_NAME);
+                ResultSet resultSet = jdbcCoordinator.getResultSetReturn().extract(statement);
+                if (resultSet.next()) {
+                    increment = resultSet.getLong(1);
+                }
+            } finally {
+                jdbcCoordinator.getLogicalConnection().getResourceRegistry().release(statement);
+                jdbcCoordinator.afterStatementExecution();
+            }
+        } catch (SQLException | HibernateException e) {
+            log.warn("Could not read the increment of {}, block size {} is not checked: {}", SEQUENCE_NAME, blockSize,
+                e.getMessage());
+        }
+        if (increment != null && increment < blockSize) {
+            throw new HibernateException("The " + SEQUENCE_NAME + " increment " + increment + " is smaller than the id " +
+                "block size " + blockSize + ", so blocks would overlap those of other nodes; alter the sequence " +
+                "increment or lower " + BLOCK_SIZE_SETTING);
+        }
+        if (increment != null && increment > blockSize) {
+            log.warn("The {} increment {} is larger than the id block size {}, wasting ids", SEQUENCE_NAME, increment,
+                blockSize);
+        }
+        incrementChecked = true;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Hibernate extensions used by the JPA domain objects.
+ */
+package gvaughn.example.calendar.domain.util;
@@ -0,0 +1,140 @@
+package gvaughn.example.calendar.repository;
+
+import gvaughn.example.calendar.service.dto.CalendarEventChangeDTO;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static gvaughn.example.calendar.repository.util.InListUtil.batches;
+import static gvaughn.example.calendar.repository.util.InListUtil.placeholders;
+
+/**
+ * Writes and reads the change log of calendar events, which holds one row per event with the calendar
+ * versions that created it and last wrote it. A deleted event keeps its row, flagged, as a tombstone.
+ * <p>
+ * Rows are written in the transaction writing the events, after the calendar's version was incremented,
+ * so a calendar's rows commit in version order: a reader that sees a version has seen every row up to it.
+ * Events written before the log existed, or behind the service's back, have no row until their next
+ * write, which logs them as created at version 0.
+ */
+@Repository
+public class CalendarEventChangeRepository {
+
+    private static final String INSERT =
+        "insert into calendar_event_change (event_id, calendar_id, created_version, version, deleted, deleted_time) " +
+            "values (?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE = "update calendar_event_change set version = ? where event_id = ?";
+
+    private static final String DELETE =
+        "update calendar_event_change set version = ?, deleted = true, deleted_time = ? where event_id = ?";
+
+    private static final String UPDATE_AT_CALENDAR_VERSION =
+        "update calendar_event_change c set version = (select version from calendar where id = c.calendar_id) " +
+            "where event_id in ";
+
+    private static final String SELECT_AFTER =
+        "select event_id, created_version, version, deleted from calendar_event_change " +
+            "where calendar_id = ? and version > ?";
+
+    private static final String DELETE_TOMBSTONES = "delete from calendar_event_change where deleted_time < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CalendarEventChangeRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Logs the given events as created at the given version of their calendar, with one JDBC batch.
+     */
+    public void insertCreated(Long calendarId, long version, Collection<Long> eventIds) {
+        if (!eventIds.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, eventIds.stream()
+                .map(id -> new Object[] {id, calendarId, version, version, false, null})
+                .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Logs the given events as updated at the given version of their calendar, with one JDBC batch.
+     */
+    public void markUpdated(Long calendarId, long version, Collection<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(eventIds);
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE, ids.stream()
+            .map(id -> new Object[] {version, id})
+            .collect(Collectors.toList()));
+        insertUnlogged(ids, counts, id -> new Object[] {id, calendarId, 0L, version, false, null});
+    }
+
+    /**
+     * Turns the rows of the given events into tombstones at the given version of their calendar, with one
+     * JDBC batch.
+     * @param deletedTime Time of the deletion, after which the tombstones are kept as long as sync tokens live.
+     */
+    public void markDeleted(Long calendarId, long version, Timestamp deletedTime, Collection<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(eventIds);
+        int[] counts = jdbcTemplate.batchUpdate(DELETE, ids.stream()
+            .map(id -> new Object[] {version, deletedTime, id})
+            .collect(Collectors.toList()));
+        insertUnlogged(ids, counts, id -> new Object[] {id, calendarId, 0L, version, true, deletedTime});
+    }
+
+    /**
+     * Logs the given events as updated at the current version of their calendars, which the caller has just
+     * incremented in the current transaction.
+     * @param eventIds Calendar event ids.
+     */
+    public void markUpdatedAtCalendarVersion(List<Long> eventIds) {
+        for (List<Long> batch : batches(eventIds)) {
+            jdbcTemplate.update(UPDATE_AT_CALENDAR_VERSION + placeholders(batch.size()), batch.toArray());
+        }
+    }
+
+    /**
+     * Reads the calendar's change log past the given version, from one (calendar_id, version) index range.
+     * @param calendarId Calendar id.
+     * @param afterVersion Version whose changes the caller has already seen; -1 for the whole log.
+     * @return Rows of the events written since the version, tombstones included, in no particular order.
+     */
+    public List<CalendarEventChangeDTO> findByCalendarIdAfter(Long calendarId, long afterVersion) {
+        return jdbcTemplate.query(SELECT_AFTER, (rs, rowNum) ->
+            new CalendarEventChangeDTO(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getBoolean(4)),
+            calendarId, afterVersion);
+    }
+
+    /**
+     * Removes the tombstones of events deleted before the given time.
+     * @return Number of tombstones removed.
+     */
+    public int deleteTombstonesBefore(Timestamp before) {
+        return jdbcTemplate.update(DELETE_TOMBSTONES, before);
+    }
+
+    /**
+     * Inserts a row for each event the batch updated none for.
+     */
+    private void insertUnlogged(List<Long> ids, int[] counts, Function<Long, Object[]> row) {
+        List<Object[]> missing = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                missing.add(row.apply(ids.get(i)));
+            }
+        }
+        if (!missing.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, missing);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package gvaughn.example.calendar.repository;
+
+import gvaughn.example.calendar.service.dto.CalendarEventDTO;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static gvaughn.example.calendar.repository.util.InListUtil.batches;
+import static gvaughn.example.calendar.repository.util.InListUtil.placeholders;
+
+/**
+ * Reads calendar events straight into {@link CalendarEventDTO}s for the event list endpoints.
+ * <p>
+ * Rows are mapped by hand rather than loaded as entities, so a read neither hydrates entities and their
+ * calendars into the persistence context nor leaves them to be dirty checked. The attendees and reminder
+ * offsets of a whole result are then read with one IN query each, instead of one query per event.
+ */
+@Repository
+public class CalendarEventReadRepository {
+
+    private static final String SELECT_EVENTS =
+        "select id, title, jhi_time, duration_minutes, recurrence_rule, location, reminder_time, reminder_sent, " +
+            "calendar_id from calendar_event ";
+
+    private static final String SELECT_ATTENDEES =
+        "select calendar_event_id, attendee_email from calendar_event_attendees where calendar_event_id in ";
+
+    private static final String SELECT_REMINDER_OFFSETS =
+        "select calendar_event_id, offset_minutes from calendar_event_reminder_offsets where calendar_event_id in ";
+
+    private static final RowMapper<CalendarEventDTO> EVENT_MAPPER = (rs, rowNum) -> {
+        CalendarEventDTO dto = new CalendarEventDTO();
+        dto.setId(rs.getLong("id"));
+        dto.setTitle(rs.getString("title"));
+        dto.setTime(toZonedDateTime(rs.getTimestamp("jhi_time")));
+        int duration = rs.getInt("duration_minutes");
+        dto.setDuration(rs.wasNull() ? null : duration);
+        dto.setRecurrenceRule(rs.getString("recurrence_rule"));
+        dto.setLocation(rs.getString("location"));
+        dto.setReminderTime(toZonedDateTime(rs.getTimestamp("reminder_time")));
+        dto.setReminderSent(rs.getBoolean("reminder_sent"));
+        dto.setCalendarId(rs.getLong("calendar_id"));
+        return dto;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public CalendarEventReadRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return All events of the calendar, ordered by time then id.
+     */
+    public List<CalendarEventDTO> findByCalendarId(Long calendarId) {
+        return query(SELECT_EVENTS + "where calendar_id = ? order by jhi_time, id", calendarId);
+    }
+
+    /**
+     * @return Events of the calendar within the range, both ends inclusive, ordered by time then id.
+     */
+    public List<CalendarEventDTO> findByCalendarIdAndTimeBetween(Long calendarId, ZonedDateTime startDate,
+                                                                 ZonedDateTime endDate) {
+        return query(SELECT_EVENTS + "where calendar_id = ? and jhi_time between ? and ? order by jhi_time, id",
+            calendarId, toTimestamp(startDate), toTimestamp(endDate));
+    }
+
+    /**
+     * Seeks past the given time and id rather than skipping rows, so every page costs the same. The
+     * redundant {@code jhi_time >= ?} bound lets the database start the (calendar_id, jhi_time) index range
+     * at the previous page's last event; the OR alone would only bound the calendar_id column, leaving every
+     * earlier event of the calendar to be read and filtered.
+     * @param time Time of the previous page's last event, or null for the first page.
+     * @param id Id of the previous page's last event.
+     * @param limit Maximum number of events returned.
+     * @return Events of the calendar after the given one, ordered by time then id.
+     */
+    public List<CalendarEventDTO> findByCalendarIdAfter(Long calendarId, ZonedDateTime time, Long id, int limit) {
+        if (time == null) {
+            return query(SELECT_EVENTS + "where calendar_id = ? order by jhi_time, id limit ?", calendarId, limit);
+        }
+        Timestamp timestamp = toTimestamp(time);
+        return query(SELECT_EVENTS + "where calendar_id = ? and jhi_time >= ? and (jhi_time > ? or id > ?) " +
+            "order by jhi_time, id limit ?", calendarId, timestamp, timestamp, id, limit);
+    }
+
+    /**
+     * Reads the recurring events of the calendar that may have occurrences within the range: those starting
+     * before its end, unless their last occurrence falls before its start. Their occurrences are not expanded.
+     * @return Recurring events of the calendar, ordered by time then id.
+     */
+    public List<CalendarEventDTO> findRecurringByCalendarId(Long calendarId, ZonedDateTime startDate,
+                                                            ZonedDateTime endDate) {
+        return query(SELECT_EVENTS + "where calendar_id = ? and recurrence_rule is not null and jhi_time <= ? " +
+            "and (recurrence_end is null or recurrence_end >= ?) order by jhi_time, id",
+            calendarId, toTimestamp(endDate), toTimestamp(startDate));
+    }
+
+    private List<CalendarEventDTO> query(String sql, Object... args) {
+        flushPendingWrites();
+        List<CalendarEventDTO> events = jdbcTemplate.query(sql, EVENT_MAPPER, args);
+        loadCollections(events);
+        return events;
+    }
+
+    /**
+     * Reads the attendees and reminder offsets of the given events, with one query each.
+     * @param events Events read without their collections, which must be empty.
+     */
+    public void loadCollections(List<CalendarEventDTO> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Map<Long, CalendarEventDTO> eventsById = new HashMap<>(events.size() * 2);
+        for (CalendarEventDTO event : events) {
+            eventsById.put(event.getId(), event);
+        }
+        for (List<Long> batch : batches(new ArrayList<>(eventsById.keySet()))) {
+            String in = placeholders(batch.size());
+            jdbcTemplate.query(SELECT_ATTENDEES + in, batch.toArray(), rs -> {
+                eventsById.get(rs.getLong(1)).getAttendees().add(rs.getString(2));
+            });
+            jdbcTemplate.query(SELECT_REMINDER_OFFSETS + in, batch.toArray(), rs -> {
+                eventsById.get(rs.getLong(1)).getReminderOffsets().add(rs.getInt(2));
+            });
+        }
+    }
+
+    /**
+     * JPA queries flush pending changes before they run; these queries bypass JPA, so they do it themselves
+     * when joining a read-write transaction. Read-only transactions never have anything to flush.
+     */
+    private void flushPendingWrites() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+            && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            entityManager.flush();
+        }
+    }
+
+    /**
+     * Times are stored in the JVM's zone, as Hibernate maps {@link ZonedDateTime} columns.
+     */
+    private static ZonedDateTime toZonedDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : ZonedDateTime.ofInstant(timestamp.toInstant(), ZoneId.systemDefault());
+    }
+
+    private static Timestamp toTimestamp(ZonedDateTime time) {
+        return Timestamp.from(time.toInstant());
+    }
+}
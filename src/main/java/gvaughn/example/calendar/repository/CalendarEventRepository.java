@@ -1,12 +1,17 @@
 package gvaughn.example.calendar.repository;
 
-import gvaughn.example.calendar.domain.Calendar;
 import gvaughn.example.calendar.domain.CalendarEvent;
+import gvaughn.example.calendar.service.dto.CalendarEventDTO;
+import gvaughn.example.calendar.service.dto.EventSpanDTO;
 
 import org.springframework.data.jpa.repository.*;
 
+import javax.persistence.QueryHint;
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 /**
  * Spring Data JPA repository for the CalendarEvent entity.
@@ -14,7 +19,85 @@ import java.util.List;
 @SuppressWarnings("unused")
 public interface CalendarEventRepository extends JpaRepository<CalendarEvent,Long> {
 
-    List<CalendarEvent> findByCalendarOrderByTime(Calendar calendar);
+    /** Rows fetched per round trip by the streaming queries, which is also how many are held at a time. */
+    int EXPORT_FETCH_SIZE = 500;
+
+    List<CalendarEvent> findByCalendarIdOrderByTime(Long calendarId);
+
+    List<CalendarEvent> findByCalendarIdAndTimeBetweenOrderByTime(Long calendarId, ZonedDateTime startDate, ZonedDateTime endDate);
+
+    /**
+     * Loads the given events of a calendar, skipping those of other calendars; their collections are loaded
+     * with one subselect each.
+     */
+    List<CalendarEvent> findByCalendarIdAndIdIn(Long calendarId, List<Long> ids);
+
+    /**
+     * Streams the events' columns only: loading each entity's collections would cost a select per event, so
+     * callers load them for a chunk of events at a time with {@link CalendarEventReadRepository#loadCollections}.
+     */
+    @Query("select new gvaughn.example.calendar.service.dto.CalendarEventDTO(e.id, e.title, e.time, e.duration, e.recurrenceRule, " +
+        "e.location, e.reminderTime, e.reminderSent, e.calendar.id) from CalendarEvent e where e.calendar.id = ?1 order by e.time, e.id")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE))
+    Stream<CalendarEventDTO> streamByCalendarId(Long calendarId);
+
+    @Query("select new gvaughn.example.calendar.service.dto.CalendarEventDTO(e.id, e.title, e.time, e.duration, e.recurrenceRule, " +
+        "e.location, e.reminderTime, e.reminderSent, e.calendar.id) from CalendarEvent e order by e.id")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE))
+    Stream<CalendarEventDTO> streamAll();
+
+    /**
+     * Reads only the calendar, time and duration of the calendars' single events starting within the range,
+     * both ends exclusive, from one (calendar_id, jhi_time) index range per calendar.
+     */
+    @Query("select new gvaughn.example.calendar.service.dto.EventSpanDTO(e.calendar.id, e.time, e.duration) " +
+        "from CalendarEvent e where e.calendar.id in ?1 and e.time > ?2 and e.time < ?3 and e.recurrenceRule is null")
+    List<EventSpanDTO> findSpansByCalendarIdInAndTimeBetween(List<Long> calendarIds, ZonedDateTime after, ZonedDateTime before);
+
+    /**
+     * Reads only the span and rule of the calendars' recurring events that may occur within the range, both
+     * ends exclusive, as {@link #findRecurringSpansByCalendarId} does for one calendar.
+     */
+    @Query("select new gvaughn.example.calendar.service.dto.EventSpanDTO(e.id, e.calendar.id, e.time, e.duration, e.recurrenceRule) " +
+        "from CalendarEvent e where e.calendar.id in ?1 and e.recurrenceRule is not null and e.time < ?3 " +
+        "and (e.recurrenceEnd is null or e.recurrenceEnd > ?2)")
+    List<EventSpanDTO> findRecurringSpansByCalendarIdIn(List<Long> calendarIds, ZonedDateTime after, ZonedDateTime before);
+
+    /**
+     * Reads only the span of the calendar's single events starting within the range, both ends exclusive, from
+     * one (calendar_id, jhi_time) index range.
+     */
+    @Query("select new gvaughn.example.calendar.service.dto.EventSpanDTO(e.id, e.calendar.id, e.time, e.duration, e.recurrenceRule) " +
+        "from CalendarEvent e where e.calendar.id = ?1 and e.time > ?2 and e.time < ?3 and e.recurrenceRule is null")
+    List<EventSpanDTO> findSpansByCalendarIdAndTimeBetween(Long calendarId, ZonedDateTime after, ZonedDateTime before);
+
+    /**
+     * Reads only the span and rule of the calendar's recurring events that may occur within the range, both ends
+     * exclusive: those starting before its end, unless their last occurrence starts before its start.
+     */
+    @Query("select new gvaughn.example.calendar.service.dto.EventSpanDTO(e.id, e.calendar.id, e.time, e.duration, e.recurrenceRule) " +
+        "from CalendarEvent e where e.calendar.id = ?1 and e.recurrenceRule is not null and e.time < ?3 " +
+        "and (e.recurrenceEnd is null or e.recurrenceEnd > ?2)")
+    List<EventSpanDTO> findRecurringSpansByCalendarId(Long calendarId, ZonedDateTime after, ZonedDateTime before);
+
+    /**
+     * @return Id of the event's calendar, or null if there is no such event owned by the given user.
+     */
+    @Query("select e.calendar.id from CalendarEvent e where e.id = ?1 and e.calendar.user.login = ?2")
+    Long findCalendarIdByIdAndUserLogin(Long id, String login);
+
+    /**
+     * @return Id of the event's calendar, or null if there is no such event.
+     */
+    @Query("select e.calendar.id from CalendarEvent e where e.id = ?1")
+    Long findCalendarIdById(Long id);
+
+    @Modifying
+    @Query("update CalendarEvent e set e.reminderSent = true where e.id in ?1")
+    int markRemindersSent(List<Long> ids);
 
-    List<CalendarEvent> findByCalendarAndTimeBetweenOrderByTime(Calendar calendar, ZonedDateTime startDate, ZonedDateTime endDate);
+    @Modifying
+    @Query("update CalendarEvent e set e.reminderSent = true where e.id in " +
+        "(select r.eventId from PendingReminder r where r.leaseOwner = ?1 and r.eventId in ?2)")
+    int markRemindersSentByLeaseOwner(String leaseOwner, List<Long> ids);
 }
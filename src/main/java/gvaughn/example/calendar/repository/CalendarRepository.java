@@ -14,4 +14,13 @@ import java.util.List;
 public interface CalendarRepository extends JpaRepository<Calendar,Long> {
 
     List<Calendar> findByUser(User user);
+
+    @Query("select c.id from Calendar c where c.user.id = ?1 order by c.id")
+    List<Long> findIdsByUserId(Long userId);
+
+    /**
+     * @return Pairs of user id and calendar id, for the calendars of the given users.
+     */
+    @Query("select c.user.id, c.id from Calendar c where c.user.id in ?1")
+    List<Object[]> findUserAndCalendarIdsByUserIdIn(List<Long> userIds);
 }
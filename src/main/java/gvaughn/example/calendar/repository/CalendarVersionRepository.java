@@ -0,0 +1,83 @@
+package gvaughn.example.calendar.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static gvaughn.example.calendar.repository.util.InListUtil.batches;
+import static gvaughn.example.calendar.repository.util.InListUtil.placeholders;
+
+/**
+ * Reads and increments the version counters of calendars.
+ * <p>
+ * The version column is not mapped by the Calendar entity, which is held in the second-level cache: an
+ * increment made behind the cache's back would otherwise be overwritten by the next save of a stale copy.
+ * An increment holds the calendar's row lock until its transaction ends, so concurrent writers to a
+ * calendar, on any node, each get a version of their own.
+ */
+@Repository
+public class CalendarVersionRepository {
+
+    private static final String SELECT_VERSION = "select version from calendar where id = ?";
+
+    private static final String INCREMENT_VERSION = "update calendar set version = version + 1 where id = ?";
+
+    private static final String SELECT_EVENT_CALENDARS = "select distinct calendar_id from calendar_event where id in ";
+
+    private static final String INCREMENT_VERSIONS = "update calendar set version = version + 1 where id in ";
+
+    private static final String SELECT_VERSIONS = "select id, version from calendar where id in ";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CalendarVersionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return The calendar's version, or null if there is no such calendar.
+     */
+    public Long findVersion(Long calendarId) {
+        List<Long> versions = jdbcTemplate.queryForList(SELECT_VERSION, Long.class, calendarId);
+        return versions.isEmpty() ? null : versions.get(0);
+    }
+
+    /**
+     * Increments the calendar's version, in the current transaction.
+     * @return The new version, or null if there is no such calendar.
+     */
+    public Long incrementVersion(Long calendarId) {
+        if (jdbcTemplate.update(INCREMENT_VERSION, calendarId) == 0) {
+            return null;
+        }
+        return findVersion(calendarId);
+    }
+
+    /**
+     * Increments the version of each calendar holding one of the given events, once per calendar.
+     * @param eventIds Calendar event ids.
+     * @return The new versions, by calendar id.
+     */
+    public Map<Long, Long> incrementVersionsByEventIds(List<Long> eventIds) {
+        Set<Long> calendarIds = new HashSet<>();
+        for (List<Long> batch : batches(eventIds)) {
+            calendarIds.addAll(jdbcTemplate.queryForList(SELECT_EVENT_CALENDARS + placeholders(batch.size()),
+                batch.toArray(), Long.class));
+        }
+        Map<Long, Long> versions = new HashMap<>();
+        for (List<Long> batch : batches(new ArrayList<>(calendarIds))) {
+            String in = placeholders(batch.size());
+            jdbcTemplate.update(INCREMENT_VERSIONS + in, batch.toArray());
+            jdbcTemplate.query(SELECT_VERSIONS + in, batch.toArray(), rs -> {
+                versions.put(rs.getLong(1), rs.getLong(2));
+            });
+        }
+        return versions;
+    }
+}
@@ -0,0 +1,69 @@
+package gvaughn.example.calendar.repository;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+
+/**
+ * Claims due reminders from the pending_reminder queue for one node of a cluster.
+ * <p>
+ * A claim sets the lease owner and expiry on a batch of due rows whose lease is free or has lapsed.
+ * On PostgreSQL the batch is selected with FOR UPDATE SKIP LOCKED, so concurrent nodes take disjoint
+ * batches without waiting on each other. Other databases, such as H2, fall back to the same update with
+ * the lease condition repeated on the outer statement: a row is only claimed if its lease is still free
+ * once the update holds the row lock.
+ */
+@Repository
+public class PendingReminderLeaseRepository {
+
+    private static final String POSTGRESQL = "PostgreSQL";
+
+    private static final String CLAIM_SKIP_LOCKED =
+        "update pending_reminder set lease_owner = ?, lease_until = ? where calendar_event_id in (" +
+            "select calendar_event_id from pending_reminder " +
+            "where due_time <= ? and (lease_until is null or lease_until < ?) " +
+            "order by due_time limit ? for update skip locked)";
+
+    private static final String CLAIM =
+        "update pending_reminder set lease_owner = ?, lease_until = ? " +
+            "where (lease_until is null or lease_until < ?) and calendar_event_id in (" +
+            "select calendar_event_id from pending_reminder " +
+            "where due_time <= ? and (lease_until is null or lease_until < ?) " +
+            "order by due_time limit ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean skipLocked;
+
+    public PendingReminderLeaseRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Leases up to the given number of due reminders to the given owner.
+     * @param owner Node claiming the reminders.
+     * @param now Current time; reminders due at or before it are claimed.
+     * @param leaseUntil Time at which the lease lapses if the reminders have not been acknowledged.
+     * @param limit Maximum number of reminders to claim.
+     * @return Number of reminders claimed.
+     */
+    public int claimDue(String owner, ZonedDateTime now, ZonedDateTime leaseUntil, int limit) {
+        Timestamp nowTimestamp = Timestamp.from(now.toInstant());
+        Timestamp leaseUntilTimestamp = Timestamp.from(leaseUntil.toInstant());
+        if (supportsSkipLocked()) {
+            return jdbcTemplate.update(CLAIM_SKIP_LOCKED, owner, leaseUntilTimestamp, nowTimestamp, nowTimestamp, limit);
+        }
+        return jdbcTemplate.update(CLAIM, owner, leaseUntilTimestamp, nowTimestamp, nowTimestamp, nowTimestamp, limit);
+    }
+
+    private boolean supportsSkipLocked() {
+        if (skipLocked == null) {
+            skipLocked = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                POSTGRESQL.equals(connection.getMetaData().getDatabaseProductName()));
+        }
+        return skipLocked;
+    }
+}
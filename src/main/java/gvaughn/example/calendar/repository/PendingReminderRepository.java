@@ -0,0 +1,105 @@
+package gvaughn.example.calendar.repository;
+
+import gvaughn.example.calendar.domain.PendingReminder;
+import gvaughn.example.calendar.service.dto.PendingReminderDTO;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+
+import javax.persistence.QueryHint;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+/**
+ * Spring Data JPA repository for the PendingReminder entity.
+ */
+@SuppressWarnings("unused")
+public interface PendingReminderRepository extends JpaRepository<PendingReminder, Long> {
+
+    @Query("select new gvaughn.example.calendar.service.dto.PendingReminderDTO(r.eventId, r.dueTime, e.title, e.time, r.occurrenceTime, " +
+        "e.location, e.calendar.id, r.reminderOffsets, e.recurrenceRule) " +
+        "from PendingReminder r, CalendarEvent e where e.id = r.eventId and r.dueTime > ?1 order by r.dueTime")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    Stream<PendingReminderDTO> streamDueAfter(ZonedDateTime after);
+
+    @Query("select new gvaughn.example.calendar.service.dto.PendingReminderDTO(r.eventId, r.dueTime, e.title, e.time, r.occurrenceTime, " +
+        "e.location, e.calendar.id, r.reminderOffsets, e.recurrenceRule) " +
+        "from PendingReminder r, CalendarEvent e where e.id = r.eventId and r.dueTime <= ?1 order by r.dueTime, r.eventId")
+    List<PendingReminderDTO> findDueUntil(ZonedDateTime until, Pageable pageable);
+
+    /**
+     * Reads the reminders due at or before the given time that come after the given one in (due time, event id)
+     * order, so that a caller reading them a page at a time resumes where its last page ended.
+     */
+    @Query("select new gvaughn.example.calendar.service.dto.PendingReminderDTO(r.eventId, r.dueTime, e.title, e.time, r.occurrenceTime, " +
+        "e.location, e.calendar.id, r.reminderOffsets, e.recurrenceRule) " +
+        "from PendingReminder r, CalendarEvent e where e.id = r.eventId and r.dueTime <= ?1 and r.dueTime >= ?2 " +
+        "and (r.dueTime > ?2 or r.eventId > ?3) order by r.dueTime, r.eventId")
+    List<PendingReminderDTO> findDueUntilAfter(ZonedDateTime until, ZonedDateTime afterDueTime, Long afterEventId,
+                                               Pageable pageable);
+
+    @Query("select new gvaughn.example.calendar.service.dto.PendingReminderDTO(r.eventId, r.dueTime, e.title, e.time, r.occurrenceTime, " +
+        "e.location, e.calendar.id, r.reminderOffsets, e.recurrenceRule) " +
+        "from PendingReminder r, CalendarEvent e where e.id = r.eventId and r.dueTime > ?1 and r.dueTime <= ?2 order by r.dueTime")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    Stream<PendingReminderDTO> streamDueBetween(ZonedDateTime after, ZonedDateTime until);
+
+    @Query("select new gvaughn.example.calendar.service.dto.PendingReminderDTO(r.eventId, r.dueTime, e.title, e.time, r.occurrenceTime, " +
+        "e.location, e.calendar.id, r.reminderOffsets, e.recurrenceRule) " +
+        "from PendingReminder r, CalendarEvent e where e.id = r.eventId and r.leaseOwner = ?1 order by r.dueTime")
+    List<PendingReminderDTO> findAllByLeaseOwner(String leaseOwner);
+
+    @Query("select new gvaughn.example.calendar.service.dto.PendingReminderDTO(r.eventId, r.dueTime, e.title, e.time, r.occurrenceTime, " +
+        "e.location, e.calendar.id, r.reminderOffsets, e.recurrenceRule) " +
+        "from PendingReminder r, CalendarEvent e where e.id = r.eventId and r.eventId in ?1 order by r.dueTime")
+    List<PendingReminderDTO> findAllByEventIdIn(List<Long> eventIds);
+
+    /**
+     * Moves a queued reminder on to the event's next reminder, and the occurrence it is for, unless the reminder
+     * was re-queued since it fired.
+     */
+    @Modifying
+    @Query("update PendingReminder r set r.dueTime = ?3, r.occurrenceTime = ?4 where r.eventId = ?1 and r.dueTime = ?2")
+    int rearm(Long eventId, ZonedDateTime dueTime, ZonedDateTime nextDueTime, ZonedDateTime nextOccurrenceTime);
+
+    /**
+     * Moves a queued reminder leased to the given node on to the event's next reminder, and the occurrence it is
+     * for, and releases the lease.
+     */
+    @Modifying
+    @Query("update PendingReminder r set r.dueTime = ?3, r.occurrenceTime = ?4, r.leaseOwner = null, r.leaseUntil = null " +
+        "where r.eventId = ?1 and r.leaseOwner = ?2")
+    int rearmByLeaseOwner(Long eventId, String leaseOwner, ZonedDateTime nextDueTime, ZonedDateTime nextOccurrenceTime);
+
+    /**
+     * Moves a queued reminder to a new due time and releases any lease on it.
+     */
+    @Modifying
+    @Query("update PendingReminder r set r.dueTime = ?2, r.leaseOwner = null, r.leaseUntil = null where r.eventId = ?1")
+    int requeue(Long eventId, ZonedDateTime dueTime);
+
+    /**
+     * Moves a queued reminder of a recurring event to a new due time and occurrence and releases any lease on it.
+     */
+    @Modifying
+    @Query("update PendingReminder r set r.dueTime = ?2, r.occurrenceTime = ?3, r.leaseOwner = null, r.leaseUntil = null " +
+        "where r.eventId = ?1")
+    int requeue(Long eventId, ZonedDateTime dueTime, ZonedDateTime occurrenceTime);
+
+    long countByDueTimeLessThanEqual(ZonedDateTime until);
+
+    @Modifying
+    @Query("delete from PendingReminder r where r.leaseOwner = ?1 and r.eventId in ?2")
+    int deleteByLeaseOwnerAndEventIdIn(String leaseOwner, List<Long> eventIds);
+
+    @Modifying
+    @Query("delete from PendingReminder r where r.eventId = ?1")
+    int deleteByEventId(Long eventId);
+
+    @Modifying
+    @Query("delete from PendingReminder r where r.eventId in ?1")
+    int deleteByEventIdIn(List<Long> eventIds);
+}
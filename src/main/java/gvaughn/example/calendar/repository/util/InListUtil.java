@@ -0,0 +1,36 @@
+package gvaughn.example.calendar.repository.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Utility class for queries that take a list of ids in an IN clause, which are split into batches so that
+ * no single statement binds more parameters than the supported databases accept.
+ */
+public final class InListUtil {
+
+    /** Ids bound per IN list, well below the bind parameter limits of the supported databases. */
+    public static final int MAX_SIZE = 1000;
+
+    private InListUtil() {
+    }
+
+    /**
+     * Splits the ids into consecutive batches of at most {@value #MAX_SIZE}, as views of the given list.
+     */
+    public static <T> List<List<T>> batches(List<T> ids) {
+        List<List<T>> batches = new ArrayList<>((ids.size() + MAX_SIZE - 1) / MAX_SIZE);
+        for (int from = 0; from < ids.size(); from += MAX_SIZE) {
+            batches.add(ids.subList(from, Math.min(from + MAX_SIZE, ids.size())));
+        }
+        return batches;
+    }
+
+    /**
+     * @return An IN list of as many bind parameters, e.g. {@code (?, ?, ?)}, for a JDBC query.
+     */
+    public static String placeholders(int count) {
+        return "(" + String.join(", ", Collections.nCopies(count, "?")) + ")";
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Helpers shared by the repositories.
+ */
+package gvaughn.example.calendar.repository.util;
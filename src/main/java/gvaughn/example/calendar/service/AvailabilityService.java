@@ -0,0 +1,169 @@
+package gvaughn.example.calendar.service;
+
+import gvaughn.example.calendar.domain.User;
+import gvaughn.example.calendar.repository.UserRepository;
+import gvaughn.example.calendar.service.dto.EventSpanDTO;
+import gvaughn.example.calendar.service.dto.TimeSlotDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+
+/**
+ * Finds the times at which every one of a group of users is free, for scheduling meetings.
+ * <p>
+ * The participants, their calendars and the spans of all their events over the range are each read with one
+ * query, however many participants there are. Each participant's busy slots are then set in a bitset of
+ * {@value FreeBusyService#SLOT_MINUTES} minute slots, and the bitsets are merged by a fork/join task split
+ * across the common pool's workers; the slots left clear are free for everyone.
+ */
+@Service
+@Transactional(readOnly = true)
+public class AvailabilityService {
+
+    private final Logger log = LoggerFactory.getLogger(AvailabilityService.class);
+
+    public static final int MAX_PARTICIPANTS = 100;
+
+    /** Calendars whose bitsets a task builds and merges itself rather than splitting them between subtasks. */
+    private static final int MERGE_THRESHOLD = 4;
+
+    private final FreeBusyService freeBusyService;
+
+    private final CalendarService calendarService;
+
+    private final UserRepository userRepository;
+
+    public AvailabilityService(FreeBusyService freeBusyService, CalendarService calendarService,
+                               UserRepository userRepository) {
+        this.freeBusyService = freeBusyService;
+        this.calendarService = calendarService;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Looks up users by login or email, with one query.
+     * @param loginsOrEmails Logins or emails, in any case.
+     * @return The users found, by the lower cased login or email they were found by.
+     */
+    public Map<String, User> findParticipants(Collection<String> loginsOrEmails) {
+        Set<String> names = loginsOrEmails.stream().map(String::toLowerCase).collect(Collectors.toSet());
+        Map<String, User> participants = new HashMap<>();
+        for (User user : userRepository.findAllByLoginInOrEmailIn(names, names)) {
+            if (names.contains(user.getLogin())) {
+                participants.put(user.getLogin(), user);
+            }
+            if (user.getEmail() != null && names.contains(user.getEmail().toLowerCase())) {
+                participants.put(user.getEmail().toLowerCase(), user);
+            }
+        }
+        return participants;
+    }
+
+    /**
+     * Returns the periods within the range during which none of the participants has an event, and which
+     * last at least the given number of minutes. The range is rounded out to slot boundaries, and must span
+     * at most {@link FreeBusyService#MAX_SLOTS} slots.
+     * @param participants Users who must all be free.
+     * @param start Start of the range.
+     * @param end End of the range, after its start.
+     * @param minimumMinutes Shortest period returned, rounded up to whole slots.
+     * @return The free periods, in time order, each as long as possible.
+     */
+    public List<TimeSlotDTO> findCommonFreeSlots(Collection<User> participants, ZonedDateTime start,
+                                                 ZonedDateTime end, int minimumMinutes) {
+        long slots = FreeBusyService.countSlots(start, end);
+        if (slots < 1 || slots > FreeBusyService.MAX_SLOTS) {
+            throw new IllegalArgumentException("Availability ranges span 1 to " + FreeBusyService.MAX_SLOTS
+                + " slots: " + start + " to " + end);
+        }
+        ZonedDateTime slotStart = FreeBusyService.slotStart(start);
+        ZonedDateTime slotEnd = slotStart.plusMinutes(slots * FreeBusyService.SLOT_MINUTES);
+
+        BitSet busy = new BitSet((int) slots);
+        Set<Long> calendarIds = new HashSet<>(calendarService.findCalendarIdsForUsers(participants).values());
+        if (!calendarIds.isEmpty()) {
+            List<List<EventSpanDTO>> spansByCalendar = new ArrayList<>(freeBusyService
+                .findSpans(new ArrayList<>(calendarIds), slotStart, slotEnd).stream()
+                .collect(Collectors.groupingBy(EventSpanDTO::getCalendarId)).values());
+            busy = ForkJoinPool.commonPool().invoke(
+                new BusySlotsTask(spansByCalendar, 0, spansByCalendar.size(), slotStart.toInstant(), (int) slots));
+        }
+        log.debug("Finding common free slots of {} participants over {} slots", participants.size(), slots);
+        return freeRuns(busy, slotStart, (int) slots,
+            (minimumMinutes + FreeBusyService.SLOT_MINUTES - 1) / FreeBusyService.SLOT_MINUTES);
+    }
+
+    private static List<TimeSlotDTO> freeRuns(BitSet busy, ZonedDateTime slotStart, int slots, int minimumSlots) {
+        List<TimeSlotDTO> free = new ArrayList<>();
+        int from = busy.nextClearBit(0);
+        while (from < slots) {
+            int nextBusy = busy.nextSetBit(from);
+            int to = nextBusy < 0 ? slots : Math.min(nextBusy, slots);
+            if (to - from >= minimumSlots) {
+                free.add(new TimeSlotDTO(slotStart.plusMinutes((long) from * FreeBusyService.SLOT_MINUTES),
+                    slotStart.plusMinutes((long) to * FreeBusyService.SLOT_MINUTES)));
+            }
+            from = busy.nextClearBit(to);
+        }
+        return free;
+    }
+
+    /**
+     * Builds the busy bitsets of a range of calendars and merges them, splitting the range in halves
+     * while it holds more than {@link #MERGE_THRESHOLD} calendars.
+     */
+    private static final class BusySlotsTask extends RecursiveTask<BitSet> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<List<EventSpanDTO>> spansByCalendar;
+
+        private final int from;
+
+        private final int to;
+
+        private final Instant start;
+
+        private final int slots;
+
+        private BusySlotsTask(List<List<EventSpanDTO>> spansByCalendar, int from, int to, Instant start, int slots) {
+            this.spansByCalendar = spansByCalendar;
+            this.from = from;
+            this.to = to;
+            this.start = start;
+            this.slots = slots;
+        }
+
+        @Override
+        protected BitSet compute() {
+            if (to - from <= MERGE_THRESHOLD) {
+                BitSet busy = new BitSet(slots);
+                for (int i = from; i < to; i++) {
+                    busy.or(FreeBusyService.toBitSet(spansByCalendar.get(i), start, slots));
+                }
+                return busy;
+            }
+            int middle = (from + to) >>> 1;
+            BusySlotsTask left = new BusySlotsTask(spansByCalendar, from, middle, start, slots);
+            left.fork();
+            BitSet busy = new BusySlotsTask(spansByCalendar, middle, to, start, slots).compute();
+            busy.or(left.join());
+            return busy;
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package gvaughn.example.calendar.service;
+
+import gvaughn.example.calendar.config.ApplicationProperties;
+import gvaughn.example.calendar.domain.CalendarEvent;
+import gvaughn.example.calendar.repository.CalendarEventReadRepository;
+import gvaughn.example.calendar.repository.CalendarEventRepository;
+import gvaughn.example.calendar.service.dto.CalendarEventCursor;
+import gvaughn.example.calendar.service.dto.CalendarEventDTO;
+import gvaughn.example.calendar.service.dto.EventSpanDTO;
+import gvaughn.example.calendar.service.mapper.CalendarEventMapper;
+import gvaughn.example.calendar.service.util.LruCache;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static gvaughn.example.calendar.service.util.TransactionUtil.afterCompletion;
+
+/**
+ * Optional read-through index of calendar events, serving event list reads from memory. Each calendar's
+ * events are loaded whole on the first read and kept sorted by event time, so a time range is answered in
+ * O(log n + k) without a database round trip. The least recently read calendars are evicted whole.
+ * <p>
+ * Writes made through {@link CalendarEventService} and sent reminders are applied once their transaction
+ * commits, so the index never shows uncommitted or rolled-back events. A calendar written while it is being
+ * loaded is loaded again on its next read. Writes made by other nodes are not seen, hence the index is off
+ * unless {@code application.calendar.index.enabled} is set.
+ * <p>
+ * Indexed events are DTOs shared between readers, and must not be modified.
+ */
+@Component
+public class CalendarEventIndex {
+
+    private final Logger log = LoggerFactory.getLogger(CalendarEventIndex.class);
+
+    private final CalendarEventReadRepository calendarEventReadRepository;
+
+    private final CalendarEventRepository calendarEventRepository;
+
+    private final CalendarEventMapper calendarEventMapper;
+
+    private final boolean enabled;
+
+    private final LruCache<Long, CalendarIndex> calendars;
+
+    /** Index of the calendar holding each indexed event, so events can be found by id alone. */
+    private final ConcurrentMap<Long, CalendarIndex> eventCalendars = new ConcurrentHashMap<>();
+
+    public CalendarEventIndex(CalendarEventReadRepository calendarEventReadRepository,
+                              CalendarEventRepository calendarEventRepository,
+                              CalendarEventMapper calendarEventMapper,
+                              ApplicationProperties applicationProperties) {
+        ApplicationProperties.Calendar.Index properties = applicationProperties.getCalendar().getIndex();
+        this.calendarEventReadRepository = calendarEventReadRepository;
+        this.calendarEventRepository = calendarEventRepository;
+        this.calendarEventMapper = calendarEventMapper;
+        this.enabled = properties.isEnabled();
+        this.calendars = new LruCache<>(Math.max(1, properties.getMaxCalendars()),
+            (calendarId, index) -> index.evict());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param calendarId Calendar id.
+     * @return All events of the calendar, ordered by time.
+     */
+    public List<CalendarEventDTO> findByCalendar(Long calendarId) {
+        if (!enabled) {
+            return calendarEventReadRepository.findByCalendarId(calendarId);
+        }
+        return getIndex(calendarId).findAll();
+    }
+
+    /**
+     * @param calendarId Calendar id.
+     * @param startDate Start of the range, inclusive.
+     * @param endDate End of the range, inclusive.
+     * @return Events of the calendar within the range, ordered by time.
+     */
+    public List<CalendarEventDTO> findByCalendarAndTimeBetween(Long calendarId, ZonedDateTime startDate,
+                                                               ZonedDateTime endDate) {
+        if (!enabled) {
+            return calendarEventReadRepository.findByCalendarIdAndTimeBetween(calendarId, startDate, endDate);
+        }
+        return getIndex(calendarId).findBetween(startDate.toInstant(), endDate.toInstant());
+    }
+
+    /**
+     * @param calendarId Calendar id.
+     * @param startDate Start of the range, inclusive.
+     * @param endDate End of the range, inclusive.
+     * @return Recurring events of the calendar starting before the end of the range, ordered by time; those
+     * ending before its start may be included when served from memory.
+     */
+    public List<CalendarEventDTO> findRecurringByCalendar(Long calendarId, ZonedDateTime startDate,
+                                                          ZonedDateTime endDate) {
+        if (!enabled) {
+            return calendarEventReadRepository.findRecurringByCalendarId(calendarId, startDate, endDate);
+        }
+        return getIndex(calendarId).findRecurringBefore(endDate.toInstant());
+    }
+
+    /**
+     * Reads the spans of the calendar's events that may overlap the range, for conflict checks: its single
+     * events starting within the range, then its recurring events that may occur within it, whose occurrences
+     * are not expanded.
+     * @param calendarId Calendar id.
+     * @param after Start of the range, exclusive.
+     * @param before End of the range, exclusive.
+     * @return Spans of the events, with their ids and recurrence rules.
+     */
+    public List<EventSpanDTO> findSpansByCalendar(Long calendarId, ZonedDateTime after, ZonedDateTime before) {
+        if (!enabled) {
+            List<EventSpanDTO> spans = new ArrayList<>(
+                calendarEventRepository.findSpansByCalendarIdAndTimeBetween(calendarId, after, before));
+            spans.addAll(calendarEventRepository.findRecurringSpansByCalendarId(calendarId, after, before));
+            return spans;
+        }
+        return getIndex(calendarId).findSpans(after.toInstant(), before.toInstant());
+    }
+
+    /**
+     * @param calendarId Calendar id.
+     * @param after Position of the last event of the previous page, or null for the first page.
+     * @param size Page size.
+     * @return Events of the calendar after the cursor, ordered by time then id.
+     */
+    public Slice<CalendarEventDTO> findByCalendarAfter(Long calendarId, CalendarEventCursor after, int size) {
+        Pageable pageable = new PageRequest(0, size);
+        List<CalendarEventDTO> events;
+        if (!enabled) {
+            events = after == null
+                ? calendarEventReadRepository.findByCalendarIdAfter(calendarId, null, null, size + 1)
+                : calendarEventReadRepository.findByCalendarIdAfter(calendarId, after.getZonedTime(), after.getId(), size + 1);
+        } else {
+            events = getIndex(calendarId).findAfter(after, size + 1);
+        }
+        boolean hasNext = events.size() > size;
+        return new SliceImpl<>(hasNext ? events.subList(0, size) : events, pageable, hasNext);
+    }
+
+    /**
+     * Indexes the given event, created or updated in the current transaction, once the transaction commits.
+     * @param calendarEvent Saved calendar event.
+     */
+    public void eventSaved(CalendarEvent calendarEvent) {
+        if (enabled) {
+            Long calendarId = calendarEvent.getCalendar().getId();
+            CalendarEventDTO snapshot = calendarEventMapper.calendarEventToDTO(calendarEvent);
+            afterCompletion(committed -> {
+                if (committed) {
+                    write(calendarId, index -> index.put(snapshot));
+                }
+            });
+        }
+    }
+
+    /**
+     * Removes the given event, deleted in the current transaction, once the transaction commits.
+     * @param calendarEvent Deleted calendar event.
+     */
+    public void eventDeleted(CalendarEvent calendarEvent) {
+        if (enabled) {
+            Long calendarId = calendarEvent.getCalendar().getId();
+            Long eventId = calendarEvent.getId();
+            afterCompletion(committed -> {
+                if (committed) {
+                    write(calendarId, index -> index.remove(eventId));
+                }
+            });
+        }
+    }
+
+    /**
+     * Indexes the given events, created or updated in the current transaction, as
+     * {@link #eventSaved(CalendarEvent)} does, with a single callback once the transaction commits.
+     * @param calendarEvents Saved calendar events.
+     */
+    public void eventsSaved(List<CalendarEvent> calendarEvents) {
+        if (enabled && !calendarEvents.isEmpty()) {
+            List<CalendarEventDTO> snapshots = calendarEventMapper.calendarEventsToDTOs(calendarEvents);
+            afterCompletion(committed -> {
+                if (committed) {
+                    for (CalendarEventDTO snapshot : snapshots) {
+                        write(snapshot.getCalendarId(), index -> index.put(snapshot));
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Removes the given events, deleted in the current transaction, as {@link #eventDeleted(CalendarEvent)}
+     * does, with a single callback once the transaction commits.
+     * @param calendarEvents Deleted calendar events.
+     */
+    public void eventsDeleted(List<CalendarEvent> calendarEvents) {
+        if (enabled && !calendarEvents.isEmpty()) {
+            List<Pair<Long, Long>> deleted = calendarEvents.stream()
+                .map(calendarEvent -> Pair.of(calendarEvent.getCalendar().getId(), calendarEvent.getId()))
+                .collect(Collectors.toList());
+            afterCompletion(committed -> {
+                if (committed) {
+                    for (Pair<Long, Long> event : deleted) {
+                        write(event.getLeft(), index -> index.remove(event.getRight()));
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Flags the reminders of the given events as sent once the current transaction commits.
+     * @param eventIds Ids of the events whose reminders were marked sent.
+     */
+    public void remindersSent(Collection<Long> eventIds) {
+        if (enabled && !eventIds.isEmpty()) {
+            List<Long> ids = new ArrayList<>(eventIds);
+            afterCompletion(committed -> {
+                if (committed) {
+                    for (Long eventId : ids) {
+                        CalendarIndex index = eventCalendars.get(eventId);
+                        if (index != null) {
+                            index.reminderSent(eventId);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops the calendars holding the given events, whatever the outcome of the current transaction, for
+     * writes whose effect on each event is not known here.
+     * @param eventIds Calendar event ids.
+     */
+    public void evictEvents(Collection<Long> eventIds) {
+        if (enabled && !eventIds.isEmpty()) {
+            List<Long> ids = new ArrayList<>(eventIds);
+            afterCompletion(committed -> {
+                for (Long eventId : ids) {
+                    CalendarIndex index = eventCalendars.get(eventId);
+                    if (index != null && calendars.remove(index.calendarId, index)) {
+                        index.evict();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * @return Number of calendars held.
+     */
+    public int size() {
+        return calendars.size();
+    }
+
+    /**
+     * Returns the loaded index of the calendar, or reads the calendar and, unless another read is already
+     * loading it, offers its events to the index once the current transaction commits.
+     */
+    private CalendarIndex getIndex(Long calendarId) {
+        CalendarIndex index = calendars.get(calendarId);
+        if (index != null && index.loaded) {
+            return index;
+        }
+        CalendarIndex loading = new CalendarIndex(calendarId);
+        boolean owner = index == null && calendars.putIfAbsent(calendarId, loading) == null;
+        log.debug("Loading calendar {} into the event index", calendarId);
+        for (CalendarEventDTO calendarEvent : calendarEventReadRepository.findByCalendarId(calendarId)) {
+            loading.add(calendarEvent);
+        }
+        if (owner) {
+            afterCompletion(committed -> {
+                if (!committed || !loading.install()) {
+                    calendars.remove(calendarId, loading);
+                }
+            });
+        }
+        return loading;
+    }
+
+    /**
+     * Applies a committed write to the calendar's index, if it is held. A calendar still being loaded may
+     * have been read before the write, so it is marked stale instead.
+     */
+    private void write(Long calendarId, Consumer<CalendarIndex> action) {
+        CalendarIndex index = calendars.get(calendarId);
+        if (index != null) {
+            synchronized (index) {
+                if (index.loaded) {
+                    action.accept(index);
+                } else {
+                    index.stale = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Position of an event in its calendar's index: its time, then its id to tell apart events at the same time.
+     */
+    private static final class EventKey implements Comparable<EventKey> {
+
+        private final Instant time;
+
+        private final long id;
+
+        private EventKey(Instant time, long id) {
+            this.time = time;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(EventKey other) {
+            int compare = time.compareTo(other.time);
+            return compare != 0 ? compare : Long.compare(id, other.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            EventKey eventKey = (EventKey) o;
+            return id == eventKey.id && time.equals(eventKey.time);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(time, id);
+        }
+    }
+
+    /**
+     * One calendar's events, sorted by time, and its recurring events apart, as a range read needs those
+     * starting before the range too. Reads go straight to the skip lists; writes are serialized on the index,
+     * which also guards the event keys.
+     */
+    private final class CalendarIndex {
+
+        private final Long calendarId;
+
+        private final ConcurrentSkipListMap<EventKey, CalendarEventDTO> events = new ConcurrentSkipListMap<>();
+
+        private final ConcurrentSkipListMap<EventKey, CalendarEventDTO> recurring = new ConcurrentSkipListMap<>();
+
+        private final Map<Long, EventKey> keys = new HashMap<>();
+
+        private volatile boolean loaded;
+
+        private boolean stale;
+
+        private boolean evicted;
+
+        private CalendarIndex(Long calendarId) {
+            this.calendarId = calendarId;
+        }
+
+        private List<CalendarEventDTO> findAll() {
+            return new ArrayList<>(events.values());
+        }
+
+        private List<CalendarEventDTO> findAfter(CalendarEventCursor after, int limit) {
+            Collection<CalendarEventDTO> tail = after == null ? events.values()
+                : events.tailMap(new EventKey(after.getTime(), after.getId()), false).values();
+            return tail.stream().limit(limit).collect(Collectors.toList());
+        }
+
+        private List<CalendarEventDTO> findBetween(Instant start, Instant end) {
+            if (start.isAfter(end)) {
+                return new ArrayList<>();
+            }
+            return new ArrayList<>(events.subMap(new EventKey(start, Long.MIN_VALUE), true,
+                new EventKey(end, Long.MAX_VALUE), true).values());
+        }
+
+        private List<CalendarEventDTO> findRecurringBefore(Instant end) {
+            return new ArrayList<>(recurring.headMap(new EventKey(end, Long.MAX_VALUE), true).values());
+        }
+
+        private List<EventSpanDTO> findSpans(Instant after, Instant before) {
+            List<EventSpanDTO> spans = new ArrayList<>();
+            if (after.isBefore(before)) {
+                for (CalendarEventDTO event : events.subMap(new EventKey(after, Long.MAX_VALUE), false,
+                    new EventKey(before, Long.MIN_VALUE), false).values()) {
+                    if (event.getRecurrenceRule() == null) {
+                        spans.add(toSpan(event));
+                    }
+                }
+            }
+            for (CalendarEventDTO event : recurring.headMap(new EventKey(before, Long.MIN_VALUE), false).values()) {
+                spans.add(toSpan(event));
+            }
+            return spans;
+        }
+
+        private EventSpanDTO toSpan(CalendarEventDTO event) {
+            return new EventSpanDTO(event.getId(), calendarId, event.getTime(), event.getDuration(),
+                event.getRecurrenceRule());
+        }
+
+        /**
+         * Adds an event read while loading, before the index is visible to writes.
+         */
+        private void add(CalendarEventDTO snapshot) {
+            EventKey key = new EventKey(snapshot.getTime().toInstant(), snapshot.getId());
+            putEvent(key, snapshot);
+            keys.put(snapshot.getId(), key);
+        }
+
+        private void putEvent(EventKey key, CalendarEventDTO snapshot) {
+            events.put(key, snapshot);
+            if (snapshot.getRecurrenceRule() != null) {
+                recurring.put(key, snapshot);
+            } else {
+                recurring.remove(key);
+            }
+        }
+
+        private void removeEvent(EventKey key) {
+            events.remove(key);
+            recurring.remove(key);
+        }
+
+        /**
+         * Makes the loaded events visible, unless the calendar was written or evicted while loading.
+         * @return false if the index was discarded.
+         */
+        private synchronized boolean install() {
+            if (stale || evicted) {
+                return false;
+            }
+            for (Long eventId : keys.keySet()) {
+                eventCalendars.put(eventId, this);
+            }
+            loaded = true;
+            return true;
+        }
+
+        private synchronized void put(CalendarEventDTO snapshot) {
+            if (evicted) {
+                return;
+            }
+            EventKey key = new EventKey(snapshot.getTime().toInstant(), snapshot.getId());
+            putEvent(key, snapshot);
+            EventKey previous = keys.put(snapshot.getId(), key);
+            if (previous != null && !previous.equals(key)) {
+                removeEvent(previous);
+            }
+            eventCalendars.put(snapshot.getId(), this);
+        }
+
+        private synchronized void remove(Long eventId) {
+            EventKey key = keys.remove(eventId);
+            if (key != null) {
+                removeEvent(key);
+            }
+            eventCalendars.remove(eventId, this);
+        }
+
+        /**
+         * Replaces the event with a copy flagged as sent, as readers may still hold the indexed copy.
+         */
+        private synchronized void reminderSent(Long eventId) {
+            EventKey key = keys.get(eventId);
+            CalendarEventDTO calendarEvent = key == null ? null : events.get(key);
+            if (calendarEvent != null && !Boolean.TRUE.equals(calendarEvent.isReminderSent())) {
+                CalendarEventDTO sent = calendarEventMapper.copy(calendarEvent);
+                sent.setReminderSent(true);
+                putEvent(key, sent);
+            }
+        }
+
+        private synchronized void evict() {
+            evicted = true;
+            for (Long eventId : keys.keySet()) {
+                eventCalendars.remove(eventId, this);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package gvaughn.example.calendar.service;
+
+import gvaughn.example.calendar.config.ApplicationProperties;
+import gvaughn.example.calendar.repository.PendingReminderRepository;
+import gvaughn.example.calendar.service.dto.PendingReminderDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Feeds the in-memory reminder schedule from the durable reminder queue.
+ * <p>
+ * Only reminders due within the configured horizon are held in memory. The first sweep, at startup,
+ * loads everything due from now up to now plus the horizon and hands reminders missed while the node was
+ * down to the {@link ReminderCatchUp}; each later sweep loads the slice between the previous horizon end
+ * and the new one, using the index on the queue's due time.
+ * Memory use therefore depends on the number of reminders due in the next few hours rather than on
+ * the total number pending.
+ * <p>
+ * Only used in local mode; in cluster mode the {@link ClusterReminderDispatcher} reads the queue instead,
+ * and as the horizon is never extended nothing is scheduled in memory.
+ */
+@Component
+@ConditionalOnProperty(prefix = "application.reminder", name = "mode", havingValue = "local", matchIfMissing = true)
+public class CalendarEventReminderLoader {
+
+    private final Logger log = LoggerFactory.getLogger(CalendarEventReminderLoader.class);
+
+    private static final int DISCARD_BATCH_SIZE = 500;
+
+    private final PendingReminderRepository pendingReminderRepository;
+
+    private final CalendarEventReminderService calendarEventReminderService;
+
+    private final ReminderCatchUp reminderCatchUp;
+
+    private final ApplicationProperties.Reminder reminderProperties;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public CalendarEventReminderLoader(PendingReminderRepository pendingReminderRepository,
+                                       CalendarEventReminderService calendarEventReminderService,
+                                       ReminderCatchUp reminderCatchUp,
+                                       ApplicationProperties applicationProperties,
+                                       PlatformTransactionManager transactionManager) {
+        this.pendingReminderRepository = pendingReminderRepository;
+        this.calendarEventReminderService = calendarEventReminderService;
+        this.reminderCatchUp = reminderCatchUp;
+        this.reminderProperties = applicationProperties.getReminder();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        if (reminderProperties.getHorizonMinutes() > 0 &&
+            reminderProperties.getSweepIntervalMillis() >= TimeUnit.MINUTES.toMillis(reminderProperties.getHorizonMinutes())) {
+            log.warn("Reminder sweep interval of {} ms is not shorter than the {} minute horizon, reminders may fire late",
+                reminderProperties.getSweepIntervalMillis(), reminderProperties.getHorizonMinutes());
+        }
+    }
+
+    /**
+     * Runs the first sweep once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        sweep();
+    }
+
+    @Scheduled(initialDelayString = "${application.reminder.sweep-interval-millis:60000}",
+        fixedDelayString = "${application.reminder.sweep-interval-millis:60000}")
+    public void onSweepInterval() {
+        sweep();
+    }
+
+    /**
+     * Runs a sweep in its own transaction. A failure is logged rather than propagated, as Liquibase may
+     * still be running asynchronously in development; the horizon is left where it was, so the next
+     * sweep reads the same slice again. Once the first sweep succeeds the catch-up is started.
+     */
+    protected synchronized void sweep() {
+        long previousHorizonEnd = calendarEventReminderService.getHorizonEnd();
+        ZonedDateTime now = ZonedDateTime.now();
+        try {
+            transactionTemplate.execute(status -> {
+                loadPendingReminders(now);
+                return null;
+            });
+        } catch (DataAccessException e) {
+            calendarEventReminderService.resetHorizon(previousHorizonEnd);
+            log.error("Could not load pending reminders", e);
+            return;
+        }
+        if (previousHorizonEnd == Long.MIN_VALUE) {
+            reminderCatchUp.start(now);
+        }
+    }
+
+    /**
+     * Loads the reminders that fall between the current horizon end and the horizon measured from the
+     * given time. The first load starts at the given time; reminders due before it are left to the
+     * catch-up.
+     * @param now Time the horizon is measured from.
+     */
+    protected void loadPendingReminders(ZonedDateTime now) {
+        long horizonMinutes = reminderProperties.getHorizonMinutes();
+        if (horizonMinutes <= 0) {
+            if (calendarEventReminderService.extendHorizon(Long.MAX_VALUE) == Long.MIN_VALUE) {
+                log.debug("Loading all pending reminders due after {}", now);
+                loadPendingReminders(pendingReminderRepository.streamDueAfter(now));
+            }
+            return;
+        }
+
+        ZonedDateTime until = now.plusMinutes(horizonMinutes);
+        long previous = calendarEventReminderService.extendHorizon(until.toInstant().toEpochMilli());
+        if (previous == Long.MIN_VALUE) {
+            log.debug("Loading pending reminders due after {} until {}", now, until);
+            loadPendingReminders(pendingReminderRepository.streamDueBetween(now, until));
+        } else if (previous < until.toInstant().toEpochMilli()) {
+            ZonedDateTime after = ZonedDateTime.ofInstant(Instant.ofEpochMilli(previous), now.getZone());
+            log.debug("Loading pending reminders due after {} until {}", after, until);
+            loadPendingReminders(pendingReminderRepository.streamDueBetween(after, until));
+        }
+    }
+
+    private void loadPendingReminders(Stream<PendingReminderDTO> reminders) {
+        long scheduled = 0;
+        long discarded = 0;
+        List<Long> discardBatch = new ArrayList<>();
+        try (Stream<PendingReminderDTO> stream = reminders) {
+            for (PendingReminderDTO reminder : (Iterable<PendingReminderDTO>) stream::iterator) {
+                if (calendarEventReminderService.restoreReminder(reminder)) {
+                    scheduled++;
+                    continue;
+                }
+                discarded++;
+                discardBatch.add(reminder.getEventId());
+                if (discardBatch.size() == DISCARD_BATCH_SIZE) {
+                    pendingReminderRepository.deleteByEventIdIn(discardBatch);
+                    discardBatch.clear();
+                }
+            }
+            if (!discardBatch.isEmpty()) {
+                pendingReminderRepository.deleteByEventIdIn(discardBatch);
+            }
+        }
+        if (scheduled > 0 || discarded > 0) {
+            log.info("Scheduled {} pending reminders, discarded {} for past events", scheduled, discarded);
+        }
+    }
+}
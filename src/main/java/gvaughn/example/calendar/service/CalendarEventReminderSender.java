@@ -0,0 +1,119 @@
+package gvaughn.example.calendar.service;
+
+import gvaughn.example.calendar.repository.PendingReminderRepository;
+import gvaughn.example.calendar.repository.util.InListUtil;
+import gvaughn.example.calendar.service.dto.PendingReminderDTO;
+import gvaughn.example.calendar.service.reminder.ReminderHandler;
+import gvaughn.example.calendar.service.reminder.ReminderRecord;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static gvaughn.example.calendar.repository.util.InListUtil.batches;
+
+/**
+ * Renders and sends calendar event reminders. The in-memory scheduler only holds compact reminder records,
+ * so the event details are read back when they fire, one query per {@value InListUtil#MAX_SIZE} due
+ * reminders.
+ */
+@Component
+public class CalendarEventReminderSender implements ReminderHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(CalendarEventReminderSender.class);
+
+    private final PendingReminderRepository pendingReminderRepository;
+
+    private final ReminderSentFlusher reminderSentFlusher;
+
+    private final ReminderMetrics reminderMetrics;
+
+    public CalendarEventReminderSender(PendingReminderRepository pendingReminderRepository,
+                                       ReminderSentFlusher reminderSentFlusher,
+                                       ReminderMetrics reminderMetrics) {
+        this.pendingReminderRepository = pendingReminderRepository;
+        this.reminderSentFlusher = reminderSentFlusher;
+        this.reminderMetrics = reminderMetrics;
+    }
+
+    /**
+     * Sends reminders due in the in-memory scheduler. Reminders no longer in the durable queue, e.g.
+     * because the event was deleted as they fell due, are skipped. The scheduler has already re-armed
+     * events with further reminders; their queue rows follow with the next flush.
+     * @param due Due reminders.
+     */
+    @Override
+    public void onDue(List<? extends ReminderRecord> due) {
+        List<Long> eventIds = due.stream().map(ReminderRecord::getEventId).collect(Collectors.toList());
+        for (List<Long> batch : batches(eventIds)) {
+            for (PendingReminderDTO reminder : pendingReminderRepository.findAllByEventIdIn(batch)) {
+                send(reminder);
+                try {
+                    if (reminder.getNextDueTime() != null) {
+                        reminderSentFlusher.rearm(reminder);
+                    } else {
+                        reminderSentFlusher.add(reminder.getEventId());
+                    }
+                } catch (RuntimeException e) {
+                    log.error("Unable to mark reminder sent for CalendarEvent " + reminder.getEventId(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends a reminder claimed from the durable queue, unless its event has already taken place.
+     * @param pendingReminder Queued reminder.
+     * @return false if the event has already taken place and the reminder was dropped.
+     */
+    public boolean sendIfUpcoming(PendingReminderDTO pendingReminder) {
+        if (!isUpcoming(pendingReminder)) {
+            log.debug("Discarding reminder for past event {}", pendingReminder);
+            return false;
+        }
+        send(pendingReminder);
+        return true;
+    }
+
+    public void send(PendingReminderDTO pendingReminder) {
+        deliver(pendingReminder);
+        reminderMetrics.reminderSent(pendingReminder.getDueTime().toInstant().toEpochMilli());
+    }
+
+    /**
+     * Sends a reminder missed while the node was down. It is counted apart from reminders sent on time, so
+     * that catching up after downtime does not show up as firing lag.
+     * @param pendingReminder Queued reminder.
+     */
+    public void sendMissed(PendingReminderDTO pendingReminder) {
+        deliver(pendingReminder);
+        reminderMetrics.missedReminderSent();
+    }
+
+    private void deliver(PendingReminderDTO pendingReminder) {
+        log.info("***** Calendar Event Reminder *****");
+        log.info(getReminderString(pendingReminder.getTitle(), pendingReminder.getTime(), pendingReminder.getLocation()));
+    }
+
+    static boolean isUpcoming(PendingReminderDTO pendingReminder) {
+        ZonedDateTime eventTime = pendingReminder.getTime();
+        return eventTime.isAfter(ZonedDateTime.now(eventTime.getZone()));
+    }
+
+    protected String getReminderString(String title, ZonedDateTime time, String location) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Don't forget you're scheduled event!").append(IOUtils.LINE_SEPARATOR)
+            .append(title).append(IOUtils.LINE_SEPARATOR)
+            .append("Event Time: ").append(time.format(DateTimeFormatter.RFC_1123_DATE_TIME))
+            .append(IOUtils.LINE_SEPARATOR)
+            .append("Location: ").append(Optional.ofNullable(location).orElse("< no location provided >"))
+            .append(IOUtils.LINE_SEPARATOR);
+        return builder.toString();
+    }
+}
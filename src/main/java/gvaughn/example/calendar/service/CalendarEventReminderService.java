@@ -1,23 +1,24 @@
 package gvaughn.example.calendar.service;
 
 import gvaughn.example.calendar.domain.CalendarEvent;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.tuple.Pair;
+import gvaughn.example.calendar.domain.PendingReminder;
+import gvaughn.example.calendar.service.dto.PendingReminderDTO;
+import gvaughn.example.calendar.service.recurrence.Recurrence;
+import gvaughn.example.calendar.service.reminder.ReminderPattern;
+import gvaughn.example.calendar.service.reminder.ReminderScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static gvaughn.example.calendar.service.util.TransactionUtil.afterCommit;
 
 /**
  * Component class for managing calendar event reminders.
@@ -31,16 +32,113 @@ public class CalendarEventReminderService {
 
     private static final long DEFAULT_REMINDER_MINUTES = 10;
 
-    private static final Map<Long, ScheduledFuture> EXECUTION_MAP = Collections.synchronizedMap(new HashMap<>());
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private final ReminderScheduler scheduler;
+
+    private final ReminderQueueService reminderQueueService;
+
+    private final ReminderMetrics reminderMetrics;
+
+    private final ReminderSentFlusher reminderSentFlusher;
 
+    /**
+     * Queued reminders due at or before this time, in epoch milliseconds, are held in memory; later ones
+     * stay in the queue until the horizon sweep reaches them. Nothing is in memory until the first sweep.
+     */
+    private volatile long horizonEnd = Long.MIN_VALUE;
 
+    public CalendarEventReminderService(ReminderScheduler scheduler, ReminderQueueService reminderQueueService,
+                                        ReminderMetrics reminderMetrics, ReminderSentFlusher reminderSentFlusher) {
+        this.scheduler = scheduler;
+        this.reminderQueueService = reminderQueueService;
+        this.reminderMetrics = reminderMetrics;
+        this.reminderSentFlusher = reminderSentFlusher;
+    }
+
+    /**
+     * Queues the reminders for the given event and, once the surrounding transaction commits,
+     * schedules the first one in memory if it falls within the loaded horizon. An event with reminder
+     * offsets still takes a single queue row and a single scheduler entry, which move on to the next
+     * reminder each time one is sent.
+     * @param calendarEvent Saved calendar event.
+     */
     public void scheduleReminder(CalendarEvent calendarEvent) {
-        Pair<Long, TimeUnit> delay = getReminderDelay(calendarEvent);
-        if (delay != null) {
-            ScheduledFuture future = scheduler.schedule(new ScheduledReminder(calendarEvent),
-                delay.getLeft(), delay.getRight());
-            EXECUTION_MAP.put(calendarEvent.getId(), future);
+        PlannedReminder reminder = plan(calendarEvent);
+        if (reminder != null) {
+            PendingReminder row = reminder.row;
+            reminderQueueService.enqueue(row.getEventId(), row.getDueTime(), row.getReminderOffsets(),
+                row.getOccurrenceTime());
+            afterCommit(() -> scheduleWithinHorizon(reminder));
+        }
+    }
+
+    /**
+     * Schedules the reminders of many events as {@link #scheduleReminder(CalendarEvent)} does, queueing their
+     * rows in JDBC batches and scheduling them in memory with a single callback once the transaction commits.
+     * @param calendarEvents Saved calendar events, none of which has a queued reminder, e.g. new ones.
+     */
+    public void scheduleReminders(List<CalendarEvent> calendarEvents) {
+        List<PlannedReminder> reminders = new ArrayList<>(calendarEvents.size());
+        for (CalendarEvent calendarEvent : calendarEvents) {
+            PlannedReminder reminder = plan(calendarEvent);
+            if (reminder != null) {
+                reminders.add(reminder);
+            }
+        }
+        if (!reminders.isEmpty()) {
+            reminderQueueService.enqueueAll(reminders.stream().map(reminder -> reminder.row).collect(Collectors.toList()));
+            afterCommit(() -> reminders.forEach(this::scheduleWithinHorizon));
+        }
+    }
+
+    private PlannedReminder plan(CalendarEvent calendarEvent) {
+        return calendarEvent.getRecurrenceRule() != null ? planRecurringReminder(calendarEvent) : planReminder(calendarEvent);
+    }
+
+    /**
+     * Works out the next reminder of an event that does not recur.
+     * @return The reminder, or null if the event needs none.
+     */
+    private PlannedReminder planReminder(CalendarEvent calendarEvent) {
+        ZonedDateTime reminderTime = getReminderTime(calendarEvent);
+        if (reminderTime == null) {
+            return null;
+        }
+        ZonedDateTime eventTime = calendarEvent.getTime();
+        ReminderPattern pattern = getReminderPattern(calendarEvent, reminderTime);
+        long firstDue = pattern == null ? ReminderPattern.NONE
+            : pattern.nextDue(eventTime.toInstant().toEpochMilli(), System.currentTimeMillis());
+        ZonedDateTime firstDueTime = firstDue == ReminderPattern.NONE ? reminderTime
+            : ZonedDateTime.ofInstant(Instant.ofEpochMilli(firstDue), reminderTime.getZone());
+        return new PlannedReminder(new PendingReminder(calendarEvent.getId(), firstDueTime,
+            pattern == null ? null : pattern.encode()), calendarEvent.getCalendar().getId(), eventTime, pattern, null);
+    }
+
+    /**
+     * Works out the reminders of a recurring event for its next occurrence only, e.g. the next one of a daily
+     * meeting rather than one per day. Every occurrence has its reminders at the same offsets before it; once
+     * the last of them has been sent, the event's single queue row and scheduler entry move on to the
+     * following occurrence.
+     * @return The reminder, or null if the series is over.
+     */
+    private PlannedReminder planRecurringReminder(CalendarEvent calendarEvent) {
+        Recurrence recurrence = Recurrence.of(calendarEvent.getRecurrenceRule(), calendarEvent.getTime());
+        ReminderPattern pattern = getRecurringReminderPattern(calendarEvent);
+        long now = System.currentTimeMillis();
+        ZonedDateTime occurrence = recurrence.nextAfter(Instant.ofEpochMilli(pattern.lastEventRemindedBy(now)));
+        if (occurrence == null) {
+            log.debug("This series is over, no reminder necessary: " + calendarEvent);
+            return null;
+        }
+        ZonedDateTime dueTime = ZonedDateTime.ofInstant(
+            Instant.ofEpochMilli(pattern.nextDue(occurrence.toInstant().toEpochMilli(), now)), occurrence.getZone());
+        return new PlannedReminder(new PendingReminder(calendarEvent.getId(), dueTime, pattern.encode(), occurrence),
+            calendarEvent.getCalendar().getId(), occurrence, pattern, recurrence);
+    }
+
+    private void scheduleWithinHorizon(PlannedReminder reminder) {
+        if (isWithinHorizon(reminder.row.getDueTime())) {
+            schedule(reminder.row.getEventId(), reminder.row.getDueTime(), reminder.calendarId, reminder.eventTime,
+                reminder.pattern, reminder.recurrence);
         }
     }
 
@@ -50,83 +148,241 @@ public class CalendarEventReminderService {
     }
 
     public void cancelReminder(Long eventId) {
-        if (EXECUTION_MAP.containsKey(eventId)) {
-            ScheduledFuture future = EXECUTION_MAP.get(eventId);
-            future.cancel(false);
-            removeRemider(eventId);
-        }
+        reminderQueueService.dequeue(eventId);
+        afterCommit(() -> cancel(eventId));
     }
 
-    protected void removeRemider(Long eventId) {
-        if (EXECUTION_MAP.containsKey(eventId)) {
-            EXECUTION_MAP.remove(eventId);
+    /**
+     * Cancels the reminders of many events as {@link #cancelReminder(Long)} does, dequeueing them with one
+     * statement per chunk of events and unscheduling them with a single callback once the transaction commits.
+     * @param eventIds Calendar event ids.
+     */
+    public void cancelReminders(List<Long> eventIds) {
+        if (!eventIds.isEmpty()) {
+            List<Long> ids = new ArrayList<>(eventIds);
+            reminderQueueService.dequeueAll(ids);
+            afterCommit(() -> ids.forEach(this::cancel));
         }
     }
-    class ScheduledReminder implements Runnable {
 
-        private final CalendarEvent calendarEvent;
-        private final String reminderMessage;
-        private final Long eventId;
-        public ScheduledReminder(CalendarEvent calendarEvent) {
-            this.calendarEvent = calendarEvent;
-            this.reminderMessage = getReminderString(calendarEvent);
-            this.eventId = calendarEvent.getId();
+    /**
+     * Snoozes the reminder for the given event. The in-memory reminder is moved in place and the queue row
+     * follows with the next write-behind flush, so a snooze costs no database round trip of its own. A
+     * reminder that has already been sent is queued again.
+     * @param eventId Calendar event id.
+     * @param calendarId Id of the calendar the event belongs to.
+     * @param dueTime Time at which the reminder should fire again.
+     */
+    public void snoozeReminder(Long eventId, Long calendarId, ZonedDateTime dueTime) {
+        reminderSentFlusher.requeue(eventId, dueTime);
+        if (isWithinHorizon(dueTime)) {
+            long dueEpochMillis = dueTime.toInstant().toEpochMilli();
+            if (!scheduler.reschedule(eventId, dueEpochMillis)) {
+                scheduler.schedule(eventId, dueEpochMillis, calendarId);
+            }
         }
+        reminderMetrics.reminderSnoozed();
+    }
+
+    /**
+     * Moves a reminder read back from the durable queue on to a later due time, keeping its pattern, e.g.
+     * past reminders missed while the node was down. A recurring event's reminder may move on to a later
+     * occurrence. The queue row is updated in the surrounding transaction, and the reminder scheduled in
+     * memory once it commits.
+     * @param pendingReminder Queued reminder.
+     * @param dueTime New due time, that of one of the event's later reminders.
+     */
+    public void requeueReminder(PendingReminderDTO pendingReminder, ZonedDateTime dueTime) {
+        // The occurrence whose reminders include the one due then
+        ZonedDateTime occurrenceTime = pendingReminder.getNextOccurrenceTimeAfter(dueTime.minusNanos(1));
+        reminderQueueService.requeue(Collections.singletonList(
+            new PendingReminder(pendingReminder.getEventId(), dueTime, null, occurrenceTime)));
+        afterCommit(() -> {
+            if (isWithinHorizon(dueTime)) {
+                schedule(pendingReminder.getEventId(), dueTime, pendingReminder.getCalendarId(),
+                    occurrenceTime != null ? occurrenceTime : pendingReminder.getTime(),
+                    pendingReminder.getReminderPattern(), pendingReminder.getRecurrence());
+            }
+        });
+    }
+
+    /**
+     * Acknowledges the reminder for the given event, dismissing any reminders it has left. Like a sent
+     * reminder, it is marked sent with the next write-behind flush.
+     * @param eventId Calendar event id.
+     */
+    public void acknowledgeReminder(Long eventId) {
+        scheduler.cancel(eventId);
+        reminderSentFlusher.acknowledge(eventId);
+    }
 
-        @Override
-        public void run() {
-            log.info("***** Calendar Event Reminder *****");
-            log.info(reminderMessage);
-            calendarEvent.setReminderSent(Boolean.TRUE);
-            removeRemider(eventId);
+    /**
+     * Schedules a reminder read back from the durable queue, e.g. at startup.
+     * @param pendingReminder Queued reminder.
+     * @return false if the event has already taken place and the reminder should be discarded.
+     */
+    public boolean restoreReminder(PendingReminderDTO pendingReminder) {
+        if (!CalendarEventReminderSender.isUpcoming(pendingReminder)) {
+            log.debug("Discarding reminder for past event {}", pendingReminder);
+            return false;
         }
+        schedule(pendingReminder.getEventId(), pendingReminder.getDueTime(), pendingReminder.getCalendarId(),
+            pendingReminder.getTime(), pendingReminder.getReminderPattern(), pendingReminder.getRecurrence());
+        return true;
     }
 
-    protected String getReminderString(CalendarEvent calendarEvent) {
-        StringBuilder builder = new StringBuilder();
-        builder.append("Don't forget you're scheduled event!").append(IOUtils.LINE_SEPARATOR)
-            .append(calendarEvent.getTitle()).append(IOUtils.LINE_SEPARATOR)
-            .append("Event Time: ").append(calendarEvent.getTime().format(DateTimeFormatter.RFC_1123_DATE_TIME))
-            .append(IOUtils.LINE_SEPARATOR)
-            .append("Location: ").append(Optional.of(calendarEvent.getLocation()).orElse("< no location provided >"))
-            .append(IOUtils.LINE_SEPARATOR);
-        return builder.toString();
+    /**
+     * Moves the end of the in-memory horizon forward. Callers must extend the horizon before reading the
+     * queue for the new slice, so that a reminder committed concurrently is either scheduled by its own
+     * transaction or found by the read.
+     * @param until New horizon end, in epoch milliseconds.
+     * @return The previous horizon end, or {@link Long#MIN_VALUE} if nothing has been loaded yet.
+     */
+    public synchronized long extendHorizon(long until) {
+        long previous = horizonEnd;
+        horizonEnd = Math.max(previous, until);
+        return previous;
     }
 
-    protected Pair<Long, TimeUnit> getReminderDelay(CalendarEvent calendarEvent) {
+    /**
+     * Moves the horizon end back after a failed read, so that the slice is read again by the next sweep.
+     * Reminders already scheduled from that slice are simply replaced.
+     * @param horizonEnd Horizon end to restore, in epoch milliseconds.
+     */
+    synchronized void resetHorizon(long horizonEnd) {
+        this.horizonEnd = horizonEnd;
+    }
+
+    public long getHorizonEnd() {
+        return horizonEnd;
+    }
+
+    protected boolean isWithinHorizon(ZonedDateTime reminderTime) {
+        return reminderTime.toInstant().toEpochMilli() <= horizonEnd;
+    }
+
+    protected void schedule(Long eventId, ZonedDateTime reminderTime, Long calendarId, ZonedDateTime eventTime,
+                            ReminderPattern pattern, Recurrence recurrence) {
+        scheduler.schedule(eventId, reminderTime.toInstant().toEpochMilli(), calendarId,
+            eventTime.toInstant().toEpochMilli(), pattern, recurrence);
+    }
+
+    protected void cancel(Long eventId) {
+        if (scheduler.cancel(eventId)) {
+            reminderMetrics.reminderCancelled();
+        }
+    }
+
+    /**
+     * Returns the time at which the reminder for the given event should fire.
+     * @param calendarEvent Calendar event.
+     * @return Reminder time, or null if the event needs no reminder.
+     */
+    protected ZonedDateTime getReminderTime(CalendarEvent calendarEvent) {
         ZonedDateTime reminderTime = calendarEvent.getReminderTime();
         ZonedDateTime eventTime = calendarEvent.getTime();
         if (eventTime == null) {
             log.error("This event has no time. It is a non-event, and needs no reminder: " + calendarEvent);
             return null;
         }
-        ZonedDateTime now = ZonedDateTime.now(reminderTime.getZone());
-        if (eventTime.isAfter(now)) {
-            log.error("This event is dust in the wind, no reminder necessary: " + calendarEvent);
+        ZonedDateTime now = ZonedDateTime.now(eventTime.getZone());
+        if (!eventTime.isAfter(now)) {
+            log.debug("This event is dust in the wind, no reminder necessary: " + calendarEvent);
             return null;
         }
         if (reminderTime == null) {
             log.warn("No reminder time specified, using default reminder.");
-            return getDefaultReminderDelay(eventTime, now);
+            return getDefaultReminderTime(eventTime, now);
         }
         if (!reminderTime.isAfter(now)) {
             log.warn("Requested reminder time is in the past, using default reminder");
-            return getDefaultReminderDelay(eventTime, now);
+            return getDefaultReminderTime(eventTime, now);
         }
         if (!reminderTime.isBefore(eventTime)) {
             log.warn("Requested reminder time is not before the event, using default reminder");
-            return getDefaultReminderDelay(eventTime, now);
+            return getDefaultReminderTime(eventTime, now);
+        }
+        return reminderTime;
+    }
+
+    /**
+     * Combines the reminder time with the event's reminder offsets. Offsets whose reminder would already
+     * have passed are dropped.
+     * @param calendarEvent Calendar event.
+     * @param reminderTime Reminder time as returned by {@link #getReminderTime(CalendarEvent)}.
+     * @return The pattern, or null if the reminder time is the event's only reminder.
+     */
+    protected ReminderPattern getReminderPattern(CalendarEvent calendarEvent, ZonedDateTime reminderTime) {
+        if (calendarEvent.getReminderOffsets() == null || calendarEvent.getReminderOffsets().isEmpty()) {
+            return null;
+        }
+        ZonedDateTime eventTime = calendarEvent.getTime();
+        ZonedDateTime now = ZonedDateTime.now(eventTime.getZone());
+        List<Long> offsetSeconds = new ArrayList<>();
+        offsetSeconds.add(Duration.between(reminderTime, eventTime).getSeconds());
+        for (Integer offsetMinutes : calendarEvent.getReminderOffsets()) {
+            if (offsetMinutes != null && eventTime.minusMinutes(offsetMinutes).isAfter(now)) {
+                offsetSeconds.add(offsetMinutes * 60L);
+            }
         }
-        long delayInMinutes = now.until(reminderTime, ChronoUnit.MINUTES);
-        return Pair.of(delayInMinutes, TimeUnit.MINUTES);
+        ReminderPattern pattern = ReminderPattern.of(offsetSeconds);
+        return pattern == null || pattern.size() == 1 ? null : pattern;
     }
 
-    protected Pair<Long, TimeUnit> getDefaultReminderDelay(ZonedDateTime eventTime, ZonedDateTime now) {
+    /**
+     * Combines the lead of the reminder time before the series' first occurrence with the event's reminder
+     * offsets, which apply alike to every occurrence. Without a valid reminder time the default lead is used.
+     * @param calendarEvent Recurring calendar event.
+     * @return The pattern.
+     */
+    protected ReminderPattern getRecurringReminderPattern(CalendarEvent calendarEvent) {
+        ZonedDateTime reminderTime = calendarEvent.getReminderTime();
+        ZonedDateTime eventTime = calendarEvent.getTime();
+        List<Long> offsetSeconds = new ArrayList<>();
+        if (reminderTime != null && reminderTime.isBefore(eventTime)) {
+            offsetSeconds.add(Duration.between(reminderTime, eventTime).getSeconds());
+        } else {
+            offsetSeconds.add(DEFAULT_REMINDER_MINUTES * 60L);
+        }
+        for (Integer offsetMinutes : calendarEvent.getReminderOffsets()) {
+            if (offsetMinutes != null) {
+                offsetSeconds.add(offsetMinutes * 60L);
+            }
+        }
+        ReminderPattern pattern = ReminderPattern.of(offsetSeconds);
+        return pattern != null ? pattern : ReminderPattern.of(Collections.singletonList(DEFAULT_REMINDER_MINUTES * 60L));
+    }
+
+    protected ZonedDateTime getDefaultReminderTime(ZonedDateTime eventTime, ZonedDateTime now) {
         ZonedDateTime reminderTime = eventTime.minusMinutes(DEFAULT_REMINDER_MINUTES);
         if (!reminderTime.isAfter(now)) {
-            return Pair.of(10L, TimeUnit.SECONDS);
+            return now.plusSeconds(10L);
+        }
+        return reminderTime;
+    }
+
+    /**
+     * An event's next reminder: its queue row, and what scheduling it in memory takes.
+     */
+    private static final class PlannedReminder {
+
+        private final PendingReminder row;
+
+        private final Long calendarId;
+
+        private final ZonedDateTime eventTime;
+
+        private final ReminderPattern pattern;
+
+        private final Recurrence recurrence;
+
+        private PlannedReminder(PendingReminder row, Long calendarId, ZonedDateTime eventTime, ReminderPattern pattern,
+                                Recurrence recurrence) {
+            this.row = row;
+            this.calendarId = calendarId;
+            this.eventTime = eventTime;
+            this.pattern = pattern;
+            this.recurrence = recurrence;
         }
-        long delayInMinutes = now.until(reminderTime, ChronoUnit.MINUTES);
-        return Pair.of(delayInMinutes, TimeUnit.MINUTES);
     }
 }
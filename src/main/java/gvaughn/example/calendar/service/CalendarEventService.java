@@ -3,23 +3,53 @@ package gvaughn.example.calendar.service;
 import gvaughn.example.calendar.domain.Calendar;
 import gvaughn.example.calendar.domain.CalendarEvent;
 import gvaughn.example.calendar.domain.User;
+import gvaughn.example.calendar.repository.CalendarEventReadRepository;
 import gvaughn.example.calendar.repository.CalendarEventRepository;
+import gvaughn.example.calendar.repository.util.InListUtil;
+import gvaughn.example.calendar.service.dto.CalendarEventBulkDTO;
+import gvaughn.example.calendar.service.dto.CalendarEventBulkResultDTO;
+import gvaughn.example.calendar.service.dto.CalendarEventCursor;
 import gvaughn.example.calendar.service.dto.CalendarEventDTO;
+import gvaughn.example.calendar.service.dto.CalendarEventSyncDTO;
+import gvaughn.example.calendar.service.dto.CalendarSyncToken;
+import gvaughn.example.calendar.service.dto.CalendarVersionDTO;
 import gvaughn.example.calendar.service.dto.EventListDurationDTO;
+import gvaughn.example.calendar.service.dto.EventSpanDTO;
 import gvaughn.example.calendar.service.mapper.CalendarEventMapper;
+import gvaughn.example.calendar.service.recurrence.Recurrence;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Service;
 
+import javax.validation.Validator;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static gvaughn.example.calendar.repository.util.InListUtil.batches;
 
 /**
  * Service Implementation for managing CalendarEvent.
@@ -41,6 +71,21 @@ public class CalendarEventService {
     @Autowired
     private CalendarEventReminderService calendarEventReminderService;
 
+    @Autowired
+    private CalendarEventIndex calendarEventIndex;
+
+    @Autowired
+    private CalendarEventReadRepository calendarEventReadRepository;
+
+    @Autowired
+    private OccurrenceExpander occurrenceExpander;
+
+    @Autowired
+    private CalendarVersionService calendarVersionService;
+
+    @Autowired
+    private Validator validator;
+
     public CalendarEventService(CalendarEventRepository calendarEventRepository) {
         this.calendarEventRepository = calendarEventRepository;
     }
@@ -58,10 +103,14 @@ public class CalendarEventService {
             throw new IllegalArgumentException("Create requires a null id.");
         }
         CalendarEvent event = calendarEventMapper.dtoToCalendarEvent(dto);
+        applyRecurrence(event);
         Calendar calendar = calendarService.getCalendarForUser(user);
         event.setCalendar(calendar);
         event = calendarEventRepository.save(event);
         calendarEventReminderService.scheduleReminder(event);
+        calendarEventIndex.eventSaved(event);
+        calendarVersionService.eventsWritten(calendar.getId(), Collections.singletonList(event.getId()),
+            Collections.emptyList(), Collections.emptyList());
         return event;
     }
 
@@ -73,16 +122,262 @@ public class CalendarEventService {
     public CalendarEvent update(CalendarEventDTO dto) {
         Objects.requireNonNull(dto);
         Objects.requireNonNull(dto.getId());
-        CalendarEvent updated = calendarEventMapper.dtoToCalendarEvent(dto);
         CalendarEvent event = Optional.ofNullable(calendarEventRepository.findOne(dto.getId()))
             .orElseThrow(() -> new IllegalArgumentException("Invalid calendar event id: " + dto.getId()));
+        CalendarEvent updated = updatedEvent(event, dto);
+        if (remindersChanged(event, updated)) {
+            calendarEventReminderService.updateReminder(updated);
+        }
+        CalendarEvent saved = calendarEventRepository.save(updated);
+        calendarEventIndex.eventSaved(saved);
+        calendarVersionService.eventsWritten(saved.getCalendar().getId(), Collections.emptyList(),
+            Collections.singletonList(saved.getId()), Collections.emptyList());
+        return saved;
+    }
+
+    /**
+     * Applies a batch of writes to the given user's calendar in one transaction. The calendar is resolved
+     * once, the events updated or deleted are loaded with one query per
+     * {@value InListUtil#MAX_SIZE} of them, and the rows written are flushed in JDBC
+     * batches, inserted events taking their ids from the pooled sequence a block at a time. Reminders are
+     * queued, and the event index updated, for the whole batch at once.
+     * <p>
+     * A write that is not valid, or is for an event not in the user's calendar, is reported and skipped
+     * without failing the others: each write gets a result, with the status the single-event request would
+     * have had.
+     * @param bulk Events to create, events to update, and ids of events to delete.
+     * @param user Owner of the events.
+     * @return One result per write: the creates, then the updates, then the deletes, each in request order.
+     */
+    public List<CalendarEventBulkResultDTO> bulk(CalendarEventBulkDTO bulk, User user) {
+        Objects.requireNonNull(bulk);
+        Objects.requireNonNull(user);
+        log.debug("Request to apply {}", bulk);
+        Calendar calendar = calendarService.getCalendarForUser(user);
+        List<Long> targetIds = Stream.concat(bulk.getUpdate().stream().filter(Objects::nonNull).map(CalendarEventDTO::getId),
+            bulk.getDelete().stream()).filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        Map<Long, CalendarEvent> targets = new HashMap<>();
+        for (List<Long> ids : batches(targetIds)) {
+            calendarEventRepository.findByCalendarIdAndIdIn(calendar.getId(), ids)
+                .forEach(event -> targets.put(event.getId(), event));
+        }
+        Set<Long> written = new HashSet<>();
+
+        CalendarEventBulkResultDTO[] createResults = new CalendarEventBulkResultDTO[bulk.getCreate().size()];
+        Map<Integer, CalendarEvent> created = new LinkedHashMap<>();
+        for (int i = 0; i < bulk.getCreate().size(); i++) {
+            CalendarEventDTO dto = bulk.getCreate().get(i);
+            String invalid = dto != null && dto.getId() != null ? "A new calendarEvent cannot already have an ID" : validate(dto);
+            if (invalid != null) {
+                createResults[i] = new CalendarEventBulkResultDTO(CalendarEventBulkResultDTO.CREATE, i, null, 400, invalid);
+                continue;
+            }
+            CalendarEvent event = calendarEventMapper.dtoToCalendarEvent(dto);
+            event.setCalendar(calendar);
+            try {
+                applyRecurrence(event);
+            } catch (IllegalArgumentException e) {
+                createResults[i] = new CalendarEventBulkResultDTO(CalendarEventBulkResultDTO.CREATE, i, null, 400, e.getMessage());
+                continue;
+            }
+            created.put(i, event);
+        }
+
+        List<CalendarEventBulkResultDTO> results = new ArrayList<>(bulk.size());
+        List<CalendarEvent> updated = new ArrayList<>();
+        List<CalendarEvent> rescheduled = new ArrayList<>();
+        for (int i = 0; i < bulk.getUpdate().size(); i++) {
+            CalendarEventDTO dto = bulk.getUpdate().get(i);
+            Long id = dto == null ? null : dto.getId();
+            String invalid = dto != null && id == null ? "An updated calendarEvent must have an ID" : validate(dto);
+            int status = invalid != null ? 400 : 200;
+            if (invalid == null) {
+                CalendarEvent event = targets.get(id);
+                if (event == null) {
+                    status = 404;
+                    invalid = "No calendarEvent with ID " + id;
+                } else if (!written.add(id)) {
+                    status = 400;
+                    invalid = "The calendarEvent with ID " + id + " is written more than once";
+                } else {
+                    try {
+                        CalendarEvent updatedEvent = updatedEvent(event, dto);
+                        updated.add(updatedEvent);
+                        if (remindersChanged(event, updatedEvent)) {
+                            rescheduled.add(updatedEvent);
+                        }
+                    } catch (IllegalArgumentException e) {
+                        status = 400;
+                        invalid = e.getMessage();
+                    }
+                }
+            }
+            results.add(new CalendarEventBulkResultDTO(CalendarEventBulkResultDTO.UPDATE, i, id, status, invalid));
+        }
+
+        List<CalendarEvent> deleted = new ArrayList<>();
+        for (int i = 0; i < bulk.getDelete().size(); i++) {
+            Long id = bulk.getDelete().get(i);
+            CalendarEvent event = id == null ? null : targets.get(id);
+            if (event == null) {
+                results.add(new CalendarEventBulkResultDTO(CalendarEventBulkResultDTO.DELETE, i, id, 404,
+                    "No calendarEvent with ID " + id));
+            } else if (!written.add(id)) {
+                results.add(new CalendarEventBulkResultDTO(CalendarEventBulkResultDTO.DELETE, i, id, 400,
+                    "The calendarEvent with ID " + id + " is written more than once"));
+            } else {
+                deleted.add(event);
+                results.add(new CalendarEventBulkResultDTO(CalendarEventBulkResultDTO.DELETE, i, id, 200, null));
+            }
+        }
+
+        // Queued reminders go first, so that no queue row outlives its event and rescheduled events can be
+        // queued again
+        calendarEventReminderService.cancelReminders(Stream.concat(rescheduled.stream(), deleted.stream())
+            .map(CalendarEvent::getId).collect(Collectors.toList()));
+        List<CalendarEvent> saved = calendarEventRepository.save(created.values());
+        List<CalendarEvent> toSchedule = new ArrayList<>(saved);
+        toSchedule.addAll(rescheduled);
+        List<CalendarEvent> savedUpdates = calendarEventRepository.save(updated);
+        calendarEventRepository.delete(deleted);
+        calendarEventReminderService.scheduleReminders(toSchedule);
+        List<CalendarEvent> indexed = new ArrayList<>(saved);
+        indexed.addAll(savedUpdates);
+        calendarEventIndex.eventsSaved(indexed);
+        calendarEventIndex.eventsDeleted(deleted);
+        if (!indexed.isEmpty() || !deleted.isEmpty()) {
+            calendarVersionService.eventsWritten(calendar.getId(),
+                saved.stream().map(CalendarEvent::getId).collect(Collectors.toList()),
+                savedUpdates.stream().map(CalendarEvent::getId).collect(Collectors.toList()),
+                deleted.stream().map(CalendarEvent::getId).collect(Collectors.toList()));
+        }
+
+        Iterator<CalendarEvent> savedEvents = saved.iterator();
+        for (Integer i : created.keySet()) {
+            createResults[i] = new CalendarEventBulkResultDTO(CalendarEventBulkResultDTO.CREATE, i,
+                savedEvents.next().getId(), 201, null);
+        }
+        results.addAll(0, Arrays.asList(createResults));
+        return results;
+    }
+
+    /**
+     * @return The first constraint the event violates, or null if it is valid.
+     */
+    private String validate(CalendarEventDTO dto) {
+        if (dto == null) {
+            return "A calendarEvent is required";
+        }
+        return validator.validate(dto).stream()
+            .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+            .sorted()
+            .findFirst()
+            .orElse(null);
+    }
 
+    /**
+     * @return The event as updated by the DTO, keeping its calendar and whether its reminder was sent.
+     * @throws IllegalArgumentException if the recurrence rule is not valid.
+     */
+    private CalendarEvent updatedEvent(CalendarEvent event, CalendarEventDTO dto) {
+        CalendarEvent updated = calendarEventMapper.dtoToCalendarEvent(dto);
         updated.setCalendar(event.getCalendar());
         updated.setReminderSent(event.isReminderSent());
-        if (!reminderTimesEqual(event, updated)) {
-            calendarEventReminderService.updateReminder(updated);
+        applyRecurrence(updated);
+        return updated;
+    }
+
+    private boolean remindersChanged(CalendarEvent event, CalendarEvent updated) {
+        return !reminderTimesEqual(event, updated) || !reminderOffsetsEqual(event, updated)
+            || !recurrencesEqual(event, updated);
+    }
+
+    /**
+     * Finds the events overlapping the given event in its calendar. Only the events that can overlap it are
+     * read: those starting within one maximum event duration before it and before its end, and the recurring
+     * events still occurring by then, whose occurrences are expanded over that range alone. An event without
+     * a duration is a point in time, overlapping another only if it falls within it or starts with it.
+     * A recurring event is checked at its first occurrence.
+     * <p>
+     * No transaction is started, so a check served by an enabled {@link CalendarEventIndex} costs no
+     * connection checkout.
+     * @param event Saved calendar event.
+     * @return Ids of the conflicting events, ordered by the time they overlap the event.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public List<Long> findConflicts(CalendarEvent event) {
+        if (event.getTime() == null) {
+            return Collections.emptyList();
+        }
+        ZonedDateTime start = event.getTime();
+        ZonedDateTime end = endOf(start, event.getDuration());
+        // Events starting a whole maximum duration earlier end by the event's start at the latest; the range
+        // reaches past the end so that events starting with an event without duration are read
+        ZonedDateTime after = start.minusMinutes(CalendarEvent.MAX_DURATION_MINUTES);
+        List<Pair<ZonedDateTime, Long>> conflicts = new ArrayList<>();
+        for (EventSpanDTO span : calendarEventIndex.findSpansByCalendar(event.getCalendar().getId(), after,
+            end.plusSeconds(1))) {
+            if (span.getId().equals(event.getId())) {
+                continue;
+            }
+            for (ZonedDateTime time : spanOccurrences(span, after, end)) {
+                if (overlaps(start, end, time, endOf(time, span.getDuration()))) {
+                    conflicts.add(Pair.of(time, span.getId()));
+                    break;
+                }
+            }
+        }
+        return conflicts.stream()
+            .sorted(Comparator.comparing((Pair<ZonedDateTime, Long> conflict) -> conflict.getLeft().toInstant())
+                .thenComparing(Pair::getRight))
+            .map(Pair::getRight)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * @return The span's start if it does not recur, or else its occurrences starting within the range.
+     */
+    static List<ZonedDateTime> spanOccurrences(EventSpanDTO span, ZonedDateTime from, ZonedDateTime to) {
+        if (span.getRecurrenceRule() == null) {
+            return Collections.singletonList(span.getTime());
+        }
+        try {
+            return Recurrence.of(span.getRecurrenceRule(), span.getTime()).between(from.toInstant(), to.toInstant());
+        } catch (IllegalArgumentException e) {
+            LoggerFactory.getLogger(CalendarEventService.class)
+                .warn("Invalid recurrence rule of CalendarEvent {}: {}", span.getId(), e.getMessage());
+            return Collections.singletonList(span.getTime());
+        }
+    }
+
+    private static ZonedDateTime endOf(ZonedDateTime start, Integer duration) {
+        return duration == null ? start : start.plusMinutes(duration);
+    }
+
+    private static boolean overlaps(ZonedDateTime start, ZonedDateTime end, ZonedDateTime otherStart,
+                                    ZonedDateTime otherEnd) {
+        return start.isEqual(otherStart) || (start.isBefore(otherEnd) && otherStart.isBefore(end));
+    }
+
+    /**
+     * Stores the event's recurrence rule in canonical form, with the time of the series' last occurrence.
+     * @throws IllegalArgumentException if the rule is not valid.
+     */
+    private void applyRecurrence(CalendarEvent event) {
+        Recurrence recurrence = Recurrence.of(event.getRecurrenceRule(), event.getTime());
+        event.setRecurrenceRule(recurrence == null ? null : recurrence.getRule().toString());
+        event.setRecurrenceEnd(recurrence == null ? null : recurrence.lastOccurrence());
+    }
+
+    /**
+     * A recurring event's reminders follow its occurrences, so moving the series moves them too.
+     */
+    private boolean recurrencesEqual(CalendarEvent event, CalendarEvent updated) {
+        if (!Objects.equals(event.getRecurrenceRule(), updated.getRecurrenceRule())) {
+            return false;
         }
-        return calendarEventRepository.save(updated);
+        return updated.getRecurrenceRule() == null
+            || (event.getTime() != null && updated.getTime() != null && event.getTime().isEqual(updated.getTime()));
     }
 
     private boolean reminderTimesEqual(CalendarEvent event, CalendarEvent updated) {
@@ -96,6 +391,52 @@ public class CalendarEventService {
         return false;
     }
 
+    /**
+     * Offsets are relative to the event time, so moving an event with offsets moves its reminders too.
+     */
+    private boolean reminderOffsetsEqual(CalendarEvent event, CalendarEvent updated) {
+        if (!Objects.equals(event.getReminderOffsets(), updated.getReminderOffsets())) {
+            return false;
+        }
+        return updated.getReminderOffsets() == null || updated.getReminderOffsets().isEmpty()
+            || (event.getTime() != null && updated.getTime() != null && event.getTime().isEqual(updated.getTime()));
+    }
+
+    /**
+     * Snoozes the reminder of the given event. Unlike {@link #update(CalendarEventDTO)} the event is not
+     * loaded: one query checks that it belongs to the user, and the reminder is moved in place.
+     * @param id Calendar event id.
+     * @param login Login of the current user.
+     * @param minutes Minutes from now at which the reminder should fire again.
+     * @return false if there is no such event owned by the user.
+     */
+    @Transactional(readOnly = true)
+    public boolean snoozeReminder(Long id, String login, int minutes) {
+        log.debug("Request to snooze reminder of CalendarEvent {} for {} minutes", id, minutes);
+        Long calendarId = calendarEventRepository.findCalendarIdByIdAndUserLogin(id, login);
+        if (calendarId == null) {
+            return false;
+        }
+        calendarEventReminderService.snoozeReminder(id, calendarId, ZonedDateTime.now().plusMinutes(minutes));
+        return true;
+    }
+
+    /**
+     * Acknowledges the reminder of the given event, dismissing any reminders it has left.
+     * @param id Calendar event id.
+     * @param login Login of the current user.
+     * @return false if there is no such event owned by the user.
+     */
+    @Transactional(readOnly = true)
+    public boolean acknowledgeReminder(Long id, String login) {
+        log.debug("Request to acknowledge reminder of CalendarEvent {}", id);
+        if (calendarEventRepository.findCalendarIdByIdAndUserLogin(id, login) == null) {
+            return false;
+        }
+        calendarEventReminderService.acknowledgeReminder(id);
+        return true;
+    }
+
     /**
      *  Get all the calendarEvents.
      *
@@ -110,24 +451,115 @@ public class CalendarEventService {
     }
 
     /**
-     * Returns all calendar events for the given user.
+     * Returns all calendar events for the given user. A user without a calendar has no events, so none is
+     * created here. Like the other list reads, events are read straight into DTOs, without loading entities.
      * @param user User whose events will be returned.
      * @return All calendar events for the given user.
      */
     @Transactional(readOnly = true)
-    public List<CalendarEvent> findByUser(User user) {
+    public List<CalendarEventDTO> findByUser(User user) {
         Objects.requireNonNull(user);
-        Calendar calendar = calendarService.getCalendarForUser(user);
-        return calendarEventRepository.findByCalendarOrderByTime(calendar);
+        return calendarService.findCalendarIdForUser(user)
+            .map(calendarEventIndex::findByCalendar)
+            .orElse(Collections.emptyList());
+    }
+
+    /**
+     * Returns a page of the given user's calendar events, ordered by time then id. Pages are read by seeking
+     * past the previous page's last event, so reading deep into a calendar costs no more than its first page.
+     * @param user User whose events will be returned.
+     * @param after Position of the last event of the previous page, or null for the first page.
+     * @param size Maximum number of events returned.
+     * @return The page of calendar events, telling whether more events follow.
+     */
+    @Transactional(readOnly = true)
+    public Slice<CalendarEventDTO> findByUser(User user, CalendarEventCursor after, int size) {
+        Objects.requireNonNull(user);
+        return calendarService.findCalendarIdForUser(user)
+            .map(calendarId -> calendarEventIndex.findByCalendarAfter(calendarId, after, size))
+            .orElseGet(() -> new SliceImpl<>(Collections.emptyList(), new PageRequest(0, size), false));
+    }
+
+    /**
+     * Passes each of the given user's calendar events, ordered by time, to the consumer as it is read from
+     * the database. Events are read a chunk at a time, so memory use does not grow with the number exported.
+     * @param user User whose events will be exported.
+     * @param consumer Consumer of the events, which must not keep them.
+     */
+    @Transactional(readOnly = true)
+    public void exportByUser(User user, Consumer<CalendarEventDTO> consumer) {
+        Objects.requireNonNull(user);
+        Optional<Long> calendarId = calendarService.findCalendarIdForUser(user);
+        if (calendarId.isPresent()) {
+            try (Stream<CalendarEventDTO> events = calendarEventRepository.streamByCalendarId(calendarId.get())) {
+                export(events, consumer);
+            }
+        }
     }
 
+    /**
+     * Passes every calendar event, ordered by id, to the consumer as it is read from the database.
+     * @param consumer Consumer of the events, which must not keep them.
+     * @see #exportByUser(User, Consumer)
+     */
     @Transactional(readOnly = true)
-    public List<CalendarEvent> findByUserAndDuration(User user, EventListDurationDTO durationDTO) {
+    public void exportAll(Consumer<CalendarEventDTO> consumer) {
+        try (Stream<CalendarEventDTO> events = calendarEventRepository.streamAll()) {
+            export(events, consumer);
+        }
+    }
+
+    /**
+     * Fills in the attendees and reminder offsets of each fetch's worth of events with one query each,
+     * before passing the events on.
+     */
+    private void export(Stream<CalendarEventDTO> events, Consumer<CalendarEventDTO> consumer) {
+        Iterator<CalendarEventDTO> iterator = events.iterator();
+        List<CalendarEventDTO> chunk = new ArrayList<>(CalendarEventRepository.EXPORT_FETCH_SIZE);
+        int count = 0;
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() == CalendarEventRepository.EXPORT_FETCH_SIZE || !iterator.hasNext()) {
+                calendarEventReadRepository.loadCollections(chunk);
+                chunk.forEach(consumer);
+                count += chunk.size();
+                chunk.clear();
+            }
+        }
+        log.debug("Exported {} calendar events", count);
+    }
+
+    /**
+     * Returns the given user's calendar events within the duration, ordered by time then id. Recurring events
+     * are expanded into their occurrences within the duration, each with the series' id.
+     * @param user User whose events will be returned.
+     * @param durationDTO Duration whose events will be returned.
+     * @return Events and occurrences within the duration.
+     */
+    @Transactional(readOnly = true)
+    public List<CalendarEventDTO> findByUserAndDuration(User user, EventListDurationDTO durationDTO) {
         Objects.requireNonNull(user);
         Objects.requireNonNull(durationDTO);
-        Calendar calendar = calendarService.getCalendarForUser(user);
         Pair<ZonedDateTime, ZonedDateTime> dates = getDurationDates(durationDTO);
-        return calendarEventRepository.findByCalendarAndTimeBetweenOrderByTime(calendar, dates.getLeft(), dates.getRight());
+        return calendarService.findCalendarIdForUser(user)
+            .map(calendarId -> findByCalendarAndTimeBetween(calendarId, dates.getLeft(), dates.getRight()))
+            .orElse(Collections.emptyList());
+    }
+
+    private List<CalendarEventDTO> findByCalendarAndTimeBetween(Long calendarId, ZonedDateTime startDate,
+                                                                ZonedDateTime endDate) {
+        List<CalendarEventDTO> events = calendarEventIndex.findByCalendarAndTimeBetween(calendarId, startDate, endDate);
+        List<CalendarEventDTO> series = calendarEventIndex.findRecurringByCalendar(calendarId, startDate, endDate);
+        if (series.isEmpty()) {
+            return events;
+        }
+        List<CalendarEventDTO> occurrences = events.stream()
+            .filter(event -> event.getRecurrenceRule() == null)
+            .collect(Collectors.toList());
+        occurrences.addAll(occurrenceExpander.expand(series, startDate, endDate));
+        occurrences.sort(Comparator.comparing((CalendarEventDTO event) -> event.getTime().toInstant())
+            .thenComparing(CalendarEventDTO::getId));
+        return occurrences;
     }
 
     protected Pair<ZonedDateTime, ZonedDateTime> getDurationDates(EventListDurationDTO durationDTO) {
@@ -137,6 +569,45 @@ public class CalendarEventService {
         return Pair.of(startDate, endDate);
     }
 
+    /**
+     * Returns the version of the given user's calendar, to tag reads of its events. Unchanged calendars
+     * are served from memory; see {@link CalendarVersionService#getVersion(Long)}.
+     * @param user User whose calendar version will be returned.
+     * @return The calendar's version, or empty if the user has no calendar yet.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Optional<CalendarVersionDTO> findCalendarVersion(User user) {
+        Objects.requireNonNull(user);
+        return calendarService.findCalendarIdForUser(user).map(calendarVersionService::getVersion);
+    }
+
+    /**
+     * Returns the version of the calendar holding the given event, to tag reads of the event.
+     * @param id Calendar event id.
+     * @return The version of the event's calendar, or empty if there is no such event.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Optional<CalendarVersionDTO> findEventVersion(Long id) {
+        return Optional.ofNullable(calendarVersionService.getEventVersion(id));
+    }
+
+    /**
+     * Returns the given user's calendar events written since a previous sync, as ids only; see
+     * {@link CalendarVersionService#sync(Long, CalendarSyncToken)}. A user without a calendar gets one, so
+     * that the token is bound to it.
+     * @param user User whose events will be synced.
+     * @param after Token of the previous sync, or null to get every event as created.
+     * @return The events written since the token, with the next token, or empty if the token has expired.
+     * @throws IllegalArgumentException if the token is for another user's calendar.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Optional<CalendarEventSyncDTO> sync(User user, CalendarSyncToken after) {
+        Objects.requireNonNull(user);
+        Long calendarId = calendarService.findCalendarIdForUser(user)
+            .orElseGet(() -> calendarService.getCalendarIdForUser(user));
+        return calendarVersionService.sync(calendarId, after);
+    }
+
     /**
      *  Get one calendarEvent by id.
      *
@@ -158,6 +629,12 @@ public class CalendarEventService {
     public void delete(Long id) {
         log.debug("Request to delete CalendarEvent : {}", id);
         calendarEventReminderService.cancelReminder(id);
+        CalendarEvent event = calendarEventRepository.findOne(id);
         calendarEventRepository.delete(id);
+        if (event != null) {
+            calendarEventIndex.eventDeleted(event);
+            calendarVersionService.eventsWritten(event.getCalendar().getId(), Collections.emptyList(),
+                Collections.emptyList(), Collections.singletonList(id));
+        }
     }
 }
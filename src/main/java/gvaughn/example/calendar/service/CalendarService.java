@@ -1,18 +1,35 @@
 package gvaughn.example.calendar.service;
 
+import gvaughn.example.calendar.config.ApplicationProperties;
 import gvaughn.example.calendar.domain.Calendar;
 import gvaughn.example.calendar.domain.User;
 import gvaughn.example.calendar.repository.CalendarRepository;
+import gvaughn.example.calendar.repository.UserRepository;
+import gvaughn.example.calendar.service.util.LruCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+import static gvaughn.example.calendar.service.util.TransactionUtil.afterCompletion;
 
 /**
  * Service class for managing calendar objects.
+ * <p>
+ * Each user has one default calendar, which is resolved on every calendar event request. Its id is cached by
+ * user id once the transaction that found or created it commits, so warm users resolve it without a query.
+ * A calendar is created at most once per user: concurrent resolutions on a node wait for the one creating
+ * it, and those on other nodes wait on the user's row lock, taken before creating it, and then find it.
  *
  * Created by Graham Vaughn on 4/9/2017.
  */
@@ -24,8 +41,20 @@ public class CalendarService {
 
     private static final String CALENDAR_NAME_TEMPLATE = "Default Calendar for %s";
 
-    @Autowired
-    private CalendarRepository calendarRepository;
+    private final CalendarRepository calendarRepository;
+
+    private final UserRepository userRepository;
+
+    private final LruCache<Long, Long> calendarIds;
+
+    private final ConcurrentMap<Long, Resolution> resolutions = new ConcurrentHashMap<>();
+
+    public CalendarService(CalendarRepository calendarRepository, UserRepository userRepository,
+                           ApplicationProperties applicationProperties) {
+        this.calendarRepository = calendarRepository;
+        this.userRepository = userRepository;
+        this.calendarIds = new LruCache<>(applicationProperties.getCalendar().getCacheSize());
+    }
 
     /**
      * Returns the default Calendar for the given user. If no calendar exists for the user, one will be created.
@@ -33,13 +62,158 @@ public class CalendarService {
      * @return The default calendar for the given user.
      */
     public Calendar getCalendarForUser(User user) {
-        Optional<Calendar> calendar = calendarRepository.findByUser(user).stream().findFirst();
-        return calendar.orElse(createUserCalendar(user));
+        return calendarRepository.findOne(getCalendarIdForUser(user));
+    }
+
+    /**
+     * Returns the id of the default calendar for the given user, creating the calendar if there is none.
+     * @param user User for whom the default calendar id will be returned.
+     * @return The default calendar id for the given user.
+     */
+    public Long getCalendarIdForUser(User user) {
+        Long userId = user.getId();
+        while (true) {
+            Long calendarId = calendarIds.get(userId);
+            if (calendarId != null) {
+                return calendarId;
+            }
+            Resolution resolution = new Resolution();
+            Resolution inFlight = resolutions.putIfAbsent(userId, resolution);
+            if (inFlight == null) {
+                return resolve(user, resolution);
+            }
+            if (inFlight.owner == Thread.currentThread()) {
+                return inFlight.calendarId;
+            }
+            // Another transaction is finding or creating the calendar; use it once committed, or retry
+            inFlight.await();
+        }
+    }
+
+    /**
+     * Returns the id of the default calendar for the given user without creating one, for read-only callers.
+     * @param user User for whom the default calendar id will be returned.
+     * @return The default calendar id for the given user, or empty if the user has no calendar yet.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Long> findCalendarIdForUser(User user) {
+        Long userId = user.getId();
+        Long calendarId = calendarIds.get(userId);
+        if (calendarId != null) {
+            return Optional.of(calendarId);
+        }
+        Optional<Long> found = findCalendarId(userId);
+        found.ifPresent(id -> afterCompletion(committed -> {
+            if (committed) {
+                calendarIds.put(userId, id);
+            }
+        }));
+        return found;
+    }
+
+    /**
+     * Returns the ids of the default calendars of the given users without creating any, reading those not
+     * cached with one query.
+     * @param users Users whose default calendar ids will be returned.
+     * @return Calendar ids by user id; users without a calendar yet are absent.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Long> findCalendarIdsForUsers(Collection<User> users) {
+        Map<Long, Long> found = new HashMap<>();
+        List<Long> uncached = new ArrayList<>();
+        for (User user : users) {
+            Long calendarId = calendarIds.get(user.getId());
+            if (calendarId != null) {
+                found.put(user.getId(), calendarId);
+            } else {
+                uncached.add(user.getId());
+            }
+        }
+        if (!uncached.isEmpty()) {
+            Map<Long, Long> loaded = new HashMap<>();
+            for (Object[] ids : calendarRepository.findUserAndCalendarIdsByUserIdIn(uncached)) {
+                loaded.put((Long) ids[0], (Long) ids[1]);
+            }
+            found.putAll(loaded);
+            afterCompletion(committed -> {
+                if (committed) {
+                    loaded.forEach(calendarIds::put);
+                }
+            });
+        }
+        return found;
+    }
+
+    /**
+     * Forgets the given calendar, e.g. once it is deleted or moved to another user.
+     * @param calendarId Calendar id.
+     */
+    public void evictCalendar(Long calendarId) {
+        afterCompletion(committed -> calendarIds.removeIf((userId, cachedId) -> cachedId.equals(calendarId)));
+    }
+
+    private Long resolve(User user, Resolution resolution) {
+        Long userId = user.getId();
+        Long calendarId;
+        try {
+            calendarId = findCalendarId(userId).orElseGet(() -> findOrCreateLocked(user));
+        } catch (RuntimeException e) {
+            complete(userId, resolution, null);
+            throw e;
+        }
+        resolution.calendarId = calendarId;
+        afterCompletion(committed -> complete(userId, resolution, committed ? calendarId : null));
+        return calendarId;
+    }
+
+    private void complete(Long userId, Resolution resolution, Long calendarId) {
+        if (calendarId != null) {
+            calendarIds.put(userId, calendarId);
+        }
+        resolutions.remove(userId, resolution);
+        resolution.done.countDown();
+    }
+
+    /**
+     * Creates the user's calendar unless another node did so while this one waited for the user's row lock.
+     * Checking again under the lock, rather than letting the unique constraint reject the second insert,
+     * keeps the losing request's transaction usable.
+     */
+    private Long findOrCreateLocked(User user) {
+        userRepository.findOneForUpdate(user.getId());
+        return findCalendarId(user.getId()).orElseGet(() -> createUserCalendar(user).getId());
+    }
+
+    private Optional<Long> findCalendarId(Long userId) {
+        List<Long> ids = calendarRepository.findIdsByUserId(userId);
+        return ids.stream().findFirst();
     }
 
     protected Calendar createUserCalendar(User user) {
+        log.debug("Creating default calendar for user {}", user.getLogin());
         Calendar calendar = new Calendar().name(String.format(CALENDAR_NAME_TEMPLATE, user.getEmail()));
         calendar.setUser(user);
-        return calendarRepository.save(calendar);
+        return calendarRepository.saveAndFlush(calendar);
+    }
+
+    /**
+     * A calendar being found or created for a user, shared with concurrent resolutions for the same user.
+     */
+    private static final class Resolution {
+
+        private final Thread owner = Thread.currentThread();
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private volatile Long calendarId;
+
+        private void await() {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a calendar to be created", e);
+            }
+        }
     }
 }
@@ -0,0 +1,237 @@
+package gvaughn.example.calendar.service;
+
+import gvaughn.example.calendar.config.ApplicationProperties;
+import gvaughn.example.calendar.repository.CalendarEventChangeRepository;
+import gvaughn.example.calendar.repository.CalendarEventRepository;
+import gvaughn.example.calendar.repository.CalendarVersionRepository;
+import gvaughn.example.calendar.service.dto.CalendarEventChangeDTO;
+import gvaughn.example.calendar.service.dto.CalendarEventSyncDTO;
+import gvaughn.example.calendar.service.dto.CalendarSyncToken;
+import gvaughn.example.calendar.service.dto.CalendarVersionDTO;
+import gvaughn.example.calendar.service.util.LruCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static gvaughn.example.calendar.service.util.TransactionUtil.afterCommit;
+
+/**
+ * Service class for the version counters of calendars, incremented by every write to a calendar's events,
+ * so that event reads can be tagged with the version they saw and conditional reads answered without
+ * reading any event.
+ * <p>
+ * Versions are kept in the calendar table and cached per node. A write caches the version it made once its
+ * transaction commits, so the node sees its own writes at once. Cached versions are read again once older
+ * than {@code application.calendar.version.max-staleness-millis}, so writes made by other nodes show within
+ * that time. A cached version is only ever replaced by a greater one, so a read racing a write never brings
+ * an older version back.
+ * <p>
+ * The calendar of each event read by id is cached too, events never moving between calendars.
+ * <p>
+ * Each write also logs the events it wrote at the version it made, in {@link CalendarEventChangeRepository},
+ * so that clients can sync only the events written since a version they were given in a
+ * {@link CalendarSyncToken}. A client whose calendar has not changed since is answered from the cached
+ * version alone. Tokens expire after {@code application.calendar.sync.token-validity-days}, and the
+ * tombstones of deleted events are removed a day after that.
+ */
+@Service
+@Transactional
+public class CalendarVersionService {
+
+    private final Logger log = LoggerFactory.getLogger(CalendarVersionService.class);
+
+    private final CalendarVersionRepository calendarVersionRepository;
+
+    private final CalendarEventChangeRepository calendarEventChangeRepository;
+
+    private final CalendarEventRepository calendarEventRepository;
+
+    private final LruCache<Long, CachedVersion> versions;
+
+    private final LruCache<Long, Long> eventCalendarIds;
+
+    private final long maxStalenessMillis;
+
+    private final Duration tokenValidity;
+
+    public CalendarVersionService(CalendarVersionRepository calendarVersionRepository,
+                                  CalendarEventChangeRepository calendarEventChangeRepository,
+                                  CalendarEventRepository calendarEventRepository,
+                                  ApplicationProperties applicationProperties) {
+        ApplicationProperties.Calendar.Version properties = applicationProperties.getCalendar().getVersion();
+        this.calendarVersionRepository = calendarVersionRepository;
+        this.calendarEventChangeRepository = calendarEventChangeRepository;
+        this.calendarEventRepository = calendarEventRepository;
+        this.versions = new LruCache<>(properties.getCacheSize());
+        this.eventCalendarIds = new LruCache<>(properties.getCacheSize());
+        this.maxStalenessMillis = properties.getMaxStalenessMillis();
+        this.tokenValidity = Duration.ofDays(applicationProperties.getCalendar().getSync().getTokenValidityDays());
+    }
+
+    /**
+     * Returns the calendar's version, from memory if it was cached recently enough. The version is read
+     * before the events it tags: a write committed in between leaves the tag older than the events, never
+     * newer, so the next conditional read reads them again.
+     * @param calendarId Calendar id.
+     * @return The calendar's version, or null if there is no such calendar.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public CalendarVersionDTO getVersion(Long calendarId) {
+        CachedVersion cached = versions.get(calendarId);
+        if (cached != null && (maxStalenessMillis < 0 || System.currentTimeMillis() - cached.readAt <= maxStalenessMillis)) {
+            return new CalendarVersionDTO(calendarId, cached.version);
+        }
+        Long version = calendarVersionRepository.findVersion(calendarId);
+        if (version == null) {
+            return null;
+        }
+        afterCommit(() -> cache(calendarId, version));
+        return new CalendarVersionDTO(calendarId, version);
+    }
+
+    /**
+     * Returns the version of the calendar holding the given event, reading the event's calendar only the
+     * first time the event is asked for.
+     * @param eventId Calendar event id.
+     * @return The version of the event's calendar, or null if there is no such event.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public CalendarVersionDTO getEventVersion(Long eventId) {
+        Long calendarId = eventCalendarIds.get(eventId);
+        if (calendarId == null) {
+            calendarId = calendarEventRepository.findCalendarIdById(eventId);
+            if (calendarId == null) {
+                return null;
+            }
+            eventCalendarIds.put(eventId, calendarId);
+        }
+        return getVersion(calendarId);
+    }
+
+    /**
+     * Increments the calendar's version, for writes to its events in the current transaction, and logs the
+     * events written at the new version.
+     * @param calendarId Calendar id.
+     * @param created Ids of the events created.
+     * @param updated Ids of the events updated.
+     * @param deleted Ids of the events deleted.
+     */
+    public void eventsWritten(Long calendarId, Collection<Long> created, Collection<Long> updated, Collection<Long> deleted) {
+        Long version = calendarVersionRepository.incrementVersion(calendarId);
+        if (version == null) {
+            return;
+        }
+        calendarEventChangeRepository.insertCreated(calendarId, version, created);
+        calendarEventChangeRepository.markUpdated(calendarId, version, updated);
+        calendarEventChangeRepository.markDeleted(calendarId, version, Timestamp.from(Instant.now()), deleted);
+        afterCommit(() -> cache(calendarId, version));
+    }
+
+    /**
+     * Increments the version of each calendar holding one of the given events, for writes to them in the
+     * current transaction that did not go through {@link CalendarEventService}, e.g. sent reminder flags.
+     * @param eventIds Calendar event ids.
+     */
+    public void eventsChanged(List<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> changed = calendarVersionRepository.incrementVersionsByEventIds(eventIds);
+        calendarEventChangeRepository.markUpdatedAtCalendarVersion(eventIds);
+        afterCommit(() -> changed.forEach(this::cache));
+    }
+
+    /**
+     * Returns the calendar's events written since the given token. When the cached version shows the
+     * calendar unchanged since, nothing is read; otherwise only the change log past the token's version is.
+     * The new token holds the greatest version seen: versions commit in order, each holding the calendar's
+     * row lock until then, so every change up to it has been read.
+     * @param calendarId Calendar id.
+     * @param after Token of the previous sync, or null to get every event as created.
+     * @return The events written since the token, or empty if the token has expired.
+     * @throws IllegalArgumentException if the token is for another calendar.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Optional<CalendarEventSyncDTO> sync(Long calendarId, CalendarSyncToken after) {
+        Instant now = Instant.now();
+        long afterVersion = -1;
+        if (after != null) {
+            if (after.getCalendarId() != calendarId) {
+                throw new IllegalArgumentException("Sync token of another calendar: " + after);
+            }
+            if (after.getIssuedAt().isBefore(now.minus(tokenValidity))) {
+                return Optional.empty();
+            }
+            afterVersion = after.getVersion();
+        }
+        CalendarVersionDTO current = getVersion(calendarId);
+        long version = Math.max(afterVersion, current == null ? 0 : current.getVersion());
+        List<Long> created = new ArrayList<>();
+        List<Long> updated = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        if (version > afterVersion) {
+            for (CalendarEventChangeDTO change : calendarEventChangeRepository.findByCalendarIdAfter(calendarId, afterVersion)) {
+                version = Math.max(version, change.getVersion());
+                if (change.getCreatedVersion() > afterVersion) {
+                    // Events created and deleted since the token were never seen by the client
+                    if (!change.isDeleted()) {
+                        created.add(change.getEventId());
+                    }
+                } else if (change.isDeleted()) {
+                    deleted.add(change.getEventId());
+                } else {
+                    updated.add(change.getEventId());
+                }
+            }
+            Collections.sort(created);
+            Collections.sort(updated);
+            Collections.sort(deleted);
+        }
+        String token = new CalendarSyncToken(calendarId, version, now).encode();
+        return Optional.of(new CalendarEventSyncDTO(created, updated, deleted, token));
+    }
+
+    /**
+     * Removes the tombstones no valid sync token can predate, kept a day past the token validity so that
+     * tokens issued from a stale cached version are covered too.
+     * <p>
+     * This is scheduled to get fired everyday, at 01:30 (am).
+     * </p>
+     */
+    @Scheduled(cron = "0 30 1 * * ?")
+    public void removeExpiredTombstones() {
+        Instant before = Instant.now().minus(tokenValidity).minus(Duration.ofDays(1));
+        int removed = calendarEventChangeRepository.deleteTombstonesBefore(Timestamp.from(before));
+        log.debug("Removed {} tombstones of calendar events deleted before {}", removed, before);
+    }
+
+    private void cache(Long calendarId, long version) {
+        versions.merge(calendarId, new CachedVersion(version, System.currentTimeMillis()),
+            (cached, read) -> read.version >= cached.version ? read : cached);
+    }
+
+    private static final class CachedVersion {
+
+        private final long version;
+
+        private final long readAt;
+
+        private CachedVersion(long version, long readAt) {
+            this.version = version;
+            this.readAt = readAt;
+        }
+    }
+}
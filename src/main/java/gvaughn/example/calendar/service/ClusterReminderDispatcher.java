@@ -0,0 +1,131 @@
+package gvaughn.example.calendar.service;
+
+import gvaughn.example.calendar.config.ApplicationProperties;
+import gvaughn.example.calendar.service.dto.PendingReminderDTO;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends reminders in cluster mode. Every node polls the shared reminder queue, leases a batch of due
+ * reminders, sends them and acknowledges them, so the work is spread over however many nodes are running
+ * and no reminder depends on the node it was created through.
+ * <p>
+ * A leased reminder is sent by exactly one node. If that node stops before acknowledging the batch, the
+ * lease lapses and another node sends the reminder again; a reminder may therefore be repeated after a
+ * crash, but is never lost.
+ */
+@Component
+@ConditionalOnProperty(prefix = "application.reminder", name = "mode", havingValue = "cluster")
+public class ClusterReminderDispatcher {
+
+    private final Logger log = LoggerFactory.getLogger(ClusterReminderDispatcher.class);
+
+    private final ReminderQueueService reminderQueueService;
+
+    private final CalendarEventReminderSender calendarEventReminderSender;
+
+    private final String nodeId;
+
+    private final int batchSize;
+
+    private final Duration lease;
+
+    private final AtomicLong sentCount = new AtomicLong();
+
+    public ClusterReminderDispatcher(ReminderQueueService reminderQueueService,
+                                     CalendarEventReminderSender calendarEventReminderSender,
+                                     ApplicationProperties applicationProperties) {
+        this.reminderQueueService = reminderQueueService;
+        this.calendarEventReminderSender = calendarEventReminderSender;
+        ApplicationProperties.Reminder.Cluster cluster = applicationProperties.getReminder().getCluster();
+        this.nodeId = cluster.getNodeId() != null ? cluster.getNodeId() : defaultNodeId();
+        this.batchSize = cluster.getBatchSize();
+        this.lease = Duration.ofSeconds(cluster.getLeaseSeconds());
+        log.info("Sending reminders in cluster mode as node {}", nodeId);
+    }
+
+    /**
+     * Keeps claiming batches until the queue holds no more due reminders. A failure is logged rather
+     * than propagated; any batch left unacknowledged is picked up again once its lease lapses.
+     */
+    @Scheduled(fixedDelayString = "${application.reminder.cluster.poll-interval-millis:1000}")
+    public void onPollInterval() {
+        try {
+            while (dispatchDueReminders() == batchSize) {
+                log.debug("Full batch sent, claiming the next one");
+            }
+        } catch (DataAccessException e) {
+            log.error("Could not dispatch due reminders", e);
+        }
+    }
+
+    /**
+     * Claims, sends and acknowledges one batch of due reminders.
+     * @return Number of reminders claimed.
+     */
+    public int dispatchDueReminders() {
+        List<PendingReminderDTO> claimed = reminderQueueService.claimDue(nodeId, batchSize, lease);
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        List<Long> sent = new ArrayList<>(claimed.size());
+        List<Long> discarded = new ArrayList<>();
+        List<PendingReminderDTO> rearmed = new ArrayList<>();
+        int skipped = 0;
+        for (PendingReminderDTO reminder : claimed) {
+            if (!calendarEventReminderSender.sendIfUpcoming(reminder)) {
+                if (reminder.getRecurrenceRule() != null && reminder.getNextDueTime() != null) {
+                    // A past occurrence of a recurring event, e.g. after downtime; its series goes on
+                    rearmed.add(reminder);
+                    skipped++;
+                } else {
+                    discarded.add(reminder.getEventId());
+                }
+            } else if (reminder.getNextDueTime() != null) {
+                rearmed.add(reminder);
+            } else {
+                sent.add(reminder.getEventId());
+            }
+        }
+        int acknowledged = reminderQueueService.acknowledge(nodeId, sent, discarded, rearmed);
+        int leasedSize = sent.size() + rearmed.size();
+        if (acknowledged < leasedSize) {
+            log.warn("Node {} lost the lease on {} of {} sent reminders", nodeId, leasedSize - acknowledged, leasedSize);
+        }
+        sentCount.addAndGet(leasedSize - skipped);
+        return claimed.size();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @return Number of reminders this node has sent since it started.
+     */
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "node";
+        }
+        return host + "-" + RandomStringUtils.randomAlphanumeric(8).toLowerCase();
+    }
+}
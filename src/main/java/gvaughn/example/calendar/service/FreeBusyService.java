@@ -0,0 +1,143 @@
+package gvaughn.example.calendar.service;
+
+import gvaughn.example.calendar.domain.CalendarEvent;
+import gvaughn.example.calendar.repository.CalendarEventRepository;
+import gvaughn.example.calendar.repository.UserRepository;
+import gvaughn.example.calendar.service.dto.EventSpanDTO;
+import gvaughn.example.calendar.service.dto.FreeBusyDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Computes the free/busy bitsets of users' calendars.
+ * <p>
+ * A bitset is built from two range queries reading only the time and duration of the events that can
+ * overlap the range, so polling many users' availability costs a few hundred bytes per user and week rather
+ * than their full event lists. Recurring events are read once per series and expanded over the range.
+ */
+@Service
+@Transactional(readOnly = true)
+public class FreeBusyService {
+
+    private final Logger log = LoggerFactory.getLogger(FreeBusyService.class);
+
+    public static final int SLOT_MINUTES = 15;
+
+    /** Slots in 31 days, so a month view fits in one read. */
+    public static final int MAX_SLOTS = 31 * 24 * 60 / SLOT_MINUTES;
+
+    private static final long SLOT_SECONDS = SLOT_MINUTES * 60L;
+
+    private final CalendarEventRepository calendarEventRepository;
+
+    private final CalendarService calendarService;
+
+    private final UserRepository userRepository;
+
+    public FreeBusyService(CalendarEventRepository calendarEventRepository, CalendarService calendarService,
+                           UserRepository userRepository) {
+        this.calendarEventRepository = calendarEventRepository;
+        this.calendarService = calendarService;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * @return Number of slots covering the range, once its ends are rounded out to slot boundaries.
+     */
+    public static long countSlots(ZonedDateTime start, ZonedDateTime end) {
+        return (slotCeiling(end.toInstant()) - slotFloor(start.toInstant())) / SLOT_SECONDS;
+    }
+
+    /**
+     * Returns which slots of the user's calendar are occupied by an event over the given range. The range
+     * is rounded out to slot boundaries, and must span at most {@link #MAX_SLOTS} slots.
+     * @param login Login of the user whose calendar is read.
+     * @param start Start of the range.
+     * @param end End of the range, after its start.
+     * @return The occupied slots, or empty if there is no such user.
+     */
+    public Optional<FreeBusyDTO> findByLogin(String login, ZonedDateTime start, ZonedDateTime end) {
+        long slots = countSlots(start, end);
+        if (slots < 1 || slots > MAX_SLOTS) {
+            throw new IllegalArgumentException("Free/busy ranges span 1 to " + MAX_SLOTS + " slots: " + start + " to " + end);
+        }
+        ZonedDateTime slotStart = slotStart(start);
+        ZonedDateTime slotEnd = slotStart.plusMinutes(slots * SLOT_MINUTES);
+        return userRepository.findOneByLogin(login).map(user -> {
+            List<EventSpanDTO> spans = calendarService.findCalendarIdForUser(user)
+                .map(calendarId -> findSpans(Collections.singletonList(calendarId), slotStart, slotEnd))
+                .orElse(Collections.emptyList());
+            log.debug("Computing free/busy of {} from {} events", login, spans.size());
+            return new FreeBusyDTO(slotStart, slotEnd, SLOT_MINUTES, (int) slots,
+                encode(toBitSet(spans, slotStart.toInstant(), (int) slots), (int) slots));
+        });
+    }
+
+    /**
+     * @return The start of the slot holding the given time.
+     */
+    static ZonedDateTime slotStart(ZonedDateTime time) {
+        return ZonedDateTime.ofInstant(Instant.ofEpochSecond(slotFloor(time.toInstant())), time.getZone());
+    }
+
+    /**
+     * Reads the spans of the calendars' events overlapping the range, starting the index range one maximum
+     * event duration before it. Recurring events give one span per occurrence starting within that range.
+     */
+    public List<EventSpanDTO> findSpans(List<Long> calendarIds, ZonedDateTime start, ZonedDateTime end) {
+        ZonedDateTime after = start.minusMinutes(CalendarEvent.MAX_DURATION_MINUTES);
+        List<EventSpanDTO> spans = new ArrayList<>(
+            calendarEventRepository.findSpansByCalendarIdInAndTimeBetween(calendarIds, after, end));
+        for (EventSpanDTO series : calendarEventRepository.findRecurringSpansByCalendarIdIn(calendarIds, after, end)) {
+            for (ZonedDateTime time : CalendarEventService.spanOccurrences(series, after, end)) {
+                spans.add(new EventSpanDTO(series.getId(), series.getCalendarId(), time, series.getDuration(), null));
+            }
+        }
+        return spans;
+    }
+
+    /**
+     * Sets the bit of every slot an event overlaps. An event without a duration occupies the slot it starts in.
+     */
+    static BitSet toBitSet(List<EventSpanDTO> spans, Instant start, int slots) {
+        BitSet busy = new BitSet(slots);
+        long startSecond = start.getEpochSecond();
+        for (EventSpanDTO span : spans) {
+            long eventStart = span.getTime().toEpochSecond() - startSecond;
+            long from = Math.floorDiv(eventStart, SLOT_SECONDS);
+            long to = span.getDuration() == null ? from + 1
+                : -Math.floorDiv(-(eventStart + span.getDuration() * 60L), SLOT_SECONDS);
+            from = Math.max(from, 0);
+            to = Math.min(to, slots);
+            if (from < to) {
+                busy.set((int) from, (int) to);
+            }
+        }
+        return busy;
+    }
+
+    private static String encode(BitSet busy, int slots) {
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(busy.toByteArray(), (slots + 7) / 8));
+    }
+
+    private static long slotFloor(Instant time) {
+        return Math.floorDiv(time.getEpochSecond(), SLOT_SECONDS) * SLOT_SECONDS;
+    }
+
+    private static long slotCeiling(Instant time) {
+        long floor = slotFloor(time);
+        return floor == time.getEpochSecond() && time.getNano() == 0 ? floor : floor + SLOT_SECONDS;
+    }
+}
@@ -0,0 +1,131 @@
+package gvaughn.example.calendar.service;
+
+import gvaughn.example.calendar.config.ApplicationProperties;
+import gvaughn.example.calendar.service.dto.CalendarEventDTO;
+import gvaughn.example.calendar.service.mapper.CalendarEventMapper;
+import gvaughn.example.calendar.service.recurrence.Recurrence;
+import gvaughn.example.calendar.service.util.LruCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Expands recurring events into their occurrences within a time range, and only within it: a series is never
+ * expanded beyond the range read, however long it runs.
+ * <p>
+ * The occurrence times of each expanded range are kept in a bounded cache, keyed by the rule, the series start
+ * and the range, so the same calendar view read again costs no expansion. As the key holds everything the
+ * occurrences depend on, an edited series simply misses the cache, and stale entries age out.
+ */
+@Component
+public class OccurrenceExpander {
+
+    private final Logger log = LoggerFactory.getLogger(OccurrenceExpander.class);
+
+    private final CalendarEventMapper calendarEventMapper;
+
+    private final LruCache<WindowKey, List<ZonedDateTime>> windows;
+
+    public OccurrenceExpander(CalendarEventMapper calendarEventMapper, ApplicationProperties applicationProperties) {
+        this.calendarEventMapper = calendarEventMapper;
+        this.windows = new LruCache<>(Math.max(1, applicationProperties.getCalendar().getRecurrence().getCacheSize()));
+    }
+
+    /**
+     * @param series Recurring events, which are left unmodified.
+     * @param startDate Start of the range, inclusive.
+     * @param endDate End of the range, inclusive.
+     * @return One copy of each event per occurrence within the range, with the occurrence's time and its
+     * reminder time moved along with it.
+     */
+    public List<CalendarEventDTO> expand(List<CalendarEventDTO> series, ZonedDateTime startDate, ZonedDateTime endDate) {
+        List<CalendarEventDTO> occurrences = new ArrayList<>();
+        for (CalendarEventDTO event : series) {
+            for (ZonedDateTime time : findOccurrences(event, startDate.toInstant(), endDate.toInstant())) {
+                CalendarEventDTO occurrence = calendarEventMapper.copy(event);
+                occurrence.setTime(time);
+                if (event.getReminderTime() != null) {
+                    occurrence.setReminderTime(event.getReminderTime().plus(Duration.between(event.getTime(), time)));
+                }
+                occurrences.add(occurrence);
+            }
+        }
+        return occurrences;
+    }
+
+    /**
+     * @return Number of ranges whose occurrences are cached.
+     */
+    public int size() {
+        return windows.size();
+    }
+
+    private List<ZonedDateTime> findOccurrences(CalendarEventDTO event, Instant from, Instant to) {
+        WindowKey key = new WindowKey(event.getRecurrenceRule(), event.getTime(), from, to);
+        List<ZonedDateTime> occurrences = windows.get(key);
+        if (occurrences == null) {
+            occurrences = Collections.unmodifiableList(expand(event, from, to));
+            windows.put(key, occurrences);
+        }
+        return occurrences;
+    }
+
+    private List<ZonedDateTime> expand(CalendarEventDTO event, Instant from, Instant to) {
+        try {
+            return Recurrence.of(event.getRecurrenceRule(), event.getTime()).between(from, to);
+        } catch (IllegalArgumentException e) {
+            // Rules are validated when saved, so this is a rule written some other way; show its first occurrence
+            log.warn("Invalid recurrence rule of CalendarEvent {}: {}", event.getId(), e.getMessage());
+            Instant time = event.getTime().toInstant();
+            return time.isBefore(from) || time.isAfter(to)
+                ? Collections.emptyList() : Collections.singletonList(event.getTime());
+        }
+    }
+
+    /**
+     * A series, by its rule and start, and the range it was expanded over.
+     */
+    private static final class WindowKey {
+
+        private final String rule;
+
+        private final ZonedDateTime start;
+
+        private final Instant from;
+
+        private final Instant to;
+
+        private WindowKey(String rule, ZonedDateTime start, Instant from, Instant to) {
+            this.rule = rule;
+            this.start = start;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            WindowKey windowKey = (WindowKey) o;
+            return rule.equals(windowKey.rule) && start.equals(windowKey.start)
+                && from.equals(windowKey.from) && to.equals(windowKey.to);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(rule, start, from, to);
+        }
+    }
+}
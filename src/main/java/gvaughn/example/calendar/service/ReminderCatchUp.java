@@ -0,0 +1,250 @@
+package gvaughn.example.calendar.service;
+
+import gvaughn.example.calendar.config.ApplicationProperties;
+import gvaughn.example.calendar.repository.PendingReminderRepository;
+import gvaughn.example.calendar.service.dto.PendingReminderDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Catches up with reminders that fell due while the node was down. Started by the
+ * {@link CalendarEventReminderLoader} after its first sweep, which only loads reminders due from then on.
+ * <p>
+ * Missed reminders are read from the durable queue in chunks, each resuming after the last reminder of the
+ * one before, and, for each one, the staleness policy decides whether it is still worth sending:
+ * <ul>
+ *     <li>reminders of events that have already taken place are dropped, and those of a past occurrence of a
+ *     recurring event move on to the next occurrence;</li>
+ *     <li>reminders overdue by more than the maximum staleness are dropped;</li>
+ *     <li>the others are sent, at no more than the configured rate, on a small pool of threads.</li>
+ * </ul>
+ * Events with further reminders move on to the first one still ahead of them, so an event never gets more
+ * than one late reminder. Each chunk commits in a transaction of its own, together with the bookkeeping of the
+ * reminders it sent, so a catch-up cut short by a crash resends at most the chunk in progress, and a long one
+ * holds no transaction open. Progress is exposed as {@link ReminderMetrics#CATCH_UP_REMAINING}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "application.reminder", name = "mode", havingValue = "local", matchIfMissing = true)
+public class ReminderCatchUp {
+
+    private final Logger log = LoggerFactory.getLogger(ReminderCatchUp.class);
+
+    private final PendingReminderRepository pendingReminderRepository;
+
+    private final CalendarEventReminderService calendarEventReminderService;
+
+    private final CalendarEventReminderSender calendarEventReminderSender;
+
+    private final ReminderQueueService reminderQueueService;
+
+    private final ReminderMetrics reminderMetrics;
+
+    private final ApplicationProperties.Reminder.CatchUp catchUpProperties;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ExecutorService dispatchExecutor;
+
+    private final Pacer pacer;
+
+    public ReminderCatchUp(PendingReminderRepository pendingReminderRepository,
+                           CalendarEventReminderService calendarEventReminderService,
+                           CalendarEventReminderSender calendarEventReminderSender,
+                           ReminderQueueService reminderQueueService,
+                           ReminderMetrics reminderMetrics,
+                           ApplicationProperties applicationProperties,
+                           PlatformTransactionManager transactionManager) {
+        this.pendingReminderRepository = pendingReminderRepository;
+        this.calendarEventReminderService = calendarEventReminderService;
+        this.calendarEventReminderSender = calendarEventReminderSender;
+        this.reminderQueueService = reminderQueueService;
+        this.reminderMetrics = reminderMetrics;
+        this.catchUpProperties = applicationProperties.getReminder().getCatchUp();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger threads = new AtomicInteger();
+        this.dispatchExecutor = Executors.newFixedThreadPool(Math.max(1, catchUpProperties.getParallelism()), runnable -> {
+            Thread thread = new Thread(runnable, "reminder-catch-up-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pacer = new Pacer(catchUpProperties.getRatePerSecond());
+    }
+
+    /**
+     * Catches up in the background, so that reminders due from now on are not held up behind missed ones.
+     * @param cutoff Reminders due at or before this time are caught up with.
+     */
+    public void start(ZonedDateTime cutoff) {
+        Thread thread = new Thread(() -> {
+            try {
+                catchUp(cutoff);
+            } catch (DataAccessException e) {
+                log.error("Could not catch up with missed reminders", e);
+            }
+        }, "reminder-catch-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Sends or drops every reminder due at or before the cutoff, a chunk per transaction.
+     * @param cutoff Reminders due at or before this time are caught up with.
+     */
+    public void catchUp(ZonedDateTime cutoff) {
+        long start = System.currentTimeMillis();
+        long missed = pendingReminderRepository.countByDueTimeLessThanEqual(cutoff);
+        reminderMetrics.catchUpStarted(missed);
+        if (missed == 0) {
+            return;
+        }
+        log.info("Catching up with {} reminders missed before {}", missed, cutoff);
+        Result result = new Result();
+        PageRequest page = new PageRequest(0, Math.max(1, catchUpProperties.getChunkSize()));
+        PendingReminderDTO last = null;
+        while (true) {
+            PendingReminderDTO after = last;
+            List<PendingReminderDTO> chunk = transactionTemplate.execute(status -> {
+                // Reminders left in the queue, e.g. because sending them failed, are not read again
+                List<PendingReminderDTO> reminders = after == null
+                    ? pendingReminderRepository.findDueUntil(cutoff, page)
+                    : pendingReminderRepository.findDueUntilAfter(cutoff, after.getDueTime(), after.getEventId(), page);
+                catchUp(reminders, result);
+                return reminders;
+            });
+            if (chunk.size() < page.getPageSize()) {
+                break;
+            }
+            last = chunk.get(chunk.size() - 1);
+        }
+        if (result.sent > 0 || result.discarded > 0) {
+            log.info("Caught up with missed reminders in {} ms: sent {}, dropped {}",
+                System.currentTimeMillis() - start, result.sent, result.discarded);
+        }
+    }
+
+    /**
+     * Drops the stale reminders of the chunk in one statement and sends the others in parallel, waiting
+     * for the whole chunk before marking the sent reminders sent, or moving them on to their next reminder,
+     * in the chunk's transaction.
+     */
+    private void catchUp(List<PendingReminderDTO> chunk, Result result) {
+        ZonedDateTime now = ZonedDateTime.now();
+        List<Long> discarded = new ArrayList<>();
+        List<PendingReminderDTO> sending = new ArrayList<>();
+        List<Callable<Void>> sends = new ArrayList<>();
+        for (PendingReminderDTO reminder : chunk) {
+            if (!CalendarEventReminderSender.isUpcoming(reminder) || isStale(reminder, now)) {
+                // A recurring event moves on to a later occurrence, an event with further offsets to a later reminder
+                ZonedDateTime nextDueTime = reminder.getNextDueTimeAfter(now);
+                if (nextDueTime == null) {
+                    discarded.add(reminder.getEventId());
+                } else {
+                    calendarEventReminderService.requeueReminder(reminder, nextDueTime);
+                    reminderMetrics.missedRemindersDiscarded(1);
+                    result.discarded++;
+                }
+            } else {
+                sending.add(reminder);
+                sends.add(() -> {
+                    pacer.acquire();
+                    calendarEventReminderSender.sendMissed(reminder);
+                    return null;
+                });
+            }
+        }
+        if (!discarded.isEmpty()) {
+            pendingReminderRepository.deleteByEventIdIn(discarded);
+            reminderMetrics.missedRemindersDiscarded(discarded.size());
+            result.discarded += discarded.size();
+        }
+        List<Long> sent = new ArrayList<>();
+        try {
+            List<Future<Void>> futures = dispatchExecutor.invokeAll(sends);
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    log.error("Unable to send missed reminder", e.getCause());
+                    continue;
+                }
+                PendingReminderDTO reminder = sending.get(i);
+                ZonedDateTime nextDueTime = reminder.getNextDueTimeAfter(ZonedDateTime.now());
+                if (nextDueTime != null) {
+                    calendarEventReminderService.requeueReminder(reminder, nextDueTime);
+                } else {
+                    sent.add(reminder.getEventId());
+                }
+                result.sent++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while catching up with missed reminders", e);
+        }
+        if (!sent.isEmpty()) {
+            reminderQueueService.markSent(sent);
+        }
+    }
+
+    private boolean isStale(PendingReminderDTO reminder, ZonedDateTime now) {
+        long maxStalenessMinutes = catchUpProperties.getMaxStalenessMinutes();
+        return maxStalenessMinutes >= 0 && reminder.getDueTime().isBefore(now.minusMinutes(maxStalenessMinutes));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatchExecutor.shutdownNow();
+    }
+
+    private static final class Result {
+        private long sent;
+        private long discarded;
+    }
+
+    /**
+     * Spaces permits evenly at the given rate however many threads ask for them, so a backlog of missed
+     * reminders goes out as a steady trickle rather than all at once.
+     */
+    private static final class Pacer {
+
+        private final long intervalNanos;
+
+        private long next = System.nanoTime();
+
+        private Pacer(int permitsPerSecond) {
+            this.intervalNanos = permitsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / permitsPerSecond : 0L;
+        }
+
+        private void acquire() throws InterruptedException {
+            if (intervalNanos == 0) {
+                return;
+            }
+            long slot;
+            synchronized (this) {
+                slot = Math.max(System.nanoTime(), next);
+                next = slot + intervalNanos;
+            }
+            long wait = slot - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package gvaughn.example.calendar.service;
+
+import gvaughn.example.calendar.config.ApplicationProperties;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the reminder scheduler DOWN while the 99th percentile of the recent firing lag is over the
+ * configured SLO, i.e. while reminders are going out noticeably late.
+ */
+@Component
+public class ReminderHealthIndicator extends AbstractHealthIndicator {
+
+    private final ReminderMetrics reminderMetrics;
+
+    private final long lagSloMillis;
+
+    public ReminderHealthIndicator(ReminderMetrics reminderMetrics, ApplicationProperties applicationProperties) {
+        this.reminderMetrics = reminderMetrics;
+        this.lagSloMillis = applicationProperties.getReminder().getLagSloMillis();
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) throws Exception {
+        double lagP99Millis = reminderMetrics.getLagP99Millis();
+        if (lagP99Millis > lagSloMillis) {
+            builder.down();
+        } else {
+            builder.up();
+        }
+        builder.withDetail("lagP99Millis", Math.round(lagP99Millis))
+            .withDetail("lagSloMillis", lagSloMillis)
+            .withDetail("sent", reminderMetrics.getSentCount())
+            .withDetail("catchUpRemaining", reminderMetrics.getCatchUpRemaining());
+    }
+}
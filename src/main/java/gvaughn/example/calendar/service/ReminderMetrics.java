@@ -0,0 +1,148 @@
+package gvaughn.example.calendar.service;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SlidingTimeWindowReservoir;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reminder metrics, registered in the application's {@link MetricRegistry}. The scheduler gauges are
+ * registered along with the scheduler in {@link gvaughn.example.calendar.config.ReminderConfiguration}.
+ */
+@Component
+public class ReminderMetrics {
+
+    /** Time between when a reminder was due and when it was sent. */
+    public static final String LAG = "reminders.lag";
+
+    /**
+     * How long a lag sample counts towards the lag percentiles. Samples age out even when no reminder fires,
+     * so a burst of late reminders followed by a quiet period does not hold the percentiles up.
+     */
+    public static final long LAG_WINDOW_MINUTES = 5;
+
+    public static final String SENT = "reminders.sent";
+
+    public static final String CANCELLED = "reminders.cancelled";
+
+    public static final String SNOOZED = "reminders.snoozed";
+
+    /** Reminders missed while the node was down, sent late at startup. Not part of the lag. */
+    public static final String CATCH_UP_SENT = "reminders.catch-up.sent";
+
+    /** Reminders missed while the node was down and dropped as stale at startup. */
+    public static final String CATCH_UP_DISCARDED = "reminders.catch-up.discarded";
+
+    /** Missed reminders the startup catch-up has yet to send or drop. */
+    public static final String CATCH_UP_REMAINING = "reminders.catch-up.remaining";
+
+    /** Reminders held by the in-memory scheduler. */
+    public static final String PENDING = "reminders.pending";
+
+    /** Reminders that are due but have not been sent yet. */
+    public static final String OVERDUE = "reminders.overdue";
+
+    private final Timer lag;
+
+    private final Meter sent;
+
+    private final Meter cancelled;
+
+    private final Meter snoozed;
+
+    private final Meter catchUpSent;
+
+    private final Meter catchUpDiscarded;
+
+    private final AtomicLong catchUpRemaining = new AtomicLong();
+
+    @Autowired
+    public ReminderMetrics(MetricRegistry metricRegistry) {
+        this(metricRegistry, Clock.defaultClock());
+    }
+
+    /**
+     * @param clock Clock aging the lag samples out of their window.
+     */
+    ReminderMetrics(MetricRegistry metricRegistry, Clock clock) {
+        this.lag = metricRegistry.timer(LAG,
+            () -> new Timer(new SlidingTimeWindowReservoir(LAG_WINDOW_MINUTES, TimeUnit.MINUTES, clock)));
+        this.sent = metricRegistry.meter(SENT);
+        this.cancelled = metricRegistry.meter(CANCELLED);
+        this.snoozed = metricRegistry.meter(SNOOZED);
+        this.catchUpSent = metricRegistry.meter(CATCH_UP_SENT);
+        this.catchUpDiscarded = metricRegistry.meter(CATCH_UP_DISCARDED);
+        metricRegistry.register(CATCH_UP_REMAINING, (Gauge<Long>) catchUpRemaining::get);
+    }
+
+    /**
+     * Records a sent reminder.
+     * @param dueEpochMillis Time at which the reminder was due, in epoch milliseconds.
+     */
+    public void reminderSent(long dueEpochMillis) {
+        lag.update(Math.max(0L, System.currentTimeMillis() - dueEpochMillis), TimeUnit.MILLISECONDS);
+        sent.mark();
+    }
+
+    public void reminderCancelled() {
+        cancelled.mark();
+    }
+
+    public void reminderSnoozed() {
+        snoozed.mark();
+    }
+
+    /**
+     * Records the start of the startup catch-up.
+     * @param missed Number of missed reminders to catch up with.
+     */
+    public void catchUpStarted(long missed) {
+        catchUpRemaining.set(missed);
+    }
+
+    public void missedReminderSent() {
+        catchUpSent.mark();
+        catchUpRemaining.decrementAndGet();
+    }
+
+    public void missedRemindersDiscarded(int count) {
+        catchUpDiscarded.mark(count);
+        catchUpRemaining.addAndGet(-count);
+    }
+
+    public long getCatchUpRemaining() {
+        return Math.max(0L, catchUpRemaining.get());
+    }
+
+    /**
+     * @return 99th percentile of the firing lag over the last {@value #LAG_WINDOW_MINUTES} minutes, in
+     * milliseconds.
+     */
+    public double getLagP99Millis() {
+        return getLagSnapshot().get99thPercentile() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public Snapshot getLagSnapshot() {
+        return lag.getSnapshot();
+    }
+
+    public long getSentCount() {
+        return sent.getCount();
+    }
+
+    public long getCatchUpSentCount() {
+        return catchUpSent.getCount();
+    }
+
+    public long getCatchUpDiscardedCount() {
+        return catchUpDiscarded.getCount();
+    }
+}
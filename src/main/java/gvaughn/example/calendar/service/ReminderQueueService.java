@@ -0,0 +1,228 @@
+package gvaughn.example.calendar.service;
+
+import gvaughn.example.calendar.domain.PendingReminder;
+import gvaughn.example.calendar.repository.CalendarEventRepository;
+import gvaughn.example.calendar.repository.PendingReminderLeaseRepository;
+import gvaughn.example.calendar.repository.PendingReminderRepository;
+import gvaughn.example.calendar.repository.util.InListUtil;
+import gvaughn.example.calendar.service.dto.PendingReminderDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static gvaughn.example.calendar.repository.util.InListUtil.batches;
+
+/**
+ * Service class for the durable reminder queue. Writes join the caller's transaction, so a queued
+ * reminder is only visible once the calendar event it belongs to has been committed.
+ */
+@Service
+@Transactional
+public class ReminderQueueService {
+
+    private final Logger log = LoggerFactory.getLogger(ReminderQueueService.class);
+
+    private final PendingReminderRepository pendingReminderRepository;
+
+    private final PendingReminderLeaseRepository pendingReminderLeaseRepository;
+
+    private final CalendarEventRepository calendarEventRepository;
+
+    private final CalendarEventIndex calendarEventIndex;
+
+    private final CalendarVersionService calendarVersionService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ReminderQueueService(PendingReminderRepository pendingReminderRepository,
+                                PendingReminderLeaseRepository pendingReminderLeaseRepository,
+                                CalendarEventRepository calendarEventRepository,
+                                CalendarEventIndex calendarEventIndex,
+                                CalendarVersionService calendarVersionService) {
+        this.pendingReminderRepository = pendingReminderRepository;
+        this.pendingReminderLeaseRepository = pendingReminderLeaseRepository;
+        this.calendarEventRepository = calendarEventRepository;
+        this.calendarEventIndex = calendarEventIndex;
+        this.calendarVersionService = calendarVersionService;
+    }
+
+    /**
+     * Queues, or re-queues, the reminder for the given event.
+     * @param eventId Calendar event id.
+     * @param dueTime Time at which the reminder should fire.
+     */
+    public void enqueue(Long eventId, ZonedDateTime dueTime) {
+        enqueue(eventId, dueTime, null);
+    }
+
+    /**
+     * Queues, or re-queues, the reminders for the given event. The queue holds one row per event, due at
+     * its next reminder, which is moved on to the following one as each reminder is sent.
+     * @param eventId Calendar event id.
+     * @param dueTime Time at which the first reminder should fire.
+     * @param reminderOffsets Encoded {@link gvaughn.example.calendar.service.reminder.ReminderPattern}, or
+     *                        null for a single reminder.
+     */
+    public void enqueue(Long eventId, ZonedDateTime dueTime, String reminderOffsets) {
+        enqueue(eventId, dueTime, reminderOffsets, null);
+    }
+
+    /**
+     * Queues, or re-queues, the reminders of the given event for one occurrence. A recurring event keeps a
+     * single row too, which moves on to the next occurrence once the reminders of this one have been sent.
+     * @param eventId Calendar event id.
+     * @param dueTime Time at which the first reminder should fire.
+     * @param reminderOffsets Encoded {@link gvaughn.example.calendar.service.reminder.ReminderPattern}, or
+     *                        null for a single reminder.
+     * @param occurrenceTime Occurrence of a recurring event the reminders are for, or null.
+     */
+    public void enqueue(Long eventId, ZonedDateTime dueTime, String reminderOffsets, ZonedDateTime occurrenceTime) {
+        log.debug("Queueing reminder for CalendarEvent {} at {}", eventId, dueTime);
+        pendingReminderRepository.save(new PendingReminder(eventId, dueTime, reminderOffsets, occurrenceTime));
+    }
+
+    /**
+     * Queues the reminders of events that have none queued, e.g. events created in the current transaction.
+     * The rows are persisted rather than saved: saving a row with an assigned id reads it first, to tell
+     * whether it is new, so queueing thousands of reminders would read thousands of rows. Persisted rows are
+     * inserted with the next flush, in JDBC batches.
+     * @param reminders Reminders to queue, for events without a queued reminder.
+     */
+    public void enqueueAll(List<PendingReminder> reminders) {
+        log.debug("Queueing {} reminders", reminders.size());
+        reminders.forEach(entityManager::persist);
+    }
+
+    /**
+     * Removes the queued reminder for the given event, if there is one.
+     * @param eventId Calendar event id.
+     */
+    public void dequeue(Long eventId) {
+        pendingReminderRepository.deleteByEventId(eventId);
+    }
+
+    /**
+     * Removes the queued reminders for the given events, with one statement per
+     * {@value InListUtil#MAX_SIZE} events.
+     * @param eventIds Calendar event ids.
+     */
+    public void dequeueAll(List<Long> eventIds) {
+        for (List<Long> batch : batches(eventIds)) {
+            pendingReminderRepository.deleteByEventIdIn(batch);
+        }
+    }
+
+    /**
+     * Removes the queued reminders and flags the events' reminders as sent, with one statement each, and
+     * increments the versions of the events' calendars.
+     * @param eventIds Calendar event ids.
+     */
+    public void markSent(List<Long> eventIds) {
+        markSent(eventIds, Collections.emptyList());
+    }
+
+    /**
+     * Removes the queued reminders of events whose last reminder was sent and flags them as sent, and moves
+     * the others on to their next reminder.
+     * @param eventIds Ids of the events whose last reminder was sent.
+     * @param rearmed Sent reminders of events with further reminders.
+     */
+    public void markSent(List<Long> eventIds, List<PendingReminderDTO> rearmed) {
+        log.debug("Marking {} reminders sent, re-arming {}", eventIds.size(), rearmed.size());
+        if (!eventIds.isEmpty()) {
+            pendingReminderRepository.deleteByEventIdIn(eventIds);
+            calendarEventRepository.markRemindersSent(eventIds);
+            calendarEventIndex.remindersSent(eventIds);
+            calendarVersionService.eventsChanged(eventIds);
+        }
+        for (PendingReminderDTO reminder : rearmed) {
+            pendingReminderRepository.rearm(reminder.getEventId(), reminder.getDueTime(), reminder.getNextDueTime(),
+                reminder.getNextOccurrenceTime());
+        }
+    }
+
+    /**
+     * Re-queues reminders at new due times, e.g. when they are snoozed. Rows are updated in place, or queued
+     * again if the reminder has already been sent and removed. Either way any lease is released. Reminders
+     * of events deleted in the meantime are dropped.
+     * @param reminders Reminders with their new due times.
+     */
+    public void requeue(List<PendingReminder> reminders) {
+        log.debug("Re-queueing {} reminders", reminders.size());
+        for (PendingReminder reminder : reminders) {
+            int requeued = reminder.getOccurrenceTime() == null
+                ? pendingReminderRepository.requeue(reminder.getEventId(), reminder.getDueTime())
+                : pendingReminderRepository.requeue(reminder.getEventId(), reminder.getDueTime(), reminder.getOccurrenceTime());
+            if (requeued == 0
+                && calendarEventRepository.exists(reminder.getEventId())) {
+                pendingReminderRepository.save(reminder);
+            }
+        }
+    }
+
+    /**
+     * Leases a batch of due reminders to the given node. Re-queueing a reminder clears its lease.
+     * @param owner Node id.
+     * @param limit Maximum number of reminders to claim.
+     * @param lease How long the node has to acknowledge the reminders before other nodes may claim them.
+     * @return The reminders currently leased to the node, oldest first.
+     */
+    public List<PendingReminderDTO> claimDue(String owner, int limit, Duration lease) {
+        ZonedDateTime now = ZonedDateTime.now();
+        int claimed = pendingReminderLeaseRepository.claimDue(owner, now, now.plus(lease), limit);
+        if (claimed == 0) {
+            return Collections.emptyList();
+        }
+        log.debug("Node {} claimed {} due reminders", owner, claimed);
+        return pendingReminderRepository.findAllByLeaseOwner(owner);
+    }
+
+    /**
+     * Removes reminders leased to the given node from the queue, flagging the sent ones as sent.
+     * Reminders whose lease has since passed to another node, or which were re-queued, are left alone.
+     * @param owner Node id.
+     * @param sent Ids of the events whose reminders were sent.
+     * @param discarded Ids of the events whose reminders were dropped without being sent.
+     * @return Number of sent reminders that were still leased to the node.
+     */
+    public int acknowledge(String owner, List<Long> sent, List<Long> discarded) {
+        return acknowledge(owner, sent, discarded, Collections.emptyList());
+    }
+
+    /**
+     * Acknowledges reminders as {@link #acknowledge(String, List, List)} does, and moves the re-armed ones on
+     * to their event's next reminder, releasing their lease.
+     * @param owner Node id.
+     * @param sent Ids of the events whose last reminder was sent.
+     * @param discarded Ids of the events whose reminders were dropped without being sent.
+     * @param rearmed Sent reminders of events with further reminders.
+     * @return Number of sent and re-armed reminders that were still leased to the node.
+     */
+    public int acknowledge(String owner, List<Long> sent, List<Long> discarded, List<PendingReminderDTO> rearmed) {
+        int acknowledged = 0;
+        for (PendingReminderDTO reminder : rearmed) {
+            acknowledged += pendingReminderRepository.rearmByLeaseOwner(reminder.getEventId(), owner,
+                reminder.getNextDueTime(), reminder.getNextOccurrenceTime());
+        }
+        if (!sent.isEmpty()) {
+            acknowledged += calendarEventRepository.markRemindersSentByLeaseOwner(owner, sent);
+            pendingReminderRepository.deleteByLeaseOwnerAndEventIdIn(owner, sent);
+            // Only the reminders still leased to this node were flagged
+            calendarEventIndex.evictEvents(sent);
+            calendarVersionService.eventsChanged(sent);
+        }
+        if (!discarded.isEmpty()) {
+            pendingReminderRepository.deleteByLeaseOwnerAndEventIdIn(owner, discarded);
+        }
+        return acknowledged;
+    }
+}
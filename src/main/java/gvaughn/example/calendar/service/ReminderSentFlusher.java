@@ -0,0 +1,174 @@
+package gvaughn.example.calendar.service;
+
+import gvaughn.example.calendar.config.ApplicationProperties;
+import gvaughn.example.calendar.domain.PendingReminder;
+import gvaughn.example.calendar.repository.util.InListUtil;
+import gvaughn.example.calendar.service.dto.PendingReminderDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Write-behind for reminders sent from the in-memory scheduler. Sent event ids are collected in a bounded
+ * queue and flushed on an interval, one transaction and one batched update per flush, instead of one
+ * transaction per reminder. When the queue is full the sending thread flushes it itself. Reminders of events
+ * with further reminders are queued separately and move the event's queue row on to its next reminder.
+ * Re-queued reminders, e.g. snoozed ones, are written after both, so a snooze always outlives the send it
+ * follows. Flushes run one at a time, whether started by the interval or by a sending thread, so a later
+ * snooze drained by one flush is never written before the send drained by another.
+ * <p>
+ * A reminder sent but not yet flushed when the node stops is still in the durable queue, and is sent
+ * again when the node restarts.
+ */
+@Component
+public class ReminderSentFlusher {
+
+    private final Logger log = LoggerFactory.getLogger(ReminderSentFlusher.class);
+
+    private final ReminderQueueService reminderQueueService;
+
+    private final BlockingQueue<Long> sent;
+
+    private final BlockingQueue<PendingReminderDTO> rearmed;
+
+    private final BlockingQueue<PendingReminder> requeued;
+
+    public ReminderSentFlusher(ReminderQueueService reminderQueueService, ApplicationProperties applicationProperties) {
+        this.reminderQueueService = reminderQueueService;
+        this.sent = new ArrayBlockingQueue<>(applicationProperties.getReminder().getFlushQueueCapacity());
+        this.rearmed = new ArrayBlockingQueue<>(applicationProperties.getReminder().getFlushQueueCapacity());
+        this.requeued = new ArrayBlockingQueue<>(applicationProperties.getReminder().getFlushQueueCapacity());
+    }
+
+    /**
+     * Records a sent reminder, to be marked sent with the next flush.
+     * @param eventId Calendar event id.
+     */
+    public void add(Long eventId) {
+        while (!sent.offer(eventId)) {
+            log.debug("Sent reminder queue is full, flushing");
+            flush();
+        }
+    }
+
+    /**
+     * Records a sent reminder of an event with further reminders, to be re-armed with the next flush.
+     * @param reminder Sent reminder.
+     */
+    public void rearm(PendingReminderDTO reminder) {
+        while (!rearmed.offer(reminder)) {
+            log.debug("Re-armed reminder queue is full, flushing");
+            flush();
+        }
+    }
+
+    /**
+     * Records a reminder moved to a new due time, e.g. snoozed, to be re-queued with the next flush.
+     * @param eventId Calendar event id.
+     * @param dueTime New due time.
+     */
+    public void requeue(Long eventId, ZonedDateTime dueTime) {
+        requeue(eventId, dueTime, null);
+    }
+
+    /**
+     * Records a reminder moved to a new due time, to be re-queued with the next flush.
+     * @param eventId Calendar event id.
+     * @param dueTime New due time.
+     * @param occurrenceTime Occurrence of a recurring event the reminder is now for, or null to keep it.
+     */
+    public void requeue(Long eventId, ZonedDateTime dueTime, ZonedDateTime occurrenceTime) {
+        PendingReminder reminder = new PendingReminder(eventId, dueTime, null, occurrenceTime);
+        while (!requeued.offer(reminder)) {
+            log.debug("Re-queued reminder queue is full, flushing");
+            flush();
+        }
+    }
+
+    /**
+     * Records an acknowledged reminder, to be marked sent with the next flush. Snoozes and other re-queues of
+     * the reminder not flushed yet are dropped.
+     * @param eventId Calendar event id.
+     */
+    public void acknowledge(Long eventId) {
+        requeued.removeIf(reminder -> reminder.getEventId().equals(eventId));
+        add(eventId);
+    }
+
+    @Scheduled(fixedDelayString = "${application.reminder.flush-interval-millis:1000}")
+    public void onFlushInterval() {
+        try {
+            flush();
+        } catch (DataAccessException e) {
+            log.error("Could not mark sent reminders", e);
+        }
+    }
+
+    /**
+     * Marks every queued reminder sent, or re-arms it.
+     * @return Number of reminders flushed.
+     */
+    public synchronized int flush() {
+        int flushed = 0;
+        List<Long> batch = new ArrayList<>();
+        List<PendingReminderDTO> rearmBatch = new ArrayList<>();
+        List<PendingReminder> requeueBatch = new ArrayList<>();
+        while (sent.drainTo(batch, InListUtil.MAX_SIZE) + rearmed.drainTo(rearmBatch, InListUtil.MAX_SIZE) > 0) {
+            try {
+                reminderQueueService.markSent(batch, rearmBatch);
+            } catch (RuntimeException e) {
+                // Keep what still fits for the next flush; the rest is sent again after a restart
+                int dropped = keep(batch, sent) + keep(rearmBatch, rearmed);
+                if (dropped > 0) {
+                    log.warn("Dropped {} sent reminders that no longer fit the flush queue", dropped);
+                }
+                throw e;
+            }
+            flushed += batch.size() + rearmBatch.size();
+            batch.clear();
+            rearmBatch.clear();
+        }
+        while (requeued.drainTo(requeueBatch, InListUtil.MAX_SIZE) > 0) {
+            try {
+                reminderQueueService.requeue(requeueBatch);
+            } catch (RuntimeException e) {
+                int dropped = keep(requeueBatch, requeued);
+                if (dropped > 0) {
+                    log.warn("Dropped {} re-queued reminders that no longer fit the flush queue", dropped);
+                }
+                throw e;
+            }
+            flushed += requeueBatch.size();
+            requeueBatch.clear();
+        }
+        return flushed;
+    }
+
+    /**
+     * Puts the drained items back on their queue, as far as they fit.
+     * @return Number of items that did not fit.
+     */
+    private static <T> int keep(List<T> drained, BlockingQueue<T> queue) {
+        int dropped = 0;
+        for (T item : drained) {
+            if (!queue.offer(item)) {
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        onFlushInterval();
+    }
+}
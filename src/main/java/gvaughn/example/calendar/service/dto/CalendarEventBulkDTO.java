@@ -0,0 +1,55 @@
+package gvaughn.example.calendar.service.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A batch of calendar event writes, applied together in one transaction: events to create, events to update,
+ * and ids of events to delete.
+ */
+public class CalendarEventBulkDTO {
+
+    private List<CalendarEventDTO> create = new ArrayList<>();
+    private List<CalendarEventDTO> update = new ArrayList<>();
+    private List<Long> delete = new ArrayList<>();
+
+    public List<CalendarEventDTO> getCreate() {
+        return create;
+    }
+
+    public void setCreate(List<CalendarEventDTO> create) {
+        this.create = create == null ? new ArrayList<>() : create;
+    }
+
+    public List<CalendarEventDTO> getUpdate() {
+        return update;
+    }
+
+    public void setUpdate(List<CalendarEventDTO> update) {
+        this.update = update == null ? new ArrayList<>() : update;
+    }
+
+    public List<Long> getDelete() {
+        return delete;
+    }
+
+    public void setDelete(List<Long> delete) {
+        this.delete = delete == null ? new ArrayList<>() : delete;
+    }
+
+    /**
+     * @return Number of writes in the batch.
+     */
+    public int size() {
+        return create.size() + update.size() + delete.size();
+    }
+
+    @Override
+    public String toString() {
+        return "CalendarEventBulkDTO{" +
+            "create=" + create.size() +
+            ", update=" + update.size() +
+            ", delete=" + delete.size() +
+            '}';
+    }
+}
@@ -0,0 +1,66 @@
+package gvaughn.example.calendar.service.dto;
+
+/**
+ * Outcome of one write of a {@link CalendarEventBulkDTO}: the write is identified by its operation and its
+ * position in that operation's list, and its status is that of the equivalent single-event request.
+ */
+public class CalendarEventBulkResultDTO {
+
+    public static final String CREATE = "create";
+    public static final String UPDATE = "update";
+    public static final String DELETE = "delete";
+
+    private final String operation;
+    private final int index;
+    private final Long id;
+    private final int status;
+    private final String message;
+
+    public CalendarEventBulkResultDTO(String operation, int index, Long id, int status, String message) {
+        this.operation = operation;
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.message = message;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return Id of the event written, or of the event the write was for; null for a failed create.
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return HTTP status of the write: 201 or 200 if it was applied, 400 or 404 if it was not.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return Why the write was not applied, or null.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "CalendarEventBulkResultDTO{" +
+            "operation='" + operation + "'" +
+            ", index=" + index +
+            ", id=" + id +
+            ", status=" + status +
+            ", message='" + message + "'" +
+            '}';
+    }
+}
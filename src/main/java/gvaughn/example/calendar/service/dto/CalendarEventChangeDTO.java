@@ -0,0 +1,46 @@
+package gvaughn.example.calendar.service.dto;
+
+/**
+ * Entry of a calendar's change log: the calendar versions at which an event was created and last written,
+ * and whether that write deleted it.
+ */
+public class CalendarEventChangeDTO {
+
+    private final Long eventId;
+    private final long createdVersion;
+    private final long version;
+    private final boolean deleted;
+
+    public CalendarEventChangeDTO(Long eventId, long createdVersion, long version, boolean deleted) {
+        this.eventId = eventId;
+        this.createdVersion = createdVersion;
+        this.version = version;
+        this.deleted = deleted;
+    }
+
+    public Long getEventId() {
+        return eventId;
+    }
+
+    public long getCreatedVersion() {
+        return createdVersion;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    @Override
+    public String toString() {
+        return "CalendarEventChangeDTO{" +
+            "eventId=" + eventId +
+            ", createdVersion=" + createdVersion +
+            ", version=" + version +
+            ", deleted=" + deleted +
+            '}';
+    }
+}
@@ -0,0 +1,80 @@
+package gvaughn.example.calendar.service.dto;
+
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+
+/**
+ * Position in a calendar's events, ordered by time then id, from which the next page of events is read.
+ * Sent to clients as an opaque URL-safe token.
+ */
+public final class CalendarEventCursor {
+
+    private static final int TOKEN_BYTES = Long.BYTES + Integer.BYTES + Long.BYTES;
+
+    private final Instant time;
+
+    private final long id;
+
+    public CalendarEventCursor(Instant time, long id) {
+        this.time = time;
+        this.id = id;
+    }
+
+    /**
+     * @param calendarEvent Last event of a page.
+     * @return Cursor for the page following the event.
+     */
+    public static CalendarEventCursor after(CalendarEventDTO calendarEvent) {
+        return new CalendarEventCursor(calendarEvent.getTime().toInstant(), calendarEvent.getId());
+    }
+
+    /**
+     * @param token Token returned by {@link #encode()}.
+     * @return The cursor.
+     * @throws IllegalArgumentException if the token is not a valid cursor.
+     */
+    public static CalendarEventCursor decode(String token) {
+        byte[] bytes = Base64.getUrlDecoder().decode(token);
+        if (bytes.length != TOKEN_BYTES) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            return new CalendarEventCursor(Instant.ofEpochSecond(buffer.getLong(), buffer.getInt()), buffer.getLong());
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(TOKEN_BYTES)
+            .putLong(time.getEpochSecond())
+            .putInt(time.getNano())
+            .putLong(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    public Instant getTime() {
+        return time;
+    }
+
+    public ZonedDateTime getZonedTime() {
+        return ZonedDateTime.ofInstant(time, ZoneOffset.UTC);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "CalendarEventCursor{" +
+            "time=" + time +
+            ", id=" + id +
+            '}';
+    }
+}
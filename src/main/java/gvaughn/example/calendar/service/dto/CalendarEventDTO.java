@@ -1,5 +1,7 @@
 package gvaughn.example.calendar.service.dto;
 
+import gvaughn.example.calendar.domain.CalendarEvent;
+
 import javax.persistence.CollectionTable;
 import javax.persistence.Column;
 import javax.persistence.ElementCollection;
@@ -8,6 +10,8 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.SequenceGenerator;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.io.Serializable;
@@ -27,10 +31,38 @@ public class CalendarEventDTO implements Serializable {
     private String title;
     @NotNull
     private ZonedDateTime time;
+    @Min(1)
+    @Max(CalendarEvent.MAX_DURATION_MINUTES)
+    private Integer duration;
+    @Size(max = 255)
+    private String recurrenceRule;
     private String location;
     @NotNull
     private ZonedDateTime reminderTime;
     private Set<String> attendees = new HashSet<>();
+    @Size(max = 10)
+    private Set<Integer> reminderOffsets = new HashSet<>();
+    private Boolean reminderSent;
+    private Long calendarId;
+
+    public CalendarEventDTO() {
+    }
+
+    /**
+     * Projection of an event's columns, without its attendees and reminder offsets.
+     */
+    public CalendarEventDTO(Long id, String title, ZonedDateTime time, Integer duration, String recurrenceRule,
+                            String location, ZonedDateTime reminderTime, Boolean reminderSent, Long calendarId) {
+        this.id = id;
+        this.title = title;
+        this.time = time;
+        this.duration = duration;
+        this.recurrenceRule = recurrenceRule;
+        this.location = location;
+        this.reminderTime = reminderTime;
+        this.reminderSent = reminderSent;
+        this.calendarId = calendarId;
+    }
 
     public Long getId() {
         return id;
@@ -56,6 +88,29 @@ public class CalendarEventDTO implements Serializable {
         this.time = time;
     }
 
+    /**
+     * @return Minutes the event lasts, or null if it occupies only the quarter hour it starts in.
+     */
+    public Integer getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Integer duration) {
+        this.duration = duration;
+    }
+
+    /**
+     * @return The event's recurrence rule, or null if it does not recur. Event lists read for a time range
+     * hold one event per occurrence within the range, each with the series' id and its own time.
+     */
+    public String getRecurrenceRule() {
+        return recurrenceRule;
+    }
+
+    public void setRecurrenceRule(String recurrenceRule) {
+        this.recurrenceRule = recurrenceRule;
+    }
+
     public String getLocation() {
         return location;
     }
@@ -80,15 +135,53 @@ public class CalendarEventDTO implements Serializable {
         this.attendees = attendees;
     }
 
+    /**
+     * @return Minutes before the event at which further reminders fire, in addition to the reminder time.
+     */
+    public Set<Integer> getReminderOffsets() {
+        return reminderOffsets;
+    }
+
+    public void setReminderOffsets(Set<Integer> reminderOffsets) {
+        this.reminderOffsets = reminderOffsets;
+    }
+
+    /**
+     * @return Whether the event's reminder has been sent; read only.
+     */
+    public Boolean isReminderSent() {
+        return reminderSent;
+    }
+
+    public void setReminderSent(Boolean reminderSent) {
+        this.reminderSent = reminderSent;
+    }
+
+    /**
+     * @return Id of the event's calendar; read only, events are created in their owner's default calendar.
+     */
+    public Long getCalendarId() {
+        return calendarId;
+    }
+
+    public void setCalendarId(Long calendarId) {
+        this.calendarId = calendarId;
+    }
+
     @Override
     public String toString() {
         return "CalendarEventDTO{" +
             "id=" + id +
             ", title='" + title + '\'' +
             ", time=" + time +
+            ", duration=" + duration +
+            ", recurrenceRule='" + recurrenceRule + '\'' +
             ", location='" + location + '\'' +
             ", reminderTime=" + reminderTime +
             ", attendees=" + attendees +
+            ", reminderOffsets=" + reminderOffsets +
+            ", reminderSent=" + reminderSent +
+            ", calendarId=" + calendarId +
             '}';
     }
 }
@@ -0,0 +1,57 @@
+package gvaughn.example.calendar.service.dto;
+
+import java.util.List;
+
+/**
+ * Events of a calendar written since a sync token: the ids of those created, updated and deleted since,
+ * each in ascending order, and the token to send on the next sync.
+ */
+public class CalendarEventSyncDTO {
+
+    private final List<Long> created;
+    private final List<Long> updated;
+    private final List<Long> deleted;
+    private final String token;
+
+    public CalendarEventSyncDTO(List<Long> created, List<Long> updated, List<Long> deleted, String token) {
+        this.created = created;
+        this.updated = updated;
+        this.deleted = deleted;
+        this.token = token;
+    }
+
+    /**
+     * @return Ids of the events created since the token, or of every event for a sync without one.
+     */
+    public List<Long> getCreated() {
+        return created;
+    }
+
+    /**
+     * @return Ids of the events created before the token and changed since.
+     */
+    public List<Long> getUpdated() {
+        return updated;
+    }
+
+    /**
+     * @return Ids of the events created before the token and deleted since.
+     */
+    public List<Long> getDeleted() {
+        return deleted;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    @Override
+    public String toString() {
+        return "CalendarEventSyncDTO{" +
+            "created=" + created +
+            ", updated=" + updated +
+            ", deleted=" + deleted +
+            ", token='" + token + "'" +
+            '}';
+    }
+}
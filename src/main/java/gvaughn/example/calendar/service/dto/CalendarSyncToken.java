@@ -0,0 +1,74 @@
+package gvaughn.example.calendar.service.dto;
+
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Version of a calendar up to which a client has synced its events, and when it was issued. Sent to clients
+ * as an opaque URL-safe token.
+ */
+public final class CalendarSyncToken {
+
+    private static final int TOKEN_BYTES = Long.BYTES + Long.BYTES + Long.BYTES;
+
+    private final long calendarId;
+
+    private final long version;
+
+    private final Instant issuedAt;
+
+    public CalendarSyncToken(long calendarId, long version, Instant issuedAt) {
+        this.calendarId = calendarId;
+        this.version = version;
+        this.issuedAt = issuedAt;
+    }
+
+    /**
+     * @param token Token returned by {@link #encode()}.
+     * @return The sync token.
+     * @throws IllegalArgumentException if the token is not a valid sync token.
+     */
+    public static CalendarSyncToken decode(String token) {
+        byte[] bytes = Base64.getUrlDecoder().decode(token);
+        if (bytes.length != TOKEN_BYTES) {
+            throw new IllegalArgumentException("Invalid sync token: " + token);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            return new CalendarSyncToken(buffer.getLong(), buffer.getLong(), Instant.ofEpochMilli(buffer.getLong()));
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Invalid sync token: " + token, e);
+        }
+    }
+
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(TOKEN_BYTES)
+            .putLong(calendarId)
+            .putLong(version)
+            .putLong(issuedAt.toEpochMilli());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    public long getCalendarId() {
+        return calendarId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getIssuedAt() {
+        return issuedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "CalendarSyncToken{" +
+            "calendarId=" + calendarId +
+            ", version=" + version +
+            ", issuedAt=" + issuedAt +
+            '}';
+    }
+}
@@ -0,0 +1,31 @@
+package gvaughn.example.calendar.service.dto;
+
+/**
+ * Version of a calendar, incremented by every write to its events.
+ */
+public class CalendarVersionDTO {
+
+    private final Long calendarId;
+    private final long version;
+
+    public CalendarVersionDTO(Long calendarId, long version) {
+        this.calendarId = calendarId;
+        this.version = version;
+    }
+
+    public Long getCalendarId() {
+        return calendarId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "CalendarVersionDTO{" +
+            "calendarId=" + calendarId +
+            ", version=" + version +
+            '}';
+    }
+}
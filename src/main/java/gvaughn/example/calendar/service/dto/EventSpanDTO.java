@@ -0,0 +1,56 @@
+package gvaughn.example.calendar.service.dto;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Projection of the time span an event occupies, for free/busy reads and conflict checks.
+ */
+public class EventSpanDTO {
+
+    private final Long id;
+    private final Long calendarId;
+    private final ZonedDateTime time;
+    private final Integer duration;
+    private final String recurrenceRule;
+
+    public EventSpanDTO(Long calendarId, ZonedDateTime time, Integer duration) {
+        this(null, calendarId, time, duration, null);
+    }
+
+    public EventSpanDTO(Long id, Long calendarId, ZonedDateTime time, Integer duration, String recurrenceRule) {
+        this.id = id;
+        this.calendarId = calendarId;
+        this.time = time;
+        this.duration = duration;
+        this.recurrenceRule = recurrenceRule;
+    }
+
+    /**
+     * @return Id of the event, or null if it was not read.
+     */
+    public Long getId() {
+        return id;
+    }
+
+    public Long getCalendarId() {
+        return calendarId;
+    }
+
+    public ZonedDateTime getTime() {
+        return time;
+    }
+
+    /**
+     * @return Minutes the event lasts, or null if it occupies only the quarter hour it starts in.
+     */
+    public Integer getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return Recurrence rule of the event, or null if it does not recur or the rule was not read.
+     */
+    public String getRecurrenceRule() {
+        return recurrenceRule;
+    }
+}
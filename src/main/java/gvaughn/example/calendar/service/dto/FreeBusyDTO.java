@@ -0,0 +1,66 @@
+package gvaughn.example.calendar.service.dto;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Occupancy of a user's calendar over a time range, as a bitset of fixed length slots.
+ * <p>
+ * Slot i covers {@code [start + i * slotMinutes, start + (i + 1) * slotMinutes)} and is busy if bit
+ * {@code i % 8} of byte {@code i / 8} of the decoded bitset is set, least significant bit first. The bitset
+ * holds {@code ceil(slots / 8)} bytes, encoded as standard base64.
+ */
+public class FreeBusyDTO {
+
+    private final ZonedDateTime start;
+    private final ZonedDateTime end;
+    private final int slotMinutes;
+    private final int slots;
+    private final String busy;
+
+    public FreeBusyDTO(ZonedDateTime start, ZonedDateTime end, int slotMinutes, int slots, String busy) {
+        this.start = start;
+        this.end = end;
+        this.slotMinutes = slotMinutes;
+        this.slots = slots;
+        this.busy = busy;
+    }
+
+    /**
+     * @return Start of the first slot: the requested start, rounded down to a slot boundary.
+     */
+    public ZonedDateTime getStart() {
+        return start;
+    }
+
+    /**
+     * @return End of the last slot: the requested end, rounded up to a slot boundary.
+     */
+    public ZonedDateTime getEnd() {
+        return end;
+    }
+
+    public int getSlotMinutes() {
+        return slotMinutes;
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    /**
+     * @return Base64 bitset of the busy slots.
+     */
+    public String getBusy() {
+        return busy;
+    }
+
+    @Override
+    public String toString() {
+        return "FreeBusyDTO{" +
+            "start=" + start +
+            ", end=" + end +
+            ", slots=" + slots +
+            ", busy='" + busy + '\'' +
+            '}';
+    }
+}
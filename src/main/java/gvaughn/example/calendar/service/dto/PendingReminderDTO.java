@@ -0,0 +1,166 @@
+package gvaughn.example.calendar.service.dto;
+
+import gvaughn.example.calendar.service.recurrence.Recurrence;
+import gvaughn.example.calendar.service.reminder.ReminderPattern;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+
+/**
+ * Projection of a pending reminder together with the event fields needed to render it.
+ */
+public class PendingReminderDTO {
+
+    private final Long eventId;
+    private final ZonedDateTime dueTime;
+    private final String title;
+    private final ZonedDateTime time;
+    private final String location;
+    private final Long calendarId;
+    private final String reminderOffsets;
+    private final ZonedDateTime seriesTime;
+    private final String recurrenceRule;
+
+    public PendingReminderDTO(Long eventId, ZonedDateTime dueTime, String title, ZonedDateTime time, String location,
+                              Long calendarId, String reminderOffsets) {
+        this(eventId, dueTime, title, time, null, location, calendarId, reminderOffsets, null);
+    }
+
+    /**
+     * @param time Event time, which is the first occurrence of a recurring event.
+     * @param occurrenceTime Occurrence of a recurring event the reminder is for, or null.
+     * @param recurrenceRule Recurrence rule of the event, or null if it does not recur.
+     */
+    public PendingReminderDTO(Long eventId, ZonedDateTime dueTime, String title, ZonedDateTime time,
+                              ZonedDateTime occurrenceTime, String location, Long calendarId, String reminderOffsets,
+                              String recurrenceRule) {
+        this.eventId = eventId;
+        this.dueTime = dueTime;
+        this.title = title;
+        this.time = occurrenceTime != null ? occurrenceTime : time;
+        this.location = location;
+        this.calendarId = calendarId;
+        this.reminderOffsets = reminderOffsets;
+        this.seriesTime = time;
+        this.recurrenceRule = recurrenceRule;
+    }
+
+    public Long getEventId() {
+        return eventId;
+    }
+
+    public ZonedDateTime getDueTime() {
+        return dueTime;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return Time of the event, or of the occurrence of a recurring event, the reminder is for.
+     */
+    public ZonedDateTime getTime() {
+        return time;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public Long getCalendarId() {
+        return calendarId;
+    }
+
+    /**
+     * @return The event's reminder offsets encoded as by {@link ReminderPattern#encode()}, or null if it
+     * has a single reminder.
+     */
+    public String getReminderOffsets() {
+        return reminderOffsets;
+    }
+
+    public ReminderPattern getReminderPattern() {
+        return ReminderPattern.parse(reminderOffsets);
+    }
+
+    public String getRecurrenceRule() {
+        return recurrenceRule;
+    }
+
+    /**
+     * @return The occurrences of the event, or null if it does not recur.
+     */
+    public Recurrence getRecurrence() {
+        return Recurrence.of(recurrenceRule, seriesTime);
+    }
+
+    /**
+     * @return Time of the event's reminder after this one, or null if this is its last. A recurring event's
+     * reminders move on to its next occurrence once those of the current one have been sent.
+     */
+    public ZonedDateTime getNextDueTime() {
+        return getNextDueTimeAfter(dueTime);
+    }
+
+    /**
+     * @return Occurrence the event's reminder after this one is for, or null if the event does not recur.
+     */
+    public ZonedDateTime getNextOccurrenceTime() {
+        return getNextOccurrenceTimeAfter(dueTime);
+    }
+
+    /**
+     * @param after Exclusive lower bound.
+     * @return Time of the event's first reminder after the given time, or null if there is none.
+     */
+    public ZonedDateTime getNextDueTimeAfter(ZonedDateTime after) {
+        ZonedDateTime occurrence = getOccurrenceWithReminderAfter(after);
+        if (occurrence == null) {
+            return null;
+        }
+        long nextDue = getReminderPattern().nextDue(occurrence.toInstant().toEpochMilli(), after.toInstant().toEpochMilli());
+        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(nextDue), time.getZone());
+    }
+
+    /**
+     * @param after Exclusive lower bound.
+     * @return Occurrence the event's first reminder after the given time is for, or null if the event does not
+     * recur or has no reminder left.
+     */
+    public ZonedDateTime getNextOccurrenceTimeAfter(ZonedDateTime after) {
+        return recurrenceRule == null ? null : getOccurrenceWithReminderAfter(after);
+    }
+
+    /**
+     * @return The event time, or the occurrence of a recurring event, or null if no reminder is left.
+     */
+    private ZonedDateTime getOccurrenceWithReminderAfter(ZonedDateTime after) {
+        ReminderPattern pattern = getReminderPattern();
+        if (pattern == null) {
+            return null;
+        }
+        long afterEpochMillis = after.toInstant().toEpochMilli();
+        if (pattern.nextDue(time.toInstant().toEpochMilli(), afterEpochMillis) != ReminderPattern.NONE) {
+            return time;
+        }
+        if (recurrenceRule == null) {
+            return null;
+        }
+        long bound = Math.max(time.toInstant().toEpochMilli(), pattern.lastEventRemindedBy(afterEpochMillis));
+        return getRecurrence().nextAfter(Instant.ofEpochMilli(bound));
+    }
+
+    @Override
+    public String toString() {
+        return "PendingReminderDTO{" +
+            "eventId=" + eventId +
+            ", dueTime=" + dueTime +
+            ", title='" + title + '\'' +
+            ", time=" + time +
+            ", calendarId=" + calendarId +
+            ", reminderOffsets='" + reminderOffsets + '\'' +
+            ", recurrenceRule='" + recurrenceRule + '\'' +
+            '}';
+    }
+}
@@ -0,0 +1,33 @@
+package gvaughn.example.calendar.service.dto;
+
+import java.time.ZonedDateTime;
+
+/**
+ * A span of time, from its start inclusive to its end exclusive.
+ */
+public class TimeSlotDTO {
+
+    private final ZonedDateTime start;
+    private final ZonedDateTime end;
+
+    public TimeSlotDTO(ZonedDateTime start, ZonedDateTime end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    public ZonedDateTime getStart() {
+        return start;
+    }
+
+    public ZonedDateTime getEnd() {
+        return end;
+    }
+
+    @Override
+    public String toString() {
+        return "TimeSlotDTO{" +
+            "start=" + start +
+            ", end=" + end +
+            '}';
+    }
+}
@@ -17,12 +17,19 @@ import java.util.List;
 @Component
 public interface CalendarEventMapper {
 
+    @Mapping(source = "calendar.id", target = "calendarId")
     CalendarEventDTO calendarEventToDTO(CalendarEvent calendarEvent);
 
+    /**
+     * @return A copy of the DTO, with copies of its attendees and reminder offsets.
+     */
+    CalendarEventDTO copy(CalendarEventDTO dto);
+
     List<CalendarEventDTO> calendarEventsToDTOs(List<CalendarEvent> calendarEvents);
 
     @Mapping(target = "calendar", ignore = true)
     @Mapping(target = "reminderSent", ignore = true)
+    @Mapping(target = "recurrenceEnd", ignore = true)
     CalendarEvent dtoToCalendarEvent(CalendarEventDTO dto);
 
     List<CalendarEvent> dtosToCalendarEvents(List<CalendarEventDTO> dtos);
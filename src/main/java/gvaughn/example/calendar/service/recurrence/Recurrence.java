@@ -0,0 +1,86 @@
+package gvaughn.example.calendar.service.recurrence;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The occurrences of a recurring event: its recurrence rule anchored at the event's time, which is the
+ * series' first occurrence.
+ */
+public final class Recurrence {
+
+    private final RecurrenceRule rule;
+
+    private final ZonedDateTime start;
+
+    public Recurrence(RecurrenceRule rule, ZonedDateTime start) {
+        this.rule = rule;
+        this.start = start;
+    }
+
+    /**
+     * @param rule Recurrence rule, or null.
+     * @param start Start of the series.
+     * @return The series, or null for an event that does not recur.
+     * @throws IllegalArgumentException if the rule is not valid.
+     */
+    public static Recurrence of(String rule, ZonedDateTime start) {
+        return rule == null ? null : new Recurrence(RecurrenceRule.parse(rule), start);
+    }
+
+    public RecurrenceRule getRule() {
+        return rule;
+    }
+
+    public ZonedDateTime getStart() {
+        return start;
+    }
+
+    /**
+     * @param after Exclusive lower bound.
+     * @return The first occurrence after the bound, or null if the series has ended.
+     */
+    public ZonedDateTime nextAfter(Instant after) {
+        Iterator<ZonedDateTime> occurrences = rule.occurrences(start, after);
+        while (occurrences.hasNext()) {
+            ZonedDateTime occurrence = occurrences.next();
+            if (occurrence.toInstant().isAfter(after)) {
+                return occurrence;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param from Start of the window, inclusive.
+     * @param to End of the window, inclusive.
+     * @return The occurrences within the window, in order.
+     */
+    public List<ZonedDateTime> between(Instant from, Instant to) {
+        List<ZonedDateTime> between = new ArrayList<>();
+        Iterator<ZonedDateTime> occurrences = rule.occurrences(start, from);
+        while (occurrences.hasNext()) {
+            ZonedDateTime occurrence = occurrences.next();
+            if (occurrence.toInstant().isAfter(to)) {
+                break;
+            }
+            between.add(occurrence);
+        }
+        return between;
+    }
+
+    /**
+     * @return The series' last occurrence, or null if it does not end.
+     */
+    public ZonedDateTime lastOccurrence() {
+        return rule.lastOccurrence(start);
+    }
+
+    @Override
+    public String toString() {
+        return "Recurrence{" + rule + " from " + start + '}';
+    }
+}
@@ -0,0 +1,377 @@
+package gvaughn.example.calendar.service.recurrence;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * A recurrence rule in the subset of the iCalendar RRULE syntax (RFC 5545) that calendar events support:
+ * <ul>
+ *     <li>{@code FREQ=DAILY|WEEKLY|MONTHLY|YEARLY}, required;</li>
+ *     <li>{@code INTERVAL=n}, every n days, weeks, months or years;</li>
+ *     <li>{@code COUNT=n} or {@code UNTIL=yyyyMMdd['T'HHmmss'Z']}, where the series ends;</li>
+ *     <li>{@code BYDAY=MO,TU,...}, the days of the week, with DAILY and WEEKLY only.</li>
+ * </ul>
+ * Occurrences keep the wall clock time of the series start, in its zone. As in RFC 5545, a monthly or yearly
+ * series starting on a day some months lack, e.g. the 31st, skips those months rather than moving the day.
+ * <p>
+ * Rules are immutable. Occurrences are computed lazily: a series without a count jumps straight to the period
+ * holding the first time asked for, so reading a window costs the same however long the series has run.
+ */
+public final class RecurrenceRule {
+
+    public static final int MAX_INTERVAL = 1000;
+
+    /** Bounds the occurrences a counted series walks through from its start. */
+    public static final int MAX_COUNT = 10000;
+
+    /** Series stop here, whatever their rule, so an iteration always ends. */
+    private static final int MAX_YEAR = 9999;
+
+    private static final DateTimeFormatter UNTIL_DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+
+    private static final DateTimeFormatter UNTIL_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    public enum Frequency {
+        DAILY(ChronoUnit.DAYS), WEEKLY(ChronoUnit.WEEKS), MONTHLY(ChronoUnit.MONTHS), YEARLY(ChronoUnit.YEARS);
+
+        private final ChronoUnit unit;
+
+        Frequency(ChronoUnit unit) {
+            this.unit = unit;
+        }
+    }
+
+    private final Frequency frequency;
+
+    private final int interval;
+
+    private final Integer count;
+
+    /** Inclusive end of the series given as a UTC time, or null. */
+    private final Instant until;
+
+    /** Inclusive end of the series given as a date, in the series' zone, or null. */
+    private final LocalDate untilDate;
+
+    /** Days of the week, in week order, or empty for the day of the series start. */
+    private final List<DayOfWeek> byDay;
+
+    private RecurrenceRule(Frequency frequency, int interval, Integer count, Instant until, LocalDate untilDate,
+                           List<DayOfWeek> byDay) {
+        this.frequency = frequency;
+        this.interval = interval;
+        this.count = count;
+        this.until = until;
+        this.untilDate = untilDate;
+        this.byDay = byDay;
+    }
+
+    /**
+     * @param rule Rule such as {@code FREQ=WEEKLY;BYDAY=MO,WE;COUNT=10}, optionally prefixed with {@code RRULE:}.
+     * @return The parsed rule.
+     * @throws IllegalArgumentException if the rule is not valid or uses parts outside the supported subset.
+     */
+    public static RecurrenceRule parse(String rule) {
+        if (rule == null || rule.trim().isEmpty()) {
+            throw new IllegalArgumentException("Empty recurrence rule");
+        }
+        String value = rule.trim().toUpperCase(Locale.ROOT);
+        if (value.startsWith("RRULE:")) {
+            value = value.substring("RRULE:".length());
+        }
+        Frequency frequency = null;
+        int interval = 1;
+        Integer count = null;
+        Instant until = null;
+        LocalDate untilDate = null;
+        Set<DayOfWeek> byDay = EnumSet.noneOf(DayOfWeek.class);
+        for (String part : value.split(";")) {
+            int equals = part.indexOf('=');
+            if (equals < 1) {
+                throw new IllegalArgumentException("Invalid recurrence rule part: " + part);
+            }
+            String name = part.substring(0, equals);
+            String partValue = part.substring(equals + 1);
+            switch (name) {
+                case "FREQ":
+                    frequency = parseFrequency(partValue);
+                    break;
+                case "INTERVAL":
+                    interval = parseNumber(name, partValue, MAX_INTERVAL);
+                    break;
+                case "COUNT":
+                    count = parseNumber(name, partValue, MAX_COUNT);
+                    break;
+                case "UNTIL":
+                    try {
+                        if (partValue.length() == 8) {
+                            untilDate = LocalDate.parse(partValue, UNTIL_DATE);
+                        } else {
+                            until = LocalDateTime.parse(partValue, UNTIL_DATE_TIME).toInstant(ZoneOffset.UTC);
+                        }
+                    } catch (DateTimeParseException e) {
+                        throw new IllegalArgumentException("Invalid UNTIL, expected yyyyMMdd or yyyyMMddTHHmmssZ: " + partValue);
+                    }
+                    break;
+                case "BYDAY":
+                    for (String day : partValue.split(",")) {
+                        byDay.add(parseDay(day));
+                    }
+                    break;
+                case "WKST":
+                    if (!"MO".equals(partValue)) {
+                        throw new IllegalArgumentException("Only weeks starting on Monday are supported");
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported recurrence rule part: " + name);
+            }
+        }
+        if (frequency == null) {
+            throw new IllegalArgumentException("Recurrence rule without FREQ");
+        }
+        if (count != null && (until != null || untilDate != null)) {
+            throw new IllegalArgumentException("COUNT and UNTIL cannot both be given");
+        }
+        if (!byDay.isEmpty() && frequency != Frequency.DAILY && frequency != Frequency.WEEKLY) {
+            throw new IllegalArgumentException("BYDAY is only supported with DAILY and WEEKLY recurrence");
+        }
+        return new RecurrenceRule(frequency, interval, count, until, untilDate, new ArrayList<>(byDay));
+    }
+
+    private static Frequency parseFrequency(String value) {
+        try {
+            return Frequency.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported FREQ, expected one of " + Arrays.toString(Frequency.values())
+                + ": " + value);
+        }
+    }
+
+    private static int parseNumber(String name, String value, int max) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number >= 1 && number <= max) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(name + " must be between 1 and " + max + ": " + value);
+    }
+
+    private static DayOfWeek parseDay(String day) {
+        for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+            if (dayOfWeek.name().startsWith(day) && day.length() == 2) {
+                return dayOfWeek;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported BYDAY value, expected MO to SU: " + day);
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return Whether the series ends, after a count or at a time.
+     */
+    public boolean isBounded() {
+        return count != null || until != null || untilDate != null;
+    }
+
+    /**
+     * @param start Start of the series, which is its first occurrence whatever the rule.
+     * @param from Inclusive lower bound.
+     * @return The series' occurrences at or after the bound, in order.
+     */
+    public Iterator<ZonedDateTime> occurrences(ZonedDateTime start, Instant from) {
+        return new OccurrenceIterator(start, from);
+    }
+
+    /**
+     * @param start Start of the series.
+     * @return The series' last occurrence, or null if it does not end.
+     */
+    public ZonedDateTime lastOccurrence(ZonedDateTime start) {
+        if (!isBounded()) {
+            return null;
+        }
+        ZonedDateTime last = null;
+        for (Iterator<ZonedDateTime> occurrences = occurrences(start, start.toInstant()); occurrences.hasNext(); ) {
+            last = occurrences.next();
+        }
+        return last;
+    }
+
+    /**
+     * @return The rule in canonical form, e.g. {@code FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE;COUNT=10}.
+     */
+    @Override
+    public String toString() {
+        StringBuilder rule = new StringBuilder("FREQ=").append(frequency);
+        if (interval != 1) {
+            rule.append(";INTERVAL=").append(interval);
+        }
+        if (!byDay.isEmpty()) {
+            rule.append(";BYDAY=").append(byDay.stream()
+                .map(day -> day.name().substring(0, 2)).collect(Collectors.joining(",")));
+        }
+        if (count != null) {
+            rule.append(";COUNT=").append(count);
+        }
+        if (until != null) {
+            rule.append(";UNTIL=").append(UNTIL_DATE_TIME.format(until.atOffset(ZoneOffset.UTC)));
+        }
+        if (untilDate != null) {
+            rule.append(";UNTIL=").append(UNTIL_DATE.format(untilDate));
+        }
+        return rule.toString();
+    }
+
+    /**
+     * Walks the series period by period, i.e. every interval days, weeks, months or years from its start,
+     * producing the occurrences of each period in order.
+     */
+    private final class OccurrenceIterator implements Iterator<ZonedDateTime> {
+
+        private final ZonedDateTime start;
+
+        private final Instant from;
+
+        private long period;
+
+        private int emitted;
+
+        private final List<ZonedDateTime> pending = new ArrayList<>();
+
+        private int pendingIndex;
+
+        private ZonedDateTime next;
+
+        private boolean done;
+
+        private OccurrenceIterator(ZonedDateTime start, Instant from) {
+            this.start = start;
+            this.from = from;
+            if (count == null && from.isAfter(start.toInstant())) {
+                // Only counted series need their earlier occurrences; start one period early to be safe
+                long periods = frequency.unit.between(start.toLocalDateTime(),
+                    LocalDateTime.ofInstant(from, start.getZone())) / interval;
+                period = Math.max(0, periods - 1);
+            }
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public ZonedDateTime next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            ZonedDateTime occurrence = next;
+            advance();
+            return occurrence;
+        }
+
+        private void advance() {
+            next = null;
+            while (!done) {
+                if (pendingIndex == pending.size()) {
+                    fillPeriod();
+                    continue;
+                }
+                ZonedDateTime candidate = pending.get(pendingIndex++);
+                if (isAfterEnd(candidate)) {
+                    done = true;
+                    return;
+                }
+                emitted++;
+                if (!candidate.toInstant().isBefore(from)) {
+                    next = candidate;
+                    return;
+                }
+            }
+        }
+
+        private boolean isAfterEnd(ZonedDateTime candidate) {
+            return (count != null && emitted >= count)
+                || (until != null && candidate.toInstant().isAfter(until))
+                || (untilDate != null && candidate.toLocalDate().isAfter(untilDate))
+                || candidate.getYear() > MAX_YEAR;
+        }
+
+        /**
+         * Replaces the pending occurrences with those of the next period; periods may be empty, e.g. a month
+         * without the series' day.
+         */
+        private void fillPeriod() {
+            pending.clear();
+            pendingIndex = 0;
+            ZonedDateTime base = start.plus(period * interval, frequency.unit);
+            period++;
+            if (base.getYear() > MAX_YEAR) {
+                done = true;
+                return;
+            }
+            switch (frequency) {
+                case DAILY:
+                    if (byDay.isEmpty() || byDay.contains(base.getDayOfWeek())) {
+                        pending.add(base);
+                    }
+                    break;
+                case WEEKLY:
+                    if (byDay.isEmpty()) {
+                        pending.add(base);
+                    } else {
+                        LocalDate monday = base.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                        for (DayOfWeek day : byDay) {
+                            ZonedDateTime occurrence = ZonedDateTime.of(monday.plusDays(day.ordinal()),
+                                start.toLocalTime(), start.getZone());
+                            if (!occurrence.isBefore(start)) {
+                                pending.add(occurrence);
+                            }
+                        }
+                    }
+                    break;
+                case MONTHLY:
+                    if (base.getDayOfMonth() == start.getDayOfMonth()) {
+                        pending.add(base);
+                    }
+                    break;
+                case YEARLY:
+                    if (base.getDayOfMonth() == start.getDayOfMonth() && base.getMonth() == start.getMonth()) {
+                        pending.add(base);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown frequency " + frequency);
+            }
+        }
+    }
+}
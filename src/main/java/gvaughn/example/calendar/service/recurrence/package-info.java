@@ -0,0 +1,4 @@
+/**
+ * Recurrence rules of calendar events and the expansion of their occurrences.
+ */
+package gvaughn.example.calendar.service.recurrence;
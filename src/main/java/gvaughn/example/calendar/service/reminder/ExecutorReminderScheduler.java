@@ -0,0 +1,145 @@
+package gvaughn.example.calendar.service.reminder;
+
+import gvaughn.example.calendar.service.recurrence.Recurrence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ReminderScheduler} backed by a single-threaded {@link ScheduledExecutorService}. Every schedule
+ * and cancel goes through the executor's delay queue, a binary heap guarded by one lock, and every
+ * reminder is handed to the handler on its own.
+ */
+public class ExecutorReminderScheduler implements ReminderScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutorReminderScheduler.class);
+
+    private final StripedLongObjectMap<Task> executionMap = new StripedLongObjectMap<>();
+
+    private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+
+    private final ReminderHandler handler;
+
+    public ExecutorReminderScheduler(ReminderHandler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void schedule(long eventId, long dueEpochMillis, long calendarId, long eventEpochMillis,
+                         ReminderPattern pattern, Recurrence recurrence) {
+        Task task = new Task(new ReminderRecord(eventId, dueEpochMillis, calendarId, eventEpochMillis, pattern,
+            recurrence));
+        Task previous = executionMap.put(eventId, task);
+        if (previous != null) {
+            previous.cancel();
+        }
+        task.submit();
+    }
+
+    @Override
+    public boolean reschedule(long eventId, long dueEpochMillis) {
+        while (true) {
+            Task current = executionMap.get(eventId);
+            if (current == null) {
+                return false;
+            }
+            ReminderRecord reminder = current.reminder;
+            Task task = new Task(new ReminderRecord(eventId, dueEpochMillis, reminder.getCalendarId(),
+                reminder.getEventEpochMillis(), reminder.getPattern(), reminder.getRecurrence()));
+            if (executionMap.replace(eventId, current, task)) {
+                current.cancel();
+                task.submit();
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean cancel(long eventId) {
+        Task task = executionMap.remove(eventId);
+        return task != null && task.cancel();
+    }
+
+    @Override
+    public int size() {
+        return executionMap.size();
+    }
+
+    /**
+     * Scans the executor's whole delay queue, so this is O(n) in the number of pending reminders.
+     */
+    @Override
+    public int overdueCount() {
+        int overdue = 0;
+        for (Runnable task : scheduler.getQueue()) {
+            if (((Delayed) task).getDelay(TimeUnit.MILLISECONDS) <= 0) {
+                overdue++;
+            }
+        }
+        return overdue;
+    }
+
+    @Override
+    public void shutdown() {
+        scheduler.shutdownNow();
+        executionMap.clear();
+    }
+
+    /**
+     * One pending reminder. When it fires it is swapped for the event's next reminder, if any, before the
+     * handler runs.
+     */
+    private final class Task implements Runnable {
+
+        private final ReminderRecord reminder;
+        private volatile ScheduledFuture<?> future;
+        private volatile boolean cancelled;
+
+        private Task(ReminderRecord reminder) {
+            this.reminder = reminder;
+        }
+
+        private void submit() {
+            long delay = Math.max(0L, reminder.getDueEpochMillis() - System.currentTimeMillis());
+            future = scheduler.schedule(this, delay, TimeUnit.MILLISECONDS);
+            if (cancelled) {
+                future.cancel(false);
+            }
+        }
+
+        private boolean cancel() {
+            cancelled = true;
+            ScheduledFuture<?> current = future;
+            return current == null || current.cancel(false);
+        }
+
+        @Override
+        public void run() {
+            long eventId = reminder.getEventId();
+            long nextDue = reminder.getNextDueEpochMillis();
+            if (nextDue == ReminderPattern.NONE) {
+                if (!executionMap.remove(eventId, this)) {
+                    return;
+                }
+            } else {
+                Task next = new Task(new ReminderRecord(eventId, nextDue, reminder.getCalendarId(),
+                    reminder.getNextEventEpochMillis(), reminder.getPattern(), reminder.getRecurrence()));
+                if (!executionMap.replace(eventId, this, next)) {
+                    return;
+                }
+                next.submit();
+            }
+            try {
+                handler.onDue(Collections.singletonList(reminder));
+            } catch (RuntimeException e) {
+                log.error("Unable to handle reminder " + eventId, e);
+            }
+        }
+    }
+}
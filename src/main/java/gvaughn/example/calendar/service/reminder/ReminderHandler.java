@@ -0,0 +1,16 @@
+package gvaughn.example.calendar.service.reminder;
+
+import java.util.List;
+
+/**
+ * Receives reminders from a {@link ReminderScheduler} once they are due.
+ */
+@FunctionalInterface
+public interface ReminderHandler {
+
+    /**
+     * Called on the scheduler's dispatch thread with reminders that fell due together.
+     * @param due Due reminders, never empty.
+     */
+    void onDue(List<? extends ReminderRecord> due);
+}
@@ -0,0 +1,130 @@
+package gvaughn.example.calendar.service.reminder;
+
+import gvaughn.example.calendar.service.util.LruCache;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+/**
+ * The offsets before an event at which its reminders fire, e.g. one day, one hour and ten minutes.
+ * <p>
+ * Patterns are immutable and the most recently used ones are interned, so the thousands of events that use
+ * the same offsets share one instance, and a pending event costs the same whether it has one reminder or
+ * five. A pattern's first offset is often the lead of the event's own reminder time, which few other events
+ * share, so the interner is bounded: rarely used patterns are dropped from it and left to the events holding
+ * them, rather than kept for the life of the node. Equal patterns are equal whether or not they are the
+ * same instance. A scheduler keeps one entry per event and re-arms it for the next offset each time it fires.
+ */
+public final class ReminderPattern {
+
+    /** Returned by {@link #nextDue(long, long)} when no reminder is left. */
+    public static final long NONE = Long.MIN_VALUE;
+
+    /** Patterns kept in the interner, far more than the distinct offset sets users pick. */
+    static final int MAX_INTERNED = 4096;
+
+    private static final LruCache<String, ReminderPattern> PATTERNS = new LruCache<>(MAX_INTERNED);
+
+    private final int[] offsetSeconds;
+
+    private final String encoded;
+
+    private ReminderPattern(int[] offsetSeconds, String encoded) {
+        this.offsetSeconds = offsetSeconds;
+        this.encoded = encoded;
+    }
+
+    /**
+     * @param offsetSeconds Offsets before the event, in seconds; non-positive offsets are ignored.
+     * @return The pattern, shared if it is interned, or null if no offsets are left.
+     */
+    public static ReminderPattern of(Collection<Long> offsetSeconds) {
+        int[] offsets = offsetSeconds.stream()
+            .filter(offset -> offset > 0 && offset <= Integer.MAX_VALUE)
+            .mapToInt(Long::intValue)
+            .distinct()
+            .map(offset -> -offset)
+            .sorted()
+            .map(offset -> -offset)
+            .toArray();
+        if (offsets.length == 0) {
+            return null;
+        }
+        String encoded = Arrays.stream(offsets).mapToObj(Integer::toString).collect(Collectors.joining(","));
+        ReminderPattern pattern = new ReminderPattern(offsets, encoded);
+        ReminderPattern interned = PATTERNS.putIfAbsent(encoded, pattern);
+        return interned != null ? interned : pattern;
+    }
+
+    /**
+     * @param encoded Pattern as returned by {@link #encode()}.
+     * @return The pattern, shared if it is interned, or null if the value is empty.
+     */
+    public static ReminderPattern parse(String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return null;
+        }
+        ReminderPattern pattern = PATTERNS.get(encoded);
+        if (pattern != null) {
+            return pattern;
+        }
+        return of(Arrays.stream(encoded.split(",")).map(Long::valueOf).collect(Collectors.toList()));
+    }
+
+    /**
+     * @return The offsets in seconds, largest first, separated by commas.
+     */
+    public String encode() {
+        return encoded;
+    }
+
+    public int size() {
+        return offsetSeconds.length;
+    }
+
+    /**
+     * @param eventEpochMillis Event time, in epoch milliseconds.
+     * @param afterEpochMillis Exclusive lower bound, in epoch milliseconds.
+     * @return The first reminder time after the bound, or {@link #NONE}.
+     */
+    public long nextDue(long eventEpochMillis, long afterEpochMillis) {
+        for (int offset : offsetSeconds) {
+            long due = eventEpochMillis - offset * 1000L;
+            if (due > afterEpochMillis) {
+                return due;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * @param epochMillis Time, in epoch milliseconds.
+     * @return The latest event time, in epoch milliseconds, whose reminders have all fallen due by the given
+     * time; only later events have a reminder after it.
+     */
+    public long lastEventRemindedBy(long epochMillis) {
+        return epochMillis + offsetSeconds[offsetSeconds.length - 1] * 1000L;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return encoded.equals(((ReminderPattern) o).encoded);
+    }
+
+    @Override
+    public int hashCode() {
+        return encoded.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "ReminderPattern{" + encoded + '}';
+    }
+}
@@ -0,0 +1,107 @@
+package gvaughn.example.calendar.service.reminder;
+
+import gvaughn.example.calendar.service.recurrence.Recurrence;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+
+/**
+ * What a scheduler keeps for one pending event: the event id, the due time of its next reminder and
+ * the calendar id, plus the event time and the shared {@link ReminderPattern} when the event has more
+ * than one reminder. Everything needed to render the message is read back when the reminder fires,
+ * so a pending event costs a few dozen bytes regardless of the size of the event.
+ * <p>
+ * A recurring event also keeps its {@link Recurrence}, and its event time is that of the occurrence its
+ * reminders are for; once they have all fired, the record moves on to the next occurrence.
+ */
+public class ReminderRecord {
+
+    private final long eventId;
+    private final long dueEpochMillis;
+    private final long calendarId;
+    private final long eventEpochMillis;
+    private final ReminderPattern pattern;
+    private final Recurrence recurrence;
+
+    public ReminderRecord(long eventId, long dueEpochMillis, long calendarId) {
+        this(eventId, dueEpochMillis, calendarId, 0L, null);
+    }
+
+    public ReminderRecord(long eventId, long dueEpochMillis, long calendarId, long eventEpochMillis,
+                          ReminderPattern pattern) {
+        this(eventId, dueEpochMillis, calendarId, eventEpochMillis, pattern, null);
+    }
+
+    public ReminderRecord(long eventId, long dueEpochMillis, long calendarId, long eventEpochMillis,
+                          ReminderPattern pattern, Recurrence recurrence) {
+        this.eventId = eventId;
+        this.dueEpochMillis = dueEpochMillis;
+        this.calendarId = calendarId;
+        this.eventEpochMillis = eventEpochMillis;
+        this.pattern = pattern;
+        this.recurrence = recurrence;
+    }
+
+    public long getEventId() {
+        return eventId;
+    }
+
+    public long getDueEpochMillis() {
+        return dueEpochMillis;
+    }
+
+    public long getCalendarId() {
+        return calendarId;
+    }
+
+    public long getEventEpochMillis() {
+        return eventEpochMillis;
+    }
+
+    public ReminderPattern getPattern() {
+        return pattern;
+    }
+
+    public Recurrence getRecurrence() {
+        return recurrence;
+    }
+
+    /**
+     * @return Due time of the event's next reminder after this one, or {@link ReminderPattern#NONE}.
+     */
+    public long getNextDueEpochMillis() {
+        long nextEventEpochMillis = getNextEventEpochMillis();
+        return nextEventEpochMillis == ReminderPattern.NONE ? ReminderPattern.NONE
+            : pattern.nextDue(nextEventEpochMillis, dueEpochMillis);
+    }
+
+    /**
+     * @return Time of the event, or of the occurrence of a recurring event, that the next reminder after this
+     * one is for, or {@link ReminderPattern#NONE}.
+     */
+    public long getNextEventEpochMillis() {
+        if (pattern == null) {
+            return ReminderPattern.NONE;
+        }
+        if (pattern.nextDue(eventEpochMillis, dueEpochMillis) != ReminderPattern.NONE) {
+            return eventEpochMillis;
+        }
+        if (recurrence == null) {
+            return ReminderPattern.NONE;
+        }
+        ZonedDateTime next = recurrence.nextAfter(Instant.ofEpochMilli(
+            Math.max(eventEpochMillis, pattern.lastEventRemindedBy(dueEpochMillis))));
+        return next == null ? ReminderPattern.NONE : next.toInstant().toEpochMilli();
+    }
+
+    @Override
+    public String toString() {
+        return "ReminderRecord{" +
+            "eventId=" + eventId +
+            ", dueEpochMillis=" + dueEpochMillis +
+            ", calendarId=" + calendarId +
+            ", pattern=" + pattern +
+            ", recurrence=" + recurrence +
+            '}';
+    }
+}
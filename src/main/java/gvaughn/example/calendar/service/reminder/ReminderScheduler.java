@@ -0,0 +1,81 @@
+package gvaughn.example.calendar.service.reminder;
+
+import gvaughn.example.calendar.service.recurrence.Recurrence;
+
+/**
+ * Schedules reminders keyed by calendar event id and hands them to a {@link ReminderHandler} when due.
+ * Scheduling an id that is already pending replaces the previous reminder. An event with a
+ * {@link ReminderPattern} keeps a single entry that is re-armed for its next offset each time it fires, and
+ * a recurring event's entry is re-armed for its next occurrence once its offsets run out.
+ */
+public interface ReminderScheduler {
+
+    /**
+     * Schedules a reminder.
+     * @param eventId Calendar event id.
+     * @param dueEpochMillis Time at which the reminder is due, in epoch milliseconds.
+     * @param calendarId Id of the calendar the event belongs to.
+     */
+    default void schedule(long eventId, long dueEpochMillis, long calendarId) {
+        schedule(eventId, dueEpochMillis, calendarId, 0L, null);
+    }
+
+    /**
+     * Schedules the reminders of an event, starting with the one due at the given time.
+     * @param eventId Calendar event id.
+     * @param dueEpochMillis Time at which the first reminder is due, in epoch milliseconds.
+     * @param calendarId Id of the calendar the event belongs to.
+     * @param eventEpochMillis Event time, in epoch milliseconds; ignored without a pattern.
+     * @param pattern Offsets of the event's later reminders, or null for a one-shot reminder.
+     */
+    default void schedule(long eventId, long dueEpochMillis, long calendarId, long eventEpochMillis,
+                          ReminderPattern pattern) {
+        schedule(eventId, dueEpochMillis, calendarId, eventEpochMillis, pattern, null);
+    }
+
+    /**
+     * Schedules the reminders of an event, starting with the one due at the given time.
+     * @param eventId Calendar event id.
+     * @param dueEpochMillis Time at which the first reminder is due, in epoch milliseconds.
+     * @param calendarId Id of the calendar the event belongs to.
+     * @param eventEpochMillis Time of the event, or of the occurrence the reminder is for, in epoch
+     *                         milliseconds; ignored without a pattern.
+     * @param pattern Offsets of the event's later reminders, or null for a one-shot reminder; required with
+     *                a recurrence.
+     * @param recurrence Occurrences of a recurring event, or null.
+     */
+    void schedule(long eventId, long dueEpochMillis, long calendarId, long eventEpochMillis, ReminderPattern pattern,
+                  Recurrence recurrence);
+
+    /**
+     * Moves the pending reminder for the given id to a new due time in place, keeping its calendar, event
+     * time, pattern and recurrence. Later offsets of the pattern that fall before the new due time are skipped.
+     * @param eventId Calendar event id.
+     * @param dueEpochMillis New due time, in epoch milliseconds.
+     * @return false if no reminder is pending for the id.
+     */
+    boolean reschedule(long eventId, long dueEpochMillis);
+
+    /**
+     * Cancels the pending reminder for the given id.
+     * @param eventId Calendar event id.
+     * @return true if a pending reminder was cancelled.
+     */
+    boolean cancel(long eventId);
+
+    /**
+     * @return Number of pending reminders.
+     */
+    int size();
+
+    /**
+     * @return Number of reminders that are due but have not been handled yet, e.g. because the handler
+     * is falling behind. May be approximate.
+     */
+    int overdueCount();
+
+    /**
+     * Stops the scheduler, discarding pending reminders.
+     */
+    void shutdown();
+}
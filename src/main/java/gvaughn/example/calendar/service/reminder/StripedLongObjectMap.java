@@ -0,0 +1,106 @@
+package gvaughn.example.calendar.service.reminder;
+
+import com.carrotsearch.hppc.LongObjectHashMap;
+
+/**
+ * Concurrent map from primitive long keys to values, split into lock-striped open-addressing maps.
+ * Keys are stored unboxed in a long array, so an entry costs roughly a long and a reference rather
+ * than a boxed Long plus a hash node.
+ */
+class StripedLongObjectMap<V> {
+
+    private static final int STRIPES = 64;
+
+    private final LongObjectHashMap<V>[] stripes;
+
+    @SuppressWarnings("unchecked")
+    StripedLongObjectMap() {
+        stripes = new LongObjectHashMap[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new LongObjectHashMap<>();
+        }
+    }
+
+    V get(long key) {
+        LongObjectHashMap<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+
+    /**
+     * @return The value previously mapped to the key, or null.
+     */
+    V put(long key, V value) {
+        LongObjectHashMap<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.put(key, value);
+        }
+    }
+
+    /**
+     * @return The value that was mapped to the key, or null.
+     */
+    V remove(long key) {
+        LongObjectHashMap<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.remove(key);
+        }
+    }
+
+    /**
+     * Removes the key only if it is mapped to the given instance.
+     * @return true if the mapping was removed.
+     */
+    boolean remove(long key, V value) {
+        LongObjectHashMap<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            int index = stripe.indexOf(key);
+            if (!stripe.indexExists(index) || stripe.indexGet(index) != value) {
+                return false;
+            }
+            stripe.remove(key);
+            return true;
+        }
+    }
+
+    /**
+     * Maps the key to the new value only if it is currently mapped to the expected instance.
+     * @return true if the mapping was replaced.
+     */
+    boolean replace(long key, V expected, V value) {
+        LongObjectHashMap<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            int index = stripe.indexOf(key);
+            if (!stripe.indexExists(index) || stripe.indexGet(index) != expected) {
+                return false;
+            }
+            stripe.indexReplace(index, value);
+            return true;
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (LongObjectHashMap<V> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    void clear() {
+        for (LongObjectHashMap<V> stripe : stripes) {
+            synchronized (stripe) {
+                stripe.release();
+            }
+        }
+    }
+
+    private LongObjectHashMap<V> stripeFor(long key) {
+        // Event ids are sequential, so spread them before picking a stripe
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (hash >>> 58)];
+    }
+}
@@ -0,0 +1,404 @@
+package gvaughn.example.calendar.service.reminder;
+
+import gvaughn.example.calendar.service.recurrence.Recurrence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link ReminderScheduler} backed by a hashed hierarchical timing wheel.
+ * <p>
+ * Level 0 has {@code wheelSize} buckets of one tick each, and every level above it has buckets
+ * {@code wheelSize} times wider. A reminder lands in the lowest level whose span covers its delay and is
+ * cascaded into finer levels as its deadline approaches. Scheduling and cancelling are O(1) and only
+ * lock the one bucket they touch, so callers rarely contend with each other or with the wheel thread.
+ * The reminders due in a tick are handed to the handler as one batch on the dispatch executor, so that a
+ * burst of reminders due at the same time costs one hand-off rather than one per reminder, and a slow
+ * handler never holds up the wheel.
+ * <p>
+ * Each pending reminder is a single {@link ReminderRecord} that doubles as its bucket list node, indexed
+ * by event id in a {@link StripedLongObjectMap}.
+ */
+public class TimingWheelReminderScheduler implements ReminderScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(TimingWheelReminderScheduler.class);
+
+    private static final int LEVELS = 4;
+
+    private static final int MAX_WHEEL_SIZE = 1 << 15;
+
+    private final long tickMillis;
+    private final int wheelBits;
+    private final long wheelMask;
+    private final long startMillis;
+    private final Bucket[][] wheels;
+    private final StripedLongObjectMap<Entry> entries = new StripedLongObjectMap<>();
+    private final ReminderHandler handler;
+    private final Executor dispatchExecutor;
+    private final ExecutorService ownedExecutor;
+    private final Thread worker;
+    private final AtomicInteger dispatching = new AtomicInteger();
+
+    private volatile long currentTick;
+    private volatile boolean running = true;
+
+    /**
+     * Creates a wheel that calls the handler on its own dispatch thread.
+     * @param tickMillis Duration of one tick; the precision with which reminders fire.
+     * @param wheelSize Number of buckets per level, rounded up to a power of two.
+     * @param handler Handler for due reminders.
+     */
+    public TimingWheelReminderScheduler(long tickMillis, int wheelSize, ReminderHandler handler) {
+        this(tickMillis, wheelSize, handler, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reminder-dispatch");
+            thread.setDaemon(true);
+            return thread;
+        }), true);
+    }
+
+    /**
+     * @param tickMillis Duration of one tick; the precision with which reminders fire.
+     * @param wheelSize Number of buckets per level, rounded up to a power of two.
+     * @param handler Handler for due reminders.
+     * @param dispatchExecutor Executor that calls the handler.
+     */
+    public TimingWheelReminderScheduler(long tickMillis, int wheelSize, ReminderHandler handler, Executor dispatchExecutor) {
+        this(tickMillis, wheelSize, handler, dispatchExecutor, false);
+    }
+
+    private TimingWheelReminderScheduler(long tickMillis, int wheelSize, ReminderHandler handler,
+                                         Executor dispatchExecutor, boolean ownsExecutor) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive: " + tickMillis);
+        }
+        if (wheelSize < 2 || wheelSize > MAX_WHEEL_SIZE) {
+            throw new IllegalArgumentException("Wheel size must be between 2 and " + MAX_WHEEL_SIZE + ": " + wheelSize);
+        }
+        this.tickMillis = tickMillis;
+        this.handler = handler;
+        this.wheelBits = 32 - Integer.numberOfLeadingZeros(wheelSize - 1);
+        this.wheelMask = (1L << wheelBits) - 1;
+        this.dispatchExecutor = dispatchExecutor;
+        this.ownedExecutor = ownsExecutor ? (ExecutorService) dispatchExecutor : null;
+        this.wheels = new Bucket[LEVELS][1 << wheelBits];
+        for (Bucket[] wheel : wheels) {
+            for (int i = 0; i < wheel.length; i++) {
+                wheel[i] = new Bucket();
+            }
+        }
+        this.startMillis = System.currentTimeMillis();
+        this.worker = new Thread(this::runWheel, "reminder-timing-wheel");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public void schedule(long eventId, long dueEpochMillis, long calendarId, long eventEpochMillis,
+                         ReminderPattern pattern, Recurrence recurrence) {
+        Entry entry = new Entry(eventId, dueEpochMillis, calendarId, eventEpochMillis, pattern, recurrence);
+        Entry previous = entries.put(eventId, entry);
+        if (previous != null) {
+            previous.remove();
+        }
+        placeIfPending(entry);
+    }
+
+    @Override
+    public boolean reschedule(long eventId, long dueEpochMillis) {
+        while (true) {
+            Entry current = entries.get(eventId);
+            if (current == null) {
+                return false;
+            }
+            Entry entry = new Entry(eventId, dueEpochMillis, current.getCalendarId(), current.getEventEpochMillis(),
+                current.getPattern(), current.getRecurrence());
+            if (entries.replace(eventId, current, entry)) {
+                current.remove();
+                placeIfPending(entry);
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean cancel(long eventId) {
+        Entry entry = entries.remove(eventId);
+        if (entry == null) {
+            return false;
+        }
+        entry.remove();
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Counts the reminders handed to the dispatch executor but not yet handled, plus those in the level 0
+     * buckets the wheel thread has yet to catch up with.
+     */
+    @Override
+    public int overdueCount() {
+        int overdue = dispatching.get();
+        long tick = currentTick;
+        long nowTick = Math.min((System.currentTimeMillis() - startMillis) / tickMillis, tick + wheels[0].length - 1);
+        for (long t = tick + 1; t <= nowTick; t++) {
+            overdue += wheels[0][(int) (t & wheelMask)].size();
+        }
+        return overdue;
+    }
+
+    @Override
+    public void shutdown() {
+        running = false;
+        worker.interrupt();
+        entries.clear();
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdownNow();
+        }
+    }
+
+    private long deadlineTick(long dueEpochMillis) {
+        long elapsed = dueEpochMillis - startMillis;
+        return elapsed <= 0 ? 0 : (elapsed + tickMillis - 1) / tickMillis;
+    }
+
+    /**
+     * Adds the entry to the bucket matching its deadline relative to the current tick. If the wheel
+     * thread advances while the bucket is being chosen the placement is retried, so an entry is never
+     * dropped into a bucket the wheel has just passed.
+     * @param cascading Whether the wheel thread is cascading the entry down before it drains the current
+     * tick's bucket, in which case an entry due in the current tick can still go into that bucket rather
+     * than the next one.
+     */
+    private void place(Entry entry, boolean cascading) {
+        while (true) {
+            long tick = currentTick;
+            Bucket bucket = bucketFor(deadlineTick(entry.getDueEpochMillis()), tick, cascading);
+            bucket.lock.lock();
+            try {
+                if (tick == currentTick) {
+                    bucket.add(entry);
+                    return;
+                }
+            } finally {
+                bucket.lock.unlock();
+            }
+        }
+    }
+
+    private Bucket bucketFor(long deadlineTick, long tick, boolean cascading) {
+        long deadline = Math.max(deadlineTick, cascading ? tick : tick + 1);
+        long delta = deadline - tick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (wheelBits * (level + 1))) {
+            level++;
+        }
+        return wheels[level][(int) ((deadline >>> (wheelBits * level)) & wheelMask)];
+    }
+
+    private void runWheel() {
+        while (running) {
+            long targetTick = (System.currentTimeMillis() - startMillis) / tickMillis;
+            while (currentTick < targetTick) {
+                advance(currentTick + 1);
+            }
+            long sleepMillis = startMillis + (currentTick + 1) * tickMillis - System.currentTimeMillis();
+            if (sleepMillis > 0) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void advance(long tick) {
+        currentTick = tick;
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if ((tick & ((1L << (wheelBits * level)) - 1)) == 0) {
+                Bucket bucket = wheels[level][(int) ((tick >>> (wheelBits * level)) & wheelMask)];
+                for (Entry entry : bucket.drain()) {
+                    placeIfPending(entry, true);
+                }
+            }
+        }
+        List<Entry> due = new ArrayList<>();
+        for (Entry entry : wheels[0][(int) (tick & wheelMask)].drain()) {
+            if (deadlineTick(entry.getDueEpochMillis()) > tick) {
+                placeIfPending(entry);
+            } else if (fire(entry)) {
+                due.add(entry);
+            }
+        }
+        if (!due.isEmpty()) {
+            dispatch(due);
+        }
+    }
+
+    /**
+     * Takes a due entry out of the schedule, or swaps in the event's next reminder if it has one, so an
+     * event never holds more than one entry however many offsets or occurrences it has.
+     * @return false if the entry was cancelled or replaced in the meantime.
+     */
+    private boolean fire(Entry entry) {
+        long nextDue = entry.getNextDueEpochMillis();
+        if (nextDue == ReminderPattern.NONE) {
+            return entries.remove(entry.getEventId(), entry);
+        }
+        Entry next = new Entry(entry.getEventId(), nextDue, entry.getCalendarId(), entry.getNextEventEpochMillis(),
+            entry.getPattern(), entry.getRecurrence());
+        if (!entries.replace(entry.getEventId(), entry, next)) {
+            return false;
+        }
+        placeIfPending(next);
+        return true;
+    }
+
+    /**
+     * Places the entry unless it was cancelled or replaced in the meantime, e.g. while being cascaded.
+     */
+    private void placeIfPending(Entry entry) {
+        placeIfPending(entry, false);
+    }
+
+    private void placeIfPending(Entry entry, boolean cascading) {
+        if (entries.get(entry.getEventId()) != entry) {
+            return;
+        }
+        place(entry, cascading);
+        if (entries.get(entry.getEventId()) != entry) {
+            entry.remove();
+        }
+    }
+
+    private void dispatch(List<Entry> due) {
+        dispatching.addAndGet(due.size());
+        try {
+            dispatchExecutor.execute(() -> {
+                try {
+                    handler.onDue(due);
+                } catch (RuntimeException e) {
+                    log.error("Unable to handle " + due.size() + " due reminders", e);
+                } finally {
+                    dispatching.addAndGet(-due.size());
+                }
+            });
+        } catch (RuntimeException e) {
+            dispatching.addAndGet(-due.size());
+            log.error("Unable to dispatch " + due.size() + " due reminders", e);
+        }
+    }
+
+    /**
+     * A bucket of entries held in an intrusive doubly linked list, so removal is O(1).
+     */
+    private static final class Bucket {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private Entry head;
+        private int size;
+
+        private int size() {
+            lock.lock();
+            try {
+                return size;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void add(Entry entry) {
+            size++;
+            entry.bucket = this;
+            entry.prev = null;
+            entry.next = head;
+            if (head != null) {
+                head.prev = entry;
+            }
+            head = entry;
+        }
+
+        private void unlink(Entry entry) {
+            size--;
+            if (entry.prev != null) {
+                entry.prev.next = entry.next;
+            } else {
+                head = entry.next;
+            }
+            if (entry.next != null) {
+                entry.next.prev = entry.prev;
+            }
+            entry.bucket = null;
+            entry.prev = null;
+            entry.next = null;
+        }
+
+        private List<Entry> drain() {
+            lock.lock();
+            try {
+                List<Entry> drained = new ArrayList<>();
+                Entry entry = head;
+                while (entry != null) {
+                    Entry next = entry.next;
+                    entry.bucket = null;
+                    entry.prev = null;
+                    entry.next = null;
+                    drained.add(entry);
+                    entry = next;
+                }
+                head = null;
+                size = 0;
+                return drained;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Entry extends ReminderRecord {
+
+        private volatile Bucket bucket;
+        private Entry prev;
+        private Entry next;
+
+        private Entry(long eventId, long dueEpochMillis, long calendarId, long eventEpochMillis,
+                      ReminderPattern pattern, Recurrence recurrence) {
+            super(eventId, dueEpochMillis, calendarId, eventEpochMillis, pattern, recurrence);
+        }
+
+        /**
+         * Unlinks the entry from whichever bucket currently holds it.
+         * @return false if the entry was not in a bucket, e.g. because it is being cascaded or fired.
+         */
+        private boolean remove() {
+            while (true) {
+                Bucket current = bucket;
+                if (current == null) {
+                    return false;
+                }
+                current.lock.lock();
+                try {
+                    if (bucket == current) {
+                        current.unlink(this);
+                        return true;
+                    }
+                } finally {
+                    current.lock.unlock();
+                }
+            }
+        }
+    }
+}
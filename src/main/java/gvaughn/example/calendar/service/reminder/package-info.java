@@ -0,0 +1,4 @@
+/**
+ * In-memory reminder scheduling engines.
+ */
+package gvaughn.example.calendar.service.reminder;
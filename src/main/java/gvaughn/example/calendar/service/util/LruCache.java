@@ -0,0 +1,158 @@
+package gvaughn.example.calendar.service.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+
+/**
+ * Bounded, thread-safe cache that evicts the least recently used entries. Entries are spread over
+ * lock-striped access-ordered maps, each holding its share of the maximum size, so that concurrent
+ * readers only contend when their keys land on the same stripe.
+ */
+public class LruCache<K, V> {
+
+    private static final int MAX_STRIPES = 16;
+
+    private final Stripe<K, V>[] stripes;
+
+    public LruCache(int maxSize) {
+        this(maxSize, (key, value) -> { });
+    }
+
+    /**
+     * @param maxSize Maximum number of entries.
+     * @param evictionListener Called, under the stripe's lock, with each entry evicted to make room.
+     */
+    @SuppressWarnings("unchecked")
+    public LruCache(int maxSize, BiConsumer<? super K, ? super V> evictionListener) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        int stripeCount = Math.min(MAX_STRIPES, maxSize);
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            int stripeSize = maxSize / stripeCount + (i < maxSize % stripeCount ? 1 : 0);
+            stripes[i] = new Stripe<>(stripeSize, evictionListener);
+        }
+    }
+
+    /**
+     * @return The cached value, or null.
+     */
+    public V get(K key) {
+        Stripe<K, V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+
+    public void put(K key, V value) {
+        Stripe<K, V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            stripe.put(key, value);
+        }
+    }
+
+    /**
+     * @return The value already cached for the key, or null if the given value was cached.
+     */
+    public V putIfAbsent(K key, V value) {
+        Stripe<K, V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.putIfAbsent(key, value);
+        }
+    }
+
+    /**
+     * Caches the given value, or the result of combining it with the value already cached for the key, as
+     * {@link java.util.Map#merge} does.
+     * @return The value now cached for the key, or null if the function removed it.
+     */
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Stripe<K, V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.merge(key, value, remappingFunction);
+        }
+    }
+
+    /**
+     * Removes the key only if it is mapped to the given value.
+     * @return true if the entry was removed.
+     */
+    public boolean remove(K key, V value) {
+        Stripe<K, V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.remove(key, value);
+        }
+    }
+
+    /**
+     * @return The value that was cached for the key, or null.
+     */
+    public V remove(K key) {
+        Stripe<K, V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.remove(key);
+        }
+    }
+
+    /**
+     * Removes every entry matching the filter. Walks the whole cache, so meant for rare invalidations by value.
+     */
+    public void removeIf(BiPredicate<? super K, ? super V> filter) {
+        for (Stripe<K, V> stripe : stripes) {
+            synchronized (stripe) {
+                stripe.entrySet().removeIf(entry -> filter.test(entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe<K, V> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Stripe<K, V> stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    private Stripe<K, V> stripeFor(K key) {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return stripes[(hash >>> 16) % stripes.length];
+    }
+
+    private static final class Stripe<K, V> extends LinkedHashMap<K, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        private final transient BiConsumer<? super K, ? super V> evictionListener;
+
+        private Stripe(int maxSize, BiConsumer<? super K, ? super V> evictionListener) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+            this.evictionListener = evictionListener;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() <= maxSize) {
+                return false;
+            }
+            evictionListener.accept(eldest.getKey(), eldest.getValue());
+            return true;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package gvaughn.example.calendar.web.rest;
+
+import com.codahale.metrics.annotation.Timed;
+import gvaughn.example.calendar.domain.CalendarEvent;
+import gvaughn.example.calendar.domain.User;
+import gvaughn.example.calendar.service.AvailabilityService;
+import gvaughn.example.calendar.service.FreeBusyService;
+import gvaughn.example.calendar.service.dto.TimeSlotDTO;
+import gvaughn.example.calendar.web.rest.util.HeaderUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.ZonedDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * REST controller for finding the times at which a group of users are all free.
+ */
+@RestController
+@RequestMapping("/api")
+public class AvailabilityResource {
+
+    private final Logger log = LoggerFactory.getLogger(AvailabilityResource.class);
+
+    private static final String ENTITY_NAME = "availability";
+
+    private final AvailabilityService availabilityService;
+
+    public AvailabilityResource(AvailabilityService availabilityService) {
+        this.availabilityService = availabilityService;
+    }
+
+    /**
+     * GET  /availability : get the candidate meeting slots at which all the participants are free.
+     *
+     * @param participants the logins or emails of the participants, at most {@value AvailabilityService#MAX_PARTICIPANTS}
+     * @param start the start of the range, as an ISO date-time, rounded down to a quarter hour
+     * @param end the end of the range, as an ISO date-time, rounded up to a quarter hour
+     * @param minutes the shortest slot returned, 30 minutes by default
+     * @return the ResponseEntity with status 200 (OK) and the free slots, each as long as possible, in body,
+     * or with status 400 (Bad Request) if a participant is unknown or a parameter is out of range
+     */
+    @GetMapping("/availability")
+    @Timed
+    public ResponseEntity<List<TimeSlotDTO>> getCommonAvailability(@RequestParam List<String> participants,
+                                                                   @RequestParam @DateTimeFormat(iso = ISO.DATE_TIME) ZonedDateTime start,
+                                                                   @RequestParam @DateTimeFormat(iso = ISO.DATE_TIME) ZonedDateTime end,
+                                                                   @RequestParam(defaultValue = "30") int minutes) {
+        log.debug("REST request to get common availability of {} from {} to {}", participants, start, end);
+        Set<String> names = participants.stream().map(String::toLowerCase).collect(Collectors.toSet());
+        if (names.isEmpty() || names.size() > AvailabilityService.MAX_PARTICIPANTS) {
+            return badRequest("participantsinvalid",
+                "Availability is found for 1 to " + AvailabilityService.MAX_PARTICIPANTS + " participants");
+        }
+        if (!end.isAfter(start) || FreeBusyService.countSlots(start, end) > FreeBusyService.MAX_SLOTS) {
+            return badRequest("rangeinvalid", "The range must end after it starts and span at most 31 days");
+        }
+        if (minutes < 1 || minutes > CalendarEvent.MAX_DURATION_MINUTES) {
+            return badRequest("durationinvalid",
+                "The minimum duration must be 1 to " + CalendarEvent.MAX_DURATION_MINUTES + " minutes");
+        }
+        Map<String, User> found = availabilityService.findParticipants(names);
+        if (found.size() < names.size()) {
+            Set<String> unknown = new HashSet<>(names);
+            unknown.removeAll(found.keySet());
+            return badRequest("participantsunknown", "Unknown participants: " + String.join(", ", unknown));
+        }
+        return ResponseEntity.ok(availabilityService.findCommonFreeSlots(new HashSet<>(found.values()), start, end, minutes));
+    }
+
+    private static ResponseEntity<List<TimeSlotDTO>> badRequest(String errorKey, String message) {
+        return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, errorKey, message)).build();
+    }
+}
@@ -1,18 +1,36 @@
 package gvaughn.example.calendar.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import gvaughn.example.calendar.domain.CalendarEvent;
 import gvaughn.example.calendar.domain.User;
+import gvaughn.example.calendar.security.AuthoritiesConstants;
+import gvaughn.example.calendar.security.SecurityUtils;
 import gvaughn.example.calendar.service.CalendarEventService;
 import gvaughn.example.calendar.service.UserService;
+import gvaughn.example.calendar.service.dto.CalendarEventBulkDTO;
+import gvaughn.example.calendar.service.dto.CalendarEventBulkResultDTO;
+import gvaughn.example.calendar.service.dto.CalendarEventCursor;
 import gvaughn.example.calendar.service.dto.CalendarEventDTO;
+import gvaughn.example.calendar.service.dto.CalendarEventSyncDTO;
+import gvaughn.example.calendar.service.dto.CalendarSyncToken;
+import gvaughn.example.calendar.service.dto.CalendarVersionDTO;
 import gvaughn.example.calendar.service.dto.Duration;
 import gvaughn.example.calendar.service.dto.EventListDurationDTO;
+import gvaughn.example.calendar.service.recurrence.RecurrenceRule;
 import gvaughn.example.calendar.web.rest.util.HeaderUtil;
+import gvaughn.example.calendar.web.rest.util.PaginationUtil;
 import io.github.jhipster.web.util.ResponseUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -21,17 +39,22 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.ZonedDateTime;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * REST controller for managing CalendarEvent.
@@ -44,11 +67,26 @@ public class CalendarEventResource {
 
     private static final String ENTITY_NAME = "calendarEvent";
 
+    private static final int MAX_SNOOZE_MINUTES = 24 * 60;
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private static final int MAX_BULK_SIZE = 5000;
+
+    private static final MediaType APPLICATION_NDJSON = MediaType.valueOf("application/x-ndjson");
+
+    static final String CONFLICTS_HEADER = "X-calendarApp-conflicts";
+
     private final CalendarEventService calendarEventService;
 
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     public CalendarEventResource(CalendarEventService calendarEventService) {
         this.calendarEventService = calendarEventService;
     }
@@ -57,20 +95,28 @@ public class CalendarEventResource {
      * POST  /calendar-events : Create a new calendarEvent.
      *
      * @param calendarEvent the calendarEvent to create
+     * @param checkConflicts whether to list the events the new one overlaps in the {@value #CONFLICTS_HEADER} header
      * @return the ResponseEntity with status 201 (Created) and with body the new calendarEvent, or with status 400 (Bad Request) if the calendarEvent has already an ID
+     * or its recurrence rule is not valid
      * @throws URISyntaxException if the Location URI syntax is incorrect
      */
     @PostMapping("/calendar-events")
     @Timed
-    public ResponseEntity<CalendarEvent> createCalendarEvent(@Valid @RequestBody CalendarEventDTO calendarEvent) throws URISyntaxException {
+    public ResponseEntity<CalendarEvent> createCalendarEvent(@Valid @RequestBody CalendarEventDTO calendarEvent,
+                                                             @RequestParam(defaultValue = "false") boolean checkConflicts) throws URISyntaxException {
         log.debug("REST request to create CalendarEvent : {}", calendarEvent);
         if (calendarEvent.getId() != null) {
             return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "idexists", "A new calendarEvent cannot already have an ID")).body(null);
         }
+        ResponseEntity<CalendarEvent> invalidRecurrence = checkRecurrenceRule(calendarEvent);
+        if (invalidRecurrence != null) {
+            return invalidRecurrence;
+        }
         User currentUser = userService.getUserWithAuthorities();
         CalendarEvent result = calendarEventService.create(calendarEvent, currentUser);
         return ResponseEntity.created(new URI("/api/calendar-events/" + result.getId()))
-            .headers(HeaderUtil.createEntityCreationAlert(ENTITY_NAME, result.getId().toString()))
+            .headers(withConflicts(HeaderUtil.createEntityCreationAlert(ENTITY_NAME, result.getId().toString()),
+                result, checkConflicts))
             .body(result);
     }
 
@@ -78,6 +124,7 @@ public class CalendarEventResource {
      * PUT  /calendar-events : Updates an existing calendarEvent.
      *
      * @param calendarEvent the calendarEvent to update
+     * @param checkConflicts whether to list the events the updated one overlaps in the {@value #CONFLICTS_HEADER} header
      * @return the ResponseEntity with status 200 (OK) and with body the updated calendarEvent,
      * or with status 400 (Bad Request) if the calendarEvent is not valid,
      * or with status 500 (Internal Server Error) if the calendarEvent couldnt be updated
@@ -86,48 +133,306 @@ public class CalendarEventResource {
     @PutMapping("/calendar-events")
     @PreAuthorize("@calendarEventPermissions.isOwner(calendarEvent)")
     @Timed
-    public ResponseEntity<CalendarEvent> updateCalendarEvent(@Valid @RequestBody CalendarEventDTO calendarEvent) throws URISyntaxException {
+    public ResponseEntity<CalendarEvent> updateCalendarEvent(@Valid @RequestBody CalendarEventDTO calendarEvent,
+                                                             @RequestParam(defaultValue = "false") boolean checkConflicts) throws URISyntaxException {
         log.debug("REST request to update CalendarEvent : {}", calendarEvent);
         if (calendarEvent.getId() == null) {
-            return createCalendarEvent(calendarEvent);
+            return createCalendarEvent(calendarEvent, checkConflicts);
+        }
+        ResponseEntity<CalendarEvent> invalidRecurrence = checkRecurrenceRule(calendarEvent);
+        if (invalidRecurrence != null) {
+            return invalidRecurrence;
         }
         CalendarEvent result = calendarEventService.update(calendarEvent);
         return ResponseEntity.ok()
-            .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, calendarEvent.getId().toString()))
+            .headers(withConflicts(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, calendarEvent.getId().toString()),
+                result, checkConflicts))
             .body(result);
     }
 
     /**
-     * GET  /calendar-events : get all the calendarEvents for the current user.
+     * POST  /calendar-events/bulk : Create, update and delete calendarEvents of the current user in one
+     * transaction.
+     * <p>
+     * Writes are applied independently: one that is not valid, or is for an event the user does not own, is
+     * skipped and reported in its result, with the status the single-event request would have had.
+     *
+     * @param bulk the calendarEvents to create and update, and the ids of those to delete
+     * @return the ResponseEntity with status 200 (OK) and with body one result per write, the creates first,
+     * then the updates, then the deletes, or with status 400 (Bad Request) if there are more than
+     * {@value #MAX_BULK_SIZE} writes
+     */
+    @PostMapping("/calendar-events/bulk")
+    @Timed
+    public ResponseEntity<List<CalendarEventBulkResultDTO>> bulkCalendarEvents(@RequestBody CalendarEventBulkDTO bulk) {
+        log.debug("REST request to apply CalendarEvents : {}", bulk);
+        if (bulk.size() > MAX_BULK_SIZE) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "bulktoolarge",
+                "A bulk request holds at most " + MAX_BULK_SIZE + " writes")).build();
+        }
+        User currentUser = userService.getUserWithAuthorities();
+        return ResponseEntity.ok(calendarEventService.bulk(bulk, currentUser));
+    }
+
+    /**
+     * Lists the ids of the events overlapping the saved event, comma separated, if asked to. The event is
+     * saved either way: conflicts are reported, not refused.
+     */
+    private HttpHeaders withConflicts(HttpHeaders headers, CalendarEvent result, boolean checkConflicts) {
+        if (checkConflicts) {
+            headers.add(CONFLICTS_HEADER, calendarEventService.findConflicts(result).stream()
+                .map(String::valueOf).collect(Collectors.joining(",")));
+        }
+        return headers;
+    }
+
+    /**
+     * @return a ResponseEntity with status 400 (Bad Request) if the calendarEvent's recurrence rule is not valid,
+     * or null
+     */
+    private ResponseEntity<CalendarEvent> checkRecurrenceRule(CalendarEventDTO calendarEvent) {
+        if (calendarEvent.getRecurrenceRule() != null) {
+            try {
+                RecurrenceRule.parse(calendarEvent.getRecurrenceRule());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "recurrenceinvalid",
+                    e.getMessage())).body(null);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * POST  /calendar-events/:id/snooze : snooze the reminder of the "id" calendarEvent.
+     *
+     * @param id the id of the calendarEvent whose reminder to snooze
+     * @param minutes the number of minutes from now at which the reminder fires again, 10 by default
+     * @return the ResponseEntity with status 200 (OK), or with status 400 (Bad Request) if the number of minutes
+     * is out of range, or with status 404 (Not Found) if the current user has no such calendarEvent
+     */
+    @PostMapping("/calendar-events/{id}/snooze")
+    @Timed
+    public ResponseEntity<Void> snoozeReminder(@PathVariable Long id, @RequestParam(defaultValue = "10") int minutes) {
+        log.debug("REST request to snooze reminder of CalendarEvent : {}", id);
+        if (minutes < 1 || minutes > MAX_SNOOZE_MINUTES) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "snoozeinvalid",
+                "A reminder can be snoozed for 1 to " + MAX_SNOOZE_MINUTES + " minutes")).build();
+        }
+        if (!calendarEventService.snoozeReminder(id, SecurityUtils.getCurrentUserLogin(), minutes)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+            .headers(HeaderUtil.createAlert("A " + ENTITY_NAME + " reminder is snoozed with identifier " + id, id.toString()))
+            .build();
+    }
+
+    /**
+     * POST  /calendar-events/:id/acknowledge : acknowledge the reminder of the "id" calendarEvent.
+     *
+     * @param id the id of the calendarEvent whose reminder to acknowledge
+     * @return the ResponseEntity with status 200 (OK), or with status 404 (Not Found) if the current user has
+     * no such calendarEvent
+     */
+    @PostMapping("/calendar-events/{id}/acknowledge")
+    @Timed
+    public ResponseEntity<Void> acknowledgeReminder(@PathVariable Long id) {
+        log.debug("REST request to acknowledge reminder of CalendarEvent : {}", id);
+        if (!calendarEventService.acknowledgeReminder(id, SecurityUtils.getCurrentUserLogin())) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+            .headers(HeaderUtil.createAlert("A " + ENTITY_NAME + " reminder is acknowledged with identifier " + id, id.toString()))
+            .build();
+    }
+
+    /**
+     * GET  /calendar-events : get the calendarEvents for the current user.
+     * <p>
+     * Without a duration, events are paged by time: the Link header's "next" URL, carrying an opaque cursor,
+     * reads the following page, and is absent from the last page.
+     * <p>
+     * The response's weak ETag is the version of the user's calendar, which every write to its events changes.
+     * A request whose If-None-Match header holds it is answered without reading any event.
      *
-     * @return the ResponseEntity with status 200 (OK) and the list of calendarEvents in body
+     * @param durationDTO the duration whose events to get, all of them in one list
+     * @param cursor the cursor of the page to get, from a previous page's Link header; the first page if absent
+     * @param size the page size, capped at {@value #MAX_PAGE_SIZE}
+     * @param ifNoneMatch the ETags of the responses the client holds
+     * @return the ResponseEntity with status 200 (OK) and the list of calendarEvents in body, or with status
+     * 304 (Not Modified) if the calendar has not changed since, or with status 400 (Bad Request) if the cursor
+     * is not valid
      */
     @GetMapping("/calendar-events")
     @Timed
-    public List<CalendarEvent> getAllCalendarEvents(@RequestParam(required = false) EventListDurationDTO durationDTO) {
+    public ResponseEntity<List<CalendarEventDTO>> getAllCalendarEvents(@RequestParam(required = false) EventListDurationDTO durationDTO,
+                                                                    @RequestParam(required = false) String cursor,
+                                                                    @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.debug("REST request to get all CalendarEvents");
         User currentUser = userService.getUserWithAuthorities();
-        List<CalendarEvent> results = new ArrayList<>();
+        String eTag = calendarEventService.findCalendarVersion(currentUser).map(CalendarEventResource::eTag).orElse(null);
+        if (isNotModified(eTag, ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
         if (durationDTO != null) {
-            results.addAll(calendarEventService.findByUserAndDuration(currentUser, durationDTO));
-        } else {
-            results.addAll(calendarEventService.findByUser(currentUser));
+            return ResponseEntity.ok().eTag(eTag).body(calendarEventService.findByUserAndDuration(currentUser, durationDTO));
+        }
+        CalendarEventCursor after = null;
+        if (cursor != null) {
+            try {
+                after = CalendarEventCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "invalidcursor",
+                    "The page cursor is not valid")).build();
+            }
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Slice<CalendarEventDTO> page = calendarEventService.findByUser(currentUser, after, pageSize);
+        List<CalendarEventDTO> results = page.getContent();
+        String nextCursor = page.hasNext() ? CalendarEventCursor.after(results.get(results.size() - 1)).encode() : null;
+        HttpHeaders headers = PaginationUtil.generateCursorPaginationHttpHeaders(nextCursor, pageSize, "/api/calendar-events");
+        if (eTag != null) {
+            headers.setETag(eTag);
+        }
+        return new ResponseEntity<>(results, headers, HttpStatus.OK);
+    }
+
+    /**
+     * @return the weak ETag of responses holding events of the calendar at the given version
+     */
+    private static String eTag(CalendarVersionDTO version) {
+        return "W/\"" + version.getCalendarId() + "-" + version.getVersion() + "\"";
+    }
+
+    /**
+     * Compares ETags weakly, as If-None-Match requires.
+     * @return whether the If-None-Match header holds the given ETag, or is "*" and there is one
+     */
+    private static boolean isNotModified(String eTag, String ifNoneMatch) {
+        if (eTag == null || ifNoneMatch == null) {
+            return false;
         }
-        return results;
+        String opaqueTag = eTag.substring(2);
+        for (String match : ifNoneMatch.split(",")) {
+            match = match.trim();
+            if (match.equals("*") || (match.startsWith("W/") ? match.substring(2) : match).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * GET  /calendar-events/export : export the calendarEvents for the current user, or every user's for admins.
+     * <p>
+     * Events are written to the response as they are read from the database, so the export starts at once
+     * and its memory use does not depend on how many events there are.
+     *
+     * @param format "json" for a JSON array, or "ndjson" for one JSON event per line
+     * @param all whether to export every user's calendarEvents, for admins only
+     * @return the ResponseEntity with status 200 (OK) and the calendarEvents streamed in body, or with status
+     * 400 (Bad Request) if the format is unknown, or with status 403 (Forbidden) if a non admin asks for all
+     */
+    @GetMapping("/calendar-events/export")
+    @Timed
+    public ResponseEntity<StreamingResponseBody> exportCalendarEvents(@RequestParam(defaultValue = "json") String format,
+                                                                      @RequestParam(defaultValue = "false") boolean all) {
+        log.debug("REST request to export CalendarEvents as {}", format);
+        boolean ndjson = "ndjson".equals(format);
+        if (!ndjson && !"json".equals(format)) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "formatinvalid",
+                "Events can be exported as json or ndjson")).build();
+        }
+        if (all && !SecurityUtils.isCurrentUserInRole(AuthoritiesConstants.ADMIN)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        User currentUser = all ? null : userService.getUserWithAuthorities();
+        StreamingResponseBody body = outputStream -> {
+            ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                Consumer<CalendarEventDTO> consumer = event -> {
+                    try {
+                        writer.writeValue(generator, event);
+                        if (ndjson) {
+                            generator.writeRaw('\n');
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                };
+                if (!ndjson) {
+                    generator.writeStartArray();
+                    generator.flush();
+                }
+                if (all) {
+                    calendarEventService.exportAll(consumer);
+                } else {
+                    calendarEventService.exportByUser(currentUser, consumer);
+                }
+                if (!ndjson) {
+                    generator.writeEndArray();
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(ndjson ? APPLICATION_NDJSON : MediaType.APPLICATION_JSON_UTF8).body(body);
+    }
+
+    /**
+     * GET  /calendar-events/sync : get the ids of the calendarEvents of the current user written since a
+     * previous sync, for clients keeping a copy of the calendar.
+     * <p>
+     * Each response carries the token to send on the next sync. Without a token, every event is returned as
+     * created. A sync of a calendar unchanged since its token reads no event, nor the change log.
+     *
+     * @param token the token returned by the previous sync, if any
+     * @return the ResponseEntity with status 200 (OK) and the ids of the calendarEvents created, updated and
+     * deleted since the token in body, or with status 400 (Bad Request) if the token is not valid, or with
+     * status 410 (Gone) if the token has expired and the client must sync again without one
+     */
+    @GetMapping("/calendar-events/sync")
+    @Timed
+    public ResponseEntity<CalendarEventSyncDTO> syncCalendarEvents(@RequestParam(required = false) String token) {
+        log.debug("REST request to sync CalendarEvents since {}", token);
+        User currentUser = userService.getUserWithAuthorities();
+        Optional<CalendarEventSyncDTO> sync;
+        try {
+            sync = calendarEventService.sync(currentUser, token == null ? null : CalendarSyncToken.decode(token));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "invalidtoken",
+                "The sync token is not valid")).build();
+        }
+        return sync.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.status(HttpStatus.GONE)
+            .headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "tokenexpired",
+                "The sync token has expired, sync again without one")).build());
     }
 
     /**
      * GET  /calendar-events/:id : get the "id" calendarEvent.
+     * <p>
+     * The response's weak ETag is the version of the event's calendar, as for the list of calendarEvents.
      *
      * @param id the id of the calendarEvent to retrieve
-     * @return the ResponseEntity with status 200 (OK) and with body the calendarEvent, or with status 404 (Not Found)
+     * @param ifNoneMatch the ETags of the responses the client holds
+     * @return the ResponseEntity with status 200 (OK) and with body the calendarEvent, or with status 304
+     * (Not Modified) if its calendar has not changed since, or with status 404 (Not Found)
      */
     @GetMapping("/calendar-events/{id}")
     @Timed
-    public ResponseEntity<CalendarEvent> getCalendarEvent(@PathVariable Long id) {
+    public ResponseEntity<CalendarEvent> getCalendarEvent(@PathVariable Long id,
+                                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.debug("REST request to get CalendarEvent : {}", id);
+        String eTag = calendarEventService.findEventVersion(id).map(CalendarEventResource::eTag).orElse(null);
+        if (isNotModified(eTag, ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
         CalendarEvent calendarEvent = calendarEventService.findOne(id);
-        return ResponseUtil.wrapOrNotFound(Optional.ofNullable(calendarEvent));
+        if (calendarEvent == null || eTag == null) {
+            return ResponseUtil.wrapOrNotFound(Optional.ofNullable(calendarEvent));
+        }
+        return ResponseEntity.ok().eTag(eTag).body(calendarEvent);
     }
 
     /**
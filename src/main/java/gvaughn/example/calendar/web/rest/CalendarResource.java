@@ -4,6 +4,7 @@ import com.codahale.metrics.annotation.Timed;
 import gvaughn.example.calendar.domain.Calendar;
 
 import gvaughn.example.calendar.repository.CalendarRepository;
+import gvaughn.example.calendar.service.CalendarService;
 import gvaughn.example.calendar.web.rest.util.HeaderUtil;
 import io.github.jhipster.web.util.ResponseUtil;
 import org.slf4j.Logger;
@@ -30,8 +31,11 @@ public class CalendarResource {
         
     private final CalendarRepository calendarRepository;
 
-    public CalendarResource(CalendarRepository calendarRepository) {
+    private final CalendarService calendarService;
+
+    public CalendarResource(CalendarRepository calendarRepository, CalendarService calendarService) {
         this.calendarRepository = calendarRepository;
+        this.calendarService = calendarService;
     }
 
     /**
@@ -71,6 +75,7 @@ public class CalendarResource {
             return createCalendar(calendar);
         }
         Calendar result = calendarRepository.save(calendar);
+        calendarService.evictCalendar(result.getId());
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, calendar.getId().toString()))
             .body(result);
@@ -114,6 +119,7 @@ public class CalendarResource {
     public ResponseEntity<Void> deleteCalendar(@PathVariable Long id) {
         log.debug("REST request to delete Calendar : {}", id);
         calendarRepository.delete(id);
+        calendarService.evictCalendar(id);
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert(ENTITY_NAME, id.toString())).build();
     }
 
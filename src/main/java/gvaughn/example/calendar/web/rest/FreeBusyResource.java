@@ -0,0 +1,62 @@
+package gvaughn.example.calendar.web.rest;
+
+import com.codahale.metrics.annotation.Timed;
+import gvaughn.example.calendar.config.Constants;
+import gvaughn.example.calendar.service.FreeBusyService;
+import gvaughn.example.calendar.service.dto.FreeBusyDTO;
+import gvaughn.example.calendar.web.rest.util.HeaderUtil;
+import io.github.jhipster.web.util.ResponseUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.ZonedDateTime;
+
+/**
+ * REST controller for reading the free/busy time of users' calendars.
+ */
+@RestController
+@RequestMapping("/api")
+public class FreeBusyResource {
+
+    private final Logger log = LoggerFactory.getLogger(FreeBusyResource.class);
+
+    private static final String ENTITY_NAME = "freeBusy";
+
+    private final FreeBusyService freeBusyService;
+
+    public FreeBusyResource(FreeBusyService freeBusyService) {
+        this.freeBusyService = freeBusyService;
+    }
+
+    /**
+     * GET  /free-busy/:login : get which {@value FreeBusyService#SLOT_MINUTES} minute slots of the "login"
+     * user's calendar are busy over a time range. Only occupancy is returned, never the events themselves.
+     *
+     * @param login the login of the user whose calendar to read
+     * @param start the start of the range, as an ISO date-time, rounded down to a slot boundary
+     * @param end the end of the range, as an ISO date-time, rounded up to a slot boundary
+     * @return the ResponseEntity with status 200 (OK) and the busy slots as a base64 bitset in body, or with
+     * status 400 (Bad Request) if the range is empty or longer than 31 days, or with status 404 (Not Found)
+     * if there is no such user
+     */
+    @GetMapping("/free-busy/{login:" + Constants.LOGIN_REGEX + "}")
+    @Timed
+    public ResponseEntity<FreeBusyDTO> getFreeBusy(@PathVariable String login,
+                                                   @RequestParam @DateTimeFormat(iso = ISO.DATE_TIME) ZonedDateTime start,
+                                                   @RequestParam @DateTimeFormat(iso = ISO.DATE_TIME) ZonedDateTime end) {
+        log.debug("REST request to get free/busy of {} from {} to {}", login, start, end);
+        if (!end.isAfter(start) || FreeBusyService.countSlots(start, end) > FreeBusyService.MAX_SLOTS) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "rangeinvalid",
+                "The range must end after it starts and span at most 31 days")).build();
+        }
+        return ResponseUtil.wrapOrNotFound(freeBusyService.findByLogin(login, start, end));
+    }
+}
@@ -39,6 +39,24 @@ public final class PaginationUtil {
         return headers;
     }
 
+    /**
+     * Generates the Link header of a page read by cursor rather than by page number. Seeking pages does not
+     * count the whole result, so there is neither a total count nor a last or previous page link.
+     * @param nextCursor Cursor of the next page, or null if this is the last page.
+     */
+    public static HttpHeaders generateCursorPaginationHttpHeaders(String nextCursor, int size, String baseUrl) {
+
+        HttpHeaders headers = new HttpHeaders();
+        String link = "";
+        if (nextCursor != null) {
+            link = "<" + UriComponentsBuilder.fromUriString(baseUrl).queryParam("cursor", nextCursor)
+                .queryParam("size", size).toUriString() + ">; rel=\"next\",";
+        }
+        link += "<" + UriComponentsBuilder.fromUriString(baseUrl).queryParam("size", size).toUriString() + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
+
     private static String generateUri(String baseUrl, int page, int size) {
         return UriComponentsBuilder.fromUriString(baseUrl).queryParam("page", page).queryParam("size", size).toUriString();
     }
@@ -16,10 +16,27 @@
         loadAll();
 
         function loadAll() {
-            CalendarEvent.query(function(result) {
-                vm.calendarEvents = result;
-                vm.searchQuery = null;
+            loadPage(null, []);
+        }
+
+        // Events are paged by cursor; follow the Link header's "next" cursor until the last page
+        function loadPage(cursor, events) {
+            var params = cursor ? {cursor: cursor} : {};
+            CalendarEvent.query(params, function(result, headers) {
+                events = events.concat(result);
+                var next = nextCursor(headers('link'));
+                if (next) {
+                    loadPage(next, events);
+                } else {
+                    vm.calendarEvents = events;
+                    vm.searchQuery = null;
+                }
             });
         }
+
+        function nextCursor(link) {
+            var match = link && /<[^>]*[?&]cursor=([^&>]*)[^>]*>;\s*rel="next"/.exec(link);
+            return match ? decodeURIComponent(match[1]) : null;
+        }
     }
 })();
@@ -0,0 +1,312 @@
+package gvaughn.example.calendar.repository;
+
+import gvaughn.example.calendar.CalendarApp;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.hql.internal.ast.ASTQueryTranslatorFactory;
+import org.hibernate.hql.spi.ParameterTranslations;
+import org.hibernate.hql.spi.QueryTranslator;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.lang.reflect.Method;
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Query plan regression tests: the repositories' queries are explained against a seeded dataset, and the
+ * test fails if any plan reads a whole table.
+ * <p>
+ * The SQL run through JdbcTemplate is captured by swapping each repository's template for one that explains
+ * every statement, with its bound arguments, before running it. The JPQL of the Spring Data {@link Query}
+ * methods is translated to SQL by Hibernate and explained with sample arguments, so a query added to those
+ * repositories is checked without any change here.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = CalendarApp.class)
+@Transactional
+public class QueryPlanIntTest {
+
+    private static final int USERS = 20;
+
+    private static final int EVENTS_PER_CALENDAR = 250;
+
+    /** Seeded rows take ids well above those the sequence hands out to other tests. */
+    private static final long FIRST_ID = 1_000_000_000L;
+
+    private static final ZonedDateTime BASE_TIME = ZonedDateTime.of(2001, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    /** Plan fragments marking a full table scan, on H2 and on PostgreSQL. */
+    private static final List<String> TABLE_SCAN_MARKERS = Arrays.asList(".tableScan", "Seq Scan");
+
+    /**
+     * Indexes serving event list reads: in the order they read events, or the calendar's recurring events alone,
+     * which only PostgreSQL has.
+     */
+    private static final List<String> CALENDAR_INDEXES = Arrays.asList("idx_calendar_event_calendar_time",
+        "idx_calendar_event_recurring");
+
+    /** H2's comment naming the index a table is read from, and the conditions it seeks on. */
+    private static final Pattern INDEX_COMMENT = Pattern.compile("/\\*(.*?)\\*/", Pattern.DOTALL);
+
+    /** Queries meant to read whole tables. */
+    private static final List<String> FULL_SCANS = Collections.singletonList("CalendarEventRepository.streamAll");
+
+    private static final ResultSetExtractor<String> PLAN_EXTRACTOR = rs -> {
+        StringBuilder plan = new StringBuilder();
+        while (rs.next()) {
+            plan.append(rs.getString(1)).append('\n');
+        }
+        return plan.toString();
+    };
+
+    @Autowired
+    private CalendarEventReadRepository calendarEventReadRepository;
+
+    @Autowired
+    private PendingReminderLeaseRepository pendingReminderLeaseRepository;
+
+    @Autowired
+    private CalendarEventChangeRepository calendarEventChangeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager em;
+
+    private final Map<String, String> plans = new TreeMap<>();
+
+    @Before
+    public void seed() {
+        List<Object[]> users = new ArrayList<>();
+        List<Object[]> calendars = new ArrayList<>();
+        List<Object[]> events = new ArrayList<>();
+        List<Object[]> attendees = new ArrayList<>();
+        List<Object[]> reminders = new ArrayList<>();
+        List<Object[]> changes = new ArrayList<>();
+        for (int u = 0; u < USERS; u++) {
+            long userId = FIRST_ID + u;
+            users.add(new Object[]{userId, "query-plan-" + u, "query-plan-" + u + "@example.com"});
+            calendars.add(new Object[]{userId, "Default", userId});
+            for (int e = 0; e < EVENTS_PER_CALENDAR; e++) {
+                long eventId = FIRST_ID + (long) u * EVENTS_PER_CALENDAR + e;
+                Timestamp time = Timestamp.from(BASE_TIME.plusMinutes(30L * e).toInstant());
+                Timestamp reminderTime = Timestamp.from(BASE_TIME.plusMinutes(30L * e - 15).toInstant());
+                events.add(new Object[]{eventId, "Event " + e, time, "Room " + u, reminderTime, userId});
+                attendees.add(new Object[]{eventId, "attendee-" + e + "@example.com"});
+                reminders.add(new Object[]{eventId, reminderTime});
+                changes.add(new Object[]{eventId, userId, (long) e, (long) e});
+            }
+        }
+        jdbcTemplate.batchUpdate("insert into jhi_user (id, login, email, activated, created_by, created_date) " +
+            "values (?, ?, ?, true, 'system', current_timestamp)", users);
+        jdbcTemplate.batchUpdate("insert into calendar (id, name, user_id) values (?, ?, ?)", calendars);
+        jdbcTemplate.batchUpdate("insert into calendar_event (id, title, jhi_time, location, reminder_time, " +
+            "reminder_sent, calendar_id) values (?, ?, ?, ?, ?, false, ?)", events);
+        jdbcTemplate.batchUpdate("insert into calendar_event_attendees (calendar_event_id, attendee_email) " +
+            "values (?, ?)", attendees);
+        jdbcTemplate.batchUpdate("insert into pending_reminder (calendar_event_id, due_time) values (?, ?)", reminders);
+        jdbcTemplate.batchUpdate("insert into calendar_event_change (event_id, calendar_id, created_version, version) " +
+            "values (?, ?, ?, ?)", changes);
+    }
+
+    @Test
+    public void calendarEventReadsUseIndexes() {
+        ReflectionTestUtils.setField(calendarEventReadRepository, "jdbcTemplate",
+            explainingJdbcTemplate("CalendarEventReadRepository"));
+        try {
+            ZonedDateTime from = BASE_TIME.plusDays(1);
+            calendarEventReadRepository.findByCalendarId(FIRST_ID);
+            calendarEventReadRepository.findByCalendarIdAndTimeBetween(FIRST_ID, from, from.plusWeeks(1));
+            calendarEventReadRepository.findByCalendarIdAfter(FIRST_ID, null, null, 100);
+            calendarEventReadRepository.findByCalendarIdAfter(FIRST_ID, from, FIRST_ID + 48, 100);
+            calendarEventReadRepository.findRecurringByCalendarId(FIRST_ID, from, from.plusWeeks(1));
+        } finally {
+            ReflectionTestUtils.setField(calendarEventReadRepository, "jdbcTemplate", jdbcTemplate);
+        }
+        assertNoTableScans();
+        plans.forEach((sql, plan) -> {
+            if (sql.contains("from calendar_event where")) {
+                assertTrue("Calendar index unused by " + sql + "\n" + plan,
+                    CALENDAR_INDEXES.stream().anyMatch(plan.toLowerCase()::contains));
+            }
+            // Pages after the first must seek on both index columns, not read the calendar's earlier events
+            if (sql.contains("id > ?")) {
+                assertTrue("No time range sought by " + sql + "\n" + plan,
+                    indexConditions(plan).contains("jhi_time >="));
+            }
+        });
+    }
+
+    @Test
+    public void reminderClaimsUseIndexes() {
+        ReflectionTestUtils.setField(pendingReminderLeaseRepository, "jdbcTemplate",
+            explainingJdbcTemplate("PendingReminderLeaseRepository"));
+        try {
+            pendingReminderLeaseRepository.claimDue("query-plan", BASE_TIME.plusHours(2), BASE_TIME.plusHours(3), 100);
+        } finally {
+            ReflectionTestUtils.setField(pendingReminderLeaseRepository, "jdbcTemplate", jdbcTemplate);
+        }
+        assertNoTableScans();
+    }
+
+    @Test
+    public void calendarEventChangesUseIndexes() {
+        ReflectionTestUtils.setField(calendarEventChangeRepository, "jdbcTemplate",
+            explainingJdbcTemplate("CalendarEventChangeRepository"));
+        try {
+            calendarEventChangeRepository.findByCalendarIdAfter(FIRST_ID, EVENTS_PER_CALENDAR - 2);
+            calendarEventChangeRepository.markUpdatedAtCalendarVersion(Arrays.asList(FIRST_ID, FIRST_ID + 1));
+            calendarEventChangeRepository.deleteTombstonesBefore(Timestamp.from(BASE_TIME.toInstant()));
+        } finally {
+            ReflectionTestUtils.setField(calendarEventChangeRepository, "jdbcTemplate", jdbcTemplate);
+        }
+        assertNoTableScans();
+        plans.forEach((sql, plan) -> {
+            if (sql.contains("where calendar_id = ?")) {
+                assertTrue("Change log index unused by " + sql + "\n" + plan,
+                    plan.toLowerCase().contains("idx_calendar_event_change_calendar_version"));
+            }
+        });
+    }
+
+    @Test
+    public void repositoryQueriesUseIndexes() {
+        for (Class<?> repository : Arrays.asList(CalendarEventRepository.class, CalendarRepository.class,
+            PendingReminderRepository.class)) {
+            for (Method method : repository.getDeclaredMethods()) {
+                Query query = method.getAnnotation(Query.class);
+                String name = repository.getSimpleName() + "." + method.getName();
+                if (query != null && !FULL_SCANS.contains(name)) {
+                    explainJpql(name, query.value(), method.getParameterTypes());
+                }
+            }
+        }
+        assertTrue("No queries explained", plans.size() > 10);
+        assertNoTableScans();
+    }
+
+    /**
+     * Translates the JPQL to SQL and explains it, binding a sample argument of each parameter's type at every
+     * place the parameter appears in the SQL.
+     */
+    private void explainJpql(String name, String jpql, Class<?>[] parameterTypes) {
+        SessionFactoryImplementor sessionFactory = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+        QueryTranslator translator = new ASTQueryTranslatorFactory()
+            .createQueryTranslator(name, jpql, Collections.emptyMap(), sessionFactory, null);
+        translator.compile(Collections.emptyMap(), false);
+        List<String> statements = translator.collectSqlStrings();
+        assertEquals(name + " statements", 1, statements.size());
+        String sql = statements.get(0);
+
+        ParameterTranslations parameters = translator.getParameterTranslations();
+        Object[] args = new Object[sql.length() - sql.replace("?", "").length()];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (parameterTypes[i] == Pageable.class) {
+                // Applied as a limit, which is left out of the explained statement
+                continue;
+            }
+            for (int location : parameters.getNamedParameterSqlLocations(String.valueOf(i + 1))) {
+                args[location] = sampleArgument(parameterTypes[i]);
+            }
+        }
+        plans.put(name + ": " + sql, jdbcTemplate.query("explain " + sql, PLAN_EXTRACTOR, args));
+    }
+
+    /**
+     * Collection parameters are bound as a single element: the translated SQL expands them to one placeholder.
+     */
+    private static Object sampleArgument(Class<?> type) {
+        if (type == Long.class || type == List.class) {
+            return FIRST_ID;
+        }
+        if (type == ZonedDateTime.class) {
+            return Timestamp.from(BASE_TIME.toInstant());
+        }
+        if (type == String.class) {
+            return "query-plan-0";
+        }
+        throw new IllegalArgumentException("No sample argument of " + type);
+    }
+
+    /**
+     * @return A template explaining each statement it runs, with the same arguments, before running it.
+     */
+    private JdbcTemplate explainingJdbcTemplate(String owner) {
+        return new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            public <T> T query(PreparedStatementCreator psc, PreparedStatementSetter pss, ResultSetExtractor<T> rse) {
+                explain(owner, psc, pss);
+                return super.query(psc, pss, rse);
+            }
+
+            @Override
+            protected int update(PreparedStatementCreator psc, PreparedStatementSetter pss) {
+                explain(owner, psc, pss);
+                return super.update(psc, pss);
+            }
+        };
+    }
+
+    private void explain(String owner, PreparedStatementCreator psc, PreparedStatementSetter pss) {
+        String sql = ((SqlProvider) psc).getSql();
+        plans.put(owner + ": " + sql, jdbcTemplate.query("explain " + sql, pss, PLAN_EXTRACTOR));
+    }
+
+    /**
+     * @return The conditions the plan seeks its indexes on, from H2's index comments or PostgreSQL's Index Cond
+     * lines, in lower case.
+     */
+    private static String indexConditions(String plan) {
+        StringBuilder conditions = new StringBuilder();
+        Matcher comments = INDEX_COMMENT.matcher(plan);
+        while (comments.find()) {
+            conditions.append(comments.group(1)).append('\n');
+        }
+        for (String line : plan.split("\n")) {
+            if (line.contains("Index Cond")) {
+                conditions.append(line).append('\n');
+            }
+        }
+        return conditions.toString().toLowerCase();
+    }
+
+    private void assertNoTableScans() {
+        assertTrue("No queries explained", !plans.isEmpty());
+        String scans = plans.entrySet().stream()
+            .filter(plan -> TABLE_SCAN_MARKERS.stream().anyMatch(plan.getValue()::contains))
+            .map(plan -> plan.getKey() + "\n" + plan.getValue())
+            .collect(Collectors.joining("\n"));
+        if (!scans.isEmpty()) {
+            fail("Queries reading whole tables:\n" + scans);
+        }
+    }
+}
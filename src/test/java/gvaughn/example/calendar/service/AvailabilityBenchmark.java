@@ -0,0 +1,103 @@
+package gvaughn.example.calendar.service;
+
+import gvaughn.example.calendar.CalendarApp;
+import gvaughn.example.calendar.domain.User;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures how long {@link AvailabilityService} takes to find the common free slots of groups of users over
+ * a month, each user having several events of random durations every day.
+ * <p>
+ * Skipped unless run explicitly:
+ * <pre>
+ * ./mvnw test -Dtest=AvailabilityBenchmark -Dbenchmark=true
+ * </pre>
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = CalendarApp.class)
+@Transactional
+public class AvailabilityBenchmark {
+
+    private static final ZonedDateTime START = ZonedDateTime.of(2001, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private static final int DAYS = 31;
+
+    private static final int EVENTS_PER_DAY = 6;
+
+    private static final long FIRST_EVENT_ID = 1_000_000_000L;
+
+    private static final int WARM_UP_REQUESTS = 50;
+
+    private static final int REQUESTS = 200;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CalendarService calendarService;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Random random = new Random(42);
+
+    @Before
+    public void setup() {
+        Assume.assumeTrue("Benchmark disabled, run with -Dbenchmark=true", Boolean.getBoolean("benchmark"));
+    }
+
+    @Test
+    public void findCommonFreeSlots() {
+        List<User> users = new ArrayList<>();
+        List<Object[]> events = new ArrayList<>();
+        long eventId = FIRST_EVENT_ID;
+        for (int i = 0; i < 100; i++) {
+            User user = TestObjectUtil.createUser(userService, 1000 + i);
+            Long calendarId = calendarService.getCalendarIdForUser(user);
+            for (int day = 0; day < DAYS; day++) {
+                for (int e = 0; e < EVENTS_PER_DAY; e++) {
+                    Timestamp time = Timestamp.from(START.plusDays(day).plusMinutes(15L * random.nextInt(96)).toInstant());
+                    events.add(new Object[]{eventId++, time, 15 * (1 + random.nextInt(8)), time, calendarId});
+                }
+            }
+            users.add(user);
+        }
+        jdbcTemplate.batchUpdate("insert into calendar_event (id, title, jhi_time, duration_minutes, reminder_time, " +
+            "reminder_sent, calendar_id) values (?, 'Event', ?, ?, ?, false, ?)", events);
+
+        System.out.printf("%-14s %8s %8s %14s %10s%n", "participants", "days", "events", "ms/request", "slots");
+        for (int participants : Arrays.asList(1, 10, 50, 100)) {
+            List<User> group = users.subList(0, participants);
+            int slots = 0;
+            for (int i = 0; i < WARM_UP_REQUESTS; i++) {
+                slots = availabilityService.findCommonFreeSlots(group, START, START.plusDays(DAYS), 30).size();
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < REQUESTS; i++) {
+                availabilityService.findCommonFreeSlots(group, START, START.plusDays(DAYS), 30);
+            }
+            double millis = (System.nanoTime() - start) / 1e6 / REQUESTS;
+            System.out.printf("%-14d %8d %8d %14.2f %10d%n", participants, DAYS,
+                participants * DAYS * EVENTS_PER_DAY, millis, slots);
+        }
+    }
+}
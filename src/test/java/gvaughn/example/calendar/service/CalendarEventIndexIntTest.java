@@ -0,0 +1,280 @@
+package gvaughn.example.calendar.service;
+
+import gvaughn.example.calendar.CalendarApp;
+import gvaughn.example.calendar.config.ApplicationProperties;
+import gvaughn.example.calendar.domain.CalendarEvent;
+import gvaughn.example.calendar.domain.User;
+import gvaughn.example.calendar.repository.CalendarEventReadRepository;
+import gvaughn.example.calendar.repository.CalendarEventRepository;
+import gvaughn.example.calendar.repository.CalendarRepository;
+import gvaughn.example.calendar.service.dto.CalendarEventCursor;
+import gvaughn.example.calendar.service.dto.CalendarEventDTO;
+import gvaughn.example.calendar.service.dto.Duration;
+import gvaughn.example.calendar.service.dto.EventListDurationDTO;
+import gvaughn.example.calendar.service.mapper.CalendarEventMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Consistency tests for {@link CalendarEventIndex}: random writes through {@link CalendarEventService}, each
+ * committed in a transaction of its own, are followed by range reads that must match the repository's.
+ * The index holds a single calendar, so alternating between two users' calendars evicts and reloads them.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = CalendarApp.class)
+public class CalendarEventIndexIntTest {
+
+    private static final ZonedDateTime BASE_TIME = ZonedDateTime.of(2001, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private static final int SLOTS = 14 * 24 * 4;
+
+    private static final int OPERATIONS = 300;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CalendarService calendarService;
+
+    @Autowired
+    private CalendarEventService calendarEventService;
+
+    @Autowired
+    private CalendarEventMapper calendarEventMapper;
+
+    @Autowired
+    private CalendarEventRepository calendarEventRepository;
+
+    @Autowired
+    private CalendarEventReadRepository calendarEventReadRepository;
+
+    @Autowired
+    private CalendarRepository calendarRepository;
+
+    @Autowired
+    private ReminderQueueService reminderQueueService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager em;
+
+    private TransactionTemplate transactionTemplate;
+
+    private CalendarEventIndex calendarEventIndex;
+
+    private Object sharedIndex;
+
+    private final List<User> users = new ArrayList<>();
+
+    private final Random random = new Random(42);
+
+    @Before
+    public void setup() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getCalendar().getIndex().setEnabled(true);
+        applicationProperties.getCalendar().getIndex().setMaxCalendars(1);
+        calendarEventIndex = new CalendarEventIndex(calendarEventReadRepository, calendarEventRepository, calendarEventMapper, applicationProperties);
+        sharedIndex = ReflectionTestUtils.getField(calendarEventService, "calendarEventIndex");
+        ReflectionTestUtils.setField(calendarEventService, "calendarEventIndex", calendarEventIndex);
+        ReflectionTestUtils.setField(reminderQueueService, "calendarEventIndex", calendarEventIndex);
+
+        // Writes are only indexed once committed, so the test commits, and cleans up after itself
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        for (String login : Arrays.asList("index-a", "index-b")) {
+            users.add(transactionTemplate.execute(status -> userService.createUser(login, "password", "Index",
+                "User", login + "@example.com", null, null)));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        ReflectionTestUtils.setField(calendarEventService, "calendarEventIndex", sharedIndex);
+        ReflectionTestUtils.setField(reminderQueueService, "calendarEventIndex", sharedIndex);
+        transactionTemplate.execute(status -> {
+            for (User user : users) {
+                for (Long calendarId : calendarRepository.findIdsByUserId(user.getId())) {
+                    calendarEventRepository.delete(calendarEventRepository.findByCalendarIdOrderByTime(calendarId));
+                    calendarRepository.delete(calendarId);
+                    calendarService.evictCalendar(calendarId);
+                }
+                userService.deleteUser(user.getLogin());
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void indexMatchesRepositoryThroughRandomWrites() {
+        List<Long> eventIds = new ArrayList<>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            User user = users.get(random.nextInt(users.size()));
+            int operation = random.nextInt(10);
+            if (operation < 5 || eventIds.isEmpty()) {
+                eventIds.add(transactionTemplate.execute(status -> create(user).getId()));
+            } else if (operation < 7) {
+                Long eventId = eventIds.get(random.nextInt(eventIds.size()));
+                transactionTemplate.execute(status -> {
+                    CalendarEventDTO dto = calendarEventMapper.calendarEventToDTO(calendarEventRepository.findOne(eventId));
+                    dto.setTime(randomTime());
+                    dto.setTitle("Updated " + eventId);
+                    return calendarEventService.update(dto);
+                });
+            } else if (operation < 9) {
+                Long eventId = eventIds.remove(random.nextInt(eventIds.size()));
+                transactionTemplate.execute(status -> {
+                    calendarEventService.delete(eventId);
+                    return null;
+                });
+            } else {
+                // Rolled back writes never reach the index
+                transactionTemplate.execute(status -> {
+                    create(user);
+                    status.setRollbackOnly();
+                    return null;
+                });
+            }
+            assertConsistent(users.get(random.nextInt(users.size())));
+        }
+    }
+
+    @Test
+    public void sentRemindersAreFlaggedInIndex() {
+        User user = users.get(0);
+        List<Long> eventIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            eventIds.add(transactionTemplate.execute(status -> create(user).getId()));
+        }
+        assertConsistent(user);
+
+        transactionTemplate.execute(status -> {
+            reminderQueueService.markSent(eventIds.subList(0, 2));
+            return null;
+        });
+        assertConsistent(user);
+    }
+
+    @Test
+    public void warmReadsAreServedFromMemory() {
+        User user = users.get(0);
+        for (int i = 0; i < 20; i++) {
+            transactionTemplate.execute(status -> create(user));
+        }
+        EventListDurationDTO week = new EventListDurationDTO(Duration.WEEK, BASE_TIME);
+        List<Long> expected = ids(transactionTemplate.execute(status -> calendarEventService.findByUserAndDuration(user, week)));
+
+        StatementCounter counter = new StatementCounter(em);
+        ReflectionTestUtils.setField(calendarEventReadRepository, "jdbcTemplate", counter.countingJdbcTemplate(jdbcTemplate));
+        try {
+            assertEquals(expected, counter.assertStatements("a warm read", 0, () -> ids(transactionTemplate.execute(
+                status -> calendarEventService.findByUserAndDuration(user, week)))));
+        } finally {
+            ReflectionTestUtils.setField(calendarEventReadRepository, "jdbcTemplate", jdbcTemplate);
+        }
+        assertEquals(1, calendarEventIndex.size());
+    }
+
+    private CalendarEvent create(User user) {
+        CalendarEvent event = TestObjectUtil.createCalendarEvent().time(randomTime());
+        if (random.nextBoolean()) {
+            event.getReminderOffsets().add(5 + random.nextInt(60));
+        }
+        return calendarEventService.create(calendarEventMapper.calendarEventToDTO(event), user);
+    }
+
+    /**
+     * Times fall on quarter hours within two weeks, so events often share a time and range bounds often
+     * coincide with event times.
+     */
+    private ZonedDateTime randomTime() {
+        return BASE_TIME.plusMinutes(15L * random.nextInt(SLOTS));
+    }
+
+    private void assertConsistent(User user) {
+        Long calendarId = calendarService.getCalendarIdForUser(user);
+        ZonedDateTime start = randomTime();
+        ZonedDateTime end = start.plusMinutes(15L * random.nextInt(SLOTS / 4));
+        List<String> expected = transactionTemplate.execute(status -> describe(calendarEventMapper.calendarEventsToDTOs(
+            calendarEventRepository.findByCalendarIdAndTimeBetweenOrderByTime(calendarId, start, end))));
+        List<String> actual = transactionTemplate.execute(status -> describe(
+            calendarEventIndex.findByCalendarAndTimeBetween(calendarId, start, end)));
+        assertEquals("Events from " + start + " to " + end, expected, actual);
+
+        expected = transactionTemplate.execute(status -> describe(calendarEventMapper.calendarEventsToDTOs(
+            calendarEventRepository.findByCalendarIdOrderByTime(calendarId))));
+        actual = transactionTemplate.execute(status -> describe(calendarEventIndex.findByCalendar(calendarId)));
+        assertEquals("All events", expected, actual);
+
+        int size = 1 + random.nextInt(20);
+        expected = transactionTemplate.execute(status -> describePages(size, after ->
+            new CalendarEventIndex(calendarEventReadRepository, calendarEventRepository, calendarEventMapper, new ApplicationProperties())
+                .findByCalendarAfter(calendarId, after, size)));
+        actual = transactionTemplate.execute(status -> describePages(size, after ->
+            calendarEventIndex.findByCalendarAfter(calendarId, after, size)));
+        assertEquals("Pages of " + size + " events", expected, actual);
+    }
+
+    /**
+     * Reads every page, each after the previous page's last event, marking where each page ends.
+     */
+    private static List<String> describePages(int size, Function<CalendarEventCursor, Slice<CalendarEventDTO>> pages) {
+        List<String> described = new ArrayList<>();
+        CalendarEventCursor after = null;
+        Slice<CalendarEventDTO> page;
+        do {
+            page = pages.apply(after);
+            assertTrue(page.getNumberOfElements() <= size);
+            described.addAll(describe(page.getContent()));
+            described.add("--");
+            if (page.hasContent()) {
+                after = CalendarEventCursor.after(page.getContent().get(page.getNumberOfElements() - 1));
+            }
+        } while (page.hasNext());
+        return described;
+    }
+
+    /**
+     * The repository orders events at the same time arbitrarily, so both sides are ordered by time then id.
+     */
+    private static List<String> describe(List<CalendarEventDTO> events) {
+        return events.stream()
+            .sorted(Comparator.comparing((CalendarEventDTO event) -> event.getTime().toInstant()).thenComparing(CalendarEventDTO::getId))
+            .map(event -> event.getId() + "@" + event.getTime().toInstant() + " " + event.getTitle()
+                + " " + new TreeSet<>(event.getAttendees()) + " " + new TreeSet<>(event.getReminderOffsets())
+                + " calendar " + event.getCalendarId() + (event.isReminderSent() ? " sent" : ""))
+            .collect(Collectors.toList());
+    }
+
+    private static List<Long> ids(List<CalendarEventDTO> events) {
+        return events.stream().map(CalendarEventDTO::getId).collect(Collectors.toList());
+    }
+}
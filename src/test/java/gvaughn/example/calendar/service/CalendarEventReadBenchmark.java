@@ -0,0 +1,113 @@
+package gvaughn.example.calendar.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gvaughn.example.calendar.CalendarApp;
+import gvaughn.example.calendar.domain.CalendarEvent;
+import gvaughn.example.calendar.domain.User;
+import gvaughn.example.calendar.repository.CalendarEventRepository;
+import gvaughn.example.calendar.service.mapper.CalendarEventMapper;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.lang.management.ManagementFactory;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.concurrent.Callable;
+
+/**
+ * Compares the memory allocated per event list request when events are read as entities, as the list
+ * endpoints used to, against reading them straight into DTOs with
+ * {@link CalendarEventService#findByUser(User)}. A request is the read and the JSON serialization of its
+ * result; entity reads also end with the persistence context being cleared, as a request's would be.
+ * <p>
+ * Skipped unless run explicitly:
+ * <pre>
+ * ./mvnw test -Dtest=CalendarEventReadBenchmark -Dbenchmark=true
+ * </pre>
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = CalendarApp.class)
+@Transactional
+public class CalendarEventReadBenchmark {
+
+    private static final int EVENTS = 500;
+
+    private static final int WARM_UP_REQUESTS = 50;
+
+    private static final int REQUESTS = 200;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CalendarService calendarService;
+
+    @Autowired
+    private CalendarEventService calendarEventService;
+
+    @Autowired
+    private CalendarEventMapper calendarEventMapper;
+
+    @Autowired
+    private CalendarEventRepository calendarEventRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManager em;
+
+    @Before
+    public void setup() {
+        Assume.assumeTrue("Benchmark disabled, run with -Dbenchmark=true", Boolean.getBoolean("benchmark"));
+    }
+
+    @Test
+    public void compareEntityWithDtoReads() throws Exception {
+        User user = TestObjectUtil.createUser(userService);
+        ZonedDateTime time = ZonedDateTime.now(ZoneOffset.UTC).plusDays(1);
+        for (int i = 0; i < EVENTS; i++) {
+            CalendarEvent event = TestObjectUtil.createCalendarEvent().time(time.plusMinutes(i));
+            calendarEventService.create(calendarEventMapper.calendarEventToDTO(event), user);
+        }
+        Long calendarId = calendarService.getCalendarIdForUser(user);
+        em.flush();
+        em.clear();
+
+        Callable<byte[]> entityRequest = () -> {
+            byte[] body = objectMapper.writeValueAsBytes(calendarEventRepository.findByCalendarIdOrderByTime(calendarId));
+            em.clear();
+            return body;
+        };
+        Callable<byte[]> dtoRequest = () -> objectMapper.writeValueAsBytes(calendarEventService.findByUser(user));
+
+        System.out.printf("%-8s %8s %16s %12s %12s%n", "path", "events", "bytes/request", "requests/s", "body bytes");
+        measure("entity", entityRequest);
+        measure("dto", dtoRequest);
+    }
+
+    private static void measure(String path, Callable<byte[]> request) throws Exception {
+        for (int i = 0; i < WARM_UP_REQUESTS; i++) {
+            request.call();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        int bodySize = 0;
+        long allocated = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            bodySize = request.call().length;
+        }
+        long nanos = System.nanoTime() - start;
+        allocated = threads.getThreadAllocatedBytes(threadId) - allocated;
+        System.out.printf("%-8s %8d %16d %12.0f %12d%n", path, EVENTS, allocated / REQUESTS,
+            REQUESTS / (nanos / 1e9), bodySize);
+    }
+}
@@ -0,0 +1,465 @@
+package gvaughn.example.calendar.service;
+
+import com.codahale.metrics.MetricRegistry;
+import gvaughn.example.calendar.CalendarApp;
+import gvaughn.example.calendar.config.ApplicationProperties;
+import gvaughn.example.calendar.domain.CalendarEvent;
+import gvaughn.example.calendar.domain.PendingReminder;
+import gvaughn.example.calendar.domain.User;
+import gvaughn.example.calendar.repository.CalendarEventRepository;
+import gvaughn.example.calendar.repository.PendingReminderRepository;
+import gvaughn.example.calendar.service.dto.CalendarEventDTO;
+import gvaughn.example.calendar.service.mapper.CalendarEventMapper;
+import gvaughn.example.calendar.service.reminder.ReminderRecord;
+import gvaughn.example.calendar.service.reminder.ReminderScheduler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the durable reminder queue behind {@link CalendarEventReminderService}.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = CalendarApp.class)
+@Transactional
+public class CalendarEventReminderServiceIntTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CalendarEventService calendarEventService;
+
+    @Autowired
+    private CalendarEventMapper calendarEventMapper;
+
+    @Autowired
+    private CalendarEventRepository calendarEventRepository;
+
+    @Autowired
+    private PendingReminderRepository pendingReminderRepository;
+
+    @Autowired
+    private ReminderScheduler reminderScheduler;
+
+    @Autowired
+    private ReminderQueueService reminderQueueService;
+
+    @Autowired
+    private ReminderMetrics reminderMetrics;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager em;
+
+    private CalendarEventReminderService calendarEventReminderService;
+
+    private CalendarEventReminderLoader calendarEventReminderLoader;
+
+    private ReminderSentFlusher reminderSentFlusher;
+
+    private ReminderMetrics catchUpMetrics;
+
+    private ReminderCatchUp reminderCatchUp;
+
+    @Before
+    public void setup() {
+        // A loader and flusher of our own, so that each test starts with nothing loaded or queued
+        reminderSentFlusher = new ReminderSentFlusher(reminderQueueService, applicationProperties);
+        calendarEventReminderService = new CalendarEventReminderService(reminderScheduler, reminderQueueService,
+            reminderMetrics, reminderSentFlusher);
+        catchUpMetrics = new ReminderMetrics(new MetricRegistry());
+        reminderCatchUp = new ReminderCatchUp(pendingReminderRepository, calendarEventReminderService,
+            new CalendarEventReminderSender(pendingReminderRepository, reminderSentFlusher, catchUpMetrics),
+            reminderQueueService, catchUpMetrics, applicationProperties, transactionManager);
+        calendarEventReminderLoader = new CalendarEventReminderLoader(pendingReminderRepository,
+            calendarEventReminderService, reminderCatchUp, applicationProperties, transactionManager);
+    }
+
+    @After
+    public void tearDown() {
+        reminderCatchUp.shutdown();
+    }
+
+    @Test
+    public void reminderIsQueuedWithEvent() {
+        ZonedDateTime reminderTime = ZonedDateTime.now(ZoneOffset.UTC).plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+        CalendarEvent event = createEvent(reminderTime.plusHours(1), reminderTime);
+
+        PendingReminder pendingReminder = pendingReminderRepository.findOne(event.getId());
+        assertNotNull(pendingReminder);
+        assertTrue(reminderTime.isEqual(pendingReminder.getDueTime()));
+    }
+
+    @Test
+    public void pastEventIsNotQueued() {
+        CalendarEvent event = createEvent(TestObjectUtil.DEFAULT_TIME, TestObjectUtil.DEFAULT_REMINDER_TIME);
+        assertNull(pendingReminderRepository.findOne(event.getId()));
+    }
+
+    @Test
+    public void reminderIsRequeuedOnUpdate() {
+        ZonedDateTime reminderTime = ZonedDateTime.now(ZoneOffset.UTC).plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+        CalendarEvent event = createEvent(reminderTime.plusHours(1), reminderTime);
+
+        CalendarEventDTO dto = calendarEventMapper.calendarEventToDTO(event);
+        dto.setReminderTime(reminderTime.plusMinutes(30));
+        calendarEventService.update(dto);
+
+        PendingReminder pendingReminder = pendingReminderRepository.findOne(event.getId());
+        assertNotNull(pendingReminder);
+        assertTrue(dto.getReminderTime().isEqual(pendingReminder.getDueTime()));
+    }
+
+    @Test
+    public void reminderIsDequeuedOnDelete() {
+        ZonedDateTime reminderTime = ZonedDateTime.now(ZoneOffset.UTC).plusDays(1);
+        CalendarEvent event = createEvent(reminderTime.plusHours(1), reminderTime);
+
+        calendarEventService.delete(event.getId());
+        em.flush();
+        em.clear();
+        assertNull(pendingReminderRepository.findOne(event.getId()));
+    }
+
+    @Test
+    public void catchUpDiscardsRemindersForPastEvents() {
+        CalendarEvent event = createEvent(TestObjectUtil.DEFAULT_TIME, TestObjectUtil.DEFAULT_REMINDER_TIME);
+        pendingReminderRepository.saveAndFlush(new PendingReminder(event.getId(), TestObjectUtil.DEFAULT_REMINDER_TIME));
+
+        reminderCatchUp.catchUp(ZonedDateTime.now());
+        em.clear();
+        assertNull(pendingReminderRepository.findOne(event.getId()));
+        assertEquals(1, catchUpMetrics.getCatchUpDiscardedCount());
+    }
+
+    @Test
+    public void catchUpSendsRecentlyMissedReminder() {
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        CalendarEvent event = createEvent(now.plusHours(1), now.plusMinutes(30));
+        pendingReminderRepository.requeue(event.getId(), now.minusMinutes(5));
+        em.flush();
+        em.clear();
+
+        // Missed reminders are left to the catch-up rather than loaded with the first sweep
+        int size = reminderScheduler.size();
+        calendarEventReminderLoader.loadPendingReminders(now);
+        assertEquals(size, reminderScheduler.size());
+
+        reminderCatchUp.catchUp(now);
+        assertEquals(1, catchUpMetrics.getCatchUpSentCount());
+        assertEquals(0, catchUpMetrics.getSentCount());
+        assertEquals(0, catchUpMetrics.getCatchUpRemaining());
+        // Marked sent in the catch-up's own transaction rather than left to the write-behind flush
+        assertEquals(0, reminderSentFlusher.flush());
+        em.clear();
+        assertNull(pendingReminderRepository.findOne(event.getId()));
+        assertTrue(calendarEventRepository.findOne(event.getId()).isReminderSent());
+    }
+
+    @Test
+    public void catchUpResumesEachChunkAfterTheLastOne() {
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        User user = TestObjectUtil.createUser(userService);
+        List<Long> eventIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            CalendarEvent event = createEvent(user, now.plusHours(1), now.plusMinutes(30));
+            // The same due time throughout, so that chunks have to resume by event id
+            pendingReminderRepository.requeue(event.getId(), now.minusMinutes(5));
+            eventIds.add(event.getId());
+        }
+        em.flush();
+        em.clear();
+
+        ApplicationProperties.Reminder.CatchUp catchUp = applicationProperties.getReminder().getCatchUp();
+        int chunkSize = catchUp.getChunkSize();
+        catchUp.setChunkSize(2);
+        ReminderCatchUp chunkedCatchUp = new ReminderCatchUp(pendingReminderRepository, calendarEventReminderService,
+            new CalendarEventReminderSender(pendingReminderRepository, reminderSentFlusher, catchUpMetrics),
+            reminderQueueService, catchUpMetrics, applicationProperties, transactionManager);
+        catchUp.setChunkSize(chunkSize);
+        try {
+            chunkedCatchUp.catchUp(now);
+        } finally {
+            chunkedCatchUp.shutdown();
+        }
+        assertEquals(3, catchUpMetrics.getCatchUpSentCount());
+        em.clear();
+        for (Long eventId : eventIds) {
+            assertNull(pendingReminderRepository.findOne(eventId));
+            assertTrue(calendarEventRepository.findOne(eventId).isReminderSent());
+        }
+    }
+
+    @Test
+    public void catchUpDropsStaleReminder() {
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        long maxStalenessMinutes = applicationProperties.getReminder().getCatchUp().getMaxStalenessMinutes();
+        CalendarEvent event = createEvent(now.plusHours(1), now.plusMinutes(30));
+        pendingReminderRepository.requeue(event.getId(), now.minusMinutes(maxStalenessMinutes + 1));
+        em.flush();
+        em.clear();
+
+        reminderCatchUp.catchUp(now);
+        assertEquals(0, catchUpMetrics.getCatchUpSentCount());
+        assertEquals(1, catchUpMetrics.getCatchUpDiscardedCount());
+        em.clear();
+        assertNull(pendingReminderRepository.findOne(event.getId()));
+        assertFalse(calendarEventRepository.findOne(event.getId()).isReminderSent());
+    }
+
+    @Test
+    public void catchUpMovesStaleReminderOnToNextOffset() {
+        long maxStalenessMinutes = applicationProperties.getReminder().getCatchUp().getMaxStalenessMinutes();
+        ZonedDateTime time = ZonedDateTime.now(ZoneOffset.UTC).plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+        CalendarEvent event = TestObjectUtil.createCalendarEvent()
+            .time(time)
+            .reminderTime(time.minusHours(1))
+            .reminderOffsets(new HashSet<>(Arrays.asList(2 * 24 * 60, 10)));
+        // Offsets already passed are dropped on create, so add the two-day one to the queue row by hand
+        CalendarEvent created = calendarEventService.create(calendarEventMapper.calendarEventToDTO(event),
+            TestObjectUtil.createUser(userService));
+        em.flush();
+        PendingReminder pendingReminder = pendingReminderRepository.findOne(created.getId());
+        pendingReminder.setDueTime(time.minusDays(2));
+        pendingReminder.setReminderOffsets("172800,3600,600");
+        em.flush();
+        em.clear();
+
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        assertTrue(time.minusDays(2).isBefore(now.minusMinutes(maxStalenessMinutes)));
+        reminderCatchUp.catchUp(now);
+        assertEquals(1, catchUpMetrics.getCatchUpDiscardedCount());
+        em.flush();
+        em.clear();
+        assertTrue(time.minusHours(1).isEqual(pendingReminderRepository.findOne(created.getId()).getDueTime()));
+        assertFalse(calendarEventRepository.findOne(created.getId()).isReminderSent());
+    }
+
+    @Test
+    public void loaderKeepsRemindersForUpcomingEvents() {
+        ZonedDateTime reminderTime = ZonedDateTime.now(ZoneOffset.UTC).plusDays(1);
+        CalendarEvent event = createEvent(reminderTime.plusHours(1), reminderTime);
+
+        calendarEventReminderLoader.loadPendingReminders(ZonedDateTime.now().plusDays(1));
+        assertNotNull(pendingReminderRepository.findOne(event.getId()));
+        assertFalse(calendarEventRepository.findOne(event.getId()).isReminderSent());
+        reminderScheduler.cancel(event.getId());
+    }
+
+    @Test
+    public void loaderOnlySchedulesRemindersWithinHorizon() {
+        long horizonMinutes = applicationProperties.getReminder().getHorizonMinutes();
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        User user = TestObjectUtil.createUser(userService);
+        CalendarEvent near = createEvent(user, now.plusMinutes(horizonMinutes), now.plusMinutes(horizonMinutes / 2));
+        CalendarEvent far = createEvent(user, now.plusDays(2), now.plusDays(1));
+        int size = reminderScheduler.size();
+
+        try {
+            calendarEventReminderLoader.loadPendingReminders(now);
+            assertEquals(size + 1, reminderScheduler.size());
+            assertTrue(reminderScheduler.cancel(near.getId()));
+            assertFalse(reminderScheduler.cancel(far.getId()));
+
+            // A sweep a day later reaches the far reminder without reading the near one again
+            calendarEventReminderLoader.loadPendingReminders(now.plusDays(1));
+            assertEquals(size + 1, reminderScheduler.size());
+            assertTrue(reminderScheduler.cancel(far.getId()));
+        } finally {
+            reminderScheduler.cancel(near.getId());
+            reminderScheduler.cancel(far.getId());
+        }
+    }
+
+    @Test
+    public void dueReminderIsSentFromQueueAndMarkedSent() {
+        ZonedDateTime reminderTime = ZonedDateTime.now(ZoneOffset.UTC).plusDays(1);
+        User user = TestObjectUtil.createUser(userService);
+        CalendarEvent sent = createEvent(user, reminderTime.plusHours(1), reminderTime);
+        CalendarEvent deleted = createEvent(user, reminderTime.plusHours(1), reminderTime);
+        calendarEventService.delete(deleted.getId());
+        em.flush();
+
+        ReminderMetrics metrics = new ReminderMetrics(new MetricRegistry());
+        CalendarEventReminderSender sender = new CalendarEventReminderSender(pendingReminderRepository,
+            reminderSentFlusher, metrics);
+        long due = reminderTime.toInstant().toEpochMilli();
+        sender.onDue(Arrays.asList(
+            new ReminderRecord(sent.getId(), due, sent.getCalendar().getId()),
+            new ReminderRecord(deleted.getId(), due, deleted.getCalendar().getId())));
+
+        // Only the reminder still in the queue was sent
+        assertEquals(1, metrics.getSentCount());
+        assertEquals(1, reminderSentFlusher.flush());
+        em.clear();
+        assertTrue(calendarEventRepository.findOne(sent.getId()).isReminderSent());
+        assertNull(pendingReminderRepository.findOne(sent.getId()));
+    }
+
+    @Test
+    public void reminderOffsetsShareOneQueueRowThatIsRearmedAsTheyAreSent() {
+        ZonedDateTime time = ZonedDateTime.now(ZoneOffset.UTC).plusDays(1).plusHours(2).truncatedTo(ChronoUnit.SECONDS);
+        CalendarEvent event = TestObjectUtil.createCalendarEvent()
+            .time(time)
+            .reminderTime(time.minusHours(1))
+            .reminderOffsets(new HashSet<>(Arrays.asList(24 * 60, 10)));
+        CalendarEventDTO dto = calendarEventMapper.calendarEventToDTO(event);
+        assertEquals(event.getReminderOffsets(), dto.getReminderOffsets());
+        CalendarEvent created = calendarEventService.create(dto, TestObjectUtil.createUser(userService));
+        em.flush();
+        em.clear();
+        assertEquals(event.getReminderOffsets(), calendarEventRepository.findOne(created.getId()).getReminderOffsets());
+
+        // One row, due at the earliest reminder and carrying the rest
+        PendingReminder pendingReminder = pendingReminderRepository.findOne(created.getId());
+        assertTrue(time.minusDays(1).isEqual(pendingReminder.getDueTime()));
+        assertEquals("86400,3600,600", pendingReminder.getReminderOffsets());
+
+        CalendarEventReminderSender sender = new CalendarEventReminderSender(pendingReminderRepository,
+            reminderSentFlusher, new ReminderMetrics(new MetricRegistry()));
+        for (ZonedDateTime next : Arrays.asList(time.minusHours(1), time.minusMinutes(10))) {
+            sender.onDue(Arrays.asList(new ReminderRecord(created.getId(), 0L, created.getCalendar().getId())));
+            assertEquals(1, reminderSentFlusher.flush());
+            em.clear();
+            assertTrue(next.isEqual(pendingReminderRepository.findOne(created.getId()).getDueTime()));
+            assertFalse(calendarEventRepository.findOne(created.getId()).isReminderSent());
+        }
+
+        // The last reminder flags the event as sent
+        sender.onDue(Arrays.asList(new ReminderRecord(created.getId(), 0L, created.getCalendar().getId())));
+        assertEquals(1, reminderSentFlusher.flush());
+        em.clear();
+        assertNull(pendingReminderRepository.findOne(created.getId()));
+        assertTrue(calendarEventRepository.findOne(created.getId()).isReminderSent());
+    }
+
+    @Test
+    public void recurringEventQueuesOneRowThatRollsOnToEachOccurrence() {
+        ZonedDateTime time = ZonedDateTime.now(ZoneOffset.UTC).minusDays(7).plusHours(2).truncatedTo(ChronoUnit.SECONDS);
+        CalendarEvent event = TestObjectUtil.createCalendarEvent()
+            .time(time)
+            .reminderTime(time.minusHours(1))
+            .recurrenceRule("FREQ=DAILY");
+        CalendarEvent created = calendarEventService.create(calendarEventMapper.calendarEventToDTO(event),
+            TestObjectUtil.createUser(userService));
+        em.flush();
+        em.clear();
+
+        // The series started a week ago; only today's occurrence is queued
+        PendingReminder pendingReminder = pendingReminderRepository.findOne(created.getId());
+        assertTrue(time.plusDays(7).minusHours(1).isEqual(pendingReminder.getDueTime()));
+        assertTrue(time.plusDays(7).isEqual(pendingReminder.getOccurrenceTime()));
+
+        CalendarEventReminderSender sender = new CalendarEventReminderSender(pendingReminderRepository,
+            reminderSentFlusher, new ReminderMetrics(new MetricRegistry()));
+        sender.onDue(Arrays.asList(new ReminderRecord(created.getId(), 0L, created.getCalendar().getId())));
+        assertEquals(1, reminderSentFlusher.flush());
+        em.clear();
+
+        // Sent, the row moves on to tomorrow's occurrence and the series is never flagged as sent
+        pendingReminder = pendingReminderRepository.findOne(created.getId());
+        assertTrue(time.plusDays(8).minusHours(1).isEqual(pendingReminder.getDueTime()));
+        assertTrue(time.plusDays(8).isEqual(pendingReminder.getOccurrenceTime()));
+        assertFalse(calendarEventRepository.findOne(created.getId()).isReminderSent());
+    }
+
+    @Test
+    public void snoozeMovesPendingReminderInPlace() {
+        ZonedDateTime reminderTime = ZonedDateTime.now(ZoneOffset.UTC).plusHours(1).truncatedTo(ChronoUnit.SECONDS);
+        CalendarEvent event = createEvent(reminderTime.plusHours(1), reminderTime);
+        calendarEventReminderService.extendHorizon(reminderTime.plusHours(2).toInstant().toEpochMilli());
+        calendarEventReminderService.restoreReminder(pendingReminderRepository.findAllByEventIdIn(
+            Arrays.asList(event.getId())).get(0));
+        int size = reminderScheduler.size();
+
+        try {
+            ZonedDateTime snoozedTime = reminderTime.plusMinutes(10);
+            calendarEventReminderService.snoozeReminder(event.getId(), event.getCalendar().getId(), snoozedTime);
+            assertEquals(size, reminderScheduler.size());
+
+            assertEquals(1, reminderSentFlusher.flush());
+            em.clear();
+            assertTrue(snoozedTime.isEqual(pendingReminderRepository.findOne(event.getId()).getDueTime()));
+        } finally {
+            reminderScheduler.cancel(event.getId());
+        }
+    }
+
+    @Test
+    public void snoozeRequeuesSentReminder() {
+        ZonedDateTime reminderTime = ZonedDateTime.now(ZoneOffset.UTC).plusHours(1).truncatedTo(ChronoUnit.SECONDS);
+        CalendarEvent event = createEvent(reminderTime.plusHours(1), reminderTime);
+        em.flush();
+        em.clear();
+        reminderSentFlusher.add(event.getId());
+
+        // The snooze is flushed after the sent reminder it follows, even within the same flush
+        ZonedDateTime snoozedTime = reminderTime.plusMinutes(5);
+        calendarEventReminderService.extendHorizon(reminderTime.plusHours(2).toInstant().toEpochMilli());
+        calendarEventReminderService.snoozeReminder(event.getId(), event.getCalendar().getId(), snoozedTime);
+        try {
+            assertTrue(reminderScheduler.cancel(event.getId()));
+            assertEquals(2, reminderSentFlusher.flush());
+            em.flush();
+            em.clear();
+            assertTrue(snoozedTime.isEqual(pendingReminderRepository.findOne(event.getId()).getDueTime()));
+        } finally {
+            reminderScheduler.cancel(event.getId());
+        }
+    }
+
+    @Test
+    public void acknowledgeDismissesSnoozedReminder() {
+        ZonedDateTime reminderTime = ZonedDateTime.now(ZoneOffset.UTC).plusDays(1);
+        CalendarEvent event = createEvent(reminderTime.plusHours(1), reminderTime);
+        calendarEventReminderService.snoozeReminder(event.getId(), event.getCalendar().getId(), reminderTime.plusMinutes(5));
+        calendarEventReminderService.acknowledgeReminder(event.getId());
+
+        assertEquals(1, reminderSentFlusher.flush());
+        em.clear();
+        assertNull(pendingReminderRepository.findOne(event.getId()));
+        assertTrue(calendarEventRepository.findOne(event.getId()).isReminderSent());
+    }
+
+    @Test
+    public void horizonOnlyMovesForward() {
+        assertEquals(Long.MIN_VALUE, calendarEventReminderService.extendHorizon(1000L));
+        assertEquals(1000L, calendarEventReminderService.extendHorizon(500L));
+        assertEquals(1000L, calendarEventReminderService.getHorizonEnd());
+    }
+
+    private CalendarEvent createEvent(ZonedDateTime time, ZonedDateTime reminderTime) {
+        return createEvent(TestObjectUtil.createUser(userService), time, reminderTime);
+    }
+
+    private CalendarEvent createEvent(User user, ZonedDateTime time, ZonedDateTime reminderTime) {
+        CalendarEvent event = TestObjectUtil.createCalendarEvent()
+            .time(time)
+            .reminderTime(reminderTime);
+        CalendarEventDTO dto = calendarEventMapper.calendarEventToDTO(event);
+        return calendarEventService.create(dto, user);
+    }
+}
@@ -4,7 +4,10 @@ import gvaughn.example.calendar.CalendarApp;
 import gvaughn.example.calendar.domain.Calendar;
 import gvaughn.example.calendar.domain.CalendarEvent;
 import gvaughn.example.calendar.domain.User;
+import gvaughn.example.calendar.repository.CalendarEventReadRepository;
 import gvaughn.example.calendar.repository.CalendarEventRepository;
+import gvaughn.example.calendar.service.dto.CalendarEventBulkDTO;
+import gvaughn.example.calendar.service.dto.CalendarEventBulkResultDTO;
 import gvaughn.example.calendar.service.dto.CalendarEventDTO;
 import gvaughn.example.calendar.service.dto.Duration;
 import gvaughn.example.calendar.service.dto.EventListDurationDTO;
@@ -14,9 +17,12 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
 import java.text.ParseException;
 import java.time.Instant;
 import java.time.ZoneOffset;
@@ -24,6 +30,7 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Function;
 
@@ -39,6 +46,16 @@ public class CalendarEventServiceIntTest {
 
     private static final int USER_EVENT_COUNT = 3;
 
+    private static final int WEEK_EVENT_COUNT = 200;
+
+    private static final int BULK_EVENT_COUNT = 100;
+
+    /**
+     * Statements Hibernate prepares for a bulk write: a batch reuses its statement, and sequence calls, up to
+     * one per block of ids, depend on how much of the current block earlier tests used.
+     */
+    private static final int MAX_BULK_STATEMENTS = 18;
+
     @Autowired
     private UserService userService;
 
@@ -54,6 +71,72 @@ public class CalendarEventServiceIntTest {
     @Autowired
     private CalendarEventRepository calendarEventRepository;
 
+    @Autowired
+    private CalendarEventReadRepository calendarEventReadRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager em;
+
+    @Test
+    public void listReadsRunAFixedNumberOfStatements() {
+        User user = createUser();
+        ZonedDateTime start = parseDate("2015-01-05T00:00:00Z");
+        for (int i = 0; i < WEEK_EVENT_COUNT; i++) {
+            createEvent(user, i, start.plusMinutes(30L * i));
+        }
+        em.flush();
+        em.clear();
+
+        StatementCounter counter = new StatementCounter(em);
+        ReflectionTestUtils.setField(calendarEventReadRepository, "jdbcTemplate", counter.countingJdbcTemplate(jdbcTemplate));
+        try {
+            // The user's calendar id, which is only cached once committed, then the events, their attendees,
+            // their reminder offsets and the recurring events that may occur within the week
+            EventListDurationDTO week = new EventListDurationDTO(Duration.WEEK, start);
+            List<CalendarEventDTO> weekEvents = counter.assertStatements("a week view", 5,
+                () -> calendarEventService.findByUserAndDuration(user, week));
+            assertEquals(WEEK_EVENT_COUNT, weekEvents.size());
+            for (CalendarEventDTO event : weekEvents) {
+                assertEquals(TestObjectUtil.DEFAULT_ATTENDEES.length, event.getAttendees().size());
+            }
+            counter.assertStatements("all events", 4, () -> calendarEventService.findByUser(user));
+            counter.assertStatements("a page of events", 4, () -> calendarEventService.findByUser(user, null, 50));
+            List<CalendarEventDTO> exported = new ArrayList<>();
+            counter.assertStatements("an export", 4, () -> {
+                calendarEventService.exportByUser(user, exported::add);
+                return exported;
+            });
+            assertEquals(WEEK_EVENT_COUNT, exported.size());
+            assertEquals(TestObjectUtil.DEFAULT_ATTENDEES.length, exported.get(0).getAttendees().size());
+        } finally {
+            ReflectionTestUtils.setField(calendarEventReadRepository, "jdbcTemplate", jdbcTemplate);
+        }
+    }
+
+    @Test
+    public void entityListLoadsCollectionsWithOneStatementEach() {
+        User user = createUser();
+        ZonedDateTime start = parseDate("2015-01-05T00:00:00Z");
+        for (int i = 0; i < WEEK_EVENT_COUNT; i++) {
+            createEvent(user, i, start.plusMinutes(30L * i));
+        }
+        Long calendarId = calendarService.getCalendarIdForUser(user);
+        em.flush();
+        em.clear();
+
+        // The events, their calendar, then one subselect each for all the events' attendees and reminder offsets
+        StatementCounter counter = new StatementCounter(em);
+        List<CalendarEvent> events = counter.assertStatements("loading a calendar's events", 4,
+            () -> calendarEventRepository.findByCalendarIdOrderByTime(calendarId));
+        assertEquals(WEEK_EVENT_COUNT, events.size());
+        for (CalendarEvent event : events) {
+            assertEquals(TestObjectUtil.DEFAULT_ATTENDEES.length, event.getAttendees().size());
+        }
+    }
+
     @Test
     public void validEventIsCreated() {
         User user = createUser();
@@ -134,11 +217,11 @@ public class CalendarEventServiceIntTest {
             seconds += seconds;
         }
 
-        List<CalendarEvent> retrievedEvents = calendarEventService.findByUser(user);
+        List<CalendarEventDTO> retrievedEvents = calendarEventService.findByUser(user);
         assertNotNull(retrievedEvents);
         assertEquals(USER_EVENT_COUNT, retrievedEvents.size());
         assertNotEquals(allEvents.size(), retrievedEvents.size());
-        for (CalendarEvent event : retrievedEvents) {
+        for (CalendarEventDTO event : retrievedEvents) {
             assertFalse(event.getTitle().contains("AntiEvent"));
         }
     }
@@ -162,16 +245,16 @@ public class CalendarEventServiceIntTest {
         }
 
         EventListDurationDTO dayOneDuration = new EventListDurationDTO(Duration.DAY, parseDate(dayOneString));
-        List<CalendarEvent> dayOneRetrieval = calendarEventService.findByUserAndDuration(user, dayOneDuration);
+        List<CalendarEventDTO> dayOneRetrieval = calendarEventService.findByUserAndDuration(user, dayOneDuration);
         assertEquals(dayOneEvents.size(), dayOneRetrieval.size());
-        for (CalendarEvent event : dayOneRetrieval) {
+        for (CalendarEventDTO event : dayOneRetrieval) {
             assertTrue(containsById(dayOneEvents, event));
         }
 
         EventListDurationDTO dayTwoDuration = new EventListDurationDTO(Duration.DAY, parseDate(dayTwoString));
-        List<CalendarEvent> dayTwoRetrieval = calendarEventService.findByUserAndDuration(user, dayTwoDuration);
+        List<CalendarEventDTO> dayTwoRetrieval = calendarEventService.findByUserAndDuration(user, dayTwoDuration);
         assertEquals(dayTwoEvents.size(), dayTwoRetrieval.size());
-        for (CalendarEvent event : dayTwoRetrieval) {
+        for (CalendarEventDTO event : dayTwoRetrieval) {
             assertTrue(containsById(dayTwoEvents, event));
         }
     }
@@ -195,16 +278,16 @@ public class CalendarEventServiceIntTest {
         }
 
         EventListDurationDTO monthOneDuration = new EventListDurationDTO(Duration.MONTH, parseDate(monthOneString));
-        List<CalendarEvent> monthOneRetrieval = calendarEventService.findByUserAndDuration(user, monthOneDuration);
+        List<CalendarEventDTO> monthOneRetrieval = calendarEventService.findByUserAndDuration(user, monthOneDuration);
         assertEquals(monthOneEvents.size(), monthOneRetrieval.size());
-        for (CalendarEvent event : monthOneRetrieval) {
+        for (CalendarEventDTO event : monthOneRetrieval) {
             assertTrue(containsById(monthOneEvents, event));
         }
 
         EventListDurationDTO monthTwoDuration = new EventListDurationDTO(Duration.MONTH, parseDate(monthTwoString));
-        List<CalendarEvent> monthTwoRetrieval = calendarEventService.findByUserAndDuration(user, monthTwoDuration);
+        List<CalendarEventDTO> monthTwoRetrieval = calendarEventService.findByUserAndDuration(user, monthTwoDuration);
         assertEquals(monthTwoEvents.size(), monthTwoRetrieval.size());
-        for (CalendarEvent event : monthTwoRetrieval) {
+        for (CalendarEventDTO event : monthTwoRetrieval) {
             assertTrue(containsById(monthTwoEvents, event));
         }
     }
@@ -228,20 +311,149 @@ public class CalendarEventServiceIntTest {
         }
 
         EventListDurationDTO weekOneDuration = new EventListDurationDTO(Duration.WEEK, parseDate(weekOneString));
-        List<CalendarEvent> weekOneRetrieval = calendarEventService.findByUserAndDuration(user, weekOneDuration);
+        List<CalendarEventDTO> weekOneRetrieval = calendarEventService.findByUserAndDuration(user, weekOneDuration);
         assertEquals(weekOneEvents.size(), weekOneRetrieval.size());
-        for (CalendarEvent event : weekOneRetrieval) {
+        for (CalendarEventDTO event : weekOneRetrieval) {
             assertTrue(containsById(weekOneEvents, event));
         }
 
         EventListDurationDTO weekTwoDuration = new EventListDurationDTO(Duration.WEEK, parseDate(weekTwoString));
-        List<CalendarEvent> weekTwoRetrieval = calendarEventService.findByUserAndDuration(user, weekTwoDuration);
+        List<CalendarEventDTO> weekTwoRetrieval = calendarEventService.findByUserAndDuration(user, weekTwoDuration);
         assertEquals(weekTwoEvents.size(), weekTwoRetrieval.size());
-        for (CalendarEvent event : weekTwoRetrieval) {
+        for (CalendarEventDTO event : weekTwoRetrieval) {
             assertTrue(containsById(weekTwoEvents, event));
         }
     }
 
+    @Test
+    public void returnsOccurrencesOfRecurringEvents() {
+        User user = createUser();
+        ZonedDateTime monday = parseDate("2015-01-05T09:00:00Z");
+        CalendarEvent series = createEvent(user, 0, monday, "FREQ=WEEKLY;BYDAY=MO,WE");
+        createEvent(user, 1, monday.minusWeeks(3), "FREQ=DAILY;COUNT=5");
+        CalendarEvent single = createEvent(user, 2, monday.plusWeeks(1).plusDays(1));
+
+        EventListDurationDTO weekTwo = new EventListDurationDTO(Duration.WEEK, monday.plusWeeks(1));
+        List<CalendarEventDTO> events = calendarEventService.findByUserAndDuration(user, weekTwo);
+        assertEquals(3, events.size());
+        assertEquals(series.getId(), events.get(0).getId());
+        assertEquals(monday.plusWeeks(1).toInstant(), events.get(0).getTime().toInstant());
+        assertEquals("FREQ=WEEKLY;BYDAY=MO,WE", events.get(0).getRecurrenceRule());
+        assertEquals(single.getId(), events.get(1).getId());
+        assertEquals(series.getId(), events.get(2).getId());
+        assertEquals(monday.plusWeeks(1).plusDays(2).toInstant(), events.get(2).getTime().toInstant());
+
+        // The series' start is in the first week, and is not listed twice
+        EventListDurationDTO weekOne = new EventListDurationDTO(Duration.WEEK, monday);
+        List<CalendarEventDTO> weekOneEvents = calendarEventService.findByUserAndDuration(user, weekOne);
+        assertEquals(2, weekOneEvents.size());
+        assertEquals(monday.toInstant(), weekOneEvents.get(0).getTime().toInstant());
+        assertEquals(monday.plusDays(2).toInstant(), weekOneEvents.get(1).getTime().toInstant());
+    }
+
+    @Test
+    public void storesEndOfBoundedSeries() {
+        User user = createUser();
+        ZonedDateTime monday = parseDate("2015-01-05T09:00:00Z");
+        CalendarEvent bounded = createEvent(user, 0, monday, "freq=daily;count=3");
+        CalendarEvent endless = createEvent(user, 1, monday, "FREQ=DAILY");
+        em.flush();
+        em.clear();
+
+        CalendarEvent stored = calendarEventRepository.findOne(bounded.getId());
+        assertEquals("FREQ=DAILY;COUNT=3", stored.getRecurrenceRule());
+        assertEquals(monday.plusDays(2).toInstant(), stored.getRecurrenceEnd().toInstant());
+        assertNull(calendarEventRepository.findOne(endless.getId()).getRecurrenceEnd());
+    }
+
+    @Test
+    public void findsConflictsWithinTheEventsWindowOnly() {
+        User user = createUser();
+        ZonedDateTime start = parseDate("2015-01-05T09:00:00Z");
+        for (int i = 0; i < WEEK_EVENT_COUNT; i++) {
+            createEvent(user, i, start.minusDays(30).minusMinutes(30L * i), 15);
+        }
+        CalendarEvent overlapsStart = createEvent(user, 0, start.minusMinutes(30), 45);
+        createEvent(user, 1, start.minusMinutes(30), 30);
+        CalendarEvent within = createEvent(user, 2, start.plusMinutes(15), (Integer) null);
+        createEvent(user, 3, start.plusHours(1), 60);
+        CalendarEvent dayLong = createEvent(user, 4, start.minusHours(23), CalendarEvent.MAX_DURATION_MINUTES);
+        CalendarEvent series = createEvent(user, 5, start.minusWeeks(2).plusMinutes(30), "FREQ=WEEKLY");
+        createEvent(user, 6, start.minusWeeks(2).plusMinutes(30), "FREQ=WEEKLY;COUNT=2");
+        CalendarEvent event = createEvent(user, 7, start, 60);
+        em.flush();
+        em.clear();
+
+        // The single events starting up to a day before the event's end, then the recurring events
+        StatementCounter counter = new StatementCounter(em);
+        List<Long> conflicts = counter.assertStatements("a conflict check", 2,
+            () -> calendarEventService.findConflicts(event));
+        assertEquals(Arrays.asList(dayLong.getId(), overlapsStart.getId(), within.getId(), series.getId()), conflicts);
+
+        // An event without duration conflicts with those it falls within, or starting with it
+        CalendarEvent instant = createEvent(user, 8, start, (Integer) null);
+        assertEquals(Arrays.asList(dayLong.getId(), overlapsStart.getId(), event.getId()),
+            calendarEventService.findConflicts(instant));
+    }
+
+    @Test
+    public void bulkWritesRunStatementsPerBatchNotPerEvent() {
+        User user = createUser();
+        User otherUser = createUser(2);
+        ZonedDateTime start = ZonedDateTime.now().plusDays(1).truncatedTo(ChronoUnit.MINUTES);
+        List<CalendarEvent> existing = new ArrayList<>();
+        for (int i = 0; i < BULK_EVENT_COUNT; i++) {
+            existing.add(createEvent(user, i, start.plusMinutes(30L * i)));
+        }
+        CalendarEvent othersEvent = createEvent(otherUser, 0, start);
+        em.flush();
+        em.clear();
+
+        CalendarEventBulkDTO bulk = new CalendarEventBulkDTO();
+        for (int i = 0; i < 2 * BULK_EVENT_COUNT; i++) {
+            CalendarEvent event = TestObjectUtil.createCalendarEvent().time(start.plusMinutes(15L * i)).reminderTime(start);
+            event.getReminderOffsets().add(60);
+            bulk.getCreate().add(calendarEventMapper.calendarEventToDTO(event));
+        }
+        bulk.getCreate().get(1).setRecurrenceRule("FREQ=HOURLY");
+        for (CalendarEvent event : existing.subList(0, BULK_EVENT_COUNT / 2)) {
+            CalendarEventDTO dto = calendarEventMapper.calendarEventToDTO(event);
+            dto.setTime(event.getTime().plusDays(1));
+            bulk.getUpdate().add(dto);
+        }
+        CalendarEventDTO othersUpdate = calendarEventMapper.calendarEventToDTO(othersEvent);
+        bulk.getUpdate().add(othersUpdate);
+        existing.subList(BULK_EVENT_COUNT / 2, BULK_EVENT_COUNT).forEach(event -> bulk.getDelete().add(event.getId()));
+        bulk.getDelete().add(existing.get(0).getId());
+
+        // The calendar, the events updated or deleted and their two collections, the queued reminders dropped,
+        // then the batched writes and the sequence calls, however many events are written
+        StatementCounter counter = new StatementCounter(em);
+        List<CalendarEventBulkResultDTO> results = calendarEventService.bulk(bulk, user);
+        em.flush();
+        assertTrue("Statements run by a bulk write: " + counter.getCount(), counter.getCount() <= MAX_BULK_STATEMENTS);
+        em.clear();
+
+        assertEquals(bulk.size(), results.size());
+        assertEquals("create", results.get(1).getOperation());
+        assertEquals(400, results.get(1).getStatus());
+        assertTrue(results.get(1).getMessage().contains("HOURLY"));
+        CalendarEventBulkResultDTO othersResult = results.get(2 * BULK_EVENT_COUNT + BULK_EVENT_COUNT / 2);
+        assertEquals(Arrays.asList("update", 404, othersEvent.getId()),
+            Arrays.asList(othersResult.getOperation(), othersResult.getStatus(), othersResult.getId()));
+        CalendarEventBulkResultDTO repeated = results.get(results.size() - 1);
+        assertEquals(Arrays.asList("delete", 400), Arrays.asList(repeated.getOperation(), repeated.getStatus()));
+        assertEquals(bulk.size() - 3, results.stream().filter(result -> result.getStatus() < 300).count());
+
+        List<CalendarEvent> events = calendarEventRepository.findByCalendarIdOrderByTime(calendarService.getCalendarIdForUser(user));
+        assertEquals(2 * BULK_EVENT_COUNT - 1 + BULK_EVENT_COUNT / 2, events.size());
+        assertEquals(existing.get(0).getTime().plusDays(1).toInstant(),
+            calendarEventRepository.findOne(existing.get(0).getId()).getTime().toInstant());
+        assertEquals(Integer.valueOf(events.size()), jdbcTemplate.queryForObject(
+            "select count(*) from pending_reminder r join calendar_event e on e.id = r.calendar_event_id " +
+                "where e.calendar_id = ?", Integer.class, calendarService.getCalendarIdForUser(user)));
+    }
+
     protected Pair<List<ZonedDateTime>, List<ZonedDateTime>> getReferenceDates(String sourceDate, String controlDate,
                                                  Function<ZonedDateTime, List<ZonedDateTime>> timeFunction) {
         ZonedDateTime dateOne = parseDate(sourceDate);
@@ -257,7 +469,7 @@ public class CalendarEventServiceIntTest {
         return ZonedDateTime.parse(date, formatter);
     }
 
-    private boolean containsById(List<CalendarEvent> events, CalendarEvent event) {
+    private boolean containsById(List<CalendarEvent> events, CalendarEventDTO event) {
         for (CalendarEvent listEvent : events) {
             if (listEvent.getId().equals(event.getId())) {
                 return true;
@@ -293,9 +505,24 @@ public class CalendarEventServiceIntTest {
     }
 
     private CalendarEvent createEvent(User user, int index, ZonedDateTime time) {
+        return createEvent(user, index, time, (String) null);
+    }
+
+    private CalendarEvent createEvent(User user, int index, ZonedDateTime time, Integer duration) {
+        return createEvent(user, index, time, null, duration);
+    }
+
+    private CalendarEvent createEvent(User user, int index, ZonedDateTime time, String recurrenceRule) {
+        return createEvent(user, index, time, recurrenceRule, TestObjectUtil.DEFAULT_DURATION);
+    }
+
+    private CalendarEvent createEvent(User user, int index, ZonedDateTime time, String recurrenceRule,
+                                      Integer duration) {
         CalendarEvent event = TestObjectUtil.createCalendarEvent();
         event.setTitle(getEventTitle(user, index));
         event.setTime(time);
+        event.setRecurrenceRule(recurrenceRule);
+        event.setDuration(duration);
         CalendarEventDTO dto = calendarEventMapper.calendarEventToDTO(event);
         event = calendarEventService.create(dto, user);
         return event;
@@ -1,19 +1,38 @@
 package gvaughn.example.calendar.service;
 
 import gvaughn.example.calendar.CalendarApp;
+import gvaughn.example.calendar.config.ApplicationProperties;
 import gvaughn.example.calendar.domain.Calendar;
 import gvaughn.example.calendar.domain.User;
 import gvaughn.example.calendar.repository.CalendarRepository;
+import gvaughn.example.calendar.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created by Graham Vaughn on 4/9/2017.
@@ -23,6 +42,8 @@ import static org.junit.Assert.assertNotNull;
 @Transactional
 public class CalendarServiceIntTest {
 
+    private static final int THREADS = 8;
+
     @Autowired
     private UserService userService;
 
@@ -32,6 +53,18 @@ public class CalendarServiceIntTest {
     @Autowired
     private CalendarRepository calendarRepository;
 
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager em;
+
     @Test
     public void calendarIsCreatedIfNonExistent() {
         User user = createUser();
@@ -53,6 +86,110 @@ public class CalendarServiceIntTest {
         assertEquals(saved.getId(), retrieved.getId());
     }
 
+    @Test
+    public void calendarIsCreatedOnlyOnce() {
+        User user = createUser();
+        Long calendarId = calendarService.getCalendarForUser(user).getId();
+        assertEquals(calendarId, calendarService.getCalendarIdForUser(user));
+        assertEquals(calendarId, calendarService.getCalendarForUser(user).getId());
+        assertEquals(1, calendarRepository.findIdsByUserId(user.getId()).size());
+    }
+
+    @Test
+    public void calendarIsNotCreatedForReads() {
+        User user = createUser();
+        assertFalse(calendarService.findCalendarIdForUser(user).isPresent());
+        assertTrue(calendarRepository.findIdsByUserId(user.getId()).isEmpty());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void concurrentResolutionsShareOneCalendarThatIsThenCached() throws Exception {
+        // Each resolution runs in a transaction of its own, so the user has to be committed first
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        User user = transactionTemplate.execute(status -> userService.createUser("calendar-race", "password",
+            "Calendar", "Race", "calendar-race@example.com", null, null));
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Long>> resolutions = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                resolutions.add(executor.submit(() -> {
+                    start.await();
+                    return transactionTemplate.execute(status -> calendarService.getCalendarIdForUser(user));
+                }));
+            }
+            start.countDown();
+            Set<Long> calendarIds = new HashSet<>();
+            for (Future<Long> resolution : resolutions) {
+                calendarIds.add(resolution.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, calendarIds.size());
+            assertEquals(new ArrayList<>(calendarIds), calendarRepository.findIdsByUserId(user.getId()));
+
+            // Warm users resolve their calendar without a query
+            Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+            long statements = statistics.getPrepareStatementCount();
+            assertEquals(calendarIds.iterator().next(),
+                transactionTemplate.execute(status -> calendarService.getCalendarIdForUser(user)));
+            assertEquals(calendarIds.iterator().next(),
+                transactionTemplate.execute(status -> calendarService.findCalendarIdForUser(user).orElse(null)));
+            assertEquals(statements, statistics.getPrepareStatementCount());
+        } finally {
+            executor.shutdownNow();
+            transactionTemplate.execute(status -> {
+                calendarRepository.findIdsByUserId(user.getId()).forEach(calendarId -> {
+                    calendarRepository.delete(calendarId);
+                    calendarService.evictCalendar(calendarId);
+                });
+                userService.deleteUser(user.getLogin());
+                return null;
+            });
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void resolutionOnAnotherNodeFindsTheCalendarCreatedFirst() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        User user = transactionTemplate.execute(status -> userService.createUser("calendar-node-race", "password",
+            "Calendar", "Race", "calendar-node-race@example.com", null, null));
+        // Services of their own, so that neither shares the other's cache or in-flight resolutions
+        CalendarService first = new CalendarService(calendarRepository, userRepository, applicationProperties);
+        CalendarService second = new CalendarService(calendarRepository, userRepository, applicationProperties);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch created = new CountDownLatch(1);
+            CountDownLatch commit = new CountDownLatch(1);
+            Future<Long> firstId = executor.submit(() -> transactionTemplate.execute(status -> {
+                Long calendarId = first.getCalendarIdForUser(user);
+                created.countDown();
+                try {
+                    commit.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return calendarId;
+            }));
+            assertTrue(created.await(10, TimeUnit.SECONDS));
+            Future<Long> secondId = executor.submit(() ->
+                transactionTemplate.execute(status -> second.getCalendarIdForUser(user)));
+            // Let the second resolution reach the first one's uncommitted calendar before it commits
+            TimeUnit.MILLISECONDS.sleep(200);
+            commit.countDown();
+
+            assertEquals(firstId.get(10, TimeUnit.SECONDS), secondId.get(10, TimeUnit.SECONDS));
+            assertEquals(1, calendarRepository.findIdsByUserId(user.getId()).size());
+        } finally {
+            executor.shutdownNow();
+            transactionTemplate.execute(status -> {
+                calendarRepository.findIdsByUserId(user.getId()).forEach(calendarRepository::delete);
+                userService.deleteUser(user.getLogin());
+                return null;
+            });
+        }
+    }
+
     public static Calendar createCalendar() {
         return new Calendar().name("Default test calendar");
     }
@@ -0,0 +1,155 @@
+package gvaughn.example.calendar.service;
+
+import gvaughn.example.calendar.CalendarApp;
+import gvaughn.example.calendar.domain.CalendarEvent;
+import gvaughn.example.calendar.domain.User;
+import gvaughn.example.calendar.repository.CalendarEventRepository;
+import gvaughn.example.calendar.repository.PendingReminderRepository;
+import gvaughn.example.calendar.service.dto.CalendarEventDTO;
+import gvaughn.example.calendar.service.mapper.CalendarEventMapper;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs two application contexts in cluster mode against one database and checks that they share the
+ * due reminders between them without sending any twice.
+ */
+public class ClusterReminderDispatcherIntTest {
+
+    private static final int REMINDERS = 1000;
+
+    private static ConfigurableApplicationContext nodeA;
+
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeClass
+    public static void startNodes() {
+        nodeA = startNode("node-a");
+        nodeB = startNode("node-b");
+    }
+
+    @AfterClass
+    public static void stopNodes() {
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+    }
+
+    private static ConfigurableApplicationContext startNode(String nodeId) {
+        return new SpringApplicationBuilder(CalendarApp.class).run(
+            "--server.port=0",
+            "--spring.jmx.enabled=false",
+            "--jhipster.metrics.jmx.enabled=false",
+            "--spring.datasource.url=jdbc:h2:mem:calendarCluster;DB_CLOSE_DELAY=-1",
+            "--application.reminder.mode=cluster",
+            "--application.reminder.cluster.node-id=" + nodeId,
+            "--application.reminder.cluster.batch-size=10",
+            // Polled by hand below
+            "--application.reminder.cluster.poll-interval-millis=3600000");
+    }
+
+    @Test
+    public void eachDueReminderIsSentOnceAcrossNodes() throws Exception {
+        List<Long> eventIds = createDueReminders(nodeA);
+        ClusterReminderDispatcher dispatcherA = nodeA.getBean(ClusterReminderDispatcher.class);
+        ClusterReminderDispatcher dispatcherB = nodeB.getBean(ClusterReminderDispatcher.class);
+        long sentBefore = dispatcherA.getSentCount() + dispatcherB.getSentCount();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> claimedByA = executor.submit(drain(dispatcherA));
+            Future<Integer> claimedByB = executor.submit(drain(dispatcherB));
+            int claimedA = claimedByA.get();
+            int claimedB = claimedByB.get();
+
+            assertEquals(REMINDERS, claimedA + claimedB);
+            assertTrue("node-a sent no reminders", claimedA > 0);
+            assertTrue("node-b sent no reminders", claimedB > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(REMINDERS, dispatcherA.getSentCount() + dispatcherB.getSentCount() - sentBefore);
+
+        PendingReminderRepository pendingReminderRepository = nodeB.getBean(PendingReminderRepository.class);
+        CalendarEventRepository calendarEventRepository = nodeB.getBean(CalendarEventRepository.class);
+        assertEquals(0, pendingReminderRepository.count());
+        for (CalendarEvent event : calendarEventRepository.findAll(eventIds)) {
+            assertTrue(event.isReminderSent());
+        }
+    }
+
+    @Test
+    public void leasedReminderIsNotClaimedByOtherNode() {
+        List<Long> eventIds = createDueReminders(nodeA).subList(0, 1);
+        ReminderQueueService queueA = nodeA.getBean(ReminderQueueService.class);
+        ReminderQueueService queueB = nodeB.getBean(ReminderQueueService.class);
+
+        try {
+            assertEquals(REMINDERS, queueA.claimDue("node-a", REMINDERS, Duration.ofMinutes(1)).size());
+            assertTrue(queueB.claimDue("node-b", REMINDERS, Duration.ofMinutes(1)).isEmpty());
+
+            // Only the lease holder can acknowledge a reminder
+            assertEquals(0, queueB.acknowledge("node-b", eventIds, new ArrayList<>()));
+            assertEquals(1, queueA.acknowledge("node-a", eventIds, new ArrayList<>()));
+        } finally {
+            nodeA.getBean(JdbcTemplate.class).update("delete from pending_reminder");
+        }
+    }
+
+    private static Callable<Integer> drain(ClusterReminderDispatcher dispatcher) {
+        return () -> {
+            int total = 0;
+            int claimed;
+            while ((claimed = dispatcher.dispatchDueReminders()) > 0) {
+                total += claimed;
+            }
+            return total;
+        };
+    }
+
+    /**
+     * Creates events through the service, then moves their queued reminders into the past so they are due.
+     */
+    private static List<Long> createDueReminders(ConfigurableApplicationContext node) {
+        UserService userService = node.getBean(UserService.class);
+        CalendarEventService calendarEventService = node.getBean(CalendarEventService.class);
+        CalendarEventMapper calendarEventMapper = node.getBean(CalendarEventMapper.class);
+        User user = userService.getUserWithAuthoritiesByLogin("cluster-user")
+            .orElseGet(() -> userService.createUser("cluster-user", "password", "Cluster", "User",
+                "cluster-user@example.com", null, null));
+
+        ZonedDateTime time = ZonedDateTime.now(ZoneOffset.UTC).plusDays(1);
+        List<Long> eventIds = new ArrayList<>(REMINDERS);
+        for (int i = 0; i < REMINDERS; i++) {
+            CalendarEvent event = TestObjectUtil.createCalendarEvent()
+                .time(time)
+                .reminderTime(time.minusHours(1));
+            CalendarEventDTO dto = calendarEventMapper.calendarEventToDTO(event);
+            eventIds.add(calendarEventService.create(dto, user).getId());
+        }
+        node.getBean(JdbcTemplate.class).update("update pending_reminder set due_time = ?",
+            Timestamp.from(Instant.now().minusSeconds(60)));
+        return eventIds;
+    }
+}
@@ -0,0 +1,146 @@
+package gvaughn.example.calendar.service;
+
+import gvaughn.example.calendar.CalendarApp;
+import gvaughn.example.calendar.config.ApplicationProperties;
+import gvaughn.example.calendar.domain.Calendar;
+import gvaughn.example.calendar.domain.CalendarEvent;
+import gvaughn.example.calendar.repository.CalendarEventReadRepository;
+import gvaughn.example.calendar.repository.CalendarEventRepository;
+import gvaughn.example.calendar.repository.CalendarRepository;
+import gvaughn.example.calendar.service.mapper.CalendarEventMapper;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the latency of {@link CalendarEventService#findConflicts(CalendarEvent)} on a calendar of 50,000
+ * events, answered from the database and from an enabled {@link CalendarEventIndex}. The database is H2 here,
+ * which lacks the partial index of recurring events PostgreSQL has, so its read of the recurring events scans
+ * the calendar's earlier events.
+ * <p>
+ * Not transactional: the index only keeps calendars read by committed transactions, so the seeded rows are
+ * committed, and deleted once measured.
+ * <p>
+ * Skipped unless run explicitly:
+ * <pre>
+ * ./mvnw test -Dtest=ConflictCheckBenchmark -Dbenchmark=true
+ * </pre>
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = CalendarApp.class)
+public class ConflictCheckBenchmark {
+
+    private static final ZonedDateTime START = ZonedDateTime.of(2001, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private static final int EVENTS = 50_000;
+
+    private static final long FIRST_EVENT_ID = 1_000_000_000L;
+
+    private static final int WARM_UP_REQUESTS = 1_000;
+
+    private static final int REQUESTS = 1_000;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CalendarRepository calendarRepository;
+
+    @Autowired
+    private CalendarService calendarService;
+
+    @Autowired
+    private CalendarEventService calendarEventService;
+
+    @Autowired
+    private CalendarEventReadRepository calendarEventReadRepository;
+
+    @Autowired
+    private CalendarEventRepository calendarEventRepository;
+
+    @Autowired
+    private CalendarEventMapper calendarEventMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Random random = new Random(42);
+
+    @Before
+    public void setup() {
+        Assume.assumeTrue("Benchmark disabled, run with -Dbenchmark=true", Boolean.getBoolean("benchmark"));
+    }
+
+    @Test
+    public void findConflicts() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Calendar calendar = transactionTemplate.execute(status ->
+            calendarService.getCalendarForUser(TestObjectUtil.createUser(userService, 2000)));
+        Object sharedIndex = ReflectionTestUtils.getField(calendarEventService, "calendarEventIndex");
+        try {
+            List<Object[]> events = new ArrayList<>();
+            for (int i = 0; i < EVENTS; i++) {
+                // Ten events a day, some of them overlapping
+                Timestamp time = Timestamp.from(START.plusMinutes(144L * i + 15 * random.nextInt(8)).toInstant());
+                events.add(new Object[]{FIRST_EVENT_ID + i, time, 15 * (1 + random.nextInt(12)), time, calendar.getId()});
+            }
+            jdbcTemplate.batchUpdate("insert into calendar_event (id, title, jhi_time, duration_minutes, " +
+                "reminder_time, reminder_sent, calendar_id) values (?, 'Event', ?, ?, ?, false, ?)", events);
+
+            System.out.printf("%-10s %8s %10s %10s %10s%n", "path", "events", "p50 us", "p99 us", "conflicts");
+            measure("database", calendar);
+            ApplicationProperties applicationProperties = new ApplicationProperties();
+            applicationProperties.getCalendar().getIndex().setEnabled(true);
+            ReflectionTestUtils.setField(calendarEventService, "calendarEventIndex", new CalendarEventIndex(
+                calendarEventReadRepository, calendarEventRepository, calendarEventMapper, applicationProperties));
+            measure("index", calendar);
+        } finally {
+            ReflectionTestUtils.setField(calendarEventService, "calendarEventIndex", sharedIndex);
+            jdbcTemplate.update("delete from calendar_event where calendar_id = ?", calendar.getId());
+            transactionTemplate.execute(status -> {
+                calendarRepository.delete(calendar.getId());
+                calendarService.evictCalendar(calendar.getId());
+                userService.deleteUser(calendar.getUser().getLogin());
+                return null;
+            });
+        }
+    }
+
+    private void measure(String path, Calendar calendar) {
+        long[] nanos = new long[REQUESTS];
+        int conflicts = 0;
+        for (int i = 0; i < WARM_UP_REQUESTS + REQUESTS; i++) {
+            CalendarEvent event = new CalendarEvent()
+                .time(START.plusMinutes(15L * random.nextInt(EVENTS * 144 / 15)))
+                .duration(30 + 15 * random.nextInt(6));
+            event.setCalendar(calendar);
+            long start = System.nanoTime();
+            conflicts += calendarEventService.findConflicts(event).size();
+            if (i >= WARM_UP_REQUESTS) {
+                nanos[i - WARM_UP_REQUESTS] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-10s %8d %10d %10d %10.2f%n", path, EVENTS, nanos[REQUESTS / 2] / 1000,
+            nanos[REQUESTS * 99 / 100] / 1000, conflicts / (double) (WARM_UP_REQUESTS + REQUESTS));
+    }
+}
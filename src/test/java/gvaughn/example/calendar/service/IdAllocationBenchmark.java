@@ -0,0 +1,149 @@
+package gvaughn.example.calendar.service;
+
+import gvaughn.example.calendar.CalendarApp;
+import gvaughn.example.calendar.domain.Calendar;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.IdentifierGeneratorHelper;
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.hibernate.id.enhanced.Optimizer;
+import org.hibernate.id.enhanced.OptimizerFactory;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures event insert throughput when each id costs a sequence call, and when ids are reserved in blocks
+ * of growing size by the pooled-lo optimizer entities use. Rows are inserted in JDBC batches of the size
+ * Hibernate is configured with, each batch committed, so the sequence calls are the only difference.
+ * <p>
+ * Skipped unless run explicitly:
+ * <pre>
+ * ./mvnw test -Dtest=IdAllocationBenchmark -Dbenchmark=true
+ * </pre>
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = CalendarApp.class)
+public class IdAllocationBenchmark {
+
+    private static final int[] BLOCK_SIZES = {1, 10, 50, 100};
+
+    private static final int BATCH_SIZE = 100;
+
+    private static final int WARM_UP_EVENTS = 20_000;
+
+    private static final int EVENTS = 50_000;
+
+    private static final String INSERT_EVENT = "insert into calendar_event (id, title, jhi_time, " +
+        "duration_minutes, reminder_time, reminder_sent, calendar_id) values (?, 'Event', ?, 30, ?, false, ?)";
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CalendarService calendarService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager em;
+
+    @Before
+    public void setup() {
+        Assume.assumeTrue("Benchmark disabled, run with -Dbenchmark=true", Boolean.getBoolean("benchmark"));
+    }
+
+    @Test
+    public void insertEvents() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Calendar calendar = transactionTemplate.execute(status ->
+            calendarService.getCalendarForUser(TestObjectUtil.createUser(userService, 2000)));
+        String nextValue = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class).getJdbcServices()
+            .getDialect().getSequenceNextValString("hibernate_sequence");
+        try {
+            System.out.printf("%-6s %8s %12s %14s%n", "block", "events", "events/s", "sequence calls");
+            for (int blockSize : BLOCK_SIZES) {
+                insert(transactionTemplate, calendar, nextValue, blockSize, WARM_UP_EVENTS);
+                jdbcTemplate.update("delete from calendar_event where calendar_id = ?", calendar.getId());
+            }
+            for (int blockSize : BLOCK_SIZES) {
+                AtomicInteger sequenceCalls = new AtomicInteger();
+                long start = System.nanoTime();
+                insert(transactionTemplate, calendar, () -> {
+                    sequenceCalls.incrementAndGet();
+                    return jdbcTemplate.queryForObject(nextValue, Long.class);
+                }, blockSize, EVENTS);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%-6d %8d %12.0f %14d%n", blockSize, EVENTS, EVENTS / seconds, sequenceCalls.get());
+                jdbcTemplate.update("delete from calendar_event where calendar_id = ?", calendar.getId());
+            }
+        } finally {
+            jdbcTemplate.update("delete from calendar_event where calendar_id = ?", calendar.getId());
+            transactionTemplate.execute(status -> {
+                calendarService.evictCalendar(calendar.getId());
+                jdbcTemplate.update("delete from calendar where id = ?", calendar.getId());
+                userService.deleteUser(calendar.getUser().getLogin());
+                return null;
+            });
+        }
+    }
+
+    private void insert(TransactionTemplate transactionTemplate, Calendar calendar, String nextValue, int blockSize,
+                        int events) {
+        insert(transactionTemplate, calendar, () -> jdbcTemplate.queryForObject(nextValue, Long.class), blockSize,
+            events);
+    }
+
+    private void insert(TransactionTemplate transactionTemplate, Calendar calendar, SequenceCall sequenceCall,
+                        int blockSize, int events) {
+        Optimizer optimizer = OptimizerFactory.buildOptimizer(blockSize == 1 ?
+                StandardOptimizerDescriptor.NONE.getExternalName() : StandardOptimizerDescriptor.POOLED_LO.getExternalName(),
+            Long.class, blockSize, -1);
+        AccessCallback callback = new AccessCallback() {
+            @Override
+            public IntegralDataTypeHolder getNextValue() {
+                return IdentifierGeneratorHelper.getIntegralDataTypeHolder(Long.class).initialize(sequenceCall.next());
+            }
+
+            @Override
+            public String getTenantIdentifier() {
+                return null;
+            }
+        };
+        Timestamp time = Timestamp.from(Instant.now());
+        for (int inserted = 0; inserted < events; inserted += BATCH_SIZE) {
+            transactionTemplate.execute(status -> {
+                List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    batch.add(new Object[]{optimizer.generate(callback), time, time, calendar.getId()});
+                }
+                return jdbcTemplate.batchUpdate(INSERT_EVENT, batch);
+            });
+        }
+    }
+
+    @FunctionalInterface
+    private interface SequenceCall {
+
+        long next();
+    }
+}
@@ -0,0 +1,94 @@
+package gvaughn.example.calendar.service;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.MetricRegistry;
+import gvaughn.example.calendar.config.ApplicationProperties;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReminderHealthIndicatorTest {
+
+    private static final long LAG_SLO_MILLIS = 1000;
+
+    private MetricRegistry metricRegistry;
+
+    private ReminderMetrics reminderMetrics;
+
+    private ReminderHealthIndicator reminderHealthIndicator;
+
+    private final AtomicLong tick = new AtomicLong();
+
+    @Before
+    public void setup() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getReminder().setLagSloMillis(LAG_SLO_MILLIS);
+        metricRegistry = new MetricRegistry();
+        reminderMetrics = new ReminderMetrics(metricRegistry, new Clock() {
+            @Override
+            public long getTick() {
+                return tick.get();
+            }
+        });
+        reminderHealthIndicator = new ReminderHealthIndicator(reminderMetrics, applicationProperties);
+    }
+
+    @Test
+    public void testUpWithoutReminders() {
+        assertThat(reminderHealthIndicator.health().getStatus()).isEqualTo(Status.UP);
+    }
+
+    @Test
+    public void testUpWhileLagWithinSlo() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 100; i++) {
+            reminderMetrics.reminderSent(now - 50);
+        }
+
+        Health health = reminderHealthIndicator.health();
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails()).containsEntry("sent", 100L);
+        assertThat(metricRegistry.getTimers().get(ReminderMetrics.LAG).getCount()).isEqualTo(100);
+    }
+
+    @Test
+    public void testDownWhenP99LagExceedsSlo() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 90; i++) {
+            reminderMetrics.reminderSent(now - 50);
+        }
+        for (int i = 0; i < 10; i++) {
+            reminderMetrics.reminderSent(now - 10 * LAG_SLO_MILLIS);
+        }
+
+        assertThat(reminderHealthIndicator.health().getStatus()).isEqualTo(Status.DOWN);
+    }
+
+    @Test
+    public void testUpOnceLateRemindersAgeOut() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            reminderMetrics.reminderSent(now - 10 * LAG_SLO_MILLIS);
+        }
+        assertThat(reminderHealthIndicator.health().getStatus()).isEqualTo(Status.DOWN);
+
+        // No reminder fires while the window moves past the late ones
+        tick.addAndGet(TimeUnit.MINUTES.toNanos(ReminderMetrics.LAG_WINDOW_MINUTES + 1));
+
+        assertThat(reminderHealthIndicator.health().getStatus()).isEqualTo(Status.UP);
+    }
+
+    @Test
+    public void testCancelsAreMetered() {
+        reminderMetrics.reminderCancelled();
+        reminderMetrics.reminderCancelled();
+
+        assertThat(metricRegistry.getMeters().get(ReminderMetrics.CANCELLED).getCount()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,118 @@
+package gvaughn.example.calendar.service;
+
+import gvaughn.example.calendar.CalendarApp;
+import gvaughn.example.calendar.config.ApplicationProperties;
+import gvaughn.example.calendar.domain.CalendarEvent;
+import gvaughn.example.calendar.domain.User;
+import gvaughn.example.calendar.repository.CalendarEventRepository;
+import gvaughn.example.calendar.repository.PendingReminderRepository;
+import gvaughn.example.calendar.service.mapper.CalendarEventMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the write-behind of sent reminders.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = CalendarApp.class)
+@Transactional
+public class ReminderSentFlusherIntTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CalendarEventService calendarEventService;
+
+    @Autowired
+    private CalendarEventMapper calendarEventMapper;
+
+    @Autowired
+    private CalendarEventRepository calendarEventRepository;
+
+    @Autowired
+    private PendingReminderRepository pendingReminderRepository;
+
+    @Autowired
+    private ReminderQueueService reminderQueueService;
+
+    @Autowired
+    private EntityManager em;
+
+    private ReminderSentFlusher reminderSentFlusher;
+
+    @Before
+    public void setup() {
+        // A flusher of our own, with a small queue and no interval flushes running against it
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getReminder().setFlushQueueCapacity(3);
+        reminderSentFlusher = new ReminderSentFlusher(reminderQueueService, applicationProperties);
+    }
+
+    @Test
+    public void flushMarksRemindersSentInOneBatch() {
+        List<Long> eventIds = createEvents(3);
+        eventIds.forEach(reminderSentFlusher::add);
+        em.flush();
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        long statements = statistics.getPrepareStatementCount();
+        assertEquals(3, reminderSentFlusher.flush());
+        assertEquals(2, statistics.getPrepareStatementCount() - statements);
+
+        em.clear();
+        assertRemindersSent(eventIds);
+        assertEquals(0, reminderSentFlusher.flush());
+    }
+
+    @Test
+    public void fullQueueIsFlushedBySender() {
+        List<Long> eventIds = createEvents(4);
+        em.flush();
+        eventIds.forEach(reminderSentFlusher::add);
+
+        // The fourth add found the queue full and flushed the first three
+        em.clear();
+        assertRemindersSent(eventIds.subList(0, 3));
+        assertNotNull(pendingReminderRepository.findOne(eventIds.get(3)));
+
+        assertEquals(1, reminderSentFlusher.flush());
+        em.clear();
+        assertRemindersSent(eventIds);
+    }
+
+    private void assertRemindersSent(List<Long> eventIds) {
+        for (Long eventId : eventIds) {
+            assertNull(pendingReminderRepository.findOne(eventId));
+            assertTrue(calendarEventRepository.findOne(eventId).isReminderSent());
+        }
+    }
+
+    private List<Long> createEvents(int count) {
+        User user = TestObjectUtil.createUser(userService);
+        ZonedDateTime time = ZonedDateTime.now(ZoneOffset.UTC).plusDays(1);
+        List<Long> eventIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            CalendarEvent event = TestObjectUtil.createCalendarEvent()
+                .time(time)
+                .reminderTime(time.minusHours(1));
+            eventIds.add(calendarEventService.create(calendarEventMapper.calendarEventToDTO(event), user).getId());
+        }
+        return eventIds;
+    }
+}
@@ -0,0 +1,146 @@
+package gvaughn.example.calendar.service;
+
+import com.codahale.metrics.MetricRegistry;
+import gvaughn.example.calendar.CalendarApp;
+import gvaughn.example.calendar.config.ApplicationProperties;
+import gvaughn.example.calendar.domain.CalendarEvent;
+import gvaughn.example.calendar.domain.User;
+import gvaughn.example.calendar.repository.CalendarEventRepository;
+import gvaughn.example.calendar.service.dto.CalendarEventDTO;
+import gvaughn.example.calendar.service.mapper.CalendarEventMapper;
+import gvaughn.example.calendar.service.reminder.ReminderScheduler;
+import gvaughn.example.calendar.service.reminder.TimingWheelReminderScheduler;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares snoozing reminders through {@link CalendarEventService#snoozeReminder(Long, String, int)} against
+ * moving them with a full {@link CalendarEventService#update(CalendarEventDTO)}, as a burst of users
+ * snoozing at the start of a meeting would. Snooze throughput includes the write-behind flush.
+ * <p>
+ * Skipped unless run explicitly:
+ * <pre>
+ * ./mvnw test -Dtest=ReminderSnoozeBenchmark -Dbenchmark=true
+ * </pre>
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = CalendarApp.class)
+@Transactional
+public class ReminderSnoozeBenchmark {
+
+    private static final int EVENTS = 1_000;
+
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CalendarEventService calendarEventService;
+
+    @Autowired
+    private CalendarEventMapper calendarEventMapper;
+
+    @Autowired
+    private CalendarEventRepository calendarEventRepository;
+
+    @Autowired
+    private ReminderQueueService reminderQueueService;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private EntityManager em;
+
+    private Object sharedReminderService;
+
+    private ReminderScheduler scheduler;
+
+    private ReminderSentFlusher reminderSentFlusher;
+
+    @Before
+    public void setup() {
+        Assume.assumeTrue("Benchmark disabled, run with -Dbenchmark=true", Boolean.getBoolean("benchmark"));
+        // A scheduler, service and flusher of our own, so nothing fires or flushes behind the measurement
+        scheduler = new TimingWheelReminderScheduler(100, 512, due -> { });
+        reminderSentFlusher = new ReminderSentFlusher(reminderQueueService, applicationProperties);
+        CalendarEventReminderService reminderService = new CalendarEventReminderService(scheduler,
+            reminderQueueService, new ReminderMetrics(new MetricRegistry()), reminderSentFlusher);
+        reminderService.extendHorizon(Long.MAX_VALUE);
+        sharedReminderService = ReflectionTestUtils.getField(calendarEventService, "calendarEventReminderService");
+        ReflectionTestUtils.setField(calendarEventService, "calendarEventReminderService", reminderService);
+    }
+
+    @After
+    public void tearDown() {
+        if (scheduler != null) {
+            ReflectionTestUtils.setField(calendarEventService, "calendarEventReminderService", sharedReminderService);
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void compareSnoozeWithUpdate() {
+        User user = TestObjectUtil.createUser(userService);
+        ZonedDateTime time = ZonedDateTime.now(ZoneOffset.UTC).plusHours(1);
+        List<Long> eventIds = new ArrayList<>();
+        for (int i = 0; i < EVENTS; i++) {
+            CalendarEvent event = TestObjectUtil.createCalendarEvent().time(time).reminderTime(time.minusMinutes(10));
+            eventIds.add(calendarEventService.create(calendarEventMapper.calendarEventToDTO(event), user).getId());
+        }
+        em.flush();
+        em.clear();
+
+        // Warm up both paths
+        snooze(eventIds, user.getLogin(), 1);
+        update(eventIds.subList(0, EVENTS / 10), 1);
+
+        System.out.printf("%-10s %12s %12s%n", "path", "operations", "ops/s");
+        long start = System.nanoTime();
+        snooze(eventIds, user.getLogin(), ROUNDS);
+        report("snooze", EVENTS * ROUNDS, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        update(eventIds, 1);
+        report("update", EVENTS, System.nanoTime() - start);
+    }
+
+    private void snooze(List<Long> eventIds, String login, int rounds) {
+        for (int round = 1; round <= rounds; round++) {
+            for (Long eventId : eventIds) {
+                calendarEventService.snoozeReminder(eventId, login, round);
+            }
+        }
+        reminderSentFlusher.flush();
+        em.flush();
+    }
+
+    private void update(List<Long> eventIds, int minutes) {
+        for (Long eventId : eventIds) {
+            CalendarEventDTO dto = calendarEventMapper.calendarEventToDTO(calendarEventRepository.findOne(eventId));
+            dto.setReminderTime(dto.getReminderTime().plusMinutes(minutes));
+            calendarEventService.update(dto);
+        }
+        em.flush();
+        em.clear();
+    }
+
+    private static void report(String path, int operations, long nanos) {
+        System.out.printf("%-10s %12d %12.0f%n", path, operations, operations / (nanos / 1e9));
+    }
+}
@@ -0,0 +1,70 @@
+package gvaughn.example.calendar.service;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Counts the SQL statements a piece of code runs, so tests can pin the number of queries behind a read.
+ * <p>
+ * Statements prepared by Hibernate are counted from its statistics, which the test configuration enables.
+ * Statements run by JdbcTemplate bypass Hibernate, so they are counted by swapping the template used by the
+ * code under test for one from {@link #countingJdbcTemplate(JdbcTemplate)}.
+ */
+public class StatementCounter {
+
+    private final Statistics statistics;
+
+    private final AtomicLong jdbcStatements = new AtomicLong();
+
+    private long hibernateStatementsAtReset;
+
+    public StatementCounter(EntityManager em) {
+        this.statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        reset();
+    }
+
+    /**
+     * @return A template running statements on the given template's data source, counting each of them.
+     */
+    public JdbcTemplate countingJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        return new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            protected void applyStatementSettings(Statement stmt) throws SQLException {
+                jdbcStatements.incrementAndGet();
+                super.applyStatementSettings(stmt);
+            }
+        };
+    }
+
+    public void reset() {
+        hibernateStatementsAtReset = statistics.getPrepareStatementCount();
+        jdbcStatements.set(0);
+    }
+
+    /**
+     * @return Number of statements run since the last reset.
+     */
+    public long getCount() {
+        return statistics.getPrepareStatementCount() - hibernateStatementsAtReset + jdbcStatements.get();
+    }
+
+    /**
+     * Runs the action and asserts how many statements it ran.
+     * @return The action's result.
+     */
+    public <T> T assertStatements(String description, long expected, Supplier<T> action) {
+        reset();
+        T result = action.get();
+        assertEquals("Statements run by " + description, expected, getCount());
+        return result;
+    }
+}
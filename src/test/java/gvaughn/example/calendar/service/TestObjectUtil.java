@@ -19,6 +19,7 @@ public class TestObjectUtil {
     public static final String EVENT_TITLE = "Important Event";
 
     public static final ZonedDateTime DEFAULT_TIME = ZonedDateTime.ofInstant(Instant.ofEpochMilli(0L), ZoneOffset.UTC);
+    public static final Integer DEFAULT_DURATION = 30;
     public static final String DEFAULT_LOCATION = "Lincoln, Nebraska";
     public static final String[] DEFAULT_ATTENDEES = new String[]{"john.doe@example.com", "doe.re@example.com"};
 
@@ -39,6 +40,7 @@ public class TestObjectUtil {
         CalendarEvent calendarEvent = new CalendarEvent()
             .title(EVENT_TITLE)
             .time(DEFAULT_TIME)
+            .duration(DEFAULT_DURATION)
             .location(DEFAULT_LOCATION)
             .reminderTime(DEFAULT_REMINDER_TIME)
             .reminderSent(DEFAULT_REMINDER_SENT);
@@ -0,0 +1,153 @@
+package gvaughn.example.calendar.service.recurrence;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RecurrenceRuleTest {
+
+    // A Wednesday
+    private static final ZonedDateTime START = ZonedDateTime.of(2026, 1, 7, 9, 30, 0, 0, ZoneOffset.UTC);
+
+    @Test
+    public void testParseNormalizesRule() {
+        assertThat(RecurrenceRule.parse("rrule:freq=weekly;byday=we,mo;interval=2;count=10").toString())
+            .isEqualTo("FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE;COUNT=10");
+        assertThat(RecurrenceRule.parse("FREQ=DAILY;INTERVAL=1;UNTIL=20260131T000000Z").toString())
+            .isEqualTo("FREQ=DAILY;UNTIL=20260131T000000Z");
+        assertThat(RecurrenceRule.parse("FREQ=MONTHLY;UNTIL=20261231").toString())
+            .isEqualTo("FREQ=MONTHLY;UNTIL=20261231");
+    }
+
+    @Test
+    public void testParseRejectsUnsupportedRules() {
+        for (String rule : new String[]{"", "COUNT=3", "FREQ=HOURLY", "FREQ=DAILY;INTERVAL=0", "FREQ=DAILY;COUNT=x",
+            "FREQ=DAILY;COUNT=2;UNTIL=20260131", "FREQ=MONTHLY;BYDAY=MO", "FREQ=WEEKLY;BYDAY=XX",
+            "FREQ=DAILY;BYMONTHDAY=1", "FREQ=DAILY;UNTIL=2026", "FREQ=DAILY;COUNT=" + (RecurrenceRule.MAX_COUNT + 1)}) {
+            assertThatThrownBy(() -> RecurrenceRule.parse(rule)).as(rule).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    public void testDailyWithCount() {
+        assertThat(all("FREQ=DAILY;INTERVAL=2;COUNT=3", START))
+            .containsExactly(START, START.plusDays(2), START.plusDays(4));
+    }
+
+    @Test
+    public void testWeekdays() {
+        // Wednesday to the next Wednesday, skipping the weekend
+        assertThat(all("FREQ=DAILY;BYDAY=MO,TU,WE,TH,FR;COUNT=6", START))
+            .containsExactly(START, START.plusDays(1), START.plusDays(2), START.plusDays(5), START.plusDays(6),
+                START.plusDays(7));
+    }
+
+    @Test
+    public void testWeeklyByDayStartsAtTheSeriesStart() {
+        // Monday of the first week falls before the start, so is skipped
+        assertThat(all("FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE;COUNT=4", START))
+            .containsExactly(START, START.plusDays(12), START.plusDays(14), START.plusDays(26));
+    }
+
+    @Test
+    public void testMonthlySkipsMonthsWithoutTheDay() {
+        ZonedDateTime start = ZonedDateTime.of(2026, 1, 31, 9, 0, 0, 0, ZoneOffset.UTC);
+        assertThat(all("FREQ=MONTHLY;COUNT=3", start))
+            .containsExactly(start, start.withMonth(3), start.withMonth(5));
+    }
+
+    @Test
+    public void testYearlyOnLeapDay() {
+        ZonedDateTime start = ZonedDateTime.of(2024, 2, 29, 9, 0, 0, 0, ZoneOffset.UTC);
+        assertThat(all("FREQ=YEARLY;COUNT=2", start)).containsExactly(start, start.withYear(2028));
+    }
+
+    @Test
+    public void testUntilIsInclusive() {
+        assertThat(all("FREQ=WEEKLY;UNTIL=20260121T093000Z", START))
+            .containsExactly(START, START.plusWeeks(1), START.plusWeeks(2));
+        assertThat(all("FREQ=WEEKLY;UNTIL=20260121", START))
+            .containsExactly(START, START.plusWeeks(1), START.plusWeeks(2));
+    }
+
+    @Test
+    public void testOccurrencesKeepWallClockTimeAcrossDaylightSavingTime() {
+        ZoneId newYork = ZoneId.of("America/New_York");
+        ZonedDateTime start = ZonedDateTime.of(2026, 3, 6, 9, 0, 0, 0, newYork);
+        List<ZonedDateTime> occurrences = all("FREQ=DAILY;COUNT=4", start);
+        assertThat(occurrences).extracting(ZonedDateTime::toLocalTime).containsOnly(start.toLocalTime());
+        assertThat(occurrences.get(3).getOffset()).isNotEqualTo(start.getOffset());
+    }
+
+    @Test
+    public void testLastOccurrence() {
+        assertThat(Recurrence.of("FREQ=DAILY;COUNT=3", START).lastOccurrence()).isEqualTo(START.plusDays(2));
+        assertThat(Recurrence.of("FREQ=DAILY;UNTIL=20260110", START).lastOccurrence()).isEqualTo(START.plusDays(3));
+        assertThat(Recurrence.of("FREQ=DAILY", START).lastOccurrence()).isNull();
+    }
+
+    @Test
+    public void testBetweenAndNextAfter() {
+        Recurrence recurrence = Recurrence.of("FREQ=WEEKLY;BYDAY=MO,WE", START);
+        Instant from = START.plusDays(5).toInstant();
+        assertThat(recurrence.between(from, from.plusSeconds(7 * 86400)))
+            .containsExactly(START.plusDays(5), START.plusDays(7), START.plusDays(12));
+        assertThat(recurrence.nextAfter(START.toInstant())).isEqualTo(START.plusDays(5));
+        assertThat(recurrence.nextAfter(START.minusDays(1).toInstant())).isEqualTo(START);
+        assertThat(Recurrence.of("FREQ=DAILY;COUNT=2", START).nextAfter(START.plusDays(1).toInstant())).isNull();
+    }
+
+    /**
+     * A series without a count jumps ahead to the window read; the occurrences found must be those a walk from
+     * the series start finds.
+     */
+    @Test
+    public void testSkippingAheadMatchesWalkingFromStart() {
+        Random random = new Random(42);
+        String[] rules = {"FREQ=DAILY;INTERVAL=3", "FREQ=DAILY;BYDAY=TU,SA", "FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,FR,SU",
+            "FREQ=MONTHLY;INTERVAL=5", "FREQ=YEARLY"};
+        ZonedDateTime start = ZonedDateTime.of(2001, 5, 31, 23, 15, 0, 0, ZoneId.of("Europe/Paris"));
+        for (String rule : rules) {
+            RecurrenceRule recurrenceRule = RecurrenceRule.parse(rule);
+            List<ZonedDateTime> walked = new ArrayList<>();
+            Instant end = LocalDateTime.of(2030, 1, 1, 0, 0).toInstant(ZoneOffset.UTC);
+            for (Iterator<ZonedDateTime> occurrences = recurrenceRule.occurrences(start, start.toInstant());
+                 occurrences.hasNext(); ) {
+                ZonedDateTime occurrence = occurrences.next();
+                if (occurrence.toInstant().isAfter(end)) {
+                    break;
+                }
+                walked.add(occurrence);
+            }
+            for (int i = 0; i < 50; i++) {
+                Instant from = start.toInstant().plusSeconds(random.nextInt(28 * 365) * 86400L + random.nextInt(86400));
+                Instant to = from.plusSeconds(random.nextInt(400) * 86400L);
+                List<ZonedDateTime> expected = new ArrayList<>();
+                for (ZonedDateTime occurrence : walked) {
+                    if (!occurrence.toInstant().isBefore(from) && !occurrence.toInstant().isAfter(to)) {
+                        expected.add(occurrence);
+                    }
+                }
+                assertThat(new Recurrence(recurrenceRule, start).between(from, to)).as(rule + " from " + from)
+                    .isEqualTo(expected);
+            }
+        }
+    }
+
+    private static List<ZonedDateTime> all(String rule, ZonedDateTime start) {
+        List<ZonedDateTime> occurrences = new ArrayList<>();
+        RecurrenceRule.parse(rule).occurrences(start, start.toInstant()).forEachRemaining(occurrences::add);
+        return occurrences;
+    }
+}
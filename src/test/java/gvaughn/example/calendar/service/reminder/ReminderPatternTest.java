@@ -0,0 +1,32 @@
+package gvaughn.example.calendar.service.reminder;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReminderPatternTest {
+
+    @Test
+    public void testPatternsWithTheSameOffsetsAreShared() {
+        ReminderPattern pattern = ReminderPattern.of(Arrays.asList(600L, 86_400L, 3_600L));
+
+        assertThat(pattern.encode()).isEqualTo("86400,3600,600");
+        assertThat(ReminderPattern.of(Arrays.asList(3_600L, 600L, 86_400L, 600L))).isSameAs(pattern);
+        assertThat(ReminderPattern.parse("86400,3600,600")).isSameAs(pattern);
+    }
+
+    @Test
+    public void testRarelyUsedPatternsAreDroppedFromTheInterner() {
+        // Each lead is an event's own reminder time, as when it falls back to a few seconds from now
+        ReminderPattern first = ReminderPattern.of(Arrays.asList(1_000_001L, 600L));
+        for (long lead = 1_000_002L; lead <= 1_000_001L + 2 * ReminderPattern.MAX_INTERNED; lead++) {
+            ReminderPattern.of(Arrays.asList(lead, 600L));
+        }
+
+        ReminderPattern again = ReminderPattern.of(Arrays.asList(1_000_001L, 600L));
+        assertThat(again).isNotSameAs(first).isEqualTo(first);
+        assertThat(again.hashCode()).isEqualTo(first.hashCode());
+    }
+}
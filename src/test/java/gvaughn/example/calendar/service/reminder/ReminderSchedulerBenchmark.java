@@ -0,0 +1,141 @@
+package gvaughn.example.calendar.service.reminder;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compares the timing wheel against the ScheduledThreadPoolExecutor path for large numbers of pending
+ * reminders. Every round schedules N reminders spread over the next 30 days, reschedules a quarter of
+ * them and cancels another quarter, then reports throughput and retained heap.
+ * <p>
+ * {@link #bytesPerPendingReminder()} measures the retained heap of five million pending reminders, the
+ * figure to size production heaps with, both for one-shot reminders and for events with three reminders
+ * sharing a {@link ReminderPattern}, which should cost the same.
+ * <p>
+ * Skipped unless run explicitly, with enough heap for ten million reminders:
+ * <pre>
+ * ./mvnw test -Dtest=ReminderSchedulerBenchmark -Dbenchmark=true -DargLine=-Xmx6g
+ * </pre>
+ */
+public class ReminderSchedulerBenchmark {
+
+    private static final int[] SIZES = {100_000, 1_000_000, 10_000_000};
+
+    private static final long HORIZON_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+    private static final int FOOTPRINT_SIZE = 5_000_000;
+
+    private static final ReminderHandler NOOP = due -> { };
+
+    @Before
+    public void checkEnabled() {
+        Assume.assumeTrue("Benchmark disabled, run with -Dbenchmark=true", Boolean.getBoolean("benchmark"));
+    }
+
+    @Test
+    public void compareSchedulers() {
+        // Warm up both paths so the JIT has compiled them before anything is measured
+        run("executor", () -> new ExecutorReminderScheduler(NOOP), 50_000, false);
+        run("wheel", () -> new TimingWheelReminderScheduler(100, 512, NOOP), 50_000, false);
+
+        System.out.printf("%-10s %12s %14s %14s %14s %12s%n",
+            "engine", "reminders", "schedule/s", "reschedule/s", "cancel/s", "bytes/each");
+        for (int size : SIZES) {
+            run("executor", () -> new ExecutorReminderScheduler(NOOP), size, true);
+            run("wheel", () -> new TimingWheelReminderScheduler(100, 512, NOOP), size, true);
+        }
+    }
+
+    @Test
+    public void bytesPerPendingReminder() {
+        System.out.printf("%-10s %12s %12s %12s%n", "engine", "reminders", "bytes/each", "heap MB");
+        footprint("executor", () -> new ExecutorReminderScheduler(NOOP), null);
+        footprint("wheel", () -> new TimingWheelReminderScheduler(100, 512, NOOP), null);
+        // One day, one hour and ten minutes before the event
+        ReminderPattern pattern = ReminderPattern.of(Arrays.asList(86_400L, 3_600L, 600L));
+        footprint("executor*3", () -> new ExecutorReminderScheduler(NOOP), pattern);
+        footprint("wheel*3", () -> new TimingWheelReminderScheduler(100, 512, NOOP), pattern);
+    }
+
+    private void footprint(String name, Supplier<ReminderScheduler> factory, ReminderPattern pattern) {
+        Random random = new Random(FOOTPRINT_SIZE);
+        long now = System.currentTimeMillis();
+        long baseline = usedHeap();
+        ReminderScheduler scheduler = factory.get();
+        try {
+            for (int i = 0; i < FOOTPRINT_SIZE; i++) {
+                // Event ids are sequential and a calendar holds a few dozen events
+                long due = now + 60_000 + (long) (random.nextDouble() * HORIZON_MILLIS);
+                if (pattern == null) {
+                    scheduler.schedule(i, due, i / 32);
+                } else {
+                    scheduler.schedule(i, due, i / 32, due + 86_400_000L, pattern);
+                }
+            }
+            long retained = usedHeap() - baseline;
+            System.out.printf("%-10s %12d %12d %12d%n", name, scheduler.size(), retained / FOOTPRINT_SIZE,
+                retained / (1024 * 1024));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private void run(String name, Supplier<ReminderScheduler> factory, int size, boolean report) {
+        Random random = new Random(size);
+        long now = System.currentTimeMillis();
+        long[] due = new long[size];
+        for (int i = 0; i < size; i++) {
+            due[i] = now + 60_000 + (long) (random.nextDouble() * HORIZON_MILLIS);
+        }
+        int quarter = size / 4;
+
+        long baseline = usedHeap();
+        ReminderScheduler scheduler = factory.get();
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < size; i++) {
+                scheduler.schedule(i, due[i], i);
+            }
+            long scheduleNanos = System.nanoTime() - start;
+            long retained = usedHeap() - baseline;
+
+            start = System.nanoTime();
+            for (int i = 0; i < quarter; i++) {
+                scheduler.schedule(i, due[i] + 60_000, i);
+            }
+            long rescheduleNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = quarter; i < 2 * quarter; i++) {
+                scheduler.cancel(i);
+            }
+            long cancelNanos = System.nanoTime() - start;
+
+            if (report) {
+                System.out.printf("%-10s %12d %14.0f %14.0f %14.0f %12d%n", name, size,
+                    perSecond(size, scheduleNanos), perSecond(quarter, rescheduleNanos),
+                    perSecond(quarter, cancelNanos), retained / size);
+            }
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private static double perSecond(int operations, long nanos) {
+        return operations / (nanos / 1e9);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
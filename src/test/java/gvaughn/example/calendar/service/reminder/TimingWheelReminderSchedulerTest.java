@@ -0,0 +1,233 @@
+package gvaughn.example.calendar.service.reminder;
+
+import gvaughn.example.calendar.service.recurrence.Recurrence;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TimingWheelReminderSchedulerTest {
+
+    private static final long TICK_MILLIS = 10;
+
+    // A small wheel so that level 0 spans 80 ms and reminders further out have to be cascaded
+    private static final int WHEEL_SIZE = 8;
+
+    private static final long CALENDAR_ID = 42L;
+
+    private TimingWheelReminderScheduler scheduler;
+
+    private final List<ReminderRecord> fired = new CopyOnWriteArrayList<>();
+
+    private final List<Long> firedAt = new CopyOnWriteArrayList<>();
+
+    private CountDownLatch latch;
+
+    @Before
+    public void setup() {
+        scheduler = new TimingWheelReminderScheduler(TICK_MILLIS, WHEEL_SIZE, this::record, Runnable::run);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testRemindersFireInDeadlineOrder() throws InterruptedException {
+        latch = new CountDownLatch(3);
+        long now = System.currentTimeMillis();
+        scheduler.schedule(3L, now + 900, CALENDAR_ID);
+        scheduler.schedule(1L, now + 30, CALENDAR_ID);
+        scheduler.schedule(2L, now + 300, CALENDAR_ID);
+        assertThat(scheduler.size()).isEqualTo(3);
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(fired).extracting(ReminderRecord::getEventId).containsExactly(1L, 2L, 3L);
+        assertThat(scheduler.size()).isZero();
+    }
+
+    @Test
+    public void testReminderKeepsItsRecord() throws InterruptedException {
+        latch = new CountDownLatch(1);
+        long due = System.currentTimeMillis() + 50;
+        scheduler.schedule(1L, due, CALENDAR_ID);
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        ReminderRecord reminder = fired.get(0);
+        assertThat(reminder.getEventId()).isEqualTo(1L);
+        assertThat(reminder.getDueEpochMillis()).isEqualTo(due);
+        assertThat(reminder.getCalendarId()).isEqualTo(CALENDAR_ID);
+    }
+
+    @Test
+    public void testReminderDoesNotFireEarly() throws InterruptedException {
+        latch = new CountDownLatch(1);
+        long due = System.currentTimeMillis() + 500;
+        scheduler.schedule(1L, due, CALENDAR_ID);
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(firedAt.get(0)).isGreaterThanOrEqualTo(due);
+    }
+
+    @Test
+    public void testOverdueReminderFiresOnNextTick() throws InterruptedException {
+        latch = new CountDownLatch(1);
+        scheduler.schedule(1L, System.currentTimeMillis() - 60000, CALENDAR_ID);
+
+        assertThat(latch.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void testCancelledReminderDoesNotFire() throws InterruptedException {
+        latch = new CountDownLatch(1);
+        long now = System.currentTimeMillis();
+        scheduler.schedule(1L, now + 200, CALENDAR_ID);
+        scheduler.schedule(2L, now + 400, CALENDAR_ID);
+
+        assertThat(scheduler.cancel(1L)).isTrue();
+        assertThat(scheduler.cancel(1L)).isFalse();
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(fired).extracting(ReminderRecord::getEventId).containsExactly(2L);
+    }
+
+    @Test
+    public void testRescheduleReplacesPendingReminder() throws InterruptedException {
+        latch = new CountDownLatch(1);
+        long now = System.currentTimeMillis();
+        scheduler.schedule(1L, now + 100, CALENDAR_ID);
+        scheduler.schedule(1L, now + 300, CALENDAR_ID);
+        assertThat(scheduler.size()).isEqualTo(1);
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertThat(fired).hasSize(1);
+        assertThat(fired.get(0).getDueEpochMillis()).isEqualTo(now + 300);
+    }
+
+    @Test
+    public void testRemindersDueInSameTickAreDispatchedTogether() throws InterruptedException {
+        List<Runnable> batches = new CopyOnWriteArrayList<>();
+        TimingWheelReminderScheduler batching = new TimingWheelReminderScheduler(TICK_MILLIS, WHEEL_SIZE,
+            this::record, batches::add);
+        try {
+            latch = new CountDownLatch(3);
+            long due = System.currentTimeMillis() + 100;
+            for (long id = 1; id <= 3; id++) {
+                batching.schedule(id, due, CALENDAR_ID);
+            }
+            TimeUnit.MILLISECONDS.sleep(300);
+
+            assertThat(batches).hasSize(1);
+            assertThat(batching.overdueCount()).isEqualTo(3);
+            batches.get(0).run();
+            assertThat(fired).extracting(ReminderRecord::getEventId).containsOnly(1L, 2L, 3L);
+            assertThat(batching.overdueCount()).isZero();
+        } finally {
+            batching.shutdown();
+        }
+    }
+
+    @Test
+    public void testCascadedReminderFiresInItsOwnTick() throws InterruptedException {
+        List<Runnable> batches = new CopyOnWriteArrayList<>();
+        TimingWheelReminderScheduler batching = new TimingWheelReminderScheduler(TICK_MILLIS, WHEEL_SIZE,
+            this::record, batches::add);
+        try {
+            // Two reminders a tick apart that share a level 1 bucket, the first due on the tick it cascades down
+            long start = (Long) ReflectionTestUtils.getField(batching, "startMillis");
+            long tick = ((System.currentTimeMillis() - start) / TICK_MILLIS / WHEEL_SIZE + 3) * WHEEL_SIZE;
+            batching.schedule(1L, start + tick * TICK_MILLIS, CALENDAR_ID);
+            batching.schedule(2L, start + (tick + 1) * TICK_MILLIS, CALENDAR_ID);
+            TimeUnit.MILLISECONDS.sleep(start + (tick + 5) * TICK_MILLIS - System.currentTimeMillis());
+
+            assertThat(batches).hasSize(2);
+        } finally {
+            batching.shutdown();
+        }
+    }
+
+    @Test
+    public void testRescheduleMovesPendingReminderInPlace() throws InterruptedException {
+        latch = new CountDownLatch(1);
+        long now = System.currentTimeMillis();
+        scheduler.schedule(1L, now + 100, CALENDAR_ID);
+
+        assertThat(scheduler.reschedule(1L, now + 300)).isTrue();
+        assertThat(scheduler.reschedule(2L, now + 300)).isFalse();
+        assertThat(scheduler.size()).isEqualTo(1);
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(firedAt.get(0)).isGreaterThanOrEqualTo(now + 300);
+        assertThat(fired.get(0).getCalendarId()).isEqualTo(CALENDAR_ID);
+    }
+
+    @Test
+    public void testPatternRearmsOneEntryForEachOffset() throws InterruptedException {
+        latch = new CountDownLatch(3);
+        long event = System.currentTimeMillis() + 3500;
+        ReminderPattern pattern = ReminderPattern.of(Arrays.asList(1L, 2L, 3L));
+        scheduler.schedule(1L, pattern.nextDue(event, System.currentTimeMillis()), CALENDAR_ID, event, pattern);
+        assertThat(scheduler.size()).isEqualTo(1);
+
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(fired).extracting(ReminderRecord::getDueEpochMillis)
+            .containsExactly(event - 3000, event - 2000, event - 1000);
+        assertThat(scheduler.size()).isZero();
+    }
+
+    @Test
+    public void testRecurringReminderRearmsForNextOccurrence() throws InterruptedException {
+        latch = new CountDownLatch(2);
+        long event = System.currentTimeMillis() + 2500;
+        ReminderPattern pattern = ReminderPattern.of(Arrays.asList(1L, 2L));
+        Recurrence recurrence = Recurrence.of("FREQ=DAILY",
+            ZonedDateTime.ofInstant(Instant.ofEpochMilli(event), ZoneOffset.UTC));
+        scheduler.schedule(1L, pattern.nextDue(event, System.currentTimeMillis()), CALENDAR_ID, event, pattern,
+            recurrence);
+
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(fired).extracting(ReminderRecord::getDueEpochMillis).containsExactly(event - 2000, event - 1000);
+        // The series' entry stays armed for the first offset of the next day's occurrence
+        assertThat(scheduler.size()).isEqualTo(1);
+        long nextEvent = event + TimeUnit.DAYS.toMillis(1);
+        assertThat(fired.get(1).getNextEventEpochMillis()).isEqualTo(nextEvent);
+        assertThat(fired.get(1).getNextDueEpochMillis()).isEqualTo(nextEvent - 2000);
+    }
+
+    @Test
+    public void testCancelStopsRemainingOffsets() throws InterruptedException {
+        latch = new CountDownLatch(1);
+        long event = System.currentTimeMillis() + 3500;
+        ReminderPattern pattern = ReminderPattern.of(Arrays.asList(1L, 3L));
+        scheduler.schedule(1L, pattern.nextDue(event, System.currentTimeMillis()), CALENDAR_ID, event, pattern);
+
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(scheduler.cancel(1L)).isTrue();
+        TimeUnit.MILLISECONDS.sleep(2500);
+        assertThat(fired).hasSize(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTickMustBePositive() {
+        new TimingWheelReminderScheduler(0, WHEEL_SIZE, this::record, Runnable::run);
+    }
+
+    private void record(List<? extends ReminderRecord> due) {
+        for (ReminderRecord reminder : due) {
+            fired.add(reminder);
+            firedAt.add(System.currentTimeMillis());
+            latch.countDown();
+        }
+    }
+}
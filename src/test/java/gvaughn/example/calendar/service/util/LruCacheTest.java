@@ -0,0 +1,64 @@
+package gvaughn.example.calendar.service.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LruCacheTest {
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        List<Integer> evicted = new ArrayList<>();
+        LruCache<Integer, String> cache = new LruCache<>(2, (key, value) -> evicted.add(key));
+        cache.put(1, "one");
+        cache.put(2, "two");
+        assertThat(cache.get(1)).isEqualTo("one");
+
+        cache.put(3, "three");
+        assertThat(evicted).containsExactly(2);
+        assertThat(cache.get(2)).isNull();
+        assertThat(cache.get(1)).isEqualTo("one");
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testSizeIsBoundedAcrossStripes() {
+        LruCache<Integer, Integer> cache = new LruCache<>(100);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(i, i);
+        }
+        assertThat(cache.size()).isLessThanOrEqualTo(100);
+    }
+
+    @Test
+    public void testConditionalOperations() {
+        LruCache<Integer, String> cache = new LruCache<>(10);
+        assertThat(cache.putIfAbsent(1, "one")).isNull();
+        assertThat(cache.putIfAbsent(1, "uno")).isEqualTo("one");
+        assertThat(cache.remove(1, "uno")).isFalse();
+        assertThat(cache.remove(1, "one")).isTrue();
+
+        cache.put(2, "two");
+        cache.put(3, "three");
+        cache.removeIf((key, value) -> value.startsWith("t"));
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void testMergeKeepsCombinedValue() {
+        LruCache<Integer, Long> cache = new LruCache<>(10);
+        assertThat(cache.merge(1, 5L, Math::max)).isEqualTo(5L);
+        assertThat(cache.merge(1, 3L, Math::max)).isEqualTo(5L);
+        assertThat(cache.merge(1, 7L, Math::max)).isEqualTo(7L);
+        assertThat(cache.merge(1, 0L, (cached, value) -> null)).isNull();
+        assertThat(cache.get(1)).isNull();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSizeMustBePositive() {
+        new LruCache<>(0);
+    }
+}
@@ -0,0 +1,183 @@
+package gvaughn.example.calendar.web.rest;
+
+import gvaughn.example.calendar.CalendarApp;
+import gvaughn.example.calendar.domain.CalendarEvent;
+import gvaughn.example.calendar.domain.User;
+import gvaughn.example.calendar.service.AvailabilityService;
+import gvaughn.example.calendar.service.CalendarEventService;
+import gvaughn.example.calendar.service.StatementCounter;
+import gvaughn.example.calendar.service.TestObjectUtil;
+import gvaughn.example.calendar.service.UserService;
+import gvaughn.example.calendar.service.mapper.CalendarEventMapper;
+import gvaughn.example.calendar.web.rest.errors.ExceptionTranslator;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static gvaughn.example.calendar.web.rest.TestUtil.sameInstant;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Test class for the AvailabilityResource REST controller.
+ *
+ * @see AvailabilityResource
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = CalendarApp.class)
+@WithMockUser
+@Transactional
+public class AvailabilityResourceIntTest {
+
+    private static final ZonedDateTime START = ZonedDateTime.of(2001, 1, 1, 9, 0, 0, 0, ZoneOffset.UTC);
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private CalendarEventService calendarEventService;
+
+    @Autowired
+    private CalendarEventMapper calendarEventMapper;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private MappingJackson2HttpMessageConverter jacksonMessageConverter;
+
+    @Autowired
+    private ExceptionTranslator exceptionTranslator;
+
+    @Autowired
+    private EntityManager em;
+
+    private MockMvc restAvailabilityMockMvc;
+
+    @Before
+    public void setup() {
+        AvailabilityResource availabilityResource = new AvailabilityResource(availabilityService);
+        this.restAvailabilityMockMvc = MockMvcBuilders.standaloneSetup(availabilityResource)
+            .setControllerAdvice(exceptionTranslator)
+            .setMessageConverters(jacksonMessageConverter).build();
+    }
+
+    @Test
+    public void getCommonAvailability() throws Exception {
+        User first = createUser("availability-a");
+        User second = createUser("availability-b");
+        createUser("availability-c");
+        createEvent(first, START, 60);
+        createEvent(second, START.plusMinutes(30), 90);
+        createEvent(second, START.plusHours(3), null);
+
+        // Participants may be named by login or by email
+        restAvailabilityMockMvc.perform(get("/api/availability")
+            .param("participants", "availability-a", "AVAILABILITY-B@example.com", "availability-c")
+            .param("start", START.toString())
+            .param("end", START.plusHours(4).toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$[0].start").value(sameInstant(START.plusHours(2))))
+            .andExpect(jsonPath("$[0].end").value(sameInstant(START.plusHours(3))))
+            .andExpect(jsonPath("$[1].start").value(sameInstant(START.plusMinutes(3 * 60 + 15))))
+            .andExpect(jsonPath("$[1].end").value(sameInstant(START.plusHours(4))));
+
+        restAvailabilityMockMvc.perform(get("/api/availability")
+            .param("participants", "availability-a,availability-b")
+            .param("start", START.toString())
+            .param("end", START.plusHours(4).toString())
+            .param("minutes", "60"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$[0].start").value(sameInstant(START.plusHours(2))));
+    }
+
+    @Test
+    public void getCommonAvailabilityRunsAFixedNumberOfStatements() throws Exception {
+        List<String> logins = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            User user = createUser("availability-" + i);
+            createEvent(user, START.plusMinutes(15 * i), 15);
+            logins.add(user.getLogin());
+        }
+        em.flush();
+
+        // The participants, their calendars, their single events and their recurring events are read with one
+        // query each
+        StatementCounter counter = new StatementCounter(em);
+        counter.assertStatements("a ten participant availability read", 4, () -> {
+            try {
+                return restAvailabilityMockMvc.perform(get("/api/availability")
+                    .param("participants", logins.toArray(new String[0]))
+                    .param("start", START.toString())
+                    .param("end", START.plusHours(4).toString()))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$", hasSize(1)))
+                    .andExpect(jsonPath("$[0].start").value(sameInstant(START.plusMinutes(150))));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Test
+    public void getCommonAvailabilityWithUnknownParticipant() throws Exception {
+        createUser("availability-a");
+        restAvailabilityMockMvc.perform(get("/api/availability")
+            .param("participants", "availability-a", "no-such-user")
+            .param("start", START.toString())
+            .param("end", START.plusHours(4).toString()))
+            .andExpect(status().isBadRequest())
+            .andExpect(header().string("X-calendarApp-error", "Unknown participants: no-such-user"));
+    }
+
+    @Test
+    public void getCommonAvailabilityWithInvalidParameters() throws Exception {
+        createUser("availability-a");
+        restAvailabilityMockMvc.perform(get("/api/availability")
+            .param("participants", "availability-a")
+            .param("start", START.toString())
+            .param("end", START.minusHours(1).toString()))
+            .andExpect(status().isBadRequest());
+        restAvailabilityMockMvc.perform(get("/api/availability")
+            .param("participants", "availability-a")
+            .param("start", START.toString())
+            .param("end", START.plusHours(4).toString())
+            .param("minutes", "0"))
+            .andExpect(status().isBadRequest());
+        List<String> tooMany = new ArrayList<>();
+        for (int i = 0; i <= AvailabilityService.MAX_PARTICIPANTS; i++) {
+            tooMany.add("participant-" + i);
+        }
+        restAvailabilityMockMvc.perform(get("/api/availability")
+            .param("participants", tooMany.toArray(new String[0]))
+            .param("start", START.toString())
+            .param("end", START.plusHours(4).toString()))
+            .andExpect(status().isBadRequest());
+    }
+
+    private User createUser(String login) {
+        return userService.createUser(login, "password", "Available", "User", login + "@example.com", null, null);
+    }
+
+    private void createEvent(User owner, ZonedDateTime time, Integer duration) {
+        CalendarEvent event = TestObjectUtil.createCalendarEvent().time(time).duration(duration);
+        calendarEventService.create(calendarEventMapper.calendarEventToDTO(event), owner);
+    }
+}
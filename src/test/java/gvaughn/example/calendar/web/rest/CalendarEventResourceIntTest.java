@@ -5,15 +5,22 @@ import gvaughn.example.calendar.CalendarApp;
 import gvaughn.example.calendar.domain.CalendarEvent;
 import gvaughn.example.calendar.domain.Calendar;
 import gvaughn.example.calendar.domain.User;
+import gvaughn.example.calendar.repository.CalendarEventChangeRepository;
 import gvaughn.example.calendar.repository.CalendarEventRepository;
 import gvaughn.example.calendar.repository.CalendarRepository;
+import gvaughn.example.calendar.repository.CalendarVersionRepository;
 import gvaughn.example.calendar.service.CalendarEventService;
+import gvaughn.example.calendar.service.CalendarService;
+import gvaughn.example.calendar.service.StatementCounter;
 import gvaughn.example.calendar.service.TestObjectUtil;
 import gvaughn.example.calendar.service.UserService;
+import gvaughn.example.calendar.service.dto.CalendarEventBulkDTO;
 import gvaughn.example.calendar.service.dto.CalendarEventDTO;
+import gvaughn.example.calendar.service.dto.CalendarSyncToken;
 import gvaughn.example.calendar.service.mapper.CalendarEventMapper;
 import gvaughn.example.calendar.web.rest.errors.ExceptionTranslator;
 
+import com.jayway.jsonpath.JsonPath;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -22,14 +29,19 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.ReflectionUtils;
 
 import javax.persistence.EntityManager;
@@ -37,12 +49,18 @@ import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.time.ZoneOffset;
 import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 
 import static gvaughn.example.calendar.web.rest.TestUtil.sameInstant;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -62,6 +80,8 @@ public class CalendarEventResourceIntTest {
     private static final ZonedDateTime DEFAULT_TIME = TestObjectUtil.DEFAULT_TIME;
     private static final ZonedDateTime UPDATED_TIME = ZonedDateTime.now(ZoneId.systemDefault()).withNano(0);
 
+    private static final Integer DEFAULT_DURATION = TestObjectUtil.DEFAULT_DURATION;
+
     private static final String DEFAULT_LOCATION = TestObjectUtil.DEFAULT_LOCATION;
     private static final String UPDATED_LOCATION = "BBBBBBBBBB";
 
@@ -96,6 +116,21 @@ public class CalendarEventResourceIntTest {
     @Autowired
     private ExceptionTranslator exceptionTranslator;
 
+    @Autowired
+    private CalendarService calendarService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CalendarVersionRepository calendarVersionRepository;
+
+    @Autowired
+    private CalendarEventChangeRepository calendarEventChangeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Autowired
     private EntityManager em;
 
@@ -109,6 +144,7 @@ public class CalendarEventResourceIntTest {
         MockitoAnnotations.initMocks(this);
         CalendarEventResource calendarEventResource = new CalendarEventResource(calendarEventService);
         ReflectionTestUtils.setField(calendarEventResource, "userService", userService);
+        ReflectionTestUtils.setField(calendarEventResource, "objectMapper", jacksonMessageConverter.getObjectMapper());
         this.restCalendarEventMockMvc = MockMvcBuilders.standaloneSetup(calendarEventResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setControllerAdvice(exceptionTranslator)
@@ -175,6 +211,7 @@ public class CalendarEventResourceIntTest {
         CalendarEvent testCalendarEvent = calendarEventList.get(calendarEventList.size() - 1);
         assertThat(testCalendarEvent.getTitle()).isEqualTo(TestObjectUtil.EVENT_TITLE);
         assertThat(testCalendarEvent.getTime()).isEqualTo(DEFAULT_TIME);
+        assertThat(testCalendarEvent.getDuration()).isEqualTo(DEFAULT_DURATION);
         assertThat(testCalendarEvent.getLocation()).isEqualTo(DEFAULT_LOCATION);
         assertThat(testCalendarEvent.getReminderTime()).isEqualTo(DEFAULT_REMINDER_TIME);
         assertThat(testCalendarEvent.isReminderSent()).isEqualTo(DEFAULT_REMINDER_SENT);
@@ -201,6 +238,51 @@ public class CalendarEventResourceIntTest {
         assertThat(calendarEventList).hasSize(databaseSizeBeforeCreate);
     }
 
+    @Test
+    @Transactional
+    public void createCalendarEventWithInvalidRecurrenceRule() throws Exception {
+        int databaseSizeBeforeCreate = calendarEventRepository.findAll().size();
+
+        CalendarEventDTO calendarEventDTO = getEventDTO();
+        calendarEventDTO.setRecurrenceRule("FREQ=HOURLY");
+        restCalendarEventMockMvc.perform(post("/api/calendar-events")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(calendarEventDTO)))
+            .andExpect(status().isBadRequest())
+            .andExpect(header().string("X-calendarApp-error", containsString("HOURLY")));
+
+        assertThat(calendarEventRepository.findAll()).hasSize(databaseSizeBeforeCreate);
+    }
+
+    @Test
+    @Transactional
+    public void createCalendarEventReportsConflicts() throws Exception {
+        Long existingId = calendarEventService.create(getEventDTO(), userService.getUserWithAuthorities()).getId();
+
+        CalendarEventDTO overlapping = getEventDTO();
+        overlapping.setTime(DEFAULT_TIME.plusMinutes(DEFAULT_DURATION / 2));
+        restCalendarEventMockMvc.perform(post("/api/calendar-events?checkConflicts=true")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(overlapping)))
+            .andExpect(status().isCreated())
+            .andExpect(header().string("X-calendarApp-conflicts", existingId.toString()));
+
+        CalendarEventDTO after = getEventDTO();
+        after.setTime(DEFAULT_TIME.plusDays(1));
+        restCalendarEventMockMvc.perform(post("/api/calendar-events?checkConflicts=true")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(after)))
+            .andExpect(status().isCreated())
+            .andExpect(header().string("X-calendarApp-conflicts", ""));
+
+        // Not asked for, conflicts are not looked up
+        restCalendarEventMockMvc.perform(post("/api/calendar-events")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(overlapping)))
+            .andExpect(status().isCreated())
+            .andExpect(header().doesNotExist("X-calendarApp-conflicts"));
+    }
+
     @Test
     @Transactional
     public void getAllCalendarEvents() throws Exception {
@@ -215,11 +297,133 @@ public class CalendarEventResourceIntTest {
             .andExpect(jsonPath("$.[*].id").value(hasItem(calendarEvent.getId().intValue())))
             .andExpect(jsonPath("$.[*].title").value(hasItem(DEFAULT_TITLE.toString())))
             .andExpect(jsonPath("$.[*].time").value(hasItem(sameInstant(DEFAULT_TIME))))
+            .andExpect(jsonPath("$.[*].duration").value(hasItem(DEFAULT_DURATION)))
             .andExpect(jsonPath("$.[*].location").value(hasItem(DEFAULT_LOCATION.toString())))
             .andExpect(jsonPath("$.[*].reminderTime").value(hasItem(sameInstant(DEFAULT_REMINDER_TIME))))
             .andExpect(jsonPath("$.[*].reminderSent").value(hasItem(DEFAULT_REMINDER_SENT.booleanValue())));
     }
 
+    @Test
+    @Transactional
+    public void pageThroughCalendarEvents() throws Exception {
+        // Events sharing a time are ordered by id, so none is skipped or repeated across pages
+        User user = userService.getUserWithAuthorities();
+        for (int i = 0; i < 7; i++) {
+            CalendarEvent event = TestObjectUtil.createCalendarEvent().time(DEFAULT_TIME.plusHours(i / 3));
+            calendarEventService.create(calendarEventMapper.calendarEventToDTO(event), user);
+        }
+        List<Long> expected = new ArrayList<>();
+        for (CalendarEventDTO event : calendarEventService.findByUser(user)) {
+            expected.add(event.getId());
+        }
+        expected.sort(Comparator.comparing((Long id) -> calendarEventRepository.findOne(id).getTime().toInstant())
+            .thenComparing(Comparator.naturalOrder()));
+
+        List<Long> actual = new ArrayList<>();
+        String url = "/api/calendar-events?size=3";
+        int pages = 0;
+        while (url != null) {
+            MvcResult result = restCalendarEventMockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Total-Count"))
+                .andReturn();
+            List<Integer> ids = JsonPath.read(result.getResponse().getContentAsString(), "$.[*].id");
+            ids.forEach(id -> actual.add(id.longValue()));
+            url = nextLink(result.getResponse().getHeader(HttpHeaders.LINK));
+            pages++;
+        }
+        assertThat(pages).isEqualTo(3);
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @Test
+    @Transactional
+    public void getCalendarEventsPageSizeIsCapped() throws Exception {
+        persistCalendarEvent();
+
+        restCalendarEventMockMvc.perform(get("/api/calendar-events?size=100000"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$").isArray())
+            .andExpect(header().string(HttpHeaders.LINK, containsString("size=500")))
+            .andExpect(header().string(HttpHeaders.LINK, not(containsString("rel=\"next\""))));
+    }
+
+    @Test
+    @Transactional
+    public void getCalendarEventsWithInvalidCursor() throws Exception {
+        restCalendarEventMockMvc.perform(get("/api/calendar-events?cursor=not-a-cursor"))
+            .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Exports are streamed on another thread, which only sees committed events, so this test commits its
+     * events and deletes them afterwards.
+     */
+    @Test
+    public void exportCalendarEvents() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        User user = userService.getUserWithAuthorities();
+        List<Integer> ids = transactionTemplate.execute(status -> {
+            List<Integer> created = new ArrayList<>();
+            for (int i = 3; i > 0; i--) {
+                CalendarEvent event = TestObjectUtil.createCalendarEvent().time(DEFAULT_TIME.plusDays(i));
+                created.add(0, calendarEventService.create(calendarEventMapper.calendarEventToDTO(event), user).getId().intValue());
+            }
+            return created;
+        });
+        try {
+            String json = export("/api/calendar-events/export", MediaType.APPLICATION_JSON_UTF8_VALUE);
+            assertThat(JsonPath.<List<Integer>>read(json, "$.[*].id")).isEqualTo(ids);
+            assertThat(JsonPath.<List<String>>read(json, "$.[*].title")).containsOnly(DEFAULT_TITLE);
+
+            String[] lines = export("/api/calendar-events/export?format=ndjson", "application/x-ndjson").split("\n");
+            assertThat(lines).hasSize(ids.size());
+            for (int i = 0; i < lines.length; i++) {
+                assertThat(JsonPath.<Integer>read(lines[i], "$.id")).isEqualTo(ids.get(i));
+            }
+        } finally {
+            transactionTemplate.execute(status -> {
+                ids.forEach(id -> calendarEventService.delete(id.longValue()));
+                calendarService.findCalendarIdForUser(user).ifPresent(calendarId -> {
+                    calendarRepository.delete(calendarId);
+                    calendarService.evictCalendar(calendarId);
+                });
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Performs an export request and waits for the streamed body, which is written to the original response.
+     */
+    private String export(String url, String contentType) throws Exception {
+        MvcResult result = restCalendarEventMockMvc.perform(get(url))
+            .andExpect(request().asyncStarted())
+            .andExpect(content().contentType(contentType))
+            .andReturn();
+        restCalendarEventMockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk());
+        return result.getResponse().getContentAsString();
+    }
+
+    @Test
+    @Transactional
+    public void exportCalendarEventsOfAllUsersRequiresAdmin() throws Exception {
+        restCalendarEventMockMvc.perform(get("/api/calendar-events/export?all=true"))
+            .andExpect(status().isForbidden());
+        restCalendarEventMockMvc.perform(get("/api/calendar-events/export?format=xml"))
+            .andExpect(status().isBadRequest());
+    }
+
+    private static String nextLink(String linkHeader) {
+        for (String link : linkHeader.split(",")) {
+            if (link.endsWith("rel=\"next\"")) {
+                return link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+            }
+        }
+        return null;
+    }
+
     @Test
     @Transactional
     public void getCalendarEvent() throws Exception {
@@ -247,6 +451,219 @@ public class CalendarEventResourceIntTest {
             .andExpect(status().isNotFound());
     }
 
+    @Test
+    @Transactional
+    public void getCalendarEventsIfNoneMatch() throws Exception {
+        User user = userService.getUserWithAuthorities();
+        CalendarEvent event = calendarEventService.create(calendarEventMapper.calendarEventToDTO(
+            TestObjectUtil.createCalendarEvent()), user);
+
+        String eTag = restCalendarEventMockMvc.perform(get("/api/calendar-events"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(eTag).startsWith("W/\"");
+        restCalendarEventMockMvc.perform(get("/api/calendar-events?size=10").header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag))
+            .andExpect(content().string(""));
+        restCalendarEventMockMvc.perform(get("/api/calendar-events/{id}", event.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag));
+        restCalendarEventMockMvc.perform(get("/api/calendar-events/{id}", event.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, "W/\"0-0\", " + eTag.substring(2)))
+            .andExpect(status().isNotModified());
+
+        // Every write to the calendar's events changes its version
+        CalendarEventDTO dto = calendarEventMapper.calendarEventToDTO(event);
+        dto.setTitle(UPDATED_TITLE);
+        calendarEventService.update(dto);
+        String updatedETag = restCalendarEventMockMvc.perform(get("/api/calendar-events").header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].title").value(hasItem(UPDATED_TITLE)))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(updatedETag).isNotEqualTo(eTag);
+
+        calendarEventService.delete(event.getId());
+        restCalendarEventMockMvc.perform(get("/api/calendar-events/{id}", event.getId()).header(HttpHeaders.IF_NONE_MATCH, updatedETag))
+            .andExpect(status().isNotFound());
+    }
+
+    /**
+     * Versions are only cached once committed, so this test commits its event and deletes it afterwards.
+     */
+    @Test
+    public void getUnchangedCalendarEventsFromMemory() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        User user = userService.getUserWithAuthorities();
+        Long id = transactionTemplate.execute(status -> calendarEventService.create(
+            calendarEventMapper.calendarEventToDTO(TestObjectUtil.createCalendarEvent()), user).getId());
+        try {
+            String eTag = restCalendarEventMockMvc.perform(get("/api/calendar-events"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+            StatementCounter counter = new StatementCounter(em);
+            ReflectionTestUtils.setField(calendarVersionRepository, "jdbcTemplate", counter.countingJdbcTemplate(jdbcTemplate));
+            try {
+                restCalendarEventMockMvc.perform(get("/api/calendar-events").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                    .andExpect(status().isNotModified());
+            } finally {
+                ReflectionTestUtils.setField(calendarVersionRepository, "jdbcTemplate", jdbcTemplate);
+            }
+            // The current user's, read by every request
+            assertThat(counter.getCount()).isEqualTo(1);
+        } finally {
+            transactionTemplate.execute(status -> {
+                calendarEventService.delete(id);
+                calendarService.findCalendarIdForUser(user).ifPresent(calendarId -> {
+                    calendarRepository.delete(calendarId);
+                    calendarService.evictCalendar(calendarId);
+                });
+                return null;
+            });
+        }
+    }
+
+    @Test
+    @Transactional
+    public void syncCalendarEvents() throws Exception {
+        User user = userService.getUserWithAuthorities();
+        CalendarEvent updated = calendarEventService.create(getEventDTO(), user);
+        CalendarEvent deleted = calendarEventService.create(getEventDTO(), user);
+
+        String token = JsonPath.read(restCalendarEventMockMvc.perform(get("/api/calendar-events/sync"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.created").value(contains(updated.getId().intValue(), deleted.getId().intValue())))
+            .andExpect(jsonPath("$.updated").isEmpty())
+            .andExpect(jsonPath("$.deleted").isEmpty())
+            .andReturn().getResponse().getContentAsString(), "$.token");
+
+        CalendarEventDTO dto = calendarEventMapper.calendarEventToDTO(updated);
+        dto.setTitle(UPDATED_TITLE);
+        calendarEventService.update(dto);
+        calendarEventService.delete(deleted.getId());
+        CalendarEvent created = calendarEventService.create(getEventDTO(), user);
+        // Never seen by the client, so not reported at all
+        calendarEventService.delete(calendarEventService.create(getEventDTO(), user).getId());
+
+        String nextToken = JsonPath.read(restCalendarEventMockMvc.perform(get("/api/calendar-events/sync?token={token}", token))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.created").value(contains(created.getId().intValue())))
+            .andExpect(jsonPath("$.updated").value(contains(updated.getId().intValue())))
+            .andExpect(jsonPath("$.deleted").value(contains(deleted.getId().intValue())))
+            .andReturn().getResponse().getContentAsString(), "$.token");
+        assertThat(nextToken).isNotEqualTo(token);
+
+        restCalendarEventMockMvc.perform(get("/api/calendar-events/sync?token={token}", nextToken))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.created").isEmpty())
+            .andExpect(jsonPath("$.updated").isEmpty())
+            .andExpect(jsonPath("$.deleted").isEmpty());
+    }
+
+    @Test
+    @Transactional
+    public void syncCalendarEventsWithInvalidToken() throws Exception {
+        User user = userService.getUserWithAuthorities();
+        Long calendarId = calendarService.getCalendarIdForUser(user);
+
+        restCalendarEventMockMvc.perform(get("/api/calendar-events/sync?token=invalid"))
+            .andExpect(status().isBadRequest());
+        restCalendarEventMockMvc.perform(get("/api/calendar-events/sync?token={token}",
+            new CalendarSyncToken(calendarId + 1, 0, Instant.now()).encode()))
+            .andExpect(status().isBadRequest());
+        restCalendarEventMockMvc.perform(get("/api/calendar-events/sync?token={token}",
+            new CalendarSyncToken(calendarId, 0, Instant.now().minus(31, ChronoUnit.DAYS)).encode()))
+            .andExpect(status().isGone());
+    }
+
+    /**
+     * Versions are only cached once committed, so this test commits its event and deletes it afterwards.
+     */
+    @Test
+    public void syncUnchangedCalendarEventsFromMemory() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        User user = userService.getUserWithAuthorities();
+        Long id = transactionTemplate.execute(status -> calendarEventService.create(getEventDTO(), user).getId());
+        try {
+            String token = JsonPath.read(restCalendarEventMockMvc.perform(get("/api/calendar-events/sync"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(contains(id.intValue())))
+                .andReturn().getResponse().getContentAsString(), "$.token");
+
+            StatementCounter counter = new StatementCounter(em);
+            ReflectionTestUtils.setField(calendarVersionRepository, "jdbcTemplate", counter.countingJdbcTemplate(jdbcTemplate));
+            ReflectionTestUtils.setField(calendarEventChangeRepository, "jdbcTemplate", counter.countingJdbcTemplate(jdbcTemplate));
+            try {
+                restCalendarEventMockMvc.perform(get("/api/calendar-events/sync?token={token}", token))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.created").isEmpty());
+            } finally {
+                ReflectionTestUtils.setField(calendarVersionRepository, "jdbcTemplate", jdbcTemplate);
+                ReflectionTestUtils.setField(calendarEventChangeRepository, "jdbcTemplate", jdbcTemplate);
+            }
+            // The current user's, read by every request
+            assertThat(counter.getCount()).isEqualTo(1);
+        } finally {
+            transactionTemplate.execute(status -> {
+                calendarEventService.delete(id);
+                calendarService.findCalendarIdForUser(user).ifPresent(calendarId -> {
+                    jdbcTemplate.update("delete from calendar_event_change where calendar_id = ?", calendarId);
+                    calendarRepository.delete(calendarId);
+                    calendarService.evictCalendar(calendarId);
+                });
+                return null;
+            });
+        }
+    }
+
+    @Test
+    @Transactional
+    public void bulkCalendarEvents() throws Exception {
+        User user = userService.getUserWithAuthorities();
+        CalendarEvent updated = calendarEventService.create(getEventDTO(), user);
+        CalendarEvent deleted = calendarEventService.create(getEventDTO(), user);
+        int databaseSizeBeforeBulk = calendarEventRepository.findAll().size();
+
+        CalendarEventBulkDTO bulk = new CalendarEventBulkDTO();
+        bulk.getCreate().add(getEventDTO());
+        CalendarEventDTO invalid = getEventDTO();
+        invalid.setTitle(null);
+        bulk.getCreate().add(invalid);
+        CalendarEventDTO update = calendarEventMapper.calendarEventToDTO(updated);
+        update.setTitle(UPDATED_TITLE);
+        bulk.getUpdate().add(update);
+        bulk.getDelete().add(deleted.getId());
+        bulk.getDelete().add(Long.MAX_VALUE);
+
+        restCalendarEventMockMvc.perform(post("/api/calendar-events/bulk")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(bulk)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].operation").value(contains("create", "create", "update", "delete", "delete")))
+            .andExpect(jsonPath("$.[*].index").value(contains(0, 1, 0, 0, 1)))
+            .andExpect(jsonPath("$.[*].status").value(contains(201, 400, 200, 200, 404)))
+            .andExpect(jsonPath("$.[1].message").value(containsString("title")))
+            .andExpect(jsonPath("$.[2].id").value(updated.getId().intValue()));
+
+        assertThat(calendarEventRepository.findAll()).hasSize(databaseSizeBeforeBulk);
+        assertThat(calendarEventRepository.findOne(updated.getId()).getTitle()).isEqualTo(UPDATED_TITLE);
+        assertThat(calendarEventRepository.findOne(deleted.getId())).isNull();
+    }
+
+    @Test
+    @Transactional
+    public void bulkCalendarEventsIsCapped() throws Exception {
+        CalendarEventBulkDTO bulk = new CalendarEventBulkDTO();
+        for (long id = 1; id <= 5001; id++) {
+            bulk.getDelete().add(id);
+        }
+        restCalendarEventMockMvc.perform(post("/api/calendar-events/bulk")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(bulk)))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     public void updateCalendarEvent() throws Exception {
@@ -319,6 +736,39 @@ public class CalendarEventResourceIntTest {
         assertThat(calendarEventList).hasSize(databaseSizeBeforeDelete - 1);
     }
 
+    @Test
+    @Transactional
+    public void snoozeReminder() throws Exception {
+        persistCalendarEvent();
+        CalendarEvent calendarEvent = calendarEventRepository.findAll().get(0);
+
+        restCalendarEventMockMvc.perform(post("/api/calendar-events/{id}/snooze", calendarEvent.getId())
+            .param("minutes", "5"))
+            .andExpect(status().isOk());
+        restCalendarEventMockMvc.perform(post("/api/calendar-events/{id}/snooze", calendarEvent.getId())
+            .param("minutes", "0"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void snoozeNonExistingReminder() throws Exception {
+        restCalendarEventMockMvc.perform(post("/api/calendar-events/{id}/snooze", Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+        restCalendarEventMockMvc.perform(post("/api/calendar-events/{id}/acknowledge", Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    public void acknowledgeReminder() throws Exception {
+        persistCalendarEvent();
+        CalendarEvent calendarEvent = calendarEventRepository.findAll().get(0);
+
+        restCalendarEventMockMvc.perform(post("/api/calendar-events/{id}/acknowledge", calendarEvent.getId()))
+            .andExpect(status().isOk());
+    }
+
     @Test
     @Transactional
     public void equalsVerifier() throws Exception {
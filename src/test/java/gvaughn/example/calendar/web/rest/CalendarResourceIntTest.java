@@ -4,6 +4,7 @@ import gvaughn.example.calendar.CalendarApp;
 import gvaughn.example.calendar.domain.Calendar;
 import gvaughn.example.calendar.domain.User;
 import gvaughn.example.calendar.repository.CalendarRepository;
+import gvaughn.example.calendar.service.CalendarService;
 import gvaughn.example.calendar.web.rest.errors.ExceptionTranslator;
 import org.junit.Before;
 import org.junit.Test;
@@ -42,6 +43,9 @@ public class CalendarResourceIntTest {
     @Autowired
     private CalendarRepository calendarRepository;
 
+    @Autowired
+    private CalendarService calendarService;
+
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -61,7 +65,7 @@ public class CalendarResourceIntTest {
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        CalendarResource calendarResource = new CalendarResource(calendarRepository);
+        CalendarResource calendarResource = new CalendarResource(calendarRepository, calendarService);
         this.restCalendarMockMvc = MockMvcBuilders.standaloneSetup(calendarResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setControllerAdvice(exceptionTranslator)
@@ -0,0 +1,167 @@
+package gvaughn.example.calendar.web.rest;
+
+import gvaughn.example.calendar.CalendarApp;
+import gvaughn.example.calendar.domain.CalendarEvent;
+import gvaughn.example.calendar.domain.User;
+import gvaughn.example.calendar.service.CalendarEventService;
+import gvaughn.example.calendar.service.FreeBusyService;
+import gvaughn.example.calendar.service.TestObjectUtil;
+import gvaughn.example.calendar.service.UserService;
+import gvaughn.example.calendar.service.mapper.CalendarEventMapper;
+import gvaughn.example.calendar.web.rest.errors.ExceptionTranslator;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
+
+import static gvaughn.example.calendar.web.rest.TestUtil.sameInstant;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Test class for the FreeBusyResource REST controller.
+ *
+ * @see FreeBusyResource
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = CalendarApp.class)
+@WithMockUser
+@Transactional
+public class FreeBusyResourceIntTest {
+
+    private static final ZonedDateTime START = ZonedDateTime.of(2001, 1, 1, 9, 0, 0, 0, ZoneOffset.UTC);
+
+    private static final String LOGIN = "free-busy";
+
+    @Autowired
+    private FreeBusyService freeBusyService;
+
+    @Autowired
+    private CalendarEventService calendarEventService;
+
+    @Autowired
+    private CalendarEventMapper calendarEventMapper;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private MappingJackson2HttpMessageConverter jacksonMessageConverter;
+
+    @Autowired
+    private ExceptionTranslator exceptionTranslator;
+
+    private MockMvc restFreeBusyMockMvc;
+
+    private User user;
+
+    @Before
+    public void setup() {
+        FreeBusyResource freeBusyResource = new FreeBusyResource(freeBusyService);
+        this.restFreeBusyMockMvc = MockMvcBuilders.standaloneSetup(freeBusyResource)
+            .setControllerAdvice(exceptionTranslator)
+            .setMessageConverters(jacksonMessageConverter).build();
+        user = userService.createUser(LOGIN, "password", "Free", "Busy", LOGIN + "@example.com", null, null);
+    }
+
+    @Test
+    public void getFreeBusy() throws Exception {
+        // Slots 0 to 3
+        createEvent(user, START, 60);
+        // Slot 0, ending one minute into the range
+        createEvent(user, START.minusMinutes(CalendarEvent.MAX_DURATION_MINUTES - 1), CalendarEvent.MAX_DURATION_MINUTES);
+        // Slot 8, as an event without a duration occupies the quarter hour it starts in
+        createEvent(user, START.plusMinutes(2 * 60 + 10), null);
+        // Slots 14 and 15, cut off at the end of the range
+        createEvent(user, START.plusMinutes(3 * 60 + 30), 90);
+        // Outside the range, or in another user's calendar
+        createEvent(user, START.minusMinutes(30), 30);
+        createEvent(user, START.plusHours(4), 15);
+        User other = userService.createUser(LOGIN + "-other", "password", "Free", "Busy", LOGIN + "-other@example.com", null, null);
+        createEvent(other, START.plusMinutes(5 * 15), 15);
+
+        restFreeBusyMockMvc.perform(get("/api/free-busy/{login}", LOGIN)
+            .param("start", START.plusMinutes(5).toString())
+            .param("end", START.plusHours(4).toString()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.start").value(sameInstant(START)))
+            .andExpect(jsonPath("$.end").value(sameInstant(START.plusHours(4))))
+            .andExpect(jsonPath("$.slotMinutes").value(FreeBusyService.SLOT_MINUTES))
+            .andExpect(jsonPath("$.slots").value(16))
+            .andExpect(jsonPath("$.busy").value(Base64.getEncoder().encodeToString(new byte[]{0x0F, (byte) 0xC1})));
+    }
+
+    @Test
+    public void getFreeBusyOfRecurringEvent() throws Exception {
+        // Weekly since the week before the range, so busy at every occurrence within it, not just the first
+        createEvent(user, START.minusWeeks(1), 60, "FREQ=WEEKLY");
+        int slotsPerWeek = 7 * 24 * 60 / FreeBusyService.SLOT_MINUTES;
+        int slots = 2 * slotsPerWeek + 8;
+        BitSet busy = new BitSet(slots);
+        busy.set(0, 4);
+        busy.set(slotsPerWeek, slotsPerWeek + 4);
+        busy.set(2 * slotsPerWeek, 2 * slotsPerWeek + 4);
+
+        restFreeBusyMockMvc.perform(get("/api/free-busy/{login}", LOGIN)
+            .param("start", START.toString())
+            .param("end", START.plusMinutes(slots * FreeBusyService.SLOT_MINUTES).toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.slots").value(slots))
+            .andExpect(jsonPath("$.busy").value(Base64.getEncoder().encodeToString(Arrays.copyOf(busy.toByteArray(), slots / 8))));
+    }
+
+    @Test
+    public void getFreeBusyOfUserWithoutCalendar() throws Exception {
+        restFreeBusyMockMvc.perform(get("/api/free-busy/{login}", LOGIN)
+            .param("start", START.toString())
+            .param("end", START.plusWeeks(1).toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.slots").value(7 * 24 * 4))
+            .andExpect(jsonPath("$.busy").value(Base64.getEncoder().encodeToString(new byte[7 * 24 * 4 / 8])));
+    }
+
+    @Test
+    public void getFreeBusyOfUnknownUser() throws Exception {
+        restFreeBusyMockMvc.perform(get("/api/free-busy/{login}", "no-such-user")
+            .param("start", START.toString())
+            .param("end", START.plusDays(1).toString()))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void getFreeBusyWithInvalidRange() throws Exception {
+        restFreeBusyMockMvc.perform(get("/api/free-busy/{login}", LOGIN)
+            .param("start", START.toString())
+            .param("end", START.toString()))
+            .andExpect(status().isBadRequest());
+        restFreeBusyMockMvc.perform(get("/api/free-busy/{login}", LOGIN)
+            .param("start", START.toString())
+            .param("end", START.plusDays(31).plusMinutes(1).toString()))
+            .andExpect(status().isBadRequest());
+    }
+
+    private void createEvent(User owner, ZonedDateTime time, Integer duration) {
+        createEvent(owner, time, duration, null);
+    }
+
+    private void createEvent(User owner, ZonedDateTime time, Integer duration, String recurrenceRule) {
+        CalendarEvent event = TestObjectUtil.createCalendarEvent().time(time).duration(duration)
+            .recurrenceRule(recurrenceRule);
+        calendarEventService.create(calendarEventMapper.calendarEventToDTO(event), owner);
+    }
+}